@@ -0,0 +1,34 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, but adds the {@link GCProfiler}
+ * unless other profilers are requested, so every run reports the allocation rate.
+ * <p>
+ * <code>java -jar target/MorreClientBenchmarks.jar [JMH options] [benchmark regexp]</code>
+ * </p>
+ *
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if( commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats() ) {
+			// nothing to run, the JMH main handles these
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if( commandLine.getProfilers().isEmpty() )
+			options.addProfiler(GCProfiler.class);
+
+		new Runner( options.build() ).run();
+	}
+
+}
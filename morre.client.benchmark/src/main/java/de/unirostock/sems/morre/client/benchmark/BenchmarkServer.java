@@ -0,0 +1,105 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+
+/**
+ * Minimal in-process MORRE server for round trip benchmarks.
+ * <p>
+ * Answers are prepared up front and sent as they are, so the measurement contains the client and
+ * the loopback transport, but next to no server side work. Every path of the REST API answers with
+ * the bytes registered for it, a GET on a query type with the feature list.
+ * </p>
+ *
+ */
+public class BenchmarkServer {
+
+	public static final String CONTEXT = "/morre/";
+
+	static {
+		// the JDK server writes headers and body separately, without TCP_NODELAY every
+		// keep-alive request would wait for the delayed ACK of the client
+		if( System.getProperty("sun.net.httpserver.nodelay") == null )
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final Map<String, byte[]> answers = new ConcurrentHashMap<String, byte[]>();
+	private HttpServer server = null;
+	private ExecutorService executor = null;
+
+	/**
+	 * Sets the answer of a path below the context, e.g. {@link MorreProtocol#SERVICE_GET_MODEL_VERSION}.
+	 *
+	 * @param path the path
+	 * @param answer the JSON answer
+	 * @return this server
+	 */
+	public BenchmarkServer answer( String path, byte[] answer ) {
+		answers.put(path, answer);
+		return this;
+	}
+
+	public void start() throws IOException {
+		server = HttpServer.create( new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512 );
+		server.createContext( CONTEXT, new Handler() );
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	public void stop() {
+		if( server != null )
+			server.stop(0);
+		if( executor != null )
+			executor.shutdownNow();
+	}
+
+	public String getUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + CONTEXT;
+	}
+
+	private class Handler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				// the whole request, to keep the connection alive
+				InputStream body = exchange.getRequestBody();
+				byte[] buffer = new byte[8192];
+				while( body.read(buffer) >= 0 )
+					;
+
+				String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+				byte[] answer = "GET".equals(exchange.getRequestMethod()) ? ResponseCorpus.FEATURES : answers.get(path);
+				if( answer == null ) {
+					exchange.sendResponseHeaders(404, -1);
+					return;
+				}
+
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+				exchange.sendResponseHeaders(200, answer.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(answer);
+				out.close();
+			}
+			finally {
+				exchange.close();
+			}
+		}
+
+	}
+
+}
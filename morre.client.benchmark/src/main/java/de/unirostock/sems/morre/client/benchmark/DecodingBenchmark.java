@@ -0,0 +1,168 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+
+/**
+ * Decoding of MORRE answers held in memory, without any transport. Covers the result lists of all
+ * query types, the crawled model and the error answers.
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodingBenchmark {
+
+	/**
+	 * Model results, either many hits with small documents or a few hits with documents of several MB.
+	 */
+	@State(Scope.Benchmark)
+	public static class ModelCorpus {
+
+		/** number of hits x length of the model document */
+		@Param({ "200x1024", "10x2097152" })
+		public String shape;
+
+		private byte[] answer;
+
+		@Setup
+		public void setup() {
+			String[] parts = shape.split("x");
+			answer = ResponseCorpus.modelResults( Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) );
+		}
+
+	}
+
+	/**
+	 * Person, publication and annotation results.
+	 */
+	@State(Scope.Benchmark)
+	public static class RecordCorpus {
+
+		@Param({ "100", "2000" })
+		public int results;
+
+		private byte[] persons;
+		private byte[] publications;
+		private byte[] annotations;
+
+		@Setup
+		public void setup() {
+			persons = ResponseCorpus.personResults(results);
+			publications = ResponseCorpus.publicationResults(results);
+			annotations = ResponseCorpus.annotationResults(results);
+		}
+
+	}
+
+	/**
+	 * A crawled model with a document of 1 MB.
+	 */
+	@State(Scope.Benchmark)
+	public static class ServiceCorpus {
+
+		private byte[] crawledModel;
+
+		@Setup
+		public void setup() {
+			crawledModel = ResponseCorpus.crawledModelResult("BIOMD0000000005.xml", "2014-03-04", 1024 * 1024);
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class Decoder {
+
+		private MorreProtocol protocol;
+
+		@Setup
+		public void setup() throws Exception {
+			protocol = new MorreProtocol("http://localhost:7474/morre/");
+		}
+
+	}
+
+	@Benchmark
+	public List<ModelResult> modelResults( ModelCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.answer), decoder.protocol.modelResultDecoder(Projection.FULL, null) );
+	}
+
+	@Benchmark
+	public List<ModelResult> modelResultsMetadata( ModelCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.answer), decoder.protocol.modelResultDecoder(Projection.METADATA, null) );
+	}
+
+	@Benchmark
+	public List<PersonResult> personResults( RecordCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.persons), decoder.protocol.personResultDecoder() );
+	}
+
+	@Benchmark
+	public List<PublicationResult> publicationResults( RecordCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.publications), decoder.protocol.publicationResultDecoder() );
+	}
+
+	@Benchmark
+	public List<AnnotationResult> annotationResults( RecordCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.annotations), decoder.protocol.annotationResultDecoder() );
+	}
+
+	@Benchmark
+	public CrawledModel crawledModel( ServiceCorpus corpus, Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(corpus.crawledModel), decoder.protocol.crawledModelDecoder() );
+	}
+
+	@Benchmark
+	public List<ModelResult> noResult( Decoder decoder ) throws Exception {
+		return decoder.protocol.decode( entity(ResponseCorpus.NO_RESULT), decoder.protocol.modelResultDecoder(Projection.FULL, null) );
+	}
+
+	@Benchmark
+	public Object queryException( Decoder decoder ) throws Exception {
+		try {
+			return decoder.protocol.decode( entity(ResponseCorpus.QUERY_EXCEPTION), decoder.protocol.modelResultDecoder(Projection.FULL, null) );
+		} catch (MorreException e) {
+			return e;
+		}
+	}
+
+	@Benchmark
+	public Object serviceException( Decoder decoder ) throws Exception {
+		try {
+			return decoder.protocol.decode( entity(ResponseCorpus.SERVICE_EXCEPTION), decoder.protocol.crawledModelDecoder() );
+		} catch (MorreException e) {
+			return e;
+		}
+	}
+
+	private static HttpEntity entity( byte[] answer ) {
+		return new ByteArrayEntity( answer, ContentType.APPLICATION_JSON );
+	}
+
+}
@@ -0,0 +1,106 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.HttpPost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+
+/**
+ * Building of the requests, from the {@link FeatureSet} to the serialized JSON body.
+ * The bodies are written into a discarding stream, so lazily serialized entities are measured as well.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+	/** length of the model document of an added model */
+	@Param({ "1024", "2097152" })
+	public int xmldocSize;
+
+	private MorreProtocol protocol;
+	private FeatureSet features;
+	private CrawledModel model;
+
+	@Setup
+	public void setup() throws Exception {
+		protocol = new MorreProtocol("http://localhost:7474/morre/");
+		features = new FeatureSet()
+				.set("NAME", "cell cycle")
+				.set("FAMILYNAME", "Tyson")
+				.set("GIVENNAME", "John")
+				.set("ORGANIZATION", "Virginia Tech")
+				.set("TITLE", "Modeling the cell division cycle");
+		model = ResponseCorpus.crawledModel("BIOMD0000000005.xml", "2014-03-04", xmldocSize);
+	}
+
+	@Benchmark
+	public Map.Entry<List<String>, List<String>> featureSet() {
+		return features.getFeatures();
+	}
+
+	@Benchmark
+	public long queryRequest() throws MorreClientException, IOException {
+		return write( protocol.buildQueryRequest(QueryType.PERSON_QUERY, features) );
+	}
+
+	@Benchmark
+	public long simpleQueryRequest() throws MorreClientException, IOException {
+		return write( protocol.buildSimpleQueryRequest(QueryType.MODEL_QUERY, "cell cycle") );
+	}
+
+	@Benchmark
+	public long addModelRequest() throws MorreClientException, IOException {
+		return write( protocol.buildAddModelRequest(model) );
+	}
+
+	private static long write( HttpPost request ) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		request.getEntity().writeTo(out);
+		return out.count;
+	}
+
+	/**
+	 * Discards everything, but counts the bytes, so the serialization can not be eliminated.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count = 0;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			count += length;
+		}
+
+	}
+
+}
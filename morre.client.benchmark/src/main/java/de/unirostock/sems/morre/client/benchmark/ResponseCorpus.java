@@ -0,0 +1,140 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * Generates MORRE answers of a given size, as the server would send them.
+ * <p>
+ * The documents are synthetic SBML of the requested length, the other fields resemble the values
+ * of a BioModels or PMR2 crawl. The same arguments always produce the same bytes.
+ * </p>
+ *
+ */
+public final class ResponseCorpus {
+
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** answer of MORRE to a query without hits */
+	public static final byte[] NO_RESULT = bytes("[\"#Results\",\"0\"]");
+	/** answer of MORRE to a failing query */
+	public static final byte[] QUERY_EXCEPTION = bytes("[\"Exception\",\"org.neo4j.graphdb.NotFoundException: Index 'modelIndex' does not exist\"]");
+	/** answer of MORRE to a failing crawler or update service call */
+	public static final byte[] SERVICE_EXCEPTION = bytes("{\"Exception\":\"java.lang.IllegalArgumentException: No model with fileId BIOMD0000000999\"}");
+	/** answer of MORRE to a GET on a query type */
+	public static final byte[] FEATURES = bytes("[\"NAME\",\"ID\",\"FAMILYNAME\",\"GIVENNAME\",\"ORGANIZATION\",\"TITLE\",\"JOURNAL\",\"YEAR\"]");
+	/** answer of MORRE to a successful add model call */
+	public static final byte[] ADD_MODEL_OK = bytes("{\"ok\":\"true\"}");
+
+	private static final Gson gson = new Gson();
+
+	private ResponseCorpus() {
+	}
+
+	public static byte[] modelResults( int results, int xmldocSize ) {
+		List<ModelResult> list = new ArrayList<ModelResult>(results);
+		for( int i = 0; i < results; i++ ) {
+			String fileId = "BIOMD" + String.format("%010d", i) + ".xml";
+			list.add( new ModelResult("Tyson1991 - Cell Cycle model " + i, "BIOMD" + String.format("%010d", i), "2014-03-04",
+					xmldoc(fileId, xmldocSize), "urn:model:www.ebi.ac.uk:biomodels:" + fileId, fileId, 1f / (i + 1)) );
+		}
+		return bytes( gson.toJson(list) );
+	}
+
+	public static byte[] personResults( int results ) {
+		List<PersonResult> list = new ArrayList<PersonResult>(results);
+		for( int i = 0; i < results; i++ )
+			list.add( new PersonResult(1f / (i + 1), person(i), relatedModels(i, 5)) );
+		return bytes( gson.toJson(list) );
+	}
+
+	public static byte[] publicationResults( int results ) {
+		List<PublicationResult> list = new ArrayList<PublicationResult>(results);
+		for( int i = 0; i < results; i++ ) {
+			List<Person> authors = Arrays.asList( person(i), person(i + 1), person(i + 2) );
+			Publication publication = new Publication( "Modeling the cell division cycle: cdc2 and cyclin interactions " + i,
+					"Proceedings of the National Academy of Sciences", synopsis(i), String.valueOf(1990 + i % 30), authors );
+			list.add( new PublicationResult(1f / (i + 1), publication, relatedModels(i, 3)) );
+		}
+		return bytes( gson.toJson(list) );
+	}
+
+	public static byte[] annotationResults( int results ) {
+		List<AnnotationResult> list = new ArrayList<AnnotationResult>(results);
+		for( int i = 0; i < results; i++ )
+			list.add( new AnnotationResult(1f / (i + 1), "urn:miriam:obo.go:GO%3A" + String.format("%07d", i), relatedModels(i, 8)) );
+		return bytes( gson.toJson(list) );
+	}
+
+	public static CrawledModel crawledModel( String fileId, String versionId, int xmldocSize ) {
+		Map<String, List<String>> parentMap = new HashMap<String, List<String>>();
+		parentMap.put( versionId, Arrays.asList("1") );
+		Map<String, String> metaMap = new HashMap<String, String>();
+		metaMap.put( CrawledModel.META_SOURCE, CrawledModel.SOURCE_BIOMODELS_DB );
+		metaMap.put( CrawledModel.META_CRAWLED_DATE, "2014-03-04T12:00:00Z" );
+		metaMap.put( CrawledModel.META_VERSION_DATE, "2013-11-20T08:30:00Z" );
+		return new CrawledModel( fileId, versionId, xmldoc(fileId, xmldocSize), parentMap, metaMap, CrawledModel.TYPE_SBML );
+	}
+
+	public static byte[] crawledModelResult( String fileId, String versionId, int xmldocSize ) {
+		return bytes( gson.toJson(crawledModel(fileId, versionId, xmldocSize)) );
+	}
+
+	/**
+	 * Builds an SBML like document of roughly the given length.
+	 *
+	 * @param id the id of the model
+	 * @param size the length in characters
+	 * @return the document
+	 */
+	public static String xmldoc( String id, int size ) {
+		StringBuilder doc = new StringBuilder( size + 256 );
+		doc.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<sbml xmlns=\"http://www.sbml.org/sbml/level2/version4\" level=\"2\" version=\"4\">\n");
+		doc.append("<model id=\"").append(id).append("\">\n<listOfSpecies>\n");
+		int species = 0;
+		while( doc.length() < size ) {
+			doc.append("<species id=\"s").append(species).append("\" name=\"cyclin_").append(species)
+				.append("\" compartment=\"cell\" initialConcentration=\"").append(species * 0.01).append("\"/>\n");
+			species++;
+		}
+		doc.append("</listOfSpecies>\n</model>\n</sbml>\n");
+		return doc.toString();
+	}
+
+	private static Person person( int i ) {
+		return new Person( "Given" + (i % 97), "Family" + (i % 89), "person" + (i % 97) + "@example.org", "University of Rostock" );
+	}
+
+	private static List<String> relatedModels( int i, int count ) {
+		List<String> uris = new ArrayList<String>(count);
+		for( int j = 0; j < count; j++ )
+			uris.add( "urn:model:www.ebi.ac.uk:biomodels:BIOMD" + String.format("%010d", (i + j) % 1000) + ".xml" );
+		return uris;
+	}
+
+	private static String synopsis( int i ) {
+		StringBuilder synopsis = new StringBuilder();
+		for( int j = 0; j < 8; j++ )
+			synopsis.append("The cell cycle is regulated by the periodic synthesis and degradation of cyclin ").append(i).append(". ");
+		return synopsis.toString();
+	}
+
+	private static byte[] bytes( String json ) {
+		return json.getBytes(UTF8);
+	}
+
+}
@@ -0,0 +1,95 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+
+/**
+ * Complete requests of a pooling {@link HttpMorreClient} against a {@link BenchmarkServer} on the loopback interface.
+ * All threads of a run share the client, run with <code>-t</code> to measure it under contention.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+	/** number of hits of a query */
+	@Param({ "20", "200" })
+	public int results;
+
+	/** length of the model documents */
+	@Param({ "4096" })
+	public int xmldocSize;
+
+	private BenchmarkServer server;
+	private HttpMorreClient client;
+	private FeatureSet features;
+	private CrawledModel model;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		server = new BenchmarkServer()
+				.answer( MorreProtocol.REST_URL_QUERY + QueryType.MODEL_QUERY, ResponseCorpus.modelResults(results, xmldocSize) )
+				.answer( MorreProtocol.REST_URL_QUERY + QueryType.PERSON_QUERY, ResponseCorpus.personResults(results) )
+				.answer( MorreProtocol.SERVICE_GET_MODEL_VERSION, ResponseCorpus.crawledModelResult("BIOMD0000000005.xml", "2014-03-04", xmldocSize) )
+				.answer( MorreProtocol.SERVICE_ADD_MODEL, ResponseCorpus.ADD_MODEL_OK );
+		server.start();
+
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+		features = new FeatureSet().set("FAMILYNAME", "Tyson");
+		model = ResponseCorpus.crawledModel("BIOMD0000000005.xml", "2014-03-05", xmldocSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		client.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public List<ModelResult> modelQuery() throws Exception {
+		return client.modelQuery("cell cycle");
+	}
+
+	@Benchmark
+	public List<PersonResult> personQuery() throws Exception {
+		return client.doPersonQuery(features);
+	}
+
+	@Benchmark
+	public CrawledModel getModelVersion() throws Exception {
+		return client.getModelVersion("BIOMD0000000005.xml", "2014-03-04");
+	}
+
+	@Benchmark
+	public boolean addModel() throws Exception {
+		return client.addModel(model);
+	}
+
+}
@@ -0,0 +1,129 @@
+package de.unirostock.sems.morre.client.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+
+/**
+ * Java serialization of the dataholders in their compact form against the default form of Java serialization,
+ * which they used before. The size of the serialized objects is printed during the setup.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+	/** compact: the codec of the dataholders, default: the field by field form of Java serialization */
+	@Param({ "compact", "default" })
+	public String form;
+
+	/** model results with small documents, or one crawled model with a large document */
+	@Param({ "200x1024", "1x1048576" })
+	public String shape;
+
+	private Object dataholders;
+	private byte[] serialized;
+
+	@Setup
+	public void setup() throws Exception {
+		String[] parts = shape.split("x");
+		int count = Integer.parseInt(parts[0]);
+		int xmldocSize = Integer.parseInt(parts[1]);
+
+		if( count == 1 )
+			dataholders = ResponseCorpus.crawledModel("BIOMD0000000005.xml", "2014-03-04", xmldocSize);
+		else {
+			ArrayList<ModelResult> results = new ArrayList<ModelResult>(count);
+			for( int i = 0; i < count; i++ ) {
+				String fileId = "BIOMD" + String.format("%010d", i) + ".xml";
+				results.add( new ModelResult("Tyson1991 - Cell Cycle model " + i, "BIOMD" + String.format("%010d", i), "2014-03-04",
+						ResponseCorpus.xmldoc(fileId, xmldocSize), "urn:model:www.ebi.ac.uk:biomodels:" + fileId, fileId, 1f / (i + 1)) );
+			}
+			dataholders = results;
+		}
+
+		serialized = write();
+		System.out.println( "serialized size of " + shape + " in the " + form + " form: " + serialized.length + " bytes" );
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = form.equals("compact") ? new ObjectOutputStream(bytes) : new DefaultFormOutputStream(bytes);
+		out.writeObject(dataholders);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public Object read() throws Exception {
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream(serialized) );
+		Object result = in.readObject();
+		in.close();
+		return result;
+	}
+
+	/**
+	 * Writes the dataholders in the default form: replaces their serialization proxy by the dataholder again,
+	 * which is then written field by field. Both forms are read by a plain ObjectInputStream.
+	 */
+	private static class DefaultFormOutputStream extends ObjectOutputStream {
+
+		private static final Class<?> PROXY;
+		private static final Field DATAHOLDER;
+
+		static {
+			try {
+				PROXY = Class.forName("de.unirostock.sems.morre.client.dataholder.SerializedForm");
+				DATAHOLDER = PROXY.getDeclaredField("dataholder");
+				DATAHOLDER.setAccessible(true);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private DefaultFormOutputStream( OutputStream out ) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject( Object object ) throws IOException {
+			if( object == null || object.getClass() != PROXY )
+				return object;
+
+			try {
+				return DATAHOLDER.get(object);
+			} catch (IllegalAccessException e) {
+				throw new IOException(e);
+			}
+		}
+
+	}
+
+}
@@ -29,6 +29,22 @@ public interface Morre extends Serializable {
 	 */
 	public List<ModelResult> modelQuery( String query ) throws MorreException, MorreClientException, MorreCommunicationException;
 	
+	/**
+	 * Searches for a model on the basis of a simple query, decoding only the given projection of the results.
+	 * The default implementation performs a {@link Projection#FULL FULL} query.
+	 *
+	 * @param query String
+	 * @param projection the parts of the results to decode
+	 * @return List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException the morre client exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public default List<ModelResult> modelQuery( String query, Projection projection ) throws MorreException, MorreClientException, MorreCommunicationException {
+		// decodes the whole results, every projection is contained in them
+		return modelQuery(query);
+	}
+	
 	/**
 	 * Returns the available features for a given query type.
 	 *
@@ -66,6 +82,24 @@ public interface Morre extends Serializable {
 	 */
 	public List<ModelResult> doModelQuery( String queryType, FeatureSet features ) throws MorreException, MorreClientException, MorreCommunicationException;
 	
+	/**
+	 * Performs a more complex query of the given type, decoding only the given projection of the results.
+	 * The default implementation performs a {@link Projection#FULL FULL} query.
+	 * The available features can be retrieved by {@link #getQueryFeatures(String) getQueryFeatures}.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @param projection the parts of the results to decode
+	 * @return List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException the morre client exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public default List<ModelResult> doModelQuery( String queryType, FeatureSet features, Projection projection ) throws MorreException, MorreClientException, MorreCommunicationException {
+		// decodes the whole results, every projection is contained in them
+		return doModelQuery(queryType, features);
+	}
+	
 	/**
 	 * Performs a simple query with only one keyword field for the given {@link de.unirostock.sems.morre.client.QueryType queryType}
 	 * <b>Note:</b> Only some queryTypes are supporting this method!
@@ -79,6 +113,24 @@ public interface Morre extends Serializable {
 	 */
 	public List<ModelResult> doSimpleModelQuery( String queryType, String keyword ) throws MorreException, MorreClientException, MorreCommunicationException;
 	
+	/**
+	 * Performs a simple query with only one keyword field for the given {@link de.unirostock.sems.morre.client.QueryType queryType},
+	 * decoding only the given projection of the results. The default implementation performs a {@link Projection#FULL FULL} query.
+	 * <b>Note:</b> Only some queryTypes are supporting this method!
+	 *
+	 * @param queryType the query type
+	 * @param keyword String
+	 * @param projection the parts of the results to decode
+	 * @return List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException the morre client exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public default List<ModelResult> doSimpleModelQuery( String queryType, String keyword, Projection projection ) throws MorreException, MorreClientException, MorreCommunicationException {
+		// decodes the whole results, every projection is contained in them
+		return doSimpleModelQuery(queryType, keyword);
+	}
+	
 	/**
 	 * Searches for a Person on the basis of the given features
 	 * The available features can be retrieved by {@link #getQueryFeatures(String) getQueryFeatures}.
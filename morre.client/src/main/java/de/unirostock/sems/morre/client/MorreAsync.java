@@ -0,0 +1,146 @@
+package de.unirostock.sems.morre.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * Non-blocking variant of the {@link de.unirostock.sems.morre.client.Morre Morre} interface.
+ * <p>
+ * Every method returns immediately. The returned future completes with the result, or exceptionally with a
+ * {@link de.unirostock.sems.morre.client.exception.MorreException MorreException},
+ * {@link de.unirostock.sems.morre.client.exception.MorreClientException MorreClientException} or
+ * {@link de.unirostock.sems.morre.client.exception.MorreCommunicationException MorreCommunicationException},
+ * just as the blocking methods would throw them. Cancelling the future aborts the request.
+ * </p>
+ * @see Morre
+ *
+ */
+public interface MorreAsync {
+	
+	/**
+	 * Searches for a model on the basis of a simple query.
+	 *
+	 * @param query String
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#modelQuery(String)
+	 */
+	public CompletableFuture<List<ModelResult>> modelQuery( String query );
+	
+	/**
+	 * Searches for a model on the basis of a simple query, decoding only the given projection of the results.
+	 *
+	 * @param query String
+	 * @param projection the parts of the results to decode
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#modelQuery(String, Projection)
+	 */
+	public CompletableFuture<List<ModelResult>> modelQuery( String query, Projection projection );
+	
+	/**
+	 * Searches for a model on the basis of a simple query and aggregates the rankings.
+	 *
+	 * @param query the query
+	 * @param aggregationType the aggregation type
+	 * @param rankerWeights the ranker weights
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#aggregatedModelQuery(String, String, String)
+	 */
+	public CompletableFuture<List<ModelResult>> aggregatedModelQuery( String query, String aggregationType, String rankerWeights );
+	
+	/**
+	 * Returns the available features for a given query type.
+	 *
+	 * @param queryType the query type
+	 * @return future List of Strings with all available feature keywords
+	 * @see Morre#getQueryFeatures(String)
+	 */
+	public CompletableFuture<List<String>> getQueryFeatures( String queryType );
+	
+	/**
+	 * Performs a more complex query of the given type.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#doModelQuery(String, FeatureSet)
+	 */
+	public CompletableFuture<List<ModelResult>> doModelQuery( String queryType, FeatureSet features );
+	
+	/**
+	 * Performs a more complex query of the given type, decoding only the given projection of the results.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @param projection the parts of the results to decode
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#doModelQuery(String, FeatureSet, Projection)
+	 */
+	public CompletableFuture<List<ModelResult>> doModelQuery( String queryType, FeatureSet features, Projection projection );
+	
+	/**
+	 * Performs a simple query with only one keyword field for the given {@link de.unirostock.sems.morre.client.QueryType queryType}.
+	 *
+	 * @param queryType the query type
+	 * @param keyword String
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#doSimpleModelQuery(String, String)
+	 */
+	public CompletableFuture<List<ModelResult>> doSimpleModelQuery( String queryType, String keyword );
+	
+	/**
+	 * Performs a simple query with only one keyword field for the given {@link de.unirostock.sems.morre.client.QueryType queryType},
+	 * decoding only the given projection of the results.
+	 *
+	 * @param queryType the query type
+	 * @param keyword String
+	 * @param projection the parts of the results to decode
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#doSimpleModelQuery(String, String, Projection)
+	 */
+	public CompletableFuture<List<ModelResult>> doSimpleModelQuery( String queryType, String keyword, Projection projection );
+	
+	/**
+	 * Performs a simple query with only one keyword field and aggregates the rankings.
+	 *
+	 * @param queryType the query type
+	 * @param keyword the keyword
+	 * @param aggregationType the aggregation type
+	 * @param rankersWeights the rankers weights
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 * @see Morre#doSimpleAggregatedModelQuery(String, String, String, String)
+	 */
+	public CompletableFuture<List<ModelResult>> doSimpleAggregatedModelQuery( String queryType, String keyword, String aggregationType, String rankersWeights );
+	
+	/**
+	 * Searches for a Person on the basis of the given features.
+	 *
+	 * @param features the features
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.PersonResult PersonResults}
+	 * @see Morre#doPersonQuery(FeatureSet)
+	 */
+	public CompletableFuture<List<PersonResult>> doPersonQuery( FeatureSet features );
+	
+	/**
+	 * Searches for a Publication on the basis of the given features.
+	 *
+	 * @param features the features
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.PublicationResult PublicationResults}
+	 * @see Morre#doPublicationQuery(FeatureSet)
+	 */
+	public CompletableFuture<List<PublicationResult>> doPublicationQuery( FeatureSet features );
+	
+	/**
+	 * Searches for Annotations on the basis of the given query String.
+	 *
+	 * @param query String
+	 * @return future List of {@link de.unirostock.sems.morre.client.dataholder.AnnotationResult AnnotationResults}
+	 * @see Morre#doAnnotationQuery(String)
+	 */
+	public CompletableFuture<List<AnnotationResult>> doAnnotationQuery( String query );
+	
+}
@@ -0,0 +1,53 @@
+package de.unirostock.sems.morre.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+
+/**
+ * Non-blocking variant of the {@link de.unirostock.sems.morre.client.MorreCrawlerInterface MorreCrawlerInterface}.
+ * The futures complete exceptionally with the exceptions the blocking methods would throw.
+ * @see MorreAsync
+ *
+ */
+public interface MorreCrawlerAsync {
+	
+	/**
+	 * Returns all available versions of this model as String List.
+	 *
+	 * @param fileId the file id
+	 * @return future model history
+	 * @see MorreCrawlerInterface#getModelHistory(String)
+	 */
+	public CompletableFuture<List<String>> getModelHistory( String fileId );
+	
+	/**
+	 * Returns one specific version of a model as dataholder object.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id
+	 * @return future model version
+	 * @see MorreCrawlerInterface#getModelVersion(String, String)
+	 */
+	public CompletableFuture<CrawledModel> getModelVersion( String fileId, String versionId );
+	
+	/**
+	 * Returns the latest version of a model as dataholder object.
+	 *
+	 * @param fileId the file id
+	 * @return future latest model version
+	 * @see MorreCrawlerInterface#getLatestModelVersion(String)
+	 */
+	public CompletableFuture<CrawledModel> getLatestModelVersion( String fileId );
+	
+	/**
+	 * Adds a model to the database.
+	 *
+	 * @param model the model
+	 * @return future that is true, if the model was added
+	 * @see MorreCrawlerInterface#addModel(CrawledModel)
+	 */
+	public CompletableFuture<Boolean> addModel( CrawledModel model );
+	
+}
@@ -0,0 +1,77 @@
+package de.unirostock.sems.morre.client;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Queries of the {@link Morre}, which return a {@link ResultCursor} instead of the complete result list.
+ * Large results are decoded only as far as they are read. The request is sent with the first call of the cursor.
+ *
+ */
+public interface MorreCursorInterface {
+
+	/**
+	 * Opens a cursor on a simple model query.
+	 *
+	 * @param queryType the query type
+	 * @param keyword the keyword
+	 * @param projection the parts of the models to decode
+	 * @return the cursor
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException if the query can not be built
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public ResultCursor<ModelResult> openModelQuery( String queryType, String keyword, Projection projection ) throws MorreException, MorreClientException, MorreCommunicationException;
+
+	/**
+	 * Opens a cursor on a model query.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @param projection the parts of the models to decode
+	 * @return the cursor
+	 * @throws MorreException if the features can not be validated
+	 * @throws MorreClientException if the query can not be built or the features are invalid
+	 * @throws MorreCommunicationException if the features can not be validated
+	 */
+	public ResultCursor<ModelResult> openModelQuery( String queryType, FeatureSet features, Projection projection ) throws MorreException, MorreClientException, MorreCommunicationException;
+
+	/**
+	 * Opens a cursor on a person query.
+	 *
+	 * @param features the features
+	 * @return the cursor
+	 * @throws MorreException if the features can not be validated
+	 * @throws MorreClientException if the query can not be built or the features are invalid
+	 * @throws MorreCommunicationException if the features can not be validated
+	 */
+	public ResultCursor<PersonResult> openPersonQuery( FeatureSet features ) throws MorreException, MorreClientException, MorreCommunicationException;
+
+	/**
+	 * Opens a cursor on a publication query.
+	 *
+	 * @param features the features
+	 * @return the cursor
+	 * @throws MorreException if the features can not be validated
+	 * @throws MorreClientException if the query can not be built or the features are invalid
+	 * @throws MorreCommunicationException if the features can not be validated
+	 */
+	public ResultCursor<PublicationResult> openPublicationQuery( FeatureSet features ) throws MorreException, MorreClientException, MorreCommunicationException;
+
+	/**
+	 * Opens a cursor on an annotation query.
+	 *
+	 * @param query the keyword
+	 * @return the cursor
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException if the query can not be built
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public ResultCursor<AnnotationResult> openAnnotationQuery( String query ) throws MorreException, MorreClientException, MorreCommunicationException;
+
+}
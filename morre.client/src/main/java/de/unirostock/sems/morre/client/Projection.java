@@ -0,0 +1,20 @@
+package de.unirostock.sems.morre.client;
+
+/**
+ * Defines which parts of a {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResult} are decoded
+ * from the response of a model query.
+ *
+ */
+public enum Projection {
+
+	/** decodes the complete result, including the model document */
+	FULL,
+
+	/**
+	 * skips the model document while decoding. The document is loaded on the first call of
+	 * {@link de.unirostock.sems.morre.client.dataholder.Model#getXmldoc() getXmldoc()}
+	 * through the {@link de.unirostock.sems.morre.client.MorreCrawlerInterface MorreCrawlerInterface}
+	 */
+	METADATA
+
+}
@@ -0,0 +1,159 @@
+package de.unirostock.sems.morre.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Registry of the available features of each {@link de.unirostock.sems.morre.client.QueryType QueryType}.
+ * <p>
+ * The feature list of a query type is fetched once and kept until the refresh interval has passed.
+ * {@link #validate(String, FeatureSet)} checks a {@link FeatureSet} against it, so a misspelled feature
+ * fails locally instead of costing a round trip to MORRE.
+ * </p>
+ * The registry is safe to use from many threads.
+ *
+ */
+public class QueryFeatureRegistry {
+
+	/** default time in ms after which a feature list is fetched again */
+	public static final long DEFAULT_REFRESH_INTERVAL = 60 * 60 * 1000;
+
+	/**
+	 * Fetches the feature list of a query type from MORRE.
+	 */
+	public interface FeatureLoader {
+		public List<String> loadFeatures( String queryType ) throws MorreException, MorreClientException, MorreCommunicationException;
+	}
+
+	private final FeatureLoader loader;
+	private final long refreshInterval;
+
+	private final ConcurrentMap<String, Features> registry = new ConcurrentHashMap<String, Features>();
+
+	/**
+	 * Creates a registry, which fetches the features through {@link Morre#getQueryFeatures(String)}.
+	 *
+	 * @param morre the client
+	 */
+	public QueryFeatureRegistry(Morre morre) {
+		this(morre, DEFAULT_REFRESH_INTERVAL);
+	}
+
+	public QueryFeatureRegistry(final Morre morre, long refreshInterval) {
+		this(new FeatureLoader() {
+			@Override
+			public List<String> loadFeatures(String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+				return morre.getQueryFeatures(queryType);
+			}
+		}, refreshInterval);
+	}
+
+	/**
+	 * Creates a registry with a custom loader.
+	 *
+	 * @param loader the loader
+	 * @param refreshInterval time in ms after which a feature list is fetched again, a value &lt;= 0 never refreshes
+	 */
+	public QueryFeatureRegistry(FeatureLoader loader, long refreshInterval) {
+		if( loader == null )
+			throw new IllegalArgumentException("loader must not be null");
+
+		this.loader = loader;
+		this.refreshInterval = refreshInterval;
+	}
+
+	public long getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	/**
+	 * Returns the available features of the query type, fetching them if they are not known or outdated.
+	 *
+	 * @param queryType the query type
+	 * @return unmodifiable List of the feature keywords, or null if MORRE does not provide any
+	 * @throws MorreException the morre exception
+	 * @throws MorreClientException the morre client exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public List<String> getFeatures( String queryType ) throws MorreException, MorreClientException, MorreCommunicationException {
+		return lookup(queryType).list;
+	}
+
+	/**
+	 * Checks that all features of the set are available for the query type. If MORRE does not provide
+	 * a feature list for the query type, every feature set passes.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @throws MorreClientException if a feature is unknown
+	 * @throws MorreException the morre exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 */
+	public void validate( String queryType, FeatureSet features ) throws MorreException, MorreClientException, MorreCommunicationException {
+		if( features == null )
+			return;
+
+		Features known = lookup(queryType);
+		if( known.set == null )
+			return;
+
+		List<String> unknown = new ArrayList<String>();
+		for( String feature : features.getFeatures().getKey() ) {
+			if( !known.set.contains(feature) )
+				unknown.add(feature);
+		}
+
+		if( !unknown.isEmpty() )
+			throw new MorreClientException( "Unknown features " + unknown + " for " + queryType + ", available are " + known.list );
+	}
+
+	/**
+	 * Drops all feature lists, they are fetched again on next use.
+	 */
+	public void invalidate() {
+		registry.clear();
+	}
+
+	private Features lookup( String queryType ) throws MorreException, MorreClientException, MorreCommunicationException {
+		Features features = registry.get(queryType);
+		long now = System.nanoTime();
+		if( features != null && !features.isOutdated(now) )
+			return features;
+
+		// concurrent lookups may fetch the same list twice, the last one wins
+		features = new Features( loader.loadFeatures(queryType), now );
+		registry.put(queryType, features);
+		return features;
+	}
+
+	/**
+	 * The feature list of one query type.
+	 */
+	private class Features {
+
+		private final List<String> list;
+		private final Set<String> set;
+		private final long fetched;
+
+		public Features(List<String> features, long fetched) {
+			this.list = features != null ? Collections.unmodifiableList( new ArrayList<String>(features) ) : null;
+			this.set = features != null ? new HashSet<String>(features) : null;
+			this.fetched = fetched;
+		}
+
+		public boolean isOutdated( long now ) {
+			return refreshInterval > 0 && now - fetched >= refreshInterval * 1000000L;
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.unirostock.sems.morre.client;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Iterates over the results of a query, decoding them one after the other while they are read.
+ * <p>
+ * Results are only decoded when they are requested, and pages only fetched when the previous one
+ * is used up. A cursor, which is not read to the end, has to be {@link #close() closed}: the rest of
+ * the result is dropped without being read. A cursor is not thread safe.
+ * </p>
+ *
+ * @param <R> the type of the results
+ */
+public interface ResultCursor<R> extends Closeable {
+
+	/**
+	 * Returns true, if there is another result. This may send the request for the next page.
+	 *
+	 * @return true, if there is another result
+	 * @throws MorreException if MORRE reports an error
+	 * @throws MorreCommunicationException if the result can not be read
+	 */
+	public boolean hasNext() throws MorreException, MorreCommunicationException;
+
+	/**
+	 * Returns the next result.
+	 *
+	 * @return the result
+	 * @throws NoSuchElementException if there is no further result
+	 * @throws MorreException if MORRE reports an error
+	 * @throws MorreCommunicationException if the result can not be read
+	 */
+	public R next() throws MorreException, MorreCommunicationException;
+
+	/**
+	 * Returns up to the given number of results, e.g. the top 20 of a large result.
+	 *
+	 * @param maxResults the maximum number of results
+	 * @return List of the next results, empty at the end of the result
+	 * @throws MorreException if MORRE reports an error
+	 * @throws MorreCommunicationException if the result can not be read
+	 */
+	public List<R> next( int maxResults ) throws MorreException, MorreCommunicationException;
+
+	/**
+	 * Returns the number of results returned so far.
+	 *
+	 * @return the number of results
+	 */
+	public int getCount();
+
+	/**
+	 * Releases the response, the remaining results are dropped.
+	 */
+	@Override
+	public void close();
+
+}
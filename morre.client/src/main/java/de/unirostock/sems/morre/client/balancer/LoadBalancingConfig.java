@@ -0,0 +1,142 @@
+package de.unirostock.sems.morre.client.balancer;
+
+import java.io.Serializable;
+
+/**
+ * Configuration of the {@link LoadBalancingMorre}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The client copies
+ * the configuration on construction.
+ * </p>
+ *
+ */
+public class LoadBalancingConfig implements Serializable {
+
+	private static final long serialVersionUID = 2218553406187429740L;
+
+	/**
+	 * How a read is routed to one of the healthy nodes.
+	 */
+	public enum Strategy {
+		/** the node with the fewest requests in flight */
+		LEAST_OUTSTANDING,
+		/** the node with the lowest average latency, weighted by its requests in flight */
+		EWMA_LATENCY
+	}
+
+	/** default number of consecutive failures, which eject a node */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+	/** default interval to probe ejected nodes in ms */
+	public static final long DEFAULT_PROBE_INTERVAL = 5000;
+	/** default weight of the latest latency in the moving average */
+	public static final double DEFAULT_EWMA_WEIGHT = 0.3;
+
+	private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+	private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+	private long probeInterval = DEFAULT_PROBE_INTERVAL;
+	private double ewmaWeight = DEFAULT_EWMA_WEIGHT;
+	private boolean readFromPrimary = false;
+
+	public LoadBalancingConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public LoadBalancingConfig( LoadBalancingConfig other ) {
+		this.strategy = other.strategy;
+		this.failureThreshold = other.failureThreshold;
+		this.probeInterval = other.probeInterval;
+		this.ewmaWeight = other.ewmaWeight;
+		this.readFromPrimary = other.readFromPrimary;
+	}
+
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public LoadBalancingConfig setStrategy( Strategy strategy ) {
+		if( strategy == null )
+			throw new IllegalArgumentException("strategy must not be null");
+		this.strategy = strategy;
+		return this;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Sets the number of consecutive communication failures, after which a node gets no more requests
+	 * until a background probe succeeds.
+	 *
+	 * @param failureThreshold the number of failures
+	 * @return this config
+	 */
+	public LoadBalancingConfig setFailureThreshold( int failureThreshold ) {
+		if( failureThreshold <= 0 )
+			throw new IllegalArgumentException("failureThreshold has to be positive");
+		this.failureThreshold = failureThreshold;
+		return this;
+	}
+
+	public long getProbeInterval() {
+		return probeInterval;
+	}
+
+	/**
+	 * Sets the interval, in which ejected nodes are probed.
+	 *
+	 * @param probeInterval the interval in ms
+	 * @return this config
+	 */
+	public LoadBalancingConfig setProbeInterval( long probeInterval ) {
+		if( probeInterval <= 0 )
+			throw new IllegalArgumentException("probeInterval has to be positive");
+		this.probeInterval = probeInterval;
+		return this;
+	}
+
+	public double getEwmaWeight() {
+		return ewmaWeight;
+	}
+
+	/**
+	 * Sets the weight of the latest latency in the exponentially weighted moving average.
+	 * Higher weights react faster to changes.
+	 *
+	 * @param ewmaWeight the weight between 0 and 1
+	 * @return this config
+	 */
+	public LoadBalancingConfig setEwmaWeight( double ewmaWeight ) {
+		if( ewmaWeight <= 0 || ewmaWeight > 1 )
+			throw new IllegalArgumentException("ewmaWeight has to be between 0 and 1");
+		this.ewmaWeight = ewmaWeight;
+		return this;
+	}
+
+	public boolean isReadFromPrimary() {
+		return readFromPrimary;
+	}
+
+	/**
+	 * Enables reads from the primary next to the replicas. Without it the primary serves reads
+	 * only if no replica is healthy.
+	 *
+	 * @param readFromPrimary true to spread reads over the primary as well
+	 * @return this config
+	 */
+	public LoadBalancingConfig setReadFromPrimary( boolean readFromPrimary ) {
+		this.readFromPrimary = readFromPrimary;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadBalancingConfig [strategy=" + strategy + ", failureThreshold=" + failureThreshold + ", probeInterval=" + probeInterval
+				+ ", ewmaWeight=" + ewmaWeight + ", readFromPrimary=" + readFromPrimary + "]";
+	}
+
+}
@@ -0,0 +1,459 @@
+package de.unirostock.sems.morre.client.balancer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Morre;
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+
+/**
+ * Client of several MORRE instances serving the same database: one primary and any number of read replicas.
+ * <p>
+ * Reads (all queries, the model history and the model versions) are spread over the healthy replicas, choosing
+ * the node with the fewest requests in flight or with the lowest weighted latency, see {@link LoadBalancingConfig}.
+ * If a node fails with a {@link MorreCommunicationException}, the read is repeated on the next node, so callers only
+ * see the failure if no node answers. A {@link MorreException} is an answer of MORRE and is passed on.
+ * Writes, i.e. adding a model, always go to the primary and are not repeated elsewhere.
+ * </p>
+ * <p>
+ * After a number of consecutive failures a node is ejected and gets no more requests, unless no other node is
+ * left. A background thread probes ejected nodes by requesting the features of the model query and takes them
+ * back as soon as they answer. The client is safe to use from many threads and should be {@link #close() closed}
+ * to stop the prober and to release the connections.
+ * </p>
+ * <p>
+ * The serialized form holds the urls and the configurations only. A deserialized client creates its own nodes
+ * and prober, all nodes start healthy.
+ * </p>
+ *
+ */
+public class LoadBalancingMorre implements Morre, MorreCrawlerInterface, Closeable {
+
+	private static final long serialVersionUID = 4503818625961772316L;
+
+	private static final Log log = LogFactory.getLog( LoadBalancingMorre.class );
+
+	private final LoadBalancingConfig config;
+	private final HttpMorreClientConfig clientConfig;
+	private final MorreNode primary;
+	private final List<MorreNode> nodes;
+	private final List<MorreNode> readNodes;
+	private final ScheduledExecutorService prober;
+
+	/**
+	 * Creates a client with the default configurations.
+	 *
+	 * @param primaryUrl the url of the primary, which receives the writes
+	 * @param replicaUrls the urls of the read replicas, may be empty
+	 * @throws MalformedURLException if one of the urls is malformed
+	 */
+	public LoadBalancingMorre(String primaryUrl, List<String> replicaUrls) throws MalformedURLException {
+		this(primaryUrl, replicaUrls, new HttpMorreClientConfig(), new LoadBalancingConfig());
+	}
+
+	/**
+	 * Creates a client with one {@link HttpMorreClient} per node.
+	 *
+	 * @param primaryUrl the url of the primary, which receives the writes
+	 * @param replicaUrls the urls of the read replicas, may be empty
+	 * @param clientConfig the config of the clients of the nodes
+	 * @param config the config of the balancing
+	 * @throws MalformedURLException if one of the urls is malformed
+	 */
+	public LoadBalancingMorre(String primaryUrl, List<String> replicaUrls, HttpMorreClientConfig clientConfig, LoadBalancingConfig config) throws MalformedURLException {
+		if( primaryUrl == null )
+			throw new IllegalArgumentException("primaryUrl must not be null");
+
+		this.config = new LoadBalancingConfig(config);
+		this.clientConfig = clientConfig != null ? new HttpMorreClientConfig(clientConfig) : null;
+		List<MorreNode> nodes = new ArrayList<MorreNode>();
+		try {
+			this.primary = createNode(primaryUrl, true, clientConfig);
+			nodes.add(primary);
+			if( replicaUrls != null ) {
+				for( String url : replicaUrls )
+					nodes.add( createNode(url, false, clientConfig) );
+			}
+		} catch (MalformedURLException e) {
+			closeAll(nodes);
+			throw e;
+		}
+		this.nodes = Collections.unmodifiableList(nodes);
+
+		List<MorreNode> readNodes = new ArrayList<MorreNode>();
+		for( MorreNode node : nodes ) {
+			if( !node.isPrimary() || this.config.isReadFromPrimary() || nodes.size() == 1 )
+				readNodes.add(node);
+		}
+		this.readNodes = Collections.unmodifiableList(readNodes);
+
+		this.prober = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "morre-balancer-prober");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long interval = this.config.getProbeInterval();
+		prober.scheduleWithFixedDelay( new Runnable() {
+			@Override
+			public void run() {
+				probe();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS );
+	}
+
+	private MorreNode createNode( String url, boolean primary, HttpMorreClientConfig clientConfig ) throws MalformedURLException {
+		HttpMorreClient client = clientConfig != null ? new HttpMorreClient(url, clientConfig) : new HttpMorreClient(url);
+		return new MorreNode( url, client, primary, config.getFailureThreshold(), config.getEwmaWeight() );
+	}
+
+	/**
+	 * Serializes the urls and the configurations instead of the nodes and the prober.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		List<String> replicaUrls = new ArrayList<String>();
+		for( MorreNode node : nodes ) {
+			if( !node.isPrimary() )
+				replicaUrls.add( node.getUrl() );
+		}
+		return new SerializedForm( primary.getUrl(), replicaUrls, clientConfig, config );
+	}
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		throw new InvalidObjectException("The client is deserialized from its serialized form only");
+	}
+
+	/**
+	 * The configuration only serialized form of a {@link LoadBalancingMorre}.
+	 */
+	private static class SerializedForm implements Serializable {
+
+		private static final long serialVersionUID = -3071726372542291436L;
+
+		private final String primaryUrl;
+		private final ArrayList<String> replicaUrls;
+		private final HttpMorreClientConfig clientConfig;
+		private final LoadBalancingConfig config;
+
+		public SerializedForm(String primaryUrl, List<String> replicaUrls, HttpMorreClientConfig clientConfig, LoadBalancingConfig config) {
+			this.primaryUrl = primaryUrl;
+			this.replicaUrls = new ArrayList<String>(replicaUrls);
+			this.clientConfig = clientConfig;
+			this.config = config;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				return new LoadBalancingMorre(primaryUrl, replicaUrls, clientConfig, config);
+			} catch (MalformedURLException e) {
+				InvalidObjectException invalid = new InvalidObjectException("Malformed url in the serialized client");
+				invalid.initCause(e);
+				throw invalid;
+			}
+		}
+
+	}
+
+	/**
+	 * Returns the configuration of the balancing.
+	 *
+	 * @return a copy of the config
+	 */
+	public LoadBalancingConfig getConfig() {
+		return new LoadBalancingConfig(config);
+	}
+
+	/**
+	 * Returns the current state of all nodes, the primary first.
+	 *
+	 * @return List of node states
+	 */
+	public List<NodeStatus> getNodeStatus() {
+		List<NodeStatus> status = new ArrayList<NodeStatus>( nodes.size() );
+		for( MorreNode node : nodes )
+			status.add( node.getStatus() );
+		return status;
+	}
+
+	/**
+	 * Stops the prober and closes the clients of all nodes.
+	 */
+	@Override
+	public void close() throws IOException {
+		prober.shutdownNow();
+		closeAll(nodes);
+	}
+
+	private void closeAll( List<MorreNode> nodes ) {
+		for( MorreNode node : nodes ) {
+			try {
+				node.getClient().close();
+			} catch (IOException e) {
+				log.warn( "Cannot close the client of " + node.getUrl(), e );
+			}
+		}
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
+	@Override
+	public List<ModelResult> aggregatedModelQuery(String query, String aggregationType, String rankerWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankerWeights);
+	}
+
+	@Override
+	public List<String> getQueryFeatures(final String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<String>>() {
+			@Override
+			public List<String> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.getQueryFeatures(queryType);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(final String queryType, final FeatureSet features, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doModelQuery(queryType, features, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(final String queryType, final String keyword, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doSimpleModelQuery(queryType, keyword, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleAggregatedModelQuery(final String queryType, final String keyword, final String aggregationType, final String rankersWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doSimpleAggregatedModelQuery(queryType, keyword, aggregationType, rankersWeights);
+			}
+		});
+	}
+
+	@Override
+	public List<PersonResult> doPersonQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<PersonResult>>() {
+			@Override
+			public List<PersonResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doPersonQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<PublicationResult> doPublicationQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<PublicationResult>>() {
+			@Override
+			public List<PublicationResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doPublicationQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<AnnotationResult> doAnnotationQuery(final String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return read( new MorreNode.Call<List<AnnotationResult>>() {
+			@Override
+			public List<AnnotationResult> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.doAnnotationQuery(query);
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public List<String> getModelHistory(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		return read( new MorreNode.Call<List<String>>() {
+			@Override
+			public List<String> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.getModelHistory(fileId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getModelVersion(final String fileId, final String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
+		return read( new MorreNode.Call<CrawledModel>() {
+			@Override
+			public CrawledModel call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.getModelVersion(fileId, versionId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getLatestModelVersion(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		return read( new MorreNode.Call<CrawledModel>() {
+			@Override
+			public CrawledModel call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.getLatestModelVersion(fileId);
+			}
+		});
+	}
+
+	@Override
+	public boolean addModel(final CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
+		// not idempotent, so it is never repeated on another node
+		return primary.execute( new MorreNode.Call<Boolean>() {
+			@Override
+			public Boolean call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+				return client.addModel(model);
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	private <R> R read( MorreNode.Call<R> call ) throws MorreException, MorreCommunicationException {
+		Set<MorreNode> tried = new HashSet<MorreNode>();
+		MorreCommunicationException failure = null;
+
+		MorreNode node;
+		while( (node = select(tried)) != null ) {
+			tried.add(node);
+			try {
+				return node.execute(call);
+			} catch (MorreClientException e) {
+				throw e;
+			} catch (MorreCommunicationException e) {
+				log.warn( "Request to " + node.getUrl() + " failed, trying the next node: " + e.getMessage() );
+				failure = e;
+			}
+		}
+
+		if( failure == null )
+			failure = new MorreCommunicationException("No MORRE node available");
+		throw failure;
+	}
+
+	/**
+	 * Selects the node for the next attempt of a read: the best healthy read node, then the healthy primary,
+	 * then any node, which was not tried yet.
+	 */
+	private MorreNode select( Set<MorreNode> tried ) {
+		MorreNode node = best(readNodes, tried);
+		if( node == null && primary.isHealthy() && !tried.contains(primary) )
+			node = primary;
+		if( node == null ) {
+			for( MorreNode candidate : nodes ) {
+				if( !tried.contains(candidate) )
+					return candidate;
+			}
+		}
+		return node;
+	}
+
+	private MorreNode best( List<MorreNode> candidates, Set<MorreNode> tried ) {
+		int size = candidates.size();
+		if( size == 0 )
+			return null;
+
+		// starts at a random node, so ties are spread evenly
+		int offset = ThreadLocalRandom.current().nextInt(size);
+		boolean ewma = config.getStrategy() == LoadBalancingConfig.Strategy.EWMA_LATENCY;
+		MorreNode best = null;
+		double bestCost = 0;
+		for( int i = 0; i < size; i++ ) {
+			MorreNode node = candidates.get( (offset + i) % size );
+			if( !node.isHealthy() || tried.contains(node) )
+				continue;
+
+			double cost = ewma ? node.getCost() : node.getOutstanding();
+			if( best == null || cost < bestCost ) {
+				best = node;
+				bestCost = cost;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Tries all ejected nodes once, a node answering with anything but a communication failure is healthy again.
+	 */
+	private void probe() {
+		for( MorreNode node : nodes ) {
+			if( node.isHealthy() )
+				continue;
+
+			try {
+				node.execute( new MorreNode.Call<List<String>>() {
+					@Override
+					public List<String> call(HttpMorreClient client) throws MorreException, MorreCommunicationException {
+						return client.getQueryFeatures(QueryType.MODEL_QUERY);
+					}
+				});
+				log.info( node.getUrl() + " is available again" );
+			} catch (MorreException e) {
+				log.info( node.getUrl() + " is available again" );
+			} catch (MorreCommunicationException e) {
+				log.debug( node.getUrl() + " is still unavailable: " + e.getMessage() );
+			} catch (RuntimeException e) {
+				log.warn( "Probing " + node.getUrl() + " failed", e );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package de.unirostock.sems.morre.client.balancer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+
+/**
+ * One MORRE instance of a {@link LoadBalancingMorre}, with the load and health as seen by the client.
+ *
+ */
+class MorreNode {
+
+	/**
+	 * A request to a single node.
+	 */
+	interface Call<R> {
+		public R call( HttpMorreClient client ) throws MorreException, MorreCommunicationException;
+	}
+
+	private final String url;
+	private final HttpMorreClient client;
+	private final boolean primary;
+	private final int failureThreshold;
+	private final double ewmaWeight;
+
+	private final AtomicInteger outstanding = new AtomicInteger(0);
+	private final AtomicInteger failures = new AtomicInteger(0);
+	private volatile boolean healthy = true;
+	/** average latency in ns, 0 until the first response */
+	private volatile double latency = 0;
+
+	public MorreNode(String url, HttpMorreClient client, boolean primary, int failureThreshold, double ewmaWeight) {
+		this.url = url;
+		this.client = client;
+		this.primary = primary;
+		this.failureThreshold = failureThreshold;
+		this.ewmaWeight = ewmaWeight;
+	}
+
+	public <R> R execute( Call<R> call ) throws MorreException, MorreCommunicationException {
+		outstanding.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			R result = call.call(client);
+			succeeded( System.nanoTime() - start );
+			return result;
+		} catch (MorreClientException e) {
+			throw e;
+		} catch (MorreCommunicationException e) {
+			failed();
+			throw e;
+		} catch (MorreException e) {
+			// the node answered
+			succeeded( System.nanoTime() - start );
+			throw e;
+		} finally {
+			outstanding.decrementAndGet();
+		}
+	}
+
+	private void succeeded( long nanos ) {
+		failures.set(0);
+		healthy = true;
+		synchronized( this ) {
+			latency = latency == 0 ? nanos : latency + ewmaWeight * (nanos - latency);
+		}
+	}
+
+	private void failed() {
+		if( failures.incrementAndGet() >= failureThreshold )
+			healthy = false;
+	}
+
+	/**
+	 * Returns the cost of the next request for the EWMA strategy: the expected latency,
+	 * multiplied by the requests it has to share the node with.
+	 */
+	double getCost() {
+		return latency * (outstanding.get() + 1);
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public HttpMorreClient getClient() {
+		return client;
+	}
+
+	public boolean isPrimary() {
+		return primary;
+	}
+
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	public NodeStatus getStatus() {
+		return new NodeStatus( url, primary, healthy, outstanding.get(), failures.get(), TimeUnit.NANOSECONDS.toMicros((long) latency) );
+	}
+
+}
@@ -0,0 +1,65 @@
+package de.unirostock.sems.morre.client.balancer;
+
+/**
+ * Snapshot of the state of one node of a {@link LoadBalancingMorre}.
+ *
+ */
+public class NodeStatus {
+
+	private final String url;
+	private final boolean primary;
+	private final boolean healthy;
+	private final int outstanding;
+	private final int consecutiveFailures;
+	private final long averageLatency;
+
+	NodeStatus(String url, boolean primary, boolean healthy, int outstanding, int consecutiveFailures, long averageLatency) {
+		this.url = url;
+		this.primary = primary;
+		this.healthy = healthy;
+		this.outstanding = outstanding;
+		this.consecutiveFailures = consecutiveFailures;
+		this.averageLatency = averageLatency;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public boolean isPrimary() {
+		return primary;
+	}
+
+	/**
+	 * Returns false, if the node is ejected and gets no requests until a probe succeeds.
+	 *
+	 * @return true, if the node is healthy
+	 */
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	public int getOutstanding() {
+		return outstanding;
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * Returns the exponentially weighted moving average of the latency.
+	 *
+	 * @return the latency in microseconds
+	 */
+	public long getAverageLatency() {
+		return averageLatency;
+	}
+
+	@Override
+	public String toString() {
+		return "NodeStatus [url=" + url + ", primary=" + primary + ", healthy=" + healthy + ", outstanding=" + outstanding
+				+ ", consecutiveFailures=" + consecutiveFailures + ", averageLatency=" + averageLatency + "]";
+	}
+
+}
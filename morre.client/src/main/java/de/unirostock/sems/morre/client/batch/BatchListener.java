@@ -0,0 +1,20 @@
+package de.unirostock.sems.morre.client.batch;
+
+/**
+ * Receives the results of a batch in order of completion.
+ * <p>
+ * The listener is called on the thread completing the query, usually an I/O dispatcher thread
+ * of the client, so it should return quickly. Calls are not synchronized by the executor.
+ * </p>
+ *
+ */
+public interface BatchListener {
+
+	/**
+	 * Called once for every query of the batch, as soon as it is done.
+	 *
+	 * @param result the successful or failed result
+	 */
+	public void completed( BatchResult result );
+
+}
@@ -0,0 +1,101 @@
+package de.unirostock.sems.morre.client.batch;
+
+import java.io.Serializable;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Projection;
+
+/**
+ * One model query of a batch, either a feature driven query or a simple keyword query.
+ *
+ * @see MorreBatchExecutor
+ */
+public class BatchQuery implements Serializable {
+
+	private static final long serialVersionUID = -2370917553219850419L;
+
+	private final String queryType;
+	private final FeatureSet features;
+	private final String keyword;
+	private final Projection projection;
+
+	private BatchQuery(String queryType, FeatureSet features, String keyword, Projection projection) {
+		if( queryType == null )
+			throw new IllegalArgumentException("queryType must not be null");
+		if( projection == null )
+			throw new IllegalArgumentException("projection must not be null");
+
+		this.queryType = queryType;
+		this.features = features;
+		this.keyword = keyword;
+		this.projection = projection;
+	}
+
+	/**
+	 * Creates a query performed by {@link de.unirostock.sems.morre.client.MorreAsync#doModelQuery(String, FeatureSet, Projection) doModelQuery}.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @return the query
+	 */
+	public static BatchQuery features( String queryType, FeatureSet features ) {
+		return features(queryType, features, Projection.FULL);
+	}
+
+	public static BatchQuery features( String queryType, FeatureSet features, Projection projection ) {
+		if( features == null )
+			throw new IllegalArgumentException("features must not be null");
+		return new BatchQuery(queryType, features, null, projection);
+	}
+
+	/**
+	 * Creates a query performed by {@link de.unirostock.sems.morre.client.MorreAsync#doSimpleModelQuery(String, String, Projection) doSimpleModelQuery}.
+	 *
+	 * @param queryType the query type
+	 * @param keyword the keyword
+	 * @return the query
+	 */
+	public static BatchQuery keyword( String queryType, String keyword ) {
+		return keyword(queryType, keyword, Projection.FULL);
+	}
+
+	public static BatchQuery keyword( String queryType, String keyword, Projection projection ) {
+		return new BatchQuery(queryType, null, keyword, projection);
+	}
+
+	public String getQueryType() {
+		return queryType;
+	}
+
+	/**
+	 * Returns the features of a feature driven query, or null for a keyword query.
+	 *
+	 * @return the features
+	 */
+	public FeatureSet getFeatures() {
+		return features;
+	}
+
+	/**
+	 * Returns the keyword of a keyword query, or null for a feature driven query.
+	 *
+	 * @return the keyword
+	 */
+	public String getKeyword() {
+		return keyword;
+	}
+
+	public Projection getProjection() {
+		return projection;
+	}
+
+	public boolean isKeywordQuery() {
+		return features == null;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchQuery [queryType=" + queryType + ", " + (isKeywordQuery() ? "keyword=" + keyword : "features=" + features.getFeatures()) + "]";
+	}
+
+}
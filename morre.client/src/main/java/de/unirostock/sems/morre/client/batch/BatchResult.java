@@ -0,0 +1,71 @@
+package de.unirostock.sems.morre.client.batch;
+
+import java.util.List;
+
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+
+/**
+ * Outcome of one {@link BatchQuery}: either the result list or the exception the query failed with.
+ * <p>
+ * As for the single queries, a successful result may be null if MORRE found nothing.
+ * </p>
+ *
+ */
+public class BatchResult {
+
+	private final int index;
+	private final BatchQuery query;
+	private final List<ModelResult> result;
+	private final Throwable error;
+
+	BatchResult(int index, BatchQuery query, List<ModelResult> result, Throwable error) {
+		this.index = index;
+		this.query = query;
+		this.result = result;
+		this.error = error;
+	}
+
+	/**
+	 * Returns the position of the query in the submitted batch.
+	 *
+	 * @return the index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public BatchQuery getQuery() {
+		return query;
+	}
+
+	/**
+	 * Returns the results of the query, or null if it failed or MORRE found nothing.
+	 *
+	 * @return List of {@link de.unirostock.sems.morre.client.dataholder.ModelResult ModelResults}
+	 */
+	public List<ModelResult> getResult() {
+		return result;
+	}
+
+	/**
+	 * Returns the exception the query failed with, usually a
+	 * {@link de.unirostock.sems.morre.client.exception.MorreException MorreException},
+	 * {@link de.unirostock.sems.morre.client.exception.MorreClientException MorreClientException} or
+	 * {@link de.unirostock.sems.morre.client.exception.MorreCommunicationException MorreCommunicationException}.
+	 *
+	 * @return the exception or null if the query was successful
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [index=" + index + ", query=" + query + ", " + (isSuccessful() ? "results=" + (result != null ? result.size() : 0) : "error=" + error) + "]";
+	}
+
+}
@@ -0,0 +1,280 @@
+package de.unirostock.sems.morre.client.batch;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreCrawlerAsync;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+
+/**
+ * Uploads a stream of model versions to MORRE with a bounded number of uploads in flight.
+ * <p>
+ * The models are passed one after the other to {@link #submit(CrawledModel)}, which blocks the producer
+ * as long as the configured number of uploads is in flight. Uploads failing with a
+ * {@link de.unirostock.sems.morre.client.exception.MorreCommunicationException MorreCommunicationException}
+ * are retried with an exponential backoff, client side errors and errors reported by MORRE are not.
+ * {@link #finish()} waits for the remaining uploads and returns the ledger of all models.
+ * </p>
+ * The uploads are performed through a {@link de.unirostock.sems.morre.client.MorreCrawlerAsync MorreCrawlerAsync}
+ * client, which should allow at least as many connections as uploads are in flight. The ingestor has to be
+ * {@link #close() closed} to stop its retry timer.
+ *
+ */
+public class BulkIngestor implements Closeable {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private final MorreCrawlerAsync morre;
+	private final BulkIngestorConfig config;
+	private final IngestionListener listener;
+
+	private final Semaphore inFlight;
+	private final ScheduledThreadPoolExecutor retryTimer;
+	/** uploads waiting for their retry, failed by {@link #close()} */
+	private final Set<Upload> pendingRetries = Collections.newSetFromMap( new ConcurrentHashMap<Upload, Boolean>() );
+
+	private final AtomicLong submitted = new AtomicLong(0);
+	private final AtomicLong added = new AtomicLong(0);
+	private final AtomicLong failed = new AtomicLong(0);
+	private final AtomicLong retries = new AtomicLong(0);
+	private final Queue<IngestionResult> ledger = new ConcurrentLinkedQueue<IngestionResult>();
+
+	private volatile boolean closed = false;
+
+	public BulkIngestor(MorreCrawlerAsync morre) {
+		this(morre, new BulkIngestorConfig(), null);
+	}
+
+	public BulkIngestor(MorreCrawlerAsync morre, BulkIngestorConfig config) {
+		this(morre, config, null);
+	}
+
+	/**
+	 * Creates a new ingestor.
+	 *
+	 * @param morre the client to upload the models with
+	 * @param config the config
+	 * @param listener listener for the outcome of every upload, may be null
+	 */
+	public BulkIngestor(MorreCrawlerAsync morre, BulkIngestorConfig config, IngestionListener listener) {
+		if( morre == null )
+			throw new IllegalArgumentException("morre must not be null");
+
+		this.morre = morre;
+		this.config = new BulkIngestorConfig(config);
+		this.listener = listener;
+
+		inFlight = new Semaphore( this.config.getMaxInFlight() );
+		retryTimer = new ScheduledThreadPoolExecutor( 1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "morre-ingestor-retry");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// retries still waiting on close are dropped, close() reports them as failed
+		retryTimer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Returns the configuration of this ingestor.
+	 *
+	 * @return a copy of the config
+	 */
+	public BulkIngestorConfig getConfig() {
+		return new BulkIngestorConfig(config);
+	}
+
+	/**
+	 * Starts the upload of a model, waiting until less than the configured number of uploads is in flight.
+	 *
+	 * @param model the model
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws IllegalStateException if the ingestor is closed
+	 */
+	public void submit( CrawledModel model ) throws InterruptedException {
+		if( model == null )
+			throw new IllegalArgumentException("model must not be null");
+		if( closed )
+			throw new IllegalStateException("The ingestor is closed");
+
+		inFlight.acquire();
+		upload( new Upload(submitted.getAndIncrement(), model) );
+	}
+
+	/**
+	 * Uploads all models and waits for them.
+	 *
+	 * @param models the models
+	 * @return the ledger of all models uploaded by this ingestor
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @see #submit(CrawledModel)
+	 * @see #finish()
+	 */
+	public List<IngestionResult> submitAll( Iterable<CrawledModel> models ) throws InterruptedException {
+		for( CrawledModel model : models )
+			submit(model);
+
+		return finish();
+	}
+
+	/**
+	 * Waits until all submitted uploads are done. The ingestor can be used further afterwards.
+	 *
+	 * @return the ledger of all models uploaded by this ingestor, in order of submission
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public List<IngestionResult> finish() throws InterruptedException {
+		// all permits are free again, once the last upload is done
+		inFlight.acquire( config.getMaxInFlight() );
+		inFlight.release( config.getMaxInFlight() );
+
+		List<IngestionResult> result = new ArrayList<IngestionResult>(ledger);
+		Collections.sort(result, new Comparator<IngestionResult>() {
+			@Override
+			public int compare(IngestionResult first, IngestionResult second) {
+				return Long.compare( first.getSequence(), second.getSequence() );
+			}
+		});
+		return result;
+	}
+
+	public IngestionProgress getProgress() {
+		return new IngestionProgress( submitted.get(), added.get(), failed.get(), retries.get() );
+	}
+
+	/**
+	 * Stops the retry timer. Pending retries are not performed anymore, their models are reported as failed
+	 * with the error of their last attempt. Uploads in flight are not aborted, the client is not closed.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		retryTimer.shutdown();
+
+		for( Upload upload : pendingRetries ) {
+			// the retry may have started in the meantime, then it reports by itself
+			if( pendingRetries.remove(upload) )
+				complete(upload, false, upload.error);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	private void upload( final Upload upload ) {
+		upload.attempts++;
+
+		CompletableFuture<Boolean> future = null;
+		try {
+			future = morre.addModel(upload.model);
+		} catch (RuntimeException e) {
+			future = new CompletableFuture<Boolean>();
+			future.completeExceptionally(e);
+		}
+
+		future.whenComplete( new BiConsumer<Boolean, Throwable>() {
+			@Override
+			public void accept(Boolean result, Throwable error) {
+				if( error instanceof CompletionException && error.getCause() != null )
+					error = error.getCause();
+
+				if( error != null && isTransient(error) && upload.attempts <= config.getMaxRetries() && scheduleRetry(upload, error) )
+					return;
+
+				complete(upload, result != null && result, error);
+			}
+		});
+	}
+
+	private boolean scheduleRetry( final Upload upload, Throwable error ) {
+		if( closed )
+			return false;
+
+		upload.error = error;
+		pendingRetries.add(upload);
+		long delay = config.getRetryDelay() << Math.min(upload.attempts - 1, 16);
+		try {
+			retryTimer.schedule( new Runnable() {
+				@Override
+				public void run() {
+					if( pendingRetries.remove(upload) )
+						upload(upload);
+				}
+			}, delay, TimeUnit.MILLISECONDS );
+		} catch (RejectedExecutionException e) {
+			// closed in the meantime, the upload is reported as failed either here or by close()
+			return !pendingRetries.remove(upload);
+		}
+
+		retries.incrementAndGet();
+		log.debug( "Retrying upload of " + upload.model.getFileId() + " in " + delay + "ms, attempt " + upload.attempts );
+		return true;
+	}
+
+	private void complete( Upload upload, boolean success, Throwable error ) {
+		IngestionResult result = new IngestionResult( upload.sequence, upload.model.getFileId(), upload.model.getVersionId(), success, error, upload.attempts );
+		ledger.add(result);
+
+		if( success )
+			added.incrementAndGet();
+		else
+			failed.incrementAndGet();
+
+		if( listener != null ) {
+			try {
+				listener.completed( result, getProgress() );
+			} catch (RuntimeException e) {
+				log.warn("Ingestion listener failed on " + result, e);
+			}
+		}
+
+		// after the listener, so finish() returns only once every upload was reported
+		inFlight.release();
+	}
+
+	private static boolean isTransient( Throwable error ) {
+		// a client exception is our own fault, it will not go away by retrying
+		return error instanceof MorreCommunicationException && !(error instanceof MorreClientException);
+	}
+
+	/**
+	 * One model on its way to MORRE.
+	 */
+	private static class Upload {
+
+		private final long sequence;
+		private final CrawledModel model;
+		private int attempts = 0;
+		/** the error of the last attempt */
+		private Throwable error = null;
+
+		public Upload(long sequence, CrawledModel model) {
+			this.sequence = sequence;
+			this.model = model;
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.unirostock.sems.morre.client.batch;
+
+import java.io.Serializable;
+
+/**
+ * Configuration of the {@link BulkIngestor}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The ingestor copies
+ * the configuration on construction.
+ * </p>
+ *
+ */
+public class BulkIngestorConfig implements Serializable {
+
+	private static final long serialVersionUID = 6023941719870375092L;
+
+	/** default number of uploads in flight */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+	/** default number of retries of an upload after a communication error */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+	/** default delay in ms before the first retry, it doubles with every further retry */
+	public static final long DEFAULT_RETRY_DELAY = 500;
+
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+	private long retryDelay = DEFAULT_RETRY_DELAY;
+
+	public BulkIngestorConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public BulkIngestorConfig( BulkIngestorConfig other ) {
+		this.maxInFlight = other.maxInFlight;
+		this.maxRetries = other.maxRetries;
+		this.retryDelay = other.retryDelay;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Sets the number of uploads in flight. If it is reached, {@link BulkIngestor#submit(de.unirostock.sems.morre.client.dataholder.CrawledModel) submit}
+	 * blocks until an upload is done. Uploads waiting for a retry count as in flight.
+	 *
+	 * @param maxInFlight the number of uploads
+	 * @return this config
+	 */
+	public BulkIngestorConfig setMaxInFlight( int maxInFlight ) {
+		if( maxInFlight <= 0 )
+			throw new IllegalArgumentException("maxInFlight has to be positive");
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * Sets how often an upload is retried after a communication error. 0 disables retries.
+	 *
+	 * @param maxRetries the number of retries
+	 * @return this config
+	 */
+	public BulkIngestorConfig setMaxRetries( int maxRetries ) {
+		if( maxRetries < 0 )
+			throw new IllegalArgumentException("maxRetries must not be negative");
+		this.maxRetries = maxRetries;
+		return this;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	/**
+	 * Sets the delay in ms before the first retry, it doubles with every further retry.
+	 *
+	 * @param retryDelay the delay in ms
+	 * @return this config
+	 */
+	public BulkIngestorConfig setRetryDelay( long retryDelay ) {
+		if( retryDelay < 0 )
+			throw new IllegalArgumentException("retryDelay must not be negative");
+		this.retryDelay = retryDelay;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkIngestorConfig [maxInFlight=" + maxInFlight + ", maxRetries=" + maxRetries + ", retryDelay=" + retryDelay + "]";
+	}
+
+}
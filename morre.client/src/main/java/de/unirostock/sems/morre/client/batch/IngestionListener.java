@@ -0,0 +1,21 @@
+package de.unirostock.sems.morre.client.batch;
+
+/**
+ * Receives the outcome of every upload of a {@link BulkIngestor}, in order of completion.
+ * <p>
+ * The listener is called on the thread completing the upload, usually an I/O dispatcher thread
+ * of the client, so it should return quickly. Calls are not synchronized by the ingestor.
+ * </p>
+ *
+ */
+public interface IngestionListener {
+
+	/**
+	 * Called once for every submitted model, after its last attempt.
+	 *
+	 * @param result the ledger entry of the model
+	 * @param progress the progress including this model
+	 */
+	public void completed( IngestionResult result, IngestionProgress progress );
+
+}
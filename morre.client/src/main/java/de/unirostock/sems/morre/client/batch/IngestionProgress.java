@@ -0,0 +1,55 @@
+package de.unirostock.sems.morre.client.batch;
+
+/**
+ * Snapshot of the progress of a {@link BulkIngestor}.
+ *
+ */
+public class IngestionProgress {
+
+	private final long submitted;
+	private final long added;
+	private final long failed;
+	private final long retries;
+
+	IngestionProgress(long submitted, long added, long failed, long retries) {
+		this.submitted = submitted;
+		this.added = added;
+		this.failed = failed;
+		this.retries = retries;
+	}
+
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	public long getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the number of models, which were finally not added.
+	 *
+	 * @return the failed models
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	public long getRetries() {
+		return retries;
+	}
+
+	public long getCompleted() {
+		return added + failed;
+	}
+
+	public long getInFlight() {
+		return submitted - added - failed;
+	}
+
+	@Override
+	public String toString() {
+		return "IngestionProgress [submitted=" + submitted + ", added=" + added + ", failed=" + failed + ", retries=" + retries + "]";
+	}
+
+}
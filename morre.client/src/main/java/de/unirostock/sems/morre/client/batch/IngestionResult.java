@@ -0,0 +1,79 @@
+package de.unirostock.sems.morre.client.batch;
+
+/**
+ * Ledger entry of one model version uploaded by the {@link BulkIngestor}.
+ * <p>
+ * Only the ids of the model are kept, not the model document itself.
+ * </p>
+ *
+ */
+public class IngestionResult {
+
+	private final long sequence;
+	private final String fileId;
+	private final String versionId;
+	private final boolean added;
+	private final Throwable error;
+	private final int attempts;
+
+	IngestionResult(long sequence, String fileId, String versionId, boolean added, Throwable error, int attempts) {
+		this.sequence = sequence;
+		this.fileId = fileId;
+		this.versionId = versionId;
+		this.added = added;
+		this.error = error;
+		this.attempts = attempts;
+	}
+
+	/**
+	 * Returns the position of the model in the order of submission.
+	 *
+	 * @return the sequence number, starting with 0
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public String getFileId() {
+		return fileId;
+	}
+
+	public String getVersionId() {
+		return versionId;
+	}
+
+	/**
+	 * Checks if MORRE confirmed the upload.
+	 *
+	 * @return true, if the model was added
+	 */
+	public boolean isAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the exception of the last attempt, or null if MORRE answered. A model rejected by
+	 * MORRE without an exception is not {@link #isAdded() added}, but has no error either.
+	 *
+	 * @return the exception
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the number of uploads of this model, including the retries.
+	 *
+	 * @return the attempts
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return "IngestionResult [sequence=" + sequence + ", fileId=" + fileId + ", versionId=" + versionId + ", added=" + added
+				+ ", attempts=" + attempts + (error != null ? ", error=" + error : "") + "]";
+	}
+
+}
@@ -0,0 +1,178 @@
+package de.unirostock.sems.morre.client.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreAsync;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+
+/**
+ * Runs batches of model queries with a bounded number of queries in flight.
+ * <p>
+ * The queries are submitted to a {@link de.unirostock.sems.morre.client.MorreAsync MorreAsync} client. At most
+ * <code>concurrency</code> of them are in flight at the same time, as soon as one completes the next one is
+ * started. No thread is blocked while waiting for the responses. A failing query does not abort the batch,
+ * its exception is reported in its {@link BatchResult}.
+ * </p>
+ * The connection limit of the client caps the effective concurrency, so it should run in pooling mode with
+ * at least <code>concurrency</code> connections per route.
+ *
+ */
+public class MorreBatchExecutor {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	/** default number of queries in flight */
+	public static final int DEFAULT_CONCURRENCY = 8;
+
+	private final MorreAsync morre;
+	private final int concurrency;
+
+	public MorreBatchExecutor(MorreAsync morre) {
+		this(morre, DEFAULT_CONCURRENCY);
+	}
+
+	public MorreBatchExecutor(MorreAsync morre, int concurrency) {
+		if( morre == null )
+			throw new IllegalArgumentException("morre must not be null");
+		if( concurrency <= 0 )
+			throw new IllegalArgumentException("concurrency has to be positive");
+
+		this.morre = morre;
+		this.concurrency = concurrency;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Runs all queries of the batch.
+	 *
+	 * @param queries the queries
+	 * @return future List of {@link BatchResult BatchResults} in the order of the queries, it never completes exceptionally
+	 */
+	public CompletableFuture<List<BatchResult>> execute( Collection<BatchQuery> queries ) {
+		return execute(queries, null);
+	}
+
+	/**
+	 * Runs all queries of the batch and reports every result to the listener as soon as it is done.
+	 *
+	 * @param queries the queries
+	 * @param listener the listener, may be null
+	 * @return future List of {@link BatchResult BatchResults} in the order of the queries, it never completes exceptionally
+	 */
+	public CompletableFuture<List<BatchResult>> execute( Collection<BatchQuery> queries, BatchListener listener ) {
+		Batch batch = new Batch( new ArrayList<BatchQuery>(queries), listener );
+		batch.start();
+		return batch.future;
+	}
+
+	private CompletableFuture<List<ModelResult>> submit( BatchQuery query ) {
+		try {
+			if( query.isKeywordQuery() )
+				return morre.doSimpleModelQuery( query.getQueryType(), query.getKeyword(), query.getProjection() );
+			else
+				return morre.doModelQuery( query.getQueryType(), query.getFeatures(), query.getProjection() );
+		} catch (RuntimeException e) {
+			CompletableFuture<List<ModelResult>> failed = new CompletableFuture<List<ModelResult>>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+
+	/**
+	 * State of one running batch.
+	 */
+	private class Batch {
+
+		private final List<BatchQuery> queries;
+		private final BatchListener listener;
+		private final BatchResult[] results;
+
+		private final AtomicInteger next = new AtomicInteger(0);
+		private final AtomicInteger remaining;
+		private final CompletableFuture<List<BatchResult>> future = new CompletableFuture<List<BatchResult>>();
+
+		public Batch(List<BatchQuery> queries, BatchListener listener) {
+			this.queries = queries;
+			this.listener = listener;
+			this.results = new BatchResult[queries.size()];
+			this.remaining = new AtomicInteger(queries.size());
+		}
+
+		public void start() {
+			if( queries.isEmpty() ) {
+				future.complete( new ArrayList<BatchResult>() );
+				return;
+			}
+
+			for( int i = 0; i < concurrency && i < queries.size(); i++ )
+				launchNext();
+		}
+
+		/**
+		 * Starts the next pending query. Queries that are already done on return (e.g. because they
+		 * could not be built) are recorded in a loop instead of a recursion, to keep the stack flat.
+		 */
+		private void launchNext() {
+			int index;
+			while( (index = next.getAndIncrement()) < queries.size() ) {
+				final int current = index;
+				CompletableFuture<List<ModelResult>> query = submit( queries.get(current) );
+
+				if( !query.isDone() ) {
+					query.whenComplete( new BiConsumer<List<ModelResult>, Throwable>() {
+						@Override
+						public void accept(List<ModelResult> result, Throwable error) {
+							record(current, result, error);
+							launchNext();
+						}
+					});
+					return;
+				}
+
+				try {
+					record(current, query.join(), null);
+				} catch (CompletionException e) {
+					record(current, null, e);
+				} catch (RuntimeException e) {
+					// cancelled
+					record(current, null, e);
+				}
+			}
+		}
+
+		private void record( int index, List<ModelResult> result, Throwable error ) {
+			if( error instanceof CompletionException && error.getCause() != null )
+				error = error.getCause();
+
+			BatchResult batchResult = new BatchResult(index, queries.get(index), result, error);
+			results[index] = batchResult;
+
+			if( listener != null ) {
+				try {
+					listener.completed(batchResult);
+				} catch (RuntimeException e) {
+					log.warn("Batch listener failed on " + batchResult, e);
+				}
+			}
+
+			// the atomic decrement publishes the result slots to the thread completing the batch
+			if( remaining.decrementAndGet() == 0 )
+				future.complete( Arrays.asList(results) );
+		}
+
+	}
+
+}
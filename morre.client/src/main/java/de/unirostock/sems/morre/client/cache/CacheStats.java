@@ -0,0 +1,74 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of the statistics of a {@link CachingMorre} result cache.
+ *
+ */
+public class CacheStats implements Serializable {
+
+	private static final long serialVersionUID = -1503356204426811935L;
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	private final int entries;
+	private final long estimatedBytes;
+
+	CacheStats(long hits, long misses, long evictions, long expirations, int entries, long estimatedBytes) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.entries = entries;
+		this.estimatedBytes = estimatedBytes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of results removed to stay within the memory budget.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of results removed because their time to live was exceeded.
+	 *
+	 * @return the expirations
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	public int getEntries() {
+		return entries;
+	}
+
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	public double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", expirations=" + expirations
+				+ ", entries=" + entries + ", estimatedBytes=" + estimatedBytes + "]";
+	}
+
+}
@@ -0,0 +1,261 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Morre;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Caching decorator of the {@link de.unirostock.sems.morre.client.Morre Morre} interface.
+ * <p>
+ * The results of all queries are cached by query type, projection and the normalized keyword, features or
+ * aggregation parameters. Keywords and feature values are trimmed and their inner whitespace is collapsed, the
+ * order of the features does not matter. Empty results are cached as well, failed queries are not.
+ * </p>
+ * <p>
+ * The cache is bounded by a time to live and a memory budget in estimated bytes, see {@link MorreCacheConfig}.
+ * It is safe to use from many threads. Concurrent misses on the same key are not merged, each of them queries MORRE,
+ * unless the decorated client is a {@link CoalescingMorre}.
+ * Every call returns a new list of copied result objects, so a caller can modify its results without changing the
+ * cached ones. With {@link MorreCacheConfig#setSharedResults(boolean) shared results}, the result objects are shared
+ * between all callers instead and must not be modified. Only {@link Projection#METADATA METADATA} results with a
+ * deferred document are copied then: the document is loaded into the copy, the cached result stays as small as it
+ * was estimated when it was cached.
+ * </p>
+ *
+ */
+public class CachingMorre implements Morre {
+
+	private static final long serialVersionUID = -5082646286153208711L;
+
+	private final Morre morre;
+	private final MorreCacheConfig config;
+	private transient ResultCache cache;
+
+	public CachingMorre(Morre morre) {
+		this(morre, new MorreCacheConfig());
+	}
+
+	public CachingMorre(Morre morre, MorreCacheConfig config) {
+		if( morre == null )
+			throw new IllegalArgumentException("morre must not be null");
+
+		this.morre = morre;
+		this.config = new MorreCacheConfig(config);
+		this.cache = new ResultCache(this.config);
+	}
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// the cached results are not serialized, a deserialized client starts empty
+		cache = new ResultCache(config);
+	}
+
+	/**
+	 * Returns the configuration of this cache.
+	 *
+	 * @return a copy of the cache config
+	 */
+	public MorreCacheConfig getConfig() {
+		return new MorreCacheConfig(config);
+	}
+
+	/**
+	 * Returns the decorated client.
+	 *
+	 * @return the client
+	 */
+	public Morre getMorre() {
+		return morre;
+	}
+
+	public CacheStats getStats() {
+		return cache.getStats();
+	}
+
+	/**
+	 * Removes all cached results. The statistics are kept.
+	 */
+	public void invalidateAll() {
+		cache.clear();
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
+	@Override
+	public List<ModelResult> aggregatedModelQuery(String query, String aggregationType, String rankerWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankerWeights);
+	}
+
+	@Override
+	public List<String> getQueryFeatures(String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("features", queryType, null);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copy( cached.getResult() );
+
+		List<String> result = morre.getQueryFeatures(queryType);
+		cache.put(key, result);
+		return copy(result);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("model", queryType, projection) + QueryKeys.normalize(features);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyModels( cached.getResult() );
+
+		List<ModelResult> result = morre.doModelQuery(queryType, features, projection);
+		cache.put(key, result);
+		return copyModels(result);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("simple", queryType, projection) + QueryKeys.normalize(keyword);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyModels( cached.getResult() );
+
+		List<ModelResult> result = morre.doSimpleModelQuery(queryType, keyword, projection);
+		cache.put(key, result);
+		return copyModels(result);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleAggregatedModelQuery(String queryType, String keyword, String aggregationType, String rankersWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("aggregated", queryType, Projection.FULL) + QueryKeys.normalize(keyword) + QueryKeys.SEPARATOR + QueryKeys.normalize(aggregationType) + QueryKeys.SEPARATOR + QueryKeys.normalize(rankersWeights);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyModels( cached.getResult() );
+
+		List<ModelResult> result = morre.doSimpleAggregatedModelQuery(queryType, keyword, aggregationType, rankersWeights);
+		cache.put(key, result);
+		return copyModels(result);
+	}
+
+	@Override
+	public List<PersonResult> doPersonQuery(FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("person", QueryType.PERSON_QUERY, Projection.FULL) + QueryKeys.normalize(features);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyPersons( cached.getResult() );
+
+		List<PersonResult> result = morre.doPersonQuery(features);
+		cache.put(key, result);
+		return copyPersons(result);
+	}
+
+	@Override
+	public List<PublicationResult> doPublicationQuery(FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("publication", QueryType.PUBLICATION_QUERY, Projection.FULL) + QueryKeys.normalize(features);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyPublications( cached.getResult() );
+
+		List<PublicationResult> result = morre.doPublicationQuery(features);
+		cache.put(key, result);
+		return copyPublications(result);
+	}
+
+	@Override
+	public List<AnnotationResult> doAnnotationQuery(String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("annotation", QueryType.ANNOTATION_QUERY, Projection.FULL) + QueryKeys.normalize(query);
+		ResultCache.Entry cached = cache.get(key);
+		if( cached != null )
+			return copyAnnotations( cached.getResult() );
+
+		List<AnnotationResult> result = morre.doAnnotationQuery(query);
+		cache.put(key, result);
+		return copyAnnotations(result);
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	private static <R> List<R> copy( List<?> result ) {
+		if( result == null )
+			return null;
+
+		return new ArrayList<R>( (List<R>) result );
+	}
+
+	/**
+	 * Copies the list and every model, or only every model with a deferred document if the results are shared.
+	 * The document is loaded into the copy of the caller, if it was loaded into the cached model, the cache would
+	 * grow behind its memory budget.
+	 */
+	private List<ModelResult> copyModels( List<?> result ) {
+		if( result == null )
+			return null;
+
+		List<ModelResult> copy = new ArrayList<ModelResult>( result.size() );
+		for( Object element : result ) {
+			ModelResult model = (ModelResult) element;
+			copy.add( model != null && (!config.isSharedResults() || !model.isXmldocLoaded()) ? new ModelResult(model) : model );
+		}
+		return copy;
+	}
+
+	private List<PersonResult> copyPersons( List<?> result ) {
+		if( result == null || config.isSharedResults() )
+			return copy(result);
+
+		List<PersonResult> copy = new ArrayList<PersonResult>( result.size() );
+		for( Object element : result )
+			copy.add( element != null ? new PersonResult((PersonResult) element) : null );
+		return copy;
+	}
+
+	private List<PublicationResult> copyPublications( List<?> result ) {
+		if( result == null || config.isSharedResults() )
+			return copy(result);
+
+		List<PublicationResult> copy = new ArrayList<PublicationResult>( result.size() );
+		for( Object element : result )
+			copy.add( element != null ? new PublicationResult((PublicationResult) element) : null );
+		return copy;
+	}
+
+	private List<AnnotationResult> copyAnnotations( List<?> result ) {
+		if( result == null || config.isSharedResults() )
+			return copy(result);
+
+		List<AnnotationResult> copy = new ArrayList<AnnotationResult>( result.size() );
+		for( Object element : result )
+			copy.add( element != null ? new AnnotationResult((AnnotationResult) element) : null );
+		return copy;
+	}
+
+}
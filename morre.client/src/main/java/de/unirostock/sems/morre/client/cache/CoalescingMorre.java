@@ -0,0 +1,434 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Morre;
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Decorator of the {@link Morre} and {@link MorreCrawlerInterface}, which merges concurrent equal calls into one request.
+ * <p>
+ * The first caller of a query sends the request, every equal call arriving while it is in flight waits for that
+ * request instead of sending its own. Queries are equal under the same rules as in the {@link CachingMorre}, model
+ * versions by file and version id. Nothing is kept once the request is done, so a later call sends a new request.
+ * Adding a model is never merged.
+ * </p>
+ * <p>
+ * Every waiting caller gets its own copy of the result: a new list of copied result objects, so no caller sees the
+ * modifications of another one. The first caller gets the decoded result itself, if nobody waited for it, and a copy
+ * otherwise. So a call without waiting callers copies nothing. A failure is thrown to all callers of the request.
+ * The decorator is safe to use from many threads.
+ * </p>
+ *
+ */
+public class CoalescingMorre implements Morre, MorreCrawlerInterface {
+
+	private static final long serialVersionUID = -1429983530215176046L;
+
+	private final Morre morre;
+	private final MorreCrawlerInterface crawler;
+	private transient ConcurrentMap<String, Flight> flights;
+	private transient AtomicLong requests;
+	private transient AtomicLong coalesced;
+
+	/**
+	 * Merges the queries only, the crawler calls are rejected.
+	 *
+	 * @param morre the client to decorate
+	 */
+	public CoalescingMorre(Morre morre) {
+		this(morre, null);
+	}
+
+	/**
+	 * Merges the queries and the crawler calls, which may be made by the same client.
+	 *
+	 * @param morre the client for the queries
+	 * @param crawler the client for the crawler calls, may be null
+	 */
+	public CoalescingMorre(Morre morre, MorreCrawlerInterface crawler) {
+		if( morre == null )
+			throw new IllegalArgumentException("morre must not be null");
+
+		this.morre = morre;
+		this.crawler = crawler;
+		init();
+	}
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init();
+	}
+
+	private void init() {
+		flights = new ConcurrentHashMap<String, Flight>();
+		requests = new AtomicLong(0);
+		coalesced = new AtomicLong(0);
+	}
+
+	/**
+	 * Returns the number of requests sent to the decorated client.
+	 *
+	 * @return the number of requests
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns the number of calls, which were answered by the request of an equal call.
+	 *
+	 * @return the number of merged calls
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * Returns the number of requests currently in flight.
+	 *
+	 * @return the number of requests
+	 */
+	public int getInFlight() {
+		return flights.size();
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
+	@Override
+	public List<ModelResult> aggregatedModelQuery(String query, String aggregationType, String rankerWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankerWeights);
+	}
+
+	@Override
+	public List<String> getQueryFeatures(final String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+		return coalesce( QueryKeys.key("features", queryType, null), STRINGS, new Call<List<String>>() {
+			@Override
+			public List<String> call() throws MorreException, MorreCommunicationException {
+				return morre.getQueryFeatures(queryType);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(final String queryType, final FeatureSet features, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("model", queryType, projection) + QueryKeys.normalize(features);
+		return coalesce( key, MODEL_RESULTS, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doModelQuery(queryType, features, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(final String queryType, final String keyword, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("simple", queryType, projection) + QueryKeys.normalize(keyword);
+		return coalesce( key, MODEL_RESULTS, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doSimpleModelQuery(queryType, keyword, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleAggregatedModelQuery(final String queryType, final String keyword, final String aggregationType, final String rankersWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("aggregated", queryType, Projection.FULL) + QueryKeys.normalize(keyword)
+				+ QueryKeys.SEPARATOR + QueryKeys.normalize(aggregationType) + QueryKeys.SEPARATOR + QueryKeys.normalize(rankersWeights);
+		return coalesce( key, MODEL_RESULTS, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doSimpleAggregatedModelQuery(queryType, keyword, aggregationType, rankersWeights);
+			}
+		});
+	}
+
+	@Override
+	public List<PersonResult> doPersonQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("person", QueryType.PERSON_QUERY, Projection.FULL) + QueryKeys.normalize(features);
+		return coalesce( key, PERSON_RESULTS, new Call<List<PersonResult>>() {
+			@Override
+			public List<PersonResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doPersonQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<PublicationResult> doPublicationQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("publication", QueryType.PUBLICATION_QUERY, Projection.FULL) + QueryKeys.normalize(features);
+		return coalesce( key, PUBLICATION_RESULTS, new Call<List<PublicationResult>>() {
+			@Override
+			public List<PublicationResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doPublicationQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<AnnotationResult> doAnnotationQuery(final String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		String key = QueryKeys.key("annotation", QueryType.ANNOTATION_QUERY, Projection.FULL) + QueryKeys.normalize(query);
+		return coalesce( key, ANNOTATION_RESULTS, new Call<List<AnnotationResult>>() {
+			@Override
+			public List<AnnotationResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doAnnotationQuery(query);
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public List<String> getModelHistory(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return coalesce( "history" + QueryKeys.SEPARATOR + fileId, STRINGS, new Call<List<String>>() {
+			@Override
+			public List<String> call() throws MorreException, MorreCommunicationException {
+				return crawler.getModelHistory(fileId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getModelVersion(final String fileId, final String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return coalesce( "version" + QueryKeys.SEPARATOR + fileId + QueryKeys.SEPARATOR + versionId, CRAWLED_MODEL, new Call<CrawledModel>() {
+			@Override
+			public CrawledModel call() throws MorreException, MorreCommunicationException {
+				return crawler.getModelVersion(fileId, versionId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getLatestModelVersion(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return coalesce( "latest" + QueryKeys.SEPARATOR + fileId, CRAWLED_MODEL, new Call<CrawledModel>() {
+			@Override
+			public CrawledModel call() throws MorreException, MorreCommunicationException {
+				return crawler.getLatestModelVersion(fileId);
+			}
+		});
+	}
+
+	@Override
+	public boolean addModel(CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
+		return getCrawler().addModel(model);
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * The request of a call.
+	 */
+	private interface Call<R> {
+		public R call() throws MorreException, MorreCommunicationException;
+	}
+
+	/**
+	 * Copies a result for a waiting caller.
+	 */
+	private interface Copier<R> {
+		public R copy( R result );
+	}
+
+	/**
+	 * A request in flight, which counts the calls joining it until it is closed.
+	 */
+	private static class Flight extends CompletableFuture<Object> {
+
+		/** the number of joined calls, -1 once closed */
+		private final AtomicInteger joined = new AtomicInteger(0);
+
+		/**
+		 * Joins the flight.
+		 *
+		 * @return false, if the flight is closed already
+		 */
+		public boolean tryJoin() {
+			while( true ) {
+				int count = joined.get();
+				if( count < 0 )
+					return false;
+				if( joined.compareAndSet(count, count + 1) )
+					return true;
+			}
+		}
+
+		/**
+		 * Closes the flight for further calls.
+		 *
+		 * @return the number of joined calls
+		 */
+		public int closeJoining() {
+			return joined.getAndSet(-1);
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> R coalesce( String key, Copier<R> copier, Call<R> call ) throws MorreException, MorreCommunicationException {
+		Flight flight = new Flight();
+		while( true ) {
+			Flight running = flights.putIfAbsent(key, flight);
+			if( running == null )
+				break;
+			if( running.tryJoin() ) {
+				coalesced.incrementAndGet();
+				return copier.copy( (R) await(running) );
+			}
+			// closed after it was removed, the next try starts a new flight
+		}
+
+		requests.incrementAndGet();
+		try {
+			R result = call.call();
+			// removed and closed first, so calls arriving later send a new request and the count is final
+			flights.remove(key, flight);
+			if( flight.closeJoining() == 0 )
+				return result;
+
+			// the waiters copy the result, the caller gets a copy of its own to modify while they do
+			R copy = copier.copy(result);
+			flight.complete(result);
+			return copy;
+		} catch (MorreException | MorreCommunicationException | RuntimeException | Error e) {
+			flights.remove(key, flight);
+			flight.closeJoining();
+			flight.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static Object await( CompletableFuture<Object> flight ) throws MorreException, MorreCommunicationException {
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MorreCommunicationException("Interrupted while waiting for an equal request", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if( cause instanceof MorreException )
+				throw (MorreException) cause;
+			else if( cause instanceof MorreCommunicationException )
+				throw (MorreCommunicationException) cause;
+			else if( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			else if( cause instanceof Error )
+				throw (Error) cause;
+			throw new MorreCommunicationException("Equal request failed", cause);
+		}
+	}
+
+	private MorreCrawlerInterface getCrawler() throws MorreClientException {
+		if( crawler == null )
+			throw new MorreClientException("No crawler interface to decorate");
+		return crawler;
+	}
+
+	private static final Copier<List<String>> STRINGS = new Copier<List<String>>() {
+		@Override
+		public List<String> copy(List<String> result) {
+			return result != null ? new ArrayList<String>(result) : null;
+		}
+	};
+
+	private static final Copier<List<ModelResult>> MODEL_RESULTS = new Copier<List<ModelResult>>() {
+		@Override
+		public List<ModelResult> copy(List<ModelResult> result) {
+			if( result == null )
+				return null;
+
+			List<ModelResult> copy = new ArrayList<ModelResult>( result.size() );
+			for( ModelResult element : result )
+				copy.add( new ModelResult(element) );
+			return copy;
+		}
+	};
+
+	private static final Copier<List<PersonResult>> PERSON_RESULTS = new Copier<List<PersonResult>>() {
+		@Override
+		public List<PersonResult> copy(List<PersonResult> result) {
+			if( result == null )
+				return null;
+
+			List<PersonResult> copy = new ArrayList<PersonResult>( result.size() );
+			for( PersonResult element : result )
+				copy.add( new PersonResult(element) );
+			return copy;
+		}
+	};
+
+	private static final Copier<List<PublicationResult>> PUBLICATION_RESULTS = new Copier<List<PublicationResult>>() {
+		@Override
+		public List<PublicationResult> copy(List<PublicationResult> result) {
+			if( result == null )
+				return null;
+
+			List<PublicationResult> copy = new ArrayList<PublicationResult>( result.size() );
+			for( PublicationResult element : result )
+				copy.add( new PublicationResult(element) );
+			return copy;
+		}
+	};
+
+	private static final Copier<List<AnnotationResult>> ANNOTATION_RESULTS = new Copier<List<AnnotationResult>>() {
+		@Override
+		public List<AnnotationResult> copy(List<AnnotationResult> result) {
+			if( result == null )
+				return null;
+
+			List<AnnotationResult> copy = new ArrayList<AnnotationResult>( result.size() );
+			for( AnnotationResult element : result )
+				copy.add( new AnnotationResult(element) );
+			return copy;
+		}
+	};
+
+	private static final Copier<CrawledModel> CRAWLED_MODEL = new Copier<CrawledModel>() {
+		@Override
+		public CrawledModel copy(CrawledModel result) {
+			return result != null ? new CrawledModel(result) : null;
+		}
+	};
+
+}
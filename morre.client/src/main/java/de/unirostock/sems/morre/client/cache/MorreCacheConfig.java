@@ -0,0 +1,97 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.io.Serializable;
+
+/**
+ * Configuration of the {@link CachingMorre} result cache.
+ * <p>
+ * All setters return the config itself, so they can be chained. The cache copies
+ * the configuration on construction, later changes to this object do not affect
+ * already created caches.
+ * </p>
+ *
+ */
+public class MorreCacheConfig implements Serializable {
+
+	private static final long serialVersionUID = 4486109872460533412L;
+
+	/** default time in ms after which a cached result expires */
+	public static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000;
+	/** default memory budget of the cache in estimated bytes */
+	public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+	private long timeToLive = DEFAULT_TIME_TO_LIVE;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	private boolean sharedResults = false;
+
+	public MorreCacheConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public MorreCacheConfig( MorreCacheConfig other ) {
+		this.timeToLive = other.timeToLive;
+		this.maxBytes = other.maxBytes;
+		this.sharedResults = other.sharedResults;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Sets the time in ms after which a cached result is not served anymore.
+	 * A value &lt;= 0 keeps the results until they are evicted.
+	 *
+	 * @param timeToLive the time to live in ms
+	 * @return this config
+	 */
+	public MorreCacheConfig setTimeToLive( long timeToLive ) {
+		this.timeToLive = timeToLive;
+		return this;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Sets the memory budget of the cache in estimated bytes. If it is exceeded, the least recently
+	 * used results are evicted. A single result larger than the budget is not cached at all.
+	 *
+	 * @param maxBytes the budget in bytes
+	 * @return this config
+	 */
+	public MorreCacheConfig setMaxBytes( long maxBytes ) {
+		if( maxBytes <= 0 )
+			throw new IllegalArgumentException("maxBytes has to be positive");
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	public boolean isSharedResults() {
+		return sharedResults;
+	}
+
+	/**
+	 * Shares the cached result objects between all callers instead of copying them for every call. This saves
+	 * the copies, but the callers must not modify the results, a modification would be seen by all later callers.
+	 * Off by default.
+	 *
+	 * @param sharedResults true to share the cached result objects
+	 * @return this config
+	 */
+	public MorreCacheConfig setSharedResults( boolean sharedResults ) {
+		this.sharedResults = sharedResults;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "MorreCacheConfig [timeToLive=" + timeToLive + ", maxBytes=" + maxBytes + ", sharedResults=" + sharedResults + "]";
+	}
+
+}
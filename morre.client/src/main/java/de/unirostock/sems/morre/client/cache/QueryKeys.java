@@ -0,0 +1,51 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Projection;
+
+/**
+ * Builds the keys of equal queries, shared by the {@link CachingMorre} and the {@link CoalescingMorre}.
+ * Keywords and feature values are trimmed and their inner whitespace is collapsed, the order of the
+ * features does not matter.
+ *
+ */
+final class QueryKeys {
+
+	static final char SEPARATOR = '\u0000';
+
+	private QueryKeys() {
+	}
+
+	static String key( String kind, String queryType, Projection projection ) {
+		return kind + SEPARATOR + queryType + SEPARATOR + projection + SEPARATOR;
+	}
+
+	static String normalize( String value ) {
+		if( value == null )
+			return "\u0001";
+
+		return value.trim().replaceAll("\\s+", " ");
+	}
+
+	static String normalize( FeatureSet features ) {
+		if( features == null )
+			return "\u0001";
+
+		Entry<List<String>, List<String>> lists = features.getFeatures();
+		Map<String, String> sorted = new TreeMap<String, String>();
+		for( int i = 0; i < lists.getKey().size(); i++ )
+			sorted.put( lists.getKey().get(i), normalize(lists.getValue().get(i)) );
+
+		StringBuilder key = new StringBuilder();
+		for( Entry<String, String> feature : sorted.entrySet() )
+			key.append( feature.getKey() ).append('=').append( feature.getValue() ).append(SEPARATOR);
+
+		return key.toString();
+	}
+
+}
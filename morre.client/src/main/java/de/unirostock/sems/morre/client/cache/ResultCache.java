@@ -0,0 +1,147 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of query results with a time to live and a memory budget in estimated bytes.
+ * <p>
+ * All operations lock the cache only to touch the map and never wait for MORRE, the size of a new result is
+ * estimated before the lock is taken. Expired entries are removed when they are looked up, or when the memory
+ * budget is exceeded, at most a few times per time to live.
+ * </p>
+ *
+ */
+class ResultCache {
+
+	/** expired entries are purged at most this many times per time to live */
+	private static final int PURGES_PER_TIME_TO_LIVE = 4;
+
+	private final long timeToLive;
+	private final long maxBytes;
+
+	/** in access order, the eldest entry is the least recently used one */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+	private long estimatedBytes = 0;
+	/** in System.nanoTime(), no expired entries are purged before */
+	private long nextPurge;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long expirations = 0;
+
+	public ResultCache(MorreCacheConfig config) {
+		this.timeToLive = config.getTimeToLive();
+		this.maxBytes = config.getMaxBytes();
+		this.nextPurge = System.nanoTime();
+	}
+
+	/**
+	 * Looks up a result and counts the hit or miss.
+	 *
+	 * @param key the key
+	 * @return the entry or null on a miss
+	 */
+	public synchronized Entry get( String key ) {
+		Entry entry = entries.get(key);
+		if( entry != null && entry.isExpired(System.nanoTime()) ) {
+			remove(key);
+			expirations++;
+			entry = null;
+		}
+
+		if( entry == null )
+			misses++;
+		else
+			hits++;
+
+		return entry;
+	}
+
+	public void put( String key, List<?> result ) {
+		// the estimate walks the whole result, it does not need the lock
+		long size = ResultSizeEstimator.estimate(result) + 2L * key.length();
+		if( size > maxBytes )
+			return;
+
+		long now = System.nanoTime();
+		long expires = timeToLive > 0 ? now + timeToLive * 1000000L : Long.MAX_VALUE;
+		Entry entry = new Entry(result, size, expires);
+
+		synchronized( this ) {
+			remove(key);
+			entries.put(key, entry);
+			estimatedBytes += size;
+
+			// drop expired entries first, but scan for them only a few times per time to live,
+			// then the least recently used ones
+			if( estimatedBytes > maxBytes && timeToLive > 0 && now - nextPurge >= 0 ) {
+				purgeExpired(now);
+				nextPurge = now + Math.max(1, timeToLive * 1000000L / PURGES_PER_TIME_TO_LIVE);
+			}
+
+			Iterator<Entry> iterator = entries.values().iterator();
+			while( estimatedBytes > maxBytes && iterator.hasNext() ) {
+				estimatedBytes -= iterator.next().size;
+				iterator.remove();
+				evictions++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		estimatedBytes = 0;
+	}
+
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, expirations, entries.size(), estimatedBytes);
+	}
+
+	private void remove( String key ) {
+		Entry removed = entries.remove(key);
+		if( removed != null )
+			estimatedBytes -= removed.size;
+	}
+
+	private void purgeExpired( long now ) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while( iterator.hasNext() ) {
+			Entry entry = iterator.next().getValue();
+			if( entry.isExpired(now) ) {
+				estimatedBytes -= entry.size;
+				iterator.remove();
+				expirations++;
+			}
+		}
+	}
+
+	/**
+	 * A cached result, which may be null if MORRE found nothing.
+	 */
+	static class Entry {
+
+		private final List<?> result;
+		private final long size;
+		private final long expires;
+
+		private Entry(List<?> result, long size, long expires) {
+			this.result = result;
+			this.size = size;
+			this.expires = expires;
+		}
+
+		public List<?> getResult() {
+			return result;
+		}
+
+		private boolean isExpired( long now ) {
+			return expires != Long.MAX_VALUE && now - expires >= 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,95 @@
+package de.unirostock.sems.morre.client.cache;
+
+import java.util.List;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.Model;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * Rough estimation of the heap size of query results. It counts the characters of all Strings
+ * and adds a fixed overhead per object, which is close enough to keep the cache within its budget.
+ * The model documents dominate the size of model results.
+ *
+ */
+class ResultSizeEstimator {
+
+	/** object header, fields and padding of a small dataholder */
+	private static final int OBJECT_OVERHEAD = 48;
+	/** String and char array header */
+	private static final int STRING_OVERHEAD = 40;
+	/** list object and its backing array */
+	private static final int LIST_OVERHEAD = 40;
+	private static final int REFERENCE = 8;
+
+	private ResultSizeEstimator() {
+	}
+
+	public static long estimate( List<?> result ) {
+		if( result == null )
+			return REFERENCE;
+
+		long size = LIST_OVERHEAD + REFERENCE * result.size();
+		for( Object element : result )
+			size += estimateElement(element);
+
+		return size;
+	}
+
+	private static long estimateElement( Object element ) {
+
+		if( element instanceof String )
+			return estimate( (String) element );
+		else if( element instanceof Model ) {
+			Model model = (Model) element;
+			long size = OBJECT_OVERHEAD + estimate( model.getModelName() ) + estimate( model.getModelID() ) + estimate( model.getVersionID() )
+					+ estimate( model.getDocumentURI() ) + estimate( model.getFileId() );
+			// a deferred document would be loaded by the getter
+			if( model.isXmldocLoaded() )
+				size += estimate( model.getXmldoc() );
+			return size;
+		}
+		else if( element instanceof PersonResult ) {
+			PersonResult person = (PersonResult) element;
+			return OBJECT_OVERHEAD + estimate( person.getPerson() ) + estimate( person.getRelatedModelsUri() );
+		}
+		else if( element instanceof PublicationResult ) {
+			PublicationResult publication = (PublicationResult) element;
+			return OBJECT_OVERHEAD + estimate( publication.getPublication() ) + estimate( publication.getRelatedModelsUri() );
+		}
+		else if( element instanceof AnnotationResult ) {
+			AnnotationResult annotation = (AnnotationResult) element;
+			return OBJECT_OVERHEAD + estimate( annotation.getUri() ) + estimate( annotation.getRelatedModelsUri() );
+		}
+		else if( element instanceof Person ) {
+			Person person = (Person) element;
+			return OBJECT_OVERHEAD + estimate( person.getFirstName() ) + estimate( person.getLastName() )
+					+ estimate( person.getEmail() ) + estimate( person.getOrganization() );
+		}
+		else if( element instanceof Publication ) {
+			Publication publication = (Publication) element;
+			return OBJECT_OVERHEAD + estimate( publication.getTitle() ) + estimate( publication.getJournal() )
+					+ estimate( publication.getSynopsis() ) + estimate( publication.getYear() ) + estimate( publication.getAuthors() );
+		}
+
+		return element == null ? 0 : OBJECT_OVERHEAD;
+	}
+
+	private static long estimate( String value ) {
+		if( value == null )
+			return 0;
+
+		return STRING_OVERHEAD + 2L * value.length();
+	}
+
+	private static long estimate( Object value ) {
+		if( value instanceof List<?> )
+			return estimate( (List<?>) value );
+
+		return estimateElement(value);
+	}
+
+}
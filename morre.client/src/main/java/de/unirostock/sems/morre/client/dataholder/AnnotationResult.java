@@ -1,6 +1,8 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,6 +25,17 @@ public class AnnotationResult implements Serializable, Comparable<AnnotationResu
 		this.relatedModelsUri = relatedModelsUri;
 	}
 
+	/**
+	 * Copy constructor, copies the list of related models as well.
+	 *
+	 * @param other the result to copy
+	 */
+	public AnnotationResult(AnnotationResult other) {
+		this.score = other.score;
+		this.uri = other.uri;
+		this.relatedModelsUri = other.relatedModelsUri != null ? new ArrayList<String>(other.relatedModelsUri) : null;
+	}
+
 	public float getScore() {
 		return score;
 	}
@@ -47,6 +60,13 @@ public class AnnotationResult implements Serializable, Comparable<AnnotationResu
 		this.relatedModelsUri = relatedModelsUri;
 	}
 
+	/**
+	 * Serializes the result in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return "AnnotationResult [score=" + score + ", uri=" + uri + "]";
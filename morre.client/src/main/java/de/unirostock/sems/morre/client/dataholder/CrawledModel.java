@@ -1,7 +1,9 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,14 +13,19 @@ import com.google.gson.reflect.TypeToken;
 
 /**
  * Dataholder Object for a model, which is going to be inserted into the database with the {@link de.unirostock.sems.morre.client.MorreCrawlerInterface MorreCrawlerInterface}
+ * <p>
+ * Like all dataholders, a model can be read by many threads once it is built, changes have to be synchronized
+ * by the caller. The meta map, which is parsed from the meta string on first access, is guarded by the model itself.
+ * </p>
  *
  */
 public class CrawledModel implements Serializable {
 
 	private static final long serialVersionUID = 2002369276523885214L;
 
-	private transient static Gson gson = null;
-	private transient static Type metaType = new TypeToken<Map<String, String>>(){}.getType();
+	/** Gson instances are thread-safe, so all models share one */
+	private static final Gson gson = new Gson();
+	private static final Type metaType = new TypeToken<Map<String, String>>(){}.getType();
 
 	public static final String TYPE_CELLML	= "CELLML";
 	public static final String TYPE_SBML	= "SBML";
@@ -53,13 +60,41 @@ public class CrawledModel implements Serializable {
 		this.modelType = modelType;
 	}
 
-	public Map<String, String> getMetaMap() {
+	/**
+	 * Copy constructor, copies the parent and meta maps as well.
+	 *
+	 * @param other the model to copy
+	 */
+	public CrawledModel(CrawledModel other) {
+		this.fileId = other.fileId;
+		this.versionId = other.versionId;
+		this.xmldoc = other.xmldoc;
+		this.modelType = other.modelType;
+		this.meta = other.meta;
+		if( other.parentMap != null ) {
+			this.parentMap = new HashMap<String, List<String>>( other.parentMap.size() * 2 );
+			for( Map.Entry<String, List<String>> parent : other.parentMap.entrySet() )
+				this.parentMap.put( parent.getKey(), parent.getValue() != null ? new ArrayList<String>(parent.getValue()) : null );
+		}
+		else
+			this.parentMap = null;
+		this.metaMap = other.metaMap != null ? new HashMap<String, String>(other.metaMap) : null;
+	}
+
+	public synchronized Map<String, String> getMetaMap() {
 		if( meta != null && !meta.isEmpty() && metaMap == null )
 			processMeta();
 		
 		return metaMap;
 	}
-	public void setMetaMap(Map<String, String> metaMap) {
+	/**
+	 * Returns the meta map as it is, without parsing the meta string.
+	 */
+	synchronized Map<String, String> peekMetaMap() {
+		return metaMap;
+	}
+
+	public synchronized void setMetaMap(Map<String, String> metaMap) {
 		this.metaMap = metaMap;
 	}
 	public String getFileId() {
@@ -103,15 +138,18 @@ public class CrawledModel implements Serializable {
 		return meta;
 	}
 
-	protected void processMeta() {
-		// creates gson instance, if necessary
-		if( gson == null )
-			gson = new Gson();
-
+	protected synchronized void processMeta() {
 		// parses the meta string into a map
 		metaMap = gson.fromJson(meta, metaType);
 	}
 
+	/**
+	 * Serializes the model in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return "CrawledModel [fileId=" + fileId + ", versionId=" + versionId
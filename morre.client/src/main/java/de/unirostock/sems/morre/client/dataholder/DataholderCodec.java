@@ -0,0 +1,575 @@
+package de.unirostock.sems.morre.client.dataholder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding of the dataholders, which is also their Java serialized form.
+ * <p>
+ * An encoded dataholder starts with the format version and the type of the dataholder, followed by its
+ * fields without any names. Lengths and sizes are varints, Strings are UTF-8, null is a length of 0. Model
+ * documents of at least the compression threshold are deflated, if that makes them smaller.
+ * A deferred model document is not loaded for the encoding, it is encoded as deferred: the decoded model reports
+ * it as not loaded, until it is deferred again with a loader.
+ * </p>
+ * <p>
+ * No length read from the input is trusted: lengths beyond {@link #MAX_LENGTH} are rejected, and buffers grow with
+ * the input actually read, so a corrupt length ends at the end of the input instead of allocating its size.
+ * </p>
+ * <p>
+ * The codec is immutable and safe for concurrent use.
+ * </p>
+ *
+ */
+public final class DataholderCodec {
+
+	/** version of the encoding, written in front of every dataholder */
+	public static final int VERSION = 1;
+	/** default minimum length of a model document to be compressed */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 4096;
+
+	/** maximum length of a String, a model document or a list, longer ones are taken as corrupt input */
+	public static final int MAX_LENGTH = 1 << 28;
+
+	/** codec with the default compression threshold, used for the Java serialization */
+	public static final DataholderCodec DEFAULT = new DataholderCodec(DEFAULT_COMPRESSION_THRESHOLD);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int TYPE_MODEL = 1;
+	private static final int TYPE_MODEL_RESULT = 2;
+	private static final int TYPE_CRAWLED_MODEL = 3;
+	private static final int TYPE_PERSON = 4;
+	private static final int TYPE_PERSON_RESULT = 5;
+	private static final int TYPE_PUBLICATION = 6;
+	private static final int TYPE_PUBLICATION_RESULT = 7;
+	private static final int TYPE_ANNOTATION_RESULT = 8;
+
+	private static final int DOCUMENT_NULL = 0;
+	private static final int DOCUMENT_PLAIN = 1;
+	private static final int DOCUMENT_DEFLATED = 2;
+	private static final int DOCUMENT_DEFERRED = 3;
+
+	/** the size of the first buffer for the bytes of a String or document */
+	private static final int CHUNK_SIZE = 8192;
+	/** the highest compression ratio of deflate, which bounds the length of an inflated document */
+	private static final int MAX_DEFLATE_RATIO = 1032;
+
+	private final int compressionThreshold;
+
+	/**
+	 * Creates a codec.
+	 *
+	 * @param compressionThreshold the minimum length of a model document to be compressed or 0 to never compress
+	 */
+	public DataholderCodec( int compressionThreshold ) {
+		if( compressionThreshold < 0 )
+			throw new IllegalArgumentException("compressionThreshold must not be negative");
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Encodes a dataholder.
+	 *
+	 * @param dataholder the dataholder
+	 * @return the encoded dataholder
+	 * @throws IOException if the dataholder can not be encoded
+	 * @throws IllegalArgumentException if the object is no dataholder
+	 */
+	public byte[] encode( Object dataholder ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		write(out, dataholder);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a dataholder.
+	 *
+	 * @param <T> the type of the dataholder
+	 * @param data the encoded dataholder
+	 * @param type the expected type of the dataholder
+	 * @return the dataholder
+	 * @throws IOException if the data is no encoded dataholder of the type
+	 */
+	public <T> T decode( byte[] data, Class<T> type ) throws IOException {
+		Object dataholder;
+		try {
+			dataholder = read( new DataInputStream(new ByteArrayInputStream(data)) );
+		} catch (EOFException e) {
+			throw new StreamCorruptedException("Truncated dataholder");
+		}
+		if( !type.isInstance(dataholder) )
+			throw new StreamCorruptedException( "Expected a " + type.getSimpleName() + " but was a " + dataholder.getClass().getSimpleName() );
+		return type.cast(dataholder);
+	}
+
+	/**
+	 * Writes a dataholder with its version and type.
+	 *
+	 * @param out the output
+	 * @param dataholder the dataholder
+	 * @throws IOException if the output fails
+	 * @throws IllegalArgumentException if the object is no dataholder
+	 */
+	public void write( DataOutput out, Object dataholder ) throws IOException {
+		// the exact class, a subclass of a dataholder would lose its own fields
+		Class<?> type = dataholder.getClass();
+		out.writeByte(VERSION);
+		if( type == ModelResult.class ) {
+			out.writeByte(TYPE_MODEL_RESULT);
+			writeModel(out, (ModelResult) dataholder);
+			out.writeFloat( ((ModelResult) dataholder).getScore() );
+		}
+		else if( type == Model.class ) {
+			out.writeByte(TYPE_MODEL);
+			writeModel(out, (Model) dataholder);
+		}
+		else if( type == CrawledModel.class ) {
+			out.writeByte(TYPE_CRAWLED_MODEL);
+			writeCrawledModel(out, (CrawledModel) dataholder);
+		}
+		else if( type == Person.class ) {
+			out.writeByte(TYPE_PERSON);
+			writePerson(out, (Person) dataholder);
+		}
+		else if( type == PersonResult.class ) {
+			PersonResult result = (PersonResult) dataholder;
+			out.writeByte(TYPE_PERSON_RESULT);
+			out.writeFloat( result.getScore() );
+			writeNullablePerson( out, result.getPerson() );
+			writeStringList( out, result.getRelatedModelsUri() );
+		}
+		else if( type == Publication.class ) {
+			out.writeByte(TYPE_PUBLICATION);
+			writePublication(out, (Publication) dataholder);
+		}
+		else if( type == PublicationResult.class ) {
+			PublicationResult result = (PublicationResult) dataholder;
+			out.writeByte(TYPE_PUBLICATION_RESULT);
+			out.writeFloat( result.getScore() );
+			if( result.getPublication() == null )
+				out.writeBoolean(false);
+			else {
+				out.writeBoolean(true);
+				writePublication( out, result.getPublication() );
+			}
+			writeStringList( out, result.getRelatedModelsUri() );
+		}
+		else if( type == AnnotationResult.class ) {
+			AnnotationResult result = (AnnotationResult) dataholder;
+			out.writeByte(TYPE_ANNOTATION_RESULT);
+			out.writeFloat( result.getScore() );
+			writeString( out, result.getUri() );
+			writeStringList( out, result.getRelatedModelsUri() );
+		}
+		else
+			throw new IllegalArgumentException( "No dataholder: " + type.getName() );
+	}
+
+	/**
+	 * Reads a dataholder written by {@link #write(DataOutput, Object)}.
+	 *
+	 * @param in the input
+	 * @return the dataholder
+	 * @throws IOException if the input fails or holds no dataholder of a known version
+	 */
+	public Object read( DataInput in ) throws IOException {
+		int version = in.readUnsignedByte();
+		if( version != VERSION )
+			throw new StreamCorruptedException( "Unknown dataholder encoding version " + version );
+
+		int type = in.readUnsignedByte();
+		switch( type ) {
+			case TYPE_MODEL_RESULT:
+				return readModel(in, true);
+			case TYPE_MODEL:
+				return readModel(in, false);
+			case TYPE_CRAWLED_MODEL:
+				return readCrawledModel(in);
+			case TYPE_PERSON:
+				return readPerson(in);
+			case TYPE_PERSON_RESULT:
+				return new PersonResult( in.readFloat(), readNullablePerson(in), readStringList(in) );
+			case TYPE_PUBLICATION:
+				return readPublication(in);
+			case TYPE_PUBLICATION_RESULT:
+				return new PublicationResult( in.readFloat(), in.readBoolean() ? readPublication(in) : null, readStringList(in) );
+			case TYPE_ANNOTATION_RESULT:
+				return new AnnotationResult( in.readFloat(), readString(in), readStringList(in) );
+			default:
+				throw new StreamCorruptedException( "Unknown dataholder type " + type );
+		}
+	}
+
+	private void writeModel( DataOutput out, Model model ) throws IOException {
+		// the document as it is without loading it, read at once with its state
+		String xmldoc;
+		boolean deferred;
+		synchronized( model ) {
+			xmldoc = model.peekXmldoc();
+			deferred = !model.isXmldocLoaded();
+		}
+
+		// the fields in the order of the constructor
+		writeString( out, model.modelName );
+		writeString( out, model.modelID );
+		writeString( out, model.versionID );
+		if( deferred )
+			out.writeByte(DOCUMENT_DEFERRED);
+		else
+			writeDocument( out, xmldoc );
+		writeString( out, model.documentURI );
+		writeString( out, model.fileId );
+	}
+
+	private static Model readModel( DataInput in, boolean result ) throws IOException {
+		String modelName = readString(in);
+		String modelID = readString(in);
+		String versionID = readString(in);
+		int format = in.readUnsignedByte();
+		String xmldoc = format == DOCUMENT_DEFERRED ? null : readDocument(in, format);
+		String documentURI = readString(in);
+		String fileId = readString(in);
+
+		Model model;
+		if( result )
+			model = new ModelResult( modelName, modelID, versionID, xmldoc, documentURI, fileId, in.readFloat() );
+		else
+			model = new Model( modelName, modelID, versionID, xmldoc, documentURI, fileId );
+
+		if( format == DOCUMENT_DEFERRED )
+			model.detachXmldoc();
+		return model;
+	}
+
+	private void writeCrawledModel( DataOutput out, CrawledModel model ) throws IOException {
+		writeString( out, model.getFileId() );
+		writeString( out, model.getVersionId() );
+		writeDocument( out, model.getXmldoc() );
+		writeString( out, model.getModelType() );
+		writeString( out, model.getMeta() );
+
+		Map<String, List<String>> parentMap = model.getParentMap();
+		writeSize( out, parentMap == null ? -1 : parentMap.size() );
+		if( parentMap != null ) {
+			for( Entry<String, List<String>> parent : parentMap.entrySet() ) {
+				writeString( out, parent.getKey() );
+				writeStringList( out, parent.getValue() );
+			}
+		}
+
+		Map<String, String> metaMap = model.peekMetaMap();
+		writeSize( out, metaMap == null ? -1 : metaMap.size() );
+		if( metaMap != null ) {
+			for( Entry<String, String> meta : metaMap.entrySet() ) {
+				writeString( out, meta.getKey() );
+				writeString( out, meta.getValue() );
+			}
+		}
+	}
+
+	private CrawledModel readCrawledModel( DataInput in ) throws IOException {
+		String fileId = readString(in);
+		String versionId = readString(in);
+		String xmldoc = readDocument( in, in.readUnsignedByte() );
+		String modelType = readString(in);
+		String meta = readString(in);
+
+		Map<String, List<String>> parentMap = null;
+		int size = readSize(in);
+		if( size >= 0 ) {
+			parentMap = new HashMap<String, List<String>>( capacity(size) );
+			for( int i = 0; i < size; i++ )
+				parentMap.put( readString(in), readStringList(in) );
+		}
+
+		Map<String, String> metaMap = null;
+		size = readSize(in);
+		if( size >= 0 ) {
+			metaMap = new HashMap<String, String>( capacity(size) );
+			for( int i = 0; i < size; i++ )
+				metaMap.put( readString(in), readString(in) );
+		}
+
+		CrawledModel model = new CrawledModel(fileId, versionId, xmldoc, parentMap, metaMap, modelType);
+		model.setMeta(meta);
+		return model;
+	}
+
+	private static void writePerson( DataOutput out, Person person ) throws IOException {
+		writeString( out, person.getFirstName() );
+		writeString( out, person.getLastName() );
+		writeString( out, person.getEmail() );
+		writeString( out, person.getOrganization() );
+	}
+
+	private static Person readPerson( DataInput in ) throws IOException {
+		return new Person( readString(in), readString(in), readString(in), readString(in) );
+	}
+
+	private static void writeNullablePerson( DataOutput out, Person person ) throws IOException {
+		out.writeBoolean( person != null );
+		if( person != null )
+			writePerson(out, person);
+	}
+
+	private static Person readNullablePerson( DataInput in ) throws IOException {
+		return in.readBoolean() ? readPerson(in) : null;
+	}
+
+	private static void writePublication( DataOutput out, Publication publication ) throws IOException {
+		writeString( out, publication.getTitle() );
+		writeString( out, publication.getJournal() );
+		writeString( out, publication.getSynopsis() );
+		writeString( out, publication.getYear() );
+
+		List<Person> authors = publication.getAuthors();
+		writeSize( out, authors == null ? -1 : authors.size() );
+		if( authors != null ) {
+			for( Person author : authors )
+				writeNullablePerson(out, author);
+		}
+	}
+
+	private static Publication readPublication( DataInput in ) throws IOException {
+		String title = readString(in);
+		String journal = readString(in);
+		String synopsis = readString(in);
+		String year = readString(in);
+
+		List<Person> authors = null;
+		int size = readSize(in);
+		if( size >= 0 ) {
+			authors = new ArrayList<Person>( initialSize(size) );
+			for( int i = 0; i < size; i++ )
+				authors.add( readNullablePerson(in) );
+		}
+		return new Publication(title, journal, synopsis, year, authors);
+	}
+
+	private void writeDocument( DataOutput out, String xmldoc ) throws IOException {
+		if( xmldoc == null ) {
+			out.writeByte(DOCUMENT_NULL);
+			return;
+		}
+
+		byte[] plain = xmldoc.getBytes(UTF8);
+		if( compressionThreshold > 0 && xmldoc.length() >= compressionThreshold ) {
+			byte[] deflated = deflate(plain);
+			if( deflated != null ) {
+				out.writeByte(DOCUMENT_DEFLATED);
+				writeVarint( out, plain.length );
+				writeBytes( out, deflated );
+				return;
+			}
+		}
+
+		out.writeByte(DOCUMENT_PLAIN);
+		writeBytes( out, plain );
+	}
+
+	private static String readDocument( DataInput in, int format ) throws IOException {
+		switch( format ) {
+			case DOCUMENT_NULL:
+				return null;
+			case DOCUMENT_PLAIN:
+				return new String( readBytes(in), UTF8 );
+			case DOCUMENT_DEFLATED:
+				int length = readLength(in);
+				byte[] deflated = readBytes(in);
+				if( length > (long) deflated.length * MAX_DEFLATE_RATIO )
+					throw new StreamCorruptedException( "Model document of " + length + " bytes can not be deflated to " + deflated.length + " bytes" );
+				return new String( inflate(deflated, length), UTF8 );
+			default:
+				throw new StreamCorruptedException( "Unknown model document format " + format );
+		}
+	}
+
+	/**
+	 * Deflates the document, null if that does not make it smaller.
+	 */
+	private static byte[] deflate( byte[] plain ) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(plain);
+			deflater.finish();
+			byte[] buffer = new byte[plain.length];
+			int length = 0;
+			while( !deflater.finished() && length < buffer.length )
+				length += deflater.deflate(buffer, length, buffer.length - length);
+
+			if( !deflater.finished() )
+				return null;
+			byte[] deflated = new byte[length];
+			System.arraycopy(buffer, 0, deflated, 0, length);
+			return deflated;
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate( byte[] deflated, int length ) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(deflated);
+			byte[] plain = new byte[length];
+			int read = 0;
+			while( read < length && !inflater.finished() ) {
+				int inflated = inflater.inflate(plain, read, length - read);
+				if( inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()) )
+					break;
+				read += inflated;
+			}
+			if( read != length || !inflater.finished() )
+				throw new StreamCorruptedException("Truncated model document");
+			return plain;
+		} catch (DataFormatException e) {
+			throw new StreamCorruptedException( "Corrupt model document: " + e.getMessage() );
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+	private static void writeString( DataOutput out, String value ) throws IOException {
+		if( value == null ) {
+			writeVarint(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarint( out, bytes.length + 1 );
+		out.write(bytes);
+	}
+
+	private static String readString( DataInput in ) throws IOException {
+		int length = readVarint(in) - 1;
+		if( length < 0 )
+			return null;
+		return new String( readFully(in, checkLength(length)), UTF8 );
+	}
+
+	private static void writeStringList( DataOutput out, List<String> list ) throws IOException {
+		writeSize( out, list == null ? -1 : list.size() );
+		if( list != null ) {
+			for( String value : list )
+				writeString(out, value);
+		}
+	}
+
+	private static List<String> readStringList( DataInput in ) throws IOException {
+		int size = readSize(in);
+		if( size < 0 )
+			return null;
+		List<String> list = new ArrayList<String>( initialSize(size) );
+		for( int i = 0; i < size; i++ )
+			list.add( readString(in) );
+		return list;
+	}
+
+	private static void writeBytes( DataOutput out, byte[] bytes ) throws IOException {
+		writeVarint( out, bytes.length );
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes( DataInput in ) throws IOException {
+		return readFully( in, readLength(in) );
+	}
+
+	/**
+	 * Reads the given number of bytes into a buffer growing with the input, not allocated up front.
+	 */
+	private static byte[] readFully( DataInput in, int length ) throws IOException {
+		byte[] bytes = new byte[ Math.min(length, CHUNK_SIZE) ];
+		int read = 0;
+		while( true ) {
+			in.readFully(bytes, read, bytes.length - read);
+			read = bytes.length;
+			if( read == length )
+				return bytes;
+			bytes = Arrays.copyOf( bytes, (int) Math.min(length, 2L * read) );
+		}
+	}
+
+	private static int readLength( DataInput in ) throws IOException {
+		return checkLength( readVarint(in) );
+	}
+
+	private static int checkLength( int length ) throws StreamCorruptedException {
+		if( length > MAX_LENGTH )
+			throw new StreamCorruptedException( "Length " + length + " exceeds the maximum of " + MAX_LENGTH );
+		return length;
+	}
+
+	/**
+	 * Writes the size of a list or map, -1 for null.
+	 */
+	private static void writeSize( DataOutput out, int size ) throws IOException {
+		writeVarint( out, size + 1 );
+	}
+
+	private static int readSize( DataInput in ) throws IOException {
+		int size = readVarint(in) - 1;
+		return size < 0 ? size : checkLength(size);
+	}
+
+	/**
+	 * Writes a non-negative int in 7 bit groups, the lowest first, the high bit marks a following group.
+	 */
+	static void writeVarint( DataOutput out, int value ) throws IOException {
+		while( (value & ~0x7F) != 0 ) {
+			out.writeByte( (value & 0x7F) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarint( DataInput in ) throws IOException {
+		int value = 0;
+		for( int shift = 0; shift < 32; shift += 7 ) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if( (b & 0x80) == 0 ) {
+				if( value < 0 )
+					throw new StreamCorruptedException("Negative length");
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Malformed varint");
+	}
+
+	/**
+	 * The first capacity of a list, which grows with the elements actually read.
+	 */
+	private static int initialSize( int size ) {
+		return Math.min(size, CHUNK_SIZE);
+	}
+
+	private static int capacity( int size ) {
+		return Math.max( 4, (int) (initialSize(size) / 0.75f) + 1 );
+	}
+
+}
@@ -1,9 +1,29 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
 
 /**
  * Dataholder Class for a Model
+ * <p>
+ * A model can be read by many threads once it is built, changes have to be synchronized by the caller.
+ * A deferred model document is loaded once, under the lock of the model, no matter how many threads ask for it.
+ * </p>
+ * <p>
+ * A model is identified by its metadata: {@link #equals(Object)} and {@link #hashCode()} leave the model document out,
+ * it is given by the file and the version of the model anyway. So a deferred model equals the same model
+ * with its document, and its hash code does not change when the document is loaded later on,
+ * e.g. while it is a key of a HashMap.
+ * </p>
  * @see ModelResult
  *
  */
@@ -11,6 +31,8 @@ public class Model implements Serializable {
 
 	private static final long serialVersionUID = -7484517560145746179L;
 	
+	private static final Log log = LogFactory.getLog( Model.class );
+	
 	protected String modelName;
 	protected String modelID;
 	protected String versionID;
@@ -18,6 +40,32 @@ public class Model implements Serializable {
 	protected String documentURI;
 	protected String fileId;
 	
+	/** loads the model document on demand, if it was skipped while decoding */
+	private transient MorreCrawlerInterface xmldocLoader = null;
+	
+	/** stands in for the loader of a deferred document, which was decoded without its loader */
+	private static final MorreCrawlerInterface DETACHED_LOADER = new MorreCrawlerInterface() {
+		@Override
+		public List<String> getModelHistory(String fileId) throws MorreClientException {
+			throw detached();
+		}
+		@Override
+		public CrawledModel getModelVersion(String fileId, String versionId) throws MorreClientException {
+			throw detached();
+		}
+		@Override
+		public CrawledModel getLatestModelVersion(String fileId) throws MorreClientException {
+			throw detached();
+		}
+		@Override
+		public boolean addModel(CrawledModel model) throws MorreClientException {
+			throw detached();
+		}
+		private MorreClientException detached() {
+			return new MorreClientException("The deferred model document was decoded without its loader, defer it again to load it");
+		}
+	};
+	
 	public Model(String modelName, String modelID, String versionID,
 			String xmldoc, String documentURI, String fileId) {
 		super();
@@ -29,6 +77,23 @@ public class Model implements Serializable {
 		this.fileId = fileId;
 	}
 
+	/**
+	 * Copy constructor, a deferred model document stays deferred.
+	 *
+	 * @param other the model to copy
+	 */
+	public Model(Model other) {
+		this.modelName = other.modelName;
+		this.modelID = other.modelID;
+		this.versionID = other.versionID;
+		this.documentURI = other.documentURI;
+		this.fileId = other.fileId;
+		synchronized( other ) {
+			this.xmldoc = other.xmldoc;
+			this.xmldocLoader = other.xmldocLoader;
+		}
+	}
+
 	public String getModelName() {
 		return modelName;
 	}
@@ -74,13 +139,92 @@ public class Model implements Serializable {
 		this.versionID = versionID;
 	}
 
+	/**
+	 * Returns the model document. If the document was deferred, it is loaded on the first call.
+	 * Use {@link #loadXmldoc()} to handle errors while loading the document.
+	 *
+	 * @return the model document, or null if it is not available
+	 */
 	public String getXmldoc() {
-		return xmldoc;
+		String doc = xmldoc;
+		if( doc != null )
+			return doc;
+
+		// the loader is only read under the lock, so a concurrent load is never missed
+		try {
+			return loadXmldoc();
+		} catch (MorreException | MorreCommunicationException e) {
+			log.error( "Can not load the deferred model document of " + fileId + " in version " + versionID, e );
+			return null;
+		}
 	}
 
 	public void setXmldoc(String xmldoc) {
 		this.xmldoc = xmldoc;
 	}
+	
+	/**
+	 * Defers the model document. It will be loaded through the given crawler interface on first access.
+	 *
+	 * @param loader the crawler interface to fetch the model version from
+	 */
+	public synchronized void deferXmldoc( MorreCrawlerInterface loader ) {
+		this.xmldoc = null;
+		this.xmldocLoader = loader;
+	}
+	
+	/**
+	 * Checks if the model document is present, i.e. it was decoded or the deferred document was loaded already.
+	 *
+	 * @return true, if the document is loaded
+	 */
+	public synchronized boolean isXmldocLoaded() {
+		return xmldoc != null || xmldocLoader == null;
+	}
+	
+	/**
+	 * Returns the model document as it is, without loading a deferred one.
+	 */
+	synchronized String peekXmldoc() {
+		return xmldoc;
+	}
+	
+	/**
+	 * Marks the document as deferred without a loader, for a deferred model decoded by the {@link DataholderCodec}.
+	 * It is not loaded until the document is deferred again with {@link #deferXmldoc(MorreCrawlerInterface)}.
+	 */
+	synchronized void detachXmldoc() {
+		this.xmldoc = null;
+		this.xmldocLoader = DETACHED_LOADER;
+	}
+	
+	/**
+	 * Loads the deferred model document through {@link MorreCrawlerInterface#getModelVersion(String, String) getModelVersion},
+	 * if it is not loaded yet.
+	 *
+	 * @return the model document
+	 * @throws MorreClientException the morre client exception
+	 * @throws MorreCommunicationException the morre communication exception
+	 * @throws MorreException the morre exception
+	 */
+	public synchronized String loadXmldoc() throws MorreClientException, MorreCommunicationException, MorreException {
+		if( xmldoc == null && xmldocLoader != null ) {
+			CrawledModel model = xmldocLoader.getModelVersion(fileId, versionID);
+			if( model == null )
+				throw new MorreException( "No model version " + versionID + " of " + fileId + " available" );
+			
+			xmldoc = model.getXmldoc();
+			xmldocLoader = null;
+		}
+		return xmldoc;
+	}
+
+	/**
+	 * Serializes the model in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
 
 	@Override
 	public String toString() {
@@ -100,7 +244,7 @@ public class Model implements Serializable {
 				+ ((modelName == null) ? 0 : modelName.hashCode());
 		result = prime * result
 				+ ((versionID == null) ? 0 : versionID.hashCode());
-		result = prime * result + ((xmldoc == null) ? 0 : xmldoc.hashCode());
+		// the document is left out, it may be loaded later on
 		return result;
 	}
 
@@ -138,11 +282,6 @@ public class Model implements Serializable {
 				return false;
 		} else if (!versionID.equals(other.versionID))
 			return false;
-		if (xmldoc == null) {
-			if (other.xmldoc != null)
-				return false;
-		} else if (!xmldoc.equals(other.xmldoc))
-			return false;
 		return true;
 	}
 
@@ -1,5 +1,6 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 /**
@@ -18,6 +19,16 @@ public class ModelResult extends Model implements Comparable<ModelResult>, Seria
 		super(modelName, modelID, versionID, xmldoc, documentURI, filename);
 		this.score = score;
 	}
+	
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the result to copy
+	 */
+	public ModelResult(ModelResult other) {
+		super(other);
+		this.score = other.score;
+	}
 
 	public float getScore() {
 		return score;
@@ -31,6 +42,13 @@ public class ModelResult extends Model implements Comparable<ModelResult>, Seria
 		return (Model) this;
 	}
 
+	/**
+	 * Serializes the result in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return "ModelResult [modelName=" + modelName + ", modelId=" + modelID + ", score=" + score + "]";
@@ -1,5 +1,6 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 /**
@@ -22,6 +23,15 @@ public class Person implements Serializable {
 		this.email = email;
 		this.organization = organization;
 	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the person to copy
+	 */
+	public Person(Person other) {
+		this(other.firstName, other.lastName, other.email, other.organization);
+	}
 	
 	public String getFirstName() {
 		return firstName;
@@ -48,6 +58,13 @@ public class Person implements Serializable {
 		this.organization = organization;
 	}
 	
+	/**
+	 * Serializes the person in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return firstName + " " + lastName;
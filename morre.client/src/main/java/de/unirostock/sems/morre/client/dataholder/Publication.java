@@ -1,6 +1,8 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,6 +28,23 @@ public class Publication implements Serializable {
 		this.authors = authors;
 	}
 
+	/**
+	 * Copy constructor, copies the authors as well.
+	 *
+	 * @param other the publication to copy
+	 */
+	public Publication(Publication other) {
+		this.title = other.title;
+		this.journal = other.journal;
+		this.synopsis = other.synopsis;
+		this.year = other.year;
+		if( other.authors != null ) {
+			this.authors = new ArrayList<Person>( other.authors.size() );
+			for( Person author : other.authors )
+				this.authors.add( author != null ? new Person(author) : null );
+		}
+	}
+
 	public String getTitle() {
 		return title;
 	}
@@ -66,6 +85,13 @@ public class Publication implements Serializable {
 		this.authors = authors;
 	}
 
+	/**
+	 * Serializes the publication in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return "Publication [title=" + title + ", year=" + year + "]";
@@ -1,6 +1,8 @@
 package de.unirostock.sems.morre.client.dataholder;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,6 +25,17 @@ public class PublicationResult implements Serializable, Comparable<PublicationRe
 		this.relatedModelsUri = relatedModelsUri;
 	}
 
+	/**
+	 * Copy constructor, copies the publication and the list of related models as well.
+	 *
+	 * @param other the result to copy
+	 */
+	public PublicationResult(PublicationResult other) {
+		this.score = other.score;
+		this.publication = other.publication != null ? new Publication(other.publication) : null;
+		this.relatedModelsUri = other.relatedModelsUri != null ? new ArrayList<String>(other.relatedModelsUri) : null;
+	}
+
 	public float getScore() {
 		return score;
 	}
@@ -47,6 +60,13 @@ public class PublicationResult implements Serializable, Comparable<PublicationRe
 		this.relatedModelsUri = relatedModelsUri;
 	}
 
+	/**
+	 * Serializes the result in the compact encoding of the {@link DataholderCodec}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(this);
+	}
+
 	@Override
 	public String toString() {
 		return "PublicationResult [score=" + score + ", publication="
@@ -0,0 +1,48 @@
+package de.unirostock.sems.morre.client.dataholder;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+/**
+ * Serialization proxy of the dataholders, which writes them in the encoding of the {@link DataholderCodec}
+ * instead of the default form with its field descriptors and modified UTF-8 Strings.
+ * <p>
+ * Every dataholder replaces itself by this proxy when it is serialized, and the proxy resolves to the
+ * decoded dataholder when it is deserialized. Streams with the default form of earlier versions can still be read.
+ * </p>
+ *
+ */
+class SerializedForm implements Externalizable {
+
+	private static final long serialVersionUID = 4682131085312297740L;
+
+	private Object dataholder;
+
+	/**
+	 * Used by the deserialization only.
+	 */
+	public SerializedForm() {
+	}
+
+	SerializedForm( Object dataholder ) {
+		this.dataholder = dataholder;
+	}
+
+	@Override
+	public void writeExternal( ObjectOutput out ) throws IOException {
+		DataholderCodec.DEFAULT.write(out, dataholder);
+	}
+
+	@Override
+	public void readExternal( ObjectInput in ) throws IOException {
+		dataholder = DataholderCodec.DEFAULT.read(in);
+	}
+
+	private Object readResolve() throws ObjectStreamException {
+		return dataholder;
+	}
+
+}
@@ -0,0 +1,129 @@
+package de.unirostock.sems.morre.client.fusion;
+
+import java.io.Serializable;
+
+import de.unirostock.sems.morre.client.batch.MorreBatchExecutor;
+
+/**
+ * Configuration of the {@link RankFusion}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The fusion copies
+ * the configuration on construction.
+ * </p>
+ *
+ */
+public class FusionConfig implements Serializable {
+
+	private static final long serialVersionUID = -3716250871402209455L;
+
+	/** default number of fused results */
+	public static final int DEFAULT_TOP_K = 20;
+	/** default constant k of the reciprocal rank fusion, as proposed by Cormack et al. */
+	public static final int DEFAULT_RANK_CONSTANT = 60;
+
+	private FusionMethod method = FusionMethod.RECIPROCAL_RANK;
+	private int topK = DEFAULT_TOP_K;
+	private int rankConstant = DEFAULT_RANK_CONSTANT;
+	private int concurrency = MorreBatchExecutor.DEFAULT_CONCURRENCY;
+	private boolean ignoreFailures = false;
+
+	public FusionConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public FusionConfig( FusionConfig other ) {
+		this.method = other.method;
+		this.topK = other.topK;
+		this.rankConstant = other.rankConstant;
+		this.concurrency = other.concurrency;
+		this.ignoreFailures = other.ignoreFailures;
+	}
+
+	public FusionMethod getMethod() {
+		return method;
+	}
+
+	public FusionConfig setMethod( FusionMethod method ) {
+		if( method == null )
+			throw new IllegalArgumentException("method must not be null");
+		this.method = method;
+		return this;
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	/**
+	 * Sets the number of fused results to return, only that many are kept while merging.
+	 *
+	 * @param topK the number of results
+	 * @return this config
+	 */
+	public FusionConfig setTopK( int topK ) {
+		if( topK <= 0 )
+			throw new IllegalArgumentException("topK has to be positive");
+		this.topK = topK;
+		return this;
+	}
+
+	public int getRankConstant() {
+		return rankConstant;
+	}
+
+	/**
+	 * Sets the constant k of the reciprocal rank fusion. Higher values lessen the advantage of the top ranks.
+	 *
+	 * @param rankConstant the constant
+	 * @return this config
+	 */
+	public FusionConfig setRankConstant( int rankConstant ) {
+		if( rankConstant < 0 )
+			throw new IllegalArgumentException("rankConstant must not be negative");
+		this.rankConstant = rankConstant;
+		return this;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Sets the number of sub-queries in flight at the same time.
+	 *
+	 * @param concurrency the number of sub-queries
+	 * @return this config
+	 */
+	public FusionConfig setConcurrency( int concurrency ) {
+		if( concurrency <= 0 )
+			throw new IllegalArgumentException("concurrency has to be positive");
+		this.concurrency = concurrency;
+		return this;
+	}
+
+	public boolean isIgnoreFailures() {
+		return ignoreFailures;
+	}
+
+	/**
+	 * Fuses the rankings of the successful sub-queries, if some fail. Otherwise the first failure fails the fusion.
+	 *
+	 * @param ignoreFailures true to ignore failed sub-queries
+	 * @return this config
+	 */
+	public FusionConfig setIgnoreFailures( boolean ignoreFailures ) {
+		this.ignoreFailures = ignoreFailures;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "FusionConfig [method=" + method + ", topK=" + topK + ", rankConstant=" + rankConstant + ", concurrency=" + concurrency
+				+ ", ignoreFailures=" + ignoreFailures + "]";
+	}
+
+}
@@ -0,0 +1,25 @@
+package de.unirostock.sems.morre.client.fusion;
+
+/**
+ * How {@link RankFusion} combines the rankings of the sub-queries.
+ *
+ */
+public enum FusionMethod {
+
+	/**
+	 * Reciprocal rank fusion: every ranking adds <code>weight / (k + rank)</code>. Only the ranks count,
+	 * so the scores of different query types need not be comparable.
+	 */
+	RECIPROCAL_RANK,
+
+	/**
+	 * Weighted sum of the scores, each ranking normalized to the range 0 to 1 by its minimum and maximum score.
+	 */
+	WEIGHTED_SUM,
+
+	/**
+	 * CombMNZ: the weighted sum of the normalized scores, multiplied by the number of rankings the model appears in.
+	 */
+	COMB_MNZ
+
+}
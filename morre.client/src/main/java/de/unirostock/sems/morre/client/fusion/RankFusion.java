@@ -0,0 +1,220 @@
+package de.unirostock.sems.morre.client.fusion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreAsync;
+import de.unirostock.sems.morre.client.batch.BatchQuery;
+import de.unirostock.sems.morre.client.batch.BatchResult;
+import de.unirostock.sems.morre.client.batch.MorreBatchExecutor;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+
+/**
+ * Combines the rankings of several model queries on the client, e.g. of the model, annotation, person
+ * and publication model queries, instead of the aggregated model query of MORRE.
+ * <p>
+ * The sub-queries run in parallel on a {@link MorreAsync} client, see {@link MorreBatchExecutor}. Their results
+ * are merged by file id (or model id, if there is no file id), a model appearing several times in one ranking
+ * counts with its best rank only. The {@link FusionMethod} computes the fused score, only the top k models
+ * are kept in a bounded heap while merging.
+ * </p>
+ * <p>
+ * The fused results are copies of the result of the first sub-query ranking the model, with the fused score set,
+ * sorted by descending score. Ties keep the order of the sub-queries. The rankings are not changed, so they may
+ * be shared, e.g. by a {@link de.unirostock.sems.morre.client.cache.CachingMorre CachingMorre}.
+ * </p>
+ *
+ */
+public class RankFusion {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private final MorreBatchExecutor executor;
+	private final FusionConfig config;
+
+	public RankFusion(MorreAsync morre) {
+		this(morre, new FusionConfig());
+	}
+
+	public RankFusion(MorreAsync morre, FusionConfig config) {
+		this.config = new FusionConfig(config);
+		this.executor = new MorreBatchExecutor(morre, this.config.getConcurrency());
+	}
+
+	/**
+	 * Returns the configuration of this fusion.
+	 *
+	 * @return a copy of the config
+	 */
+	public FusionConfig getConfig() {
+		return new FusionConfig(config);
+	}
+
+	/**
+	 * Runs the sub-queries and fuses their rankings.
+	 *
+	 * @param queries the weighted sub-queries
+	 * @return future List of the top k {@link ModelResult ModelResults}, empty if no sub-query found anything.
+	 * 		It completes exceptionally with the error of a failed sub-query, unless failures are ignored.
+	 */
+	public CompletableFuture<List<ModelResult>> fuse( Collection<WeightedQuery> queries ) {
+		final List<WeightedQuery> weighted = new ArrayList<WeightedQuery>(queries);
+		List<BatchQuery> batch = new ArrayList<BatchQuery>( weighted.size() );
+		for( WeightedQuery query : weighted )
+			batch.add( query.getQuery() );
+
+		final CompletableFuture<List<ModelResult>> future = new CompletableFuture<List<ModelResult>>();
+		executor.execute(batch).whenComplete( new BiConsumer<List<BatchResult>, Throwable>() {
+			@Override
+			public void accept(List<BatchResult> results, Throwable error) {
+				try {
+					if( error != null )
+						future.completeExceptionally(error);
+					else
+						complete(future, weighted, results);
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			}
+		});
+		return future;
+	}
+
+	private void complete( CompletableFuture<List<ModelResult>> future, List<WeightedQuery> queries, List<BatchResult> results ) {
+		List<List<ModelResult>> rankings = new ArrayList<List<ModelResult>>( results.size() );
+		List<Double> weights = new ArrayList<Double>( results.size() );
+		for( BatchResult result : results ) {
+			if( !result.isSuccessful() ) {
+				if( !config.isIgnoreFailures() ) {
+					future.completeExceptionally( result.getError() );
+					return;
+				}
+				log.warn( "Ignoring failed sub-query " + result.getQuery() + ": " + result.getError() );
+				continue;
+			}
+
+			rankings.add( result.getResult() );
+			weights.add( queries.get(result.getIndex()).getWeight() );
+		}
+
+		future.complete( fuse(rankings, weights) );
+	}
+
+	/**
+	 * Fuses rankings, which are already available.
+	 *
+	 * @param rankings the rankings, best first, null for no result
+	 * @param weights the weight of every ranking
+	 * @return List of the top k {@link ModelResult ModelResults}
+	 */
+	public List<ModelResult> fuse( List<List<ModelResult>> rankings, List<Double> weights ) {
+		if( rankings.size() != weights.size() )
+			throw new IllegalArgumentException("Every ranking needs a weight");
+
+		Map<String, Candidate> candidates = new HashMap<String, Candidate>();
+		for( int i = 0; i < rankings.size(); i++ ) {
+			List<ModelResult> ranking = rankings.get(i);
+			if( ranking != null && !ranking.isEmpty() )
+				accumulate( candidates, ranking, weights.get(i) );
+		}
+
+		// keeps the best k, the worst of them on top of the heap
+		PriorityQueue<Candidate> heap = new PriorityQueue<Candidate>( config.getTopK() + 1, Collections.reverseOrder(BEST_FIRST) );
+		for( Candidate candidate : candidates.values() ) {
+			if( config.getMethod() == FusionMethod.COMB_MNZ )
+				candidate.score *= candidate.hits;
+
+			if( heap.size() < config.getTopK() )
+				heap.add(candidate);
+			else if( BEST_FIRST.compare(candidate, heap.peek()) < 0 ) {
+				heap.poll();
+				heap.add(candidate);
+			}
+		}
+
+		List<Candidate> top = new ArrayList<Candidate>(heap);
+		Collections.sort(top, BEST_FIRST);
+		List<ModelResult> fused = new ArrayList<ModelResult>( top.size() );
+		for( Candidate candidate : top ) {
+			// only the top k are copied, the rankings stay as they are
+			ModelResult result = new ModelResult( candidate.result );
+			result.setScore( (float) candidate.score );
+			fused.add(result);
+		}
+		return fused;
+	}
+
+	private void accumulate( Map<String, Candidate> candidates, List<ModelResult> ranking, double weight ) {
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		for( ModelResult result : ranking ) {
+			min = Math.min(min, result.getScore());
+			max = Math.max(max, result.getScore());
+		}
+
+		Set<String> seen = new HashSet<String>( ranking.size() * 2 );
+		int rank = 0;
+		for( ModelResult result : ranking ) {
+			rank++;
+			String key = keyOf(result);
+			if( key == null || !seen.add(key) )
+				continue;
+
+			Candidate candidate = candidates.get(key);
+			if( candidate == null ) {
+				candidate = new Candidate( result, candidates.size() );
+				candidates.put(key, candidate);
+			}
+			candidate.hits++;
+
+			if( config.getMethod() == FusionMethod.RECIPROCAL_RANK )
+				candidate.score += weight / (config.getRankConstant() + rank);
+			else
+				candidate.score += weight * (max > min ? (result.getScore() - min) / (max - min) : 1.0);
+		}
+	}
+
+	private static String keyOf( ModelResult result ) {
+		return result.getFileId() != null ? result.getFileId() : result.getModelID();
+	}
+
+	/**
+	 * Fused score of one model.
+	 */
+	private static class Candidate {
+
+		private final ModelResult result;
+		/** position of the first appearance, to break ties */
+		private final int order;
+		private double score = 0;
+		private int hits = 0;
+
+		public Candidate(ModelResult result, int order) {
+			this.result = result;
+			this.order = order;
+		}
+
+	}
+
+	private static final Comparator<Candidate> BEST_FIRST = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate a, Candidate b) {
+			int compare = Double.compare(b.score, a.score);
+			return compare != 0 ? compare : Integer.compare(a.order, b.order);
+		}
+	};
+
+}
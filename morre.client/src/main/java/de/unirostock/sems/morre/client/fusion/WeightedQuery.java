@@ -0,0 +1,45 @@
+package de.unirostock.sems.morre.client.fusion;
+
+import java.io.Serializable;
+
+import de.unirostock.sems.morre.client.batch.BatchQuery;
+
+/**
+ * A sub-query of a {@link RankFusion} and the weight of its ranking.
+ *
+ */
+public class WeightedQuery implements Serializable {
+
+	private static final long serialVersionUID = 6904527183642285719L;
+
+	private final BatchQuery query;
+	private final double weight;
+
+	public WeightedQuery(BatchQuery query) {
+		this(query, 1);
+	}
+
+	public WeightedQuery(BatchQuery query, double weight) {
+		if( query == null )
+			throw new IllegalArgumentException("query must not be null");
+		if( weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight) )
+			throw new IllegalArgumentException("weight must be a non negative number");
+
+		this.query = query;
+		this.weight = weight;
+	}
+
+	public BatchQuery getQuery() {
+		return query;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "WeightedQuery [query=" + query + ", weight=" + weight + "]";
+	}
+
+}
@@ -0,0 +1,81 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Counts the bytes written or read through an entity, for the request metrics.
+ *
+ */
+class CountingEntity extends HttpEntityWrapper {
+
+	private long bytes = 0;
+
+	public CountingEntity(HttpEntity entity) {
+		super(entity);
+	}
+
+	/**
+	 * Returns the bytes transferred so far.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		super.writeTo( new FilterOutputStream(outstream) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytes++;
+			}
+
+			@Override
+			public void write(byte[] buffer, int offset, int length) throws IOException {
+				out.write(buffer, offset, length);
+				bytes += length;
+			}
+
+			@Override
+			public void close() throws IOException {
+				// the connection closes its stream by itself
+				flush();
+			}
+		});
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		InputStream content = super.getContent();
+		if( content == null )
+			return null;
+
+		return new FilterInputStream(content) {
+			@Override
+			public int read() throws IOException {
+				int read = in.read();
+				if( read >= 0 )
+					bytes++;
+				return read;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = in.read(buffer, offset, length);
+				if( read > 0 )
+					bytes += read;
+				return read;
+			}
+		};
+	}
+
+}
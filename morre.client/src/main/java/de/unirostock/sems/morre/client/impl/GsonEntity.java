@@ -0,0 +1,188 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig.Compression;
+
+/**
+ * Request entity, which serializes an object with Gson straight into the output stream of the connection.
+ * <p>
+ * The JSON document is never held as String or byte array, so large model documents are not copied. The entity
+ * is repeatable, every {@link #writeTo(OutputStream)} serializes the object again. Its length is unknown, so the
+ * body is sent chunked.
+ * </p>
+ * <p>
+ * The asynchronous client can not block in the middle of the serialization, it sends the entity as
+ * {@link HttpAsyncContentProducer}: the body is serialized once into a buffer, which is then written to the
+ * connection as it accepts more data, without any further copy. Transports, which pull the body through
+ * {@link #getContent()}, read from such a buffer as well.
+ * </p>
+ *
+ */
+class GsonEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Gson gson;
+	private final Object source;
+	private final Type sourceType;
+	private final Compression compression;
+
+	/** the serialized body, while it is produced for the asynchronous client */
+	private Buffer produced = null;
+	private int producedOffset = 0;
+
+	/**
+	 * Creates the entity.
+	 *
+	 * @param gson the Gson instance to serialize with
+	 * @param source the object to serialize
+	 * @param sourceType the type of the object
+	 * @param compression the compression of the body, the Content-Encoding header is set accordingly
+	 */
+	public GsonEntity(Gson gson, Object source, Type sourceType, Compression compression) {
+		this.gson = gson;
+		this.source = source;
+		this.sourceType = sourceType;
+		this.compression = compression;
+
+		setContentType( ContentType.APPLICATION_JSON.toString() );
+		setChunked(true);
+		if( compression != Compression.NONE )
+			setContentEncoding( compression.getContentEncoding() );
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		Buffer buffer = new Buffer();
+		writeTo(buffer);
+		return buffer.toInputStream();
+	}
+
+	@Override
+	public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+		if( produced == null ) {
+			produced = new Buffer();
+			producedOffset = 0;
+			writeTo(produced);
+		}
+
+		producedOffset += produced.writeTo(encoder, producedOffset);
+		if( producedOffset >= produced.size() ) {
+			encoder.complete();
+			close();
+		}
+	}
+
+	@Override
+	public void close() {
+		// a repeated request serializes the object again
+		produced = null;
+		producedOffset = 0;
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		if( out == null )
+			throw new IllegalArgumentException("Output stream may not be null");
+
+		// closing the compressing stream releases its deflater, but must not close the connection
+		OutputStream target = out;
+		if( compression == Compression.GZIP )
+			target = new GZIPOutputStream( new NonClosingOutputStream(out), 8192 );
+		else if( compression == Compression.DEFLATE )
+			target = new DeflaterOutputStream( new NonClosingOutputStream(out) );
+
+		// the writer buffers the encoded bytes by itself
+		Writer writer = new OutputStreamWriter( target, UTF8 );
+		try {
+			gson.toJson(source, sourceType, writer);
+		} catch (JsonIOException e) {
+			if( e.getCause() instanceof IOException )
+				throw (IOException) e.getCause();
+			throw new IOException("Can not serialize the request", e);
+		}
+
+		if( target != out )
+			writer.close();
+		else
+			writer.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * Byte array stream, which hands out its content without copying it.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+
+		public Buffer() {
+			super(8192);
+		}
+
+		public InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+
+		public int writeTo(ContentEncoder encoder, int offset) throws IOException {
+			return encoder.write( ByteBuffer.wrap(buf, offset, count - offset) );
+		}
+
+	}
+
+	/**
+	 * Flushes instead of closing the underlying stream.
+	 */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		public NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			out.write(buffer, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+
+	}
+
+}
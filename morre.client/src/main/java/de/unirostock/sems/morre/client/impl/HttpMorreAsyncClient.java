@@ -0,0 +1,395 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.MorreAsync;
+import de.unirostock.sems.morre.client.MorreCrawlerAsync;
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.Model;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.MorreProtocol.ResponseDecoder;
+
+/**
+ * Non-blocking HTTP implementation of the {@link de.unirostock.sems.morre.client.MorreAsync MorreAsync} and the
+ * {@link de.unirostock.sems.morre.client.MorreCrawlerAsync MorreCrawlerAsync} interfaces.
+ * <p>
+ * The requests are executed by the NIO based Apache HttpAsyncClient, a few I/O dispatcher threads serve all
+ * requests in flight. The response is buffered by the transport and decoded on the I/O dispatcher thread,
+ * so dependent stages should be attached with the <code>*Async</code> methods of the future if they are expensive.
+ * The connection limits of the {@link HttpMorreClientConfig} apply in pooling mode.
+ * </p>
+ * <p>
+ * A deferred model document of a {@link Projection#METADATA METADATA} result is loaded by a blocking request.
+ * Such a request would stall the I/O dispatcher and may never complete, so in dependent stages that run on a
+ * dispatcher thread {@link Model#loadXmldoc()} fails with a {@link MorreClientException} and {@link Model#getXmldoc()}
+ * returns null. Load the document with {@link #loadXmldoc(Model)} or in an <code>*Async</code> stage instead.
+ * </p>
+ * The client has to be {@link #close() closed} to stop the I/O reactor.
+ *
+ */
+public class HttpMorreAsyncClient implements MorreAsync, MorreCrawlerAsync, Closeable {
+
+	private final MorreProtocol protocol;
+	private final HttpMorreClientConfig config;
+	private final CloseableHttpAsyncClient httpClient;
+
+	/** blocking view on this client, used to load deferred model documents */
+	private final MorreCrawlerInterface xmldocLoader = new BlockingCrawler();
+
+	/** set while a response is handled, i.e. while dependent stages run on the I/O dispatcher thread */
+	private static final ThreadLocal<Boolean> dispatching = new ThreadLocal<Boolean>();
+
+	public HttpMorreAsyncClient(String morreUrl) throws MalformedURLException {
+		this(morreUrl, new HttpMorreClientConfig());
+	}
+
+	public HttpMorreAsyncClient(String morreUrl, HttpMorreClientConfig config) throws MalformedURLException {
+		this.config = new HttpMorreClientConfig(config);
+		this.protocol = new MorreProtocol(morreUrl, this.config.getRequestCompression(), this.config.getCompressionThreshold(), this.config.getInternPoolSize());
+
+		httpClient = buildHttpClient();
+		httpClient.start();
+	}
+
+	private CloseableHttpAsyncClient buildHttpClient() {
+
+		HttpAsyncClientBuilder builder = HttpAsyncClients.custom();
+		builder.setDefaultRequestConfig( RequestConfig.custom()
+				.setConnectTimeout( config.getConnectTimeout() )
+				.setSocketTimeout( config.getSocketTimeout() )
+				.build() );
+
+		// the async client does not negotiate compression by itself, the protocol decompresses the buffered response
+		if( config.isResponseDecompression() )
+			builder.addInterceptorLast( new RequestAcceptEncoding() );
+
+		if( config.isPooling() ) {
+			builder.setMaxConnTotal( config.getMaxTotalConnections() );
+			builder.setMaxConnPerRoute( config.getMaxConnectionsPerRoute() );
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Returns the configuration of this client.
+	 *
+	 * @return a copy of the client config
+	 */
+	public HttpMorreClientConfig getConfig() {
+		return new HttpMorreClientConfig(config);
+	}
+
+	/**
+	 * Shuts down the I/O reactor and all connections. Requests in flight are aborted.
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> modelQuery(String query) {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query);
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> modelQuery(String query, Projection projection) {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> aggregatedModelQuery(String query, String aggregationType, String rankersWeights) {
+		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankersWeights);
+	}
+
+	@Override
+	public CompletableFuture<List<String>> getQueryFeatures(String queryType) {
+		try {
+			return execute( protocol.buildFeatureRequest(queryType), protocol.featureListDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> doModelQuery(String queryType, FeatureSet features) {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> doModelQuery(String queryType, FeatureSet features, Projection projection) {
+		try {
+			return execute( protocol.buildQueryRequest(queryType, features), protocol.modelResultDecoder(projection, xmldocLoader) );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> doSimpleModelQuery(String queryType, String keyword) {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> doSimpleModelQuery(String queryType, String keyword, Projection projection) {
+		try {
+			return execute( protocol.buildSimpleQueryRequest(queryType, keyword), protocol.modelResultDecoder(projection, xmldocLoader) );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<ModelResult>> doSimpleAggregatedModelQuery(String queryType, String keyword, String aggregationType, String rankersWeights) {
+		try {
+			return execute( protocol.buildSimpleAggregatedQueryRequest(queryType, keyword, aggregationType, rankersWeights), protocol.modelResultDecoder(Projection.FULL, xmldocLoader) );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<PersonResult>> doPersonQuery(FeatureSet features) {
+		try {
+			return execute( protocol.buildQueryRequest(QueryType.PERSON_QUERY, features), protocol.personResultDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<PublicationResult>> doPublicationQuery(FeatureSet features) {
+		try {
+			return execute( protocol.buildQueryRequest(QueryType.PUBLICATION_QUERY, features), protocol.publicationResultDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<List<AnnotationResult>> doAnnotationQuery(String query) {
+		try {
+			return execute( protocol.buildSimpleQueryRequest(QueryType.ANNOTATION_QUERY, query), protocol.annotationResultDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public CompletableFuture<List<String>> getModelHistory(String fileId) {
+		try {
+			return execute( protocol.buildModelHistoryRequest(fileId), protocol.modelHistoryDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<CrawledModel> getModelVersion(String fileId, String versionId) {
+		try {
+			return execute( protocol.buildModelVersionRequest(fileId, versionId), protocol.crawledModelDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<CrawledModel> getLatestModelVersion(String fileId) {
+		try {
+			return execute( protocol.buildLatestModelVersionRequest(fileId), protocol.crawledModelDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Boolean> addModel(CrawledModel model) {
+		try {
+			return execute( protocol.buildAddModelRequest(model), protocol.addModelDecoder() );
+		} catch (MorreClientException e) {
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Loads the deferred model document of a {@link Projection#METADATA METADATA} result without blocking.
+	 * The document is set on the model, just as {@link Model#loadXmldoc()} does.
+	 *
+	 * @param model the model
+	 * @return future model document
+	 */
+	public CompletableFuture<String> loadXmldoc(final Model model) {
+		if( model.isXmldocLoaded() )
+			return CompletableFuture.completedFuture( model.getXmldoc() );
+
+		return getModelVersion(model.getFileId(), model.getVersionID()).thenApply( new Function<CrawledModel, String>() {
+			@Override
+			public String apply(CrawledModel crawled) {
+				if( crawled == null )
+					throw new CompletionException( new MorreException("No model version " + model.getVersionID() + " of " + model.getFileId() + " available") );
+
+				// under the lock of the model, so a concurrent blocking load keeps its document
+				synchronized( model ) {
+					if( !model.isXmldocLoaded() )
+						model.setXmldoc( crawled.getXmldoc() );
+					return model.getXmldoc();
+				}
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	private <R> CompletableFuture<R> execute( HttpUriRequest request, final ResponseDecoder<R> decoder ) {
+
+		final CompletableFuture<R> result = new CompletableFuture<R>();
+		final Future<HttpResponse> transport = httpClient.execute(request, new FutureCallback<HttpResponse>() {
+
+			@Override
+			public void completed(HttpResponse response) {
+				// dependent stages run right here, on the I/O dispatcher thread
+				dispatching.set(Boolean.TRUE);
+				try {
+					result.complete( protocol.decode(response.getEntity(), decoder) );
+				} catch (MorreException e) {
+					result.completeExceptionally(e);
+				} catch (MorreCommunicationException e) {
+					result.completeExceptionally(e);
+				} catch (RuntimeException e) {
+					result.completeExceptionally( new MorreCommunicationException("Can not decode the result.", e) );
+				} finally {
+					dispatching.remove();
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				dispatching.set(Boolean.TRUE);
+				try {
+					// Something went wrong with the communication
+					result.completeExceptionally( new MorreCommunicationException("Error while HTTP Request.", e) );
+				} finally {
+					dispatching.remove();
+				}
+			}
+
+			@Override
+			public void cancelled() {
+				dispatching.set(Boolean.TRUE);
+				try {
+					result.cancel(false);
+				} finally {
+					dispatching.remove();
+				}
+			}
+
+		});
+
+		// cancelling the future aborts the request
+		result.whenComplete( new BiConsumer<R, Throwable>() {
+			@Override
+			public void accept(R value, Throwable error) {
+				if( result.isCancelled() )
+					transport.cancel(true);
+			}
+		});
+
+		return result;
+	}
+
+	private static <R> CompletableFuture<R> failed( Exception e ) {
+		CompletableFuture<R> future = new CompletableFuture<R>();
+		future.completeExceptionally(e);
+		return future;
+	}
+
+	/**
+	 * Waits for the future and unwraps the exceptional completion into the exceptions of the blocking interfaces.
+	 */
+	private static <R> R await( CompletableFuture<R> future ) throws MorreClientException, MorreCommunicationException, MorreException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if( e.getCause() instanceof MorreException )
+				throw (MorreException) e.getCause();
+			else if( e.getCause() instanceof MorreCommunicationException )
+				throw (MorreCommunicationException) e.getCause();
+			else
+				throw new MorreCommunicationException("Error while HTTP Request.", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MorreCommunicationException("Interrupted while waiting for the result.", e);
+		}
+	}
+
+	/**
+	 * Fails instead of blocking an I/O dispatcher thread, the request waited for might need the very same thread.
+	 */
+	private static void checkBlocking() throws MorreClientException {
+		if( dispatching.get() != null )
+			throw new MorreClientException("Can not wait for a request on an I/O dispatcher thread, use loadXmldoc or an *Async stage");
+	}
+
+	/**
+	 * Blocking view on the crawler methods of this client.
+	 */
+	private class BlockingCrawler implements MorreCrawlerInterface {
+
+		@Override
+		public List<String> getModelHistory(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+			checkBlocking();
+			return await( HttpMorreAsyncClient.this.getModelHistory(fileId) );
+		}
+
+		@Override
+		public CrawledModel getModelVersion(String fileId, String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
+			checkBlocking();
+			return await( HttpMorreAsyncClient.this.getModelVersion(fileId, versionId) );
+		}
+
+		@Override
+		public CrawledModel getLatestModelVersion(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+			checkBlocking();
+			return await( HttpMorreAsyncClient.this.getLatestModelVersion(fileId) );
+		}
+
+		@Override
+		public boolean addModel(CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
+			checkBlocking();
+			return await( HttpMorreAsyncClient.this.addModel(model) );
+		}
+
+	}
+
+}
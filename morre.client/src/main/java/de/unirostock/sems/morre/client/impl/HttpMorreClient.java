@@ -1,37 +1,31 @@
 package de.unirostock.sems.morre.client.impl;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.lang.reflect.Type;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.text.MessageFormat;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
-
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
 
 import de.unirostock.sems.morre.client.FeatureSet;
 import de.unirostock.sems.morre.client.Morre;
 import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.MorreCursorInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryFeatureRegistry;
 import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.ResultCursor;
 import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
 import de.unirostock.sems.morre.client.dataholder.CrawledModel;
 import de.unirostock.sems.morre.client.dataholder.ModelResult;
@@ -40,81 +34,167 @@ import de.unirostock.sems.morre.client.dataholder.PublicationResult;
 import de.unirostock.sems.morre.client.exception.MorreClientException;
 import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
 import de.unirostock.sems.morre.client.exception.MorreException;
-
-public class HttpMorreClient implements Morre, MorreCrawlerInterface, Serializable {
+import de.unirostock.sems.morre.client.impl.MorreProtocol.ResponseDecoder;
+import de.unirostock.sems.morre.client.metrics.MorreMetricsListener;
+import de.unirostock.sems.morre.client.metrics.RequestMetrics;
+
+/**
+ * HTTP implementation of the {@link de.unirostock.sems.morre.client.Morre Morre} and the
+ * {@link de.unirostock.sems.morre.client.MorreCrawlerInterface MorreCrawlerInterface}.
+ * <p>
+ * Every request releases its connection once the response is read, even if the
+ * request or the parsing fails. The client should be {@link #close() closed} when
+ * it is not needed anymore, to shut down the connection pool and its evictor thread.
+ * </p>
+ * <p>
+ * The cursors of the {@link MorreCursorInterface} keep their connection until they are read to the end or closed.
+ * With a page size in the config, they request the result page by page.
+ * </p>
+ * <p>
+ * With a {@link #setMetricsListener(MorreMetricsListener) metrics listener} every request is measured:
+ * response and decode time, body sizes and failures, per endpoint. Without one, nothing is measured.
+ * </p>
+ * <p>
+ * One client is meant to be shared by all threads of an application. The config is copied when the client is
+ * created and can not be changed afterwards, every request builds its own request and decodes into its own
+ * results, and the connection pool, the protocol and the feature registry are safe for concurrent use.
+ * The metrics listener may be swapped while requests are running. Without the pooling mode the HttpClient keeps
+ * at most two connections per route, so a client shared by many threads should enable it.
+ * </p>
+ * <p>
+ * The serialized form of a client is its url and its config, so it can be shipped to the workers of a
+ * distributed job. A deserialized client builds its HttpClient on the first request, all deserialized clients
+ * with the same connection settings share one HttpClient and connection pool per JVM. They are closed with
+ * {@link #closeSharedTransports()}. The metrics listener is not serialized.
+ * </p>
+ *
+ */
+public class HttpMorreClient implements Morre, MorreCrawlerInterface, MorreCursorInterface, Closeable, Serializable {
 
 	private static final long serialVersionUID = 6215972631957486031L;
 
-	private final Log log = LogFactory.getLog( getClass() );
-
-	private URL morreUrl = null;
-	private URL queryUrl = null;
-	
-	private HttpClient httpClient = null;
-	private Gson gson = null;
-
-	private Type singleListType;
-	//	private Type completeType;
-	private Type featureListType;
-	private Type modelResultType;
-	private Type personResultType;
-	private Type publicationResultType;
-	private Type annotationResultType;
-	private Type crawledModelType;
-	private Type singleMapType;
-
-	private static final String REST_URL_QUERY = "query/";
-	private static final String REST_URL_CRAWLER = "model_crawler_service/";
-	private static final String REST_URL_UPDATE = "model_update_service/";
-	
-	private static final String KEY_KEYWORDS = "keywords";
-	private static final String KEY_FEATURES = "features";
-	private static final String KEY_SINGLE_KEYWORD = "keyword";
-	private static final String AGGREGATION_TYPE = "aggregationType";
-	private static final String RANKERS_WEIGHTS = "rankersWeights";
-
-	private static final String ERROR_KEY_RESULTS = "#Results";
-	private static final String ERROR_KEY_EXCEPTION = "Exception";
-
-	// ----
-
-	private static final String SERVICE_GET_MODEL_HISTORY = REST_URL_CRAWLER + "get_model_history";
-	private static final String SERVICE_GET_MODEL_VERSION = REST_URL_CRAWLER + "get_model_version";
-	private static final String SERVICE_GET_LATEST_MODEL = REST_URL_CRAWLER + "get_model";
-	private static final String SERVICE_ADD_MODEL = REST_URL_UPDATE + "add_model";
-	private static final String SERVICE_ADD_MODEL_VERSION = REST_URL_UPDATE + "add_model_version";
-	private static final String SERVICE_DELETE_MODEL = REST_URL_UPDATE + "delete_model";
-
-	private static final String SKEY_FILEID = "fileId";
-	private static final String SKEY_VERSIONID = "versionId";
-	private static final String SKEY_EXCEPTION = "Exception";
+	private static final Log log = LogFactory.getLog( HttpMorreClient.class );
+
+	private final String morreUrl;
+	private final HttpMorreClientConfig config;
+
+	private transient MorreProtocol protocol;
+	private transient volatile HttpTransport transport;
+	private transient QueryFeatureRegistry featureRegistry;
+	private transient volatile MorreMetricsListener metricsListener = null;
 
 	public HttpMorreClient(String morreUrl) throws MalformedURLException {
-		// define urls
-		this.morreUrl = new URL(morreUrl);
-		this.queryUrl = new URL(this.morreUrl, REST_URL_QUERY);
+		this(morreUrl, new HttpMorreClientConfig());
+	}
+
+	public HttpMorreClient(String morreUrl, HttpMorreClientConfig config) throws MalformedURLException {
+		this.morreUrl = morreUrl;
+		this.config = new HttpMorreClientConfig(config);
+		init();
+		transport = new HttpTransport(this.config);
+	}
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// the transport is taken from the shared ones on the first request
+		init();
+	}
 
-		httpClient = HttpClientBuilder.create().build();
-		gson = new Gson();
+	private void init() throws MalformedURLException {
+		protocol = new MorreProtocol(morreUrl, config.getRequestCompression(), config.getCompressionThreshold(), config.getInternPoolSize());
 
-		//		completeType = new TypeToken<List<Map<String, JsonElement>>>(){}.getType();
-		singleListType = new TypeToken<List<String>>(){}.getType();
-		featureListType = new TypeToken<List<String>>(){}.getType();
+		if( config.isFeatureValidation() ) {
+			featureRegistry = new QueryFeatureRegistry( new QueryFeatureRegistry.FeatureLoader() {
+				@Override
+				public List<String> loadFeatures(String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+					return executeRequest( protocol.buildFeatureRequest(queryType), protocol.featureListDecoder() );
+				}
+			}, config.getFeatureRefreshInterval() );
+		}
+	}
+
+	private HttpTransport transport() {
+		HttpTransport current = transport;
+		// a closed shared transport is replaced, a closed own transport fails the request
+		if( current == null || (current.isShared() && current.isClosed()) )
+			transport = current = HttpTransport.shared(config);
+		return current;
+	}
+
+	/**
+	 * Closes the connection pools, which deserialized clients share in this JVM. Clients used afterwards
+	 * open a new shared pool.
+	 */
+	public static void closeSharedTransports() {
+		HttpTransport.closeShared();
+	}
 
-		modelResultType = new TypeToken<List<ModelResult>>(){}.getType();
-		personResultType = new TypeToken<List<PersonResult>>(){}.getType();
-		publicationResultType = new TypeToken<List<PublicationResult>>(){}.getType();
-		annotationResultType = new TypeToken<List<AnnotationResult>>(){}.getType();
+	/**
+	 * Returns the configuration of this client.
+	 *
+	 * @return a copy of the client config
+	 */
+	public HttpMorreClientConfig getConfig() {
+		return new HttpMorreClientConfig(config);
+	}
 
-		crawledModelType = new TypeToken<CrawledModel>(){}.getType();
-		singleMapType = new TypeToken<Map<String, String>>(){}.getType();
+	/**
+	 * Returns the current statistics of the connection pool, or null if the pooling mode is disabled.
+	 *
+	 * @return the pool stats
+	 */
+	public PoolStats getConnectionPoolStats() {
+		PoolingHttpClientConnectionManager connectionManager = transport().getConnectionManager();
+		if( connectionManager == null )
+			return null;
+
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Returns the registry of the available query features, or null if the feature validation is disabled.
+	 *
+	 * @return the feature registry
+	 */
+	public QueryFeatureRegistry getFeatureRegistry() {
+		return featureRegistry;
+	}
+
+	public MorreMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 * Sets the listener to report the measurements of every request to, e.g. an
+	 * {@link de.unirostock.sems.morre.client.metrics.InMemoryMetrics InMemoryMetrics}. Null disables the measurements.
+	 *
+	 * @param metricsListener the listener
+	 */
+	public void setMetricsListener( MorreMetricsListener metricsListener ) {
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Shuts down the underlying HTTP client, its connection pool and the connection evictor.
+	 * The shared pool of a deserialized client stays open for the other clients.
+	 */
+	@Override
+	public void close() throws IOException {
+		HttpTransport current = transport;
+		if( current != null )
+			current.close();
 	}
 
 	@Override
 	public List<ModelResult> modelQuery(String query) throws MorreClientException, MorreCommunicationException, MorreException {
 		return doSimpleModelQuery(QueryType.MODEL_QUERY, query);
 	}
-	
+
+	@Override
+	public List<ModelResult> modelQuery(String query, Projection projection) throws MorreClientException, MorreCommunicationException, MorreException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
 	@Override
 	public List<ModelResult> aggregatedModelQuery(String query, String aggregationType, String rankersWeights) throws MorreClientException, MorreCommunicationException, MorreException {
 		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankersWeights);
@@ -122,399 +202,243 @@ public class HttpMorreClient implements Morre, MorreCrawlerInterface, Serializab
 
 	@Override
 	public List<String> getQueryFeatures(String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
-
-		try {
-			HttpGet request = new HttpGet( new URL(queryUrl, queryType).toString() );
-			HttpResponse response = httpClient.execute(request);
-
-			// reads in the result
-			StringBuilder result = new StringBuilder();
-			BufferedReader resultReader = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line = "";
-			while ((line = resultReader.readLine()) != null) {
-				//append              
-				result.append(line);
-			}
-
-			List<String> featureList = gson.fromJson(result.toString(), featureListType);
-
-			return featureList;
-		} catch (JsonSyntaxException e) {
-			throw new MorreException("Can not parse the FeatureSet List!", e);
-		} catch (MalformedURLException e) {
-			// Wrong formatted URL.
-			throw new MorreClientException("Exception while building the request url", e);
-		} catch (IOException e) {
-			// Something went wrong with the communication
-			throw new MorreCommunicationException("Error while HTTP Request.", e);
+		if( featureRegistry != null ) {
+			List<String> features = featureRegistry.getFeatures(queryType);
+			return features != null ? new ArrayList<String>(features) : null;
 		}
 
-
+		return executeRequest( protocol.buildFeatureRequest(queryType), protocol.featureListDecoder() );
 	}
 
 	@Override
 	public List<ModelResult> doModelQuery(String queryType, FeatureSet features) throws MorreClientException, MorreCommunicationException, MorreException {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features, Projection projection) throws MorreClientException, MorreCommunicationException, MorreException {
+		validateFeatures(queryType, features);
 		// perform the query
-		String resultString = performQuery(queryType, features);
-		return parseQueryResult(resultString, modelResultType);
+		return executeRequest( protocol.buildQueryRequest(queryType, features), protocol.modelResultDecoder(projection, this) );
 	}
 
 	@Override
 	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword) throws MorreException ,MorreClientException ,MorreCommunicationException {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword, Projection projection) throws MorreException ,MorreClientException ,MorreCommunicationException {
 		// perform the query
-		String resultString = performSimpleQuery(queryType, keyword);
-		return parseQueryResult(resultString, modelResultType);
+		return executeRequest( protocol.buildSimpleQueryRequest(queryType, keyword), protocol.modelResultDecoder(projection, this) );
 	}
-	
+
 	@Override
 	public List<ModelResult> doSimpleAggregatedModelQuery(String queryType, String keyword, String aggregationType, String rankersWeights) throws MorreException ,MorreClientException ,MorreCommunicationException {
 		// perform the query
-		String resultString = performSimpleAggregatedQuery(queryType, keyword, aggregationType, rankersWeights);
-		return parseQueryResult(resultString, modelResultType);
+		return executeRequest( protocol.buildSimpleAggregatedQueryRequest(queryType, keyword, aggregationType, rankersWeights), protocol.modelResultDecoder(Projection.FULL, this) );
 	}
 
 	@Override
 	public List<PersonResult> doPersonQuery(FeatureSet features) throws MorreClientException, MorreCommunicationException, MorreException {
+		validateFeatures(QueryType.PERSON_QUERY, features);
 		// perform the query
-		String resultString = performQuery(QueryType.PERSON_QUERY, features);
-		return parseQueryResult(resultString, personResultType);
+		return executeRequest( protocol.buildQueryRequest(QueryType.PERSON_QUERY, features), protocol.personResultDecoder() );
 	}
 
 	@Override
 	public List<AnnotationResult> doAnnotationQuery(String query) throws MorreClientException, MorreCommunicationException, MorreException {
 		// perform the query
-		String resultString = performSimpleQuery(QueryType.ANNOTATION_QUERY, query);
-		return parseQueryResult(resultString, annotationResultType);
+		return executeRequest( protocol.buildSimpleQueryRequest(QueryType.ANNOTATION_QUERY, query), protocol.annotationResultDecoder() );
 	}
 
 	@Override
 	public List<PublicationResult> doPublicationQuery(FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		validateFeatures(QueryType.PUBLICATION_QUERY, features);
 		// perform the query
-		String resultString = performQuery(QueryType.PUBLICATION_QUERY, features);
-		return parseQueryResult(resultString, publicationResultType);
+		return executeRequest( protocol.buildQueryRequest(QueryType.PUBLICATION_QUERY, features), protocol.publicationResultDecoder() );
 	}
 
-	private <R> List<R> parseQueryResult( String resultString, Type parseType ) throws MorreClientException, MorreCommunicationException, MorreException {
-
-		// Lets try to parse the shit out of it!
-
-		List<R> result = null;
-		try {
-			// trying to parse the result correctly
-			result = gson.fromJson(resultString, parseType);
-		}
-		catch (JsonSyntaxException e) {
-			// **** first catch block ****
-			// first attempt failed -> try to get a error message out of the result
-
-			try {
-				List<String> errorResult = gson.fromJson(resultString, featureListType);
-
-				if( errorResult == null || errorResult.isEmpty() ) {
-					// the errorResult List is empty
-					throw new MorreException( "Empty result, no error description." );
-				}				
-				else if( errorResult.get(0).equals(ERROR_KEY_RESULTS) ) {
-					// A result return. If the second value is null, the database could not find an entry.
-					if( errorResult.get(1).equals("0") ) {
-						// null for no entry found!
-						// TODO think about the null return. Shouldn't we just return an empty List?
-						return null;
-					}
-
-				}
-				else if( errorResult.get(0).equals(ERROR_KEY_EXCEPTION) ) {
-					// We've got a database exception! Let's throw it!
-					if( errorResult.size() >= 2 )
-						// there is a second parameter, specifying the exact error
-						throw new MorreException( errorResult.get(1) );
-					else
-						// no explaining parameter, just an error.
-						throw new MorreException();
-				}
-				else {
-					// Something unknown was returned
-					throw new MorreException( MessageFormat.format("Unknown Result was returned by MORRE: {0}", errorResult) );
-				} 
+	// ---------------------------------------------------------------------------------------------------------------------
 
+	@Override
+	public ResultCursor<ModelResult> openModelQuery(final String queryType, final String keyword, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return openCursor( new HttpResultCursor.PageRequest() {
+			@Override
+			public HttpUriRequest build(int offset, int limit) throws MorreClientException {
+				return protocol.buildSimpleQueryRequest(queryType, keyword, offset, limit);
 			}
-			catch (JsonSyntaxException e2) {
-				System.out.println (resultString);
-				// second attempt to parse failed, two. Now our fates rests in God's hands... (... or we just throw an exception)
-				throw new MorreCommunicationException("Can not even parse the error message. Check for corrupt JSON!", e);
-			}
-
-			// **** first catch block ****
-		}
-
-		return result;
+		}, ModelResult.class, projection );
 	}
 
-	private String performQuery( String queryType, FeatureSet features ) throws MorreClientException, MorreCommunicationException {
-
-		try {
-			// Serialize the feature set
-
-			Entry<List<String>, List<String>> separateLists = features.getFeatures();
-			HashMap<String, JsonElement> complete = new HashMap<String, JsonElement>();
-
-			// First parse the feature and value list
-			complete.put( KEY_FEATURES, gson.toJsonTree( separateLists.getKey(), singleListType ) );
-			complete.put( KEY_KEYWORDS, gson.toJsonTree( separateLists.getValue(), singleListType ) );
-
-			String jsonFeatures = gson.toJson( complete );
-
-			// generates the request
-			HttpPost request = new HttpPost( new URL(queryUrl, queryType).toString() );
-			// adds the json string as package
-			request.setEntity( new StringEntity(jsonFeatures, ContentType.APPLICATION_JSON) );
-
-			// execute!
-			HttpResponse response = httpClient.execute(request);
-
-			// reads in the result
-			StringBuilder result = new StringBuilder();
-			BufferedReader resultReader = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line = "";
-			while ((line = resultReader.readLine()) != null) {
-				//append              
-				result.append(line);
+	@Override
+	public ResultCursor<ModelResult> openModelQuery(final String queryType, final FeatureSet features, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		validateFeatures(queryType, features);
+		return openCursor( new HttpResultCursor.PageRequest() {
+			@Override
+			public HttpUriRequest build(int offset, int limit) throws MorreClientException {
+				return protocol.buildQueryRequest(queryType, features, offset, limit);
 			}
-
-			return result.toString();
-		} catch (MalformedURLException e) {
-			// Wrong formatted URL. We can definitely blame the library user for this.
-			// Exception the awesome library developer uses it by himself, than we have to blame someone else... ;)
-			throw new MorreClientException("Exception while building the request url", e);
-		} catch (IOException e) {
-			// Something went wrong with the communication
-			throw new MorreCommunicationException("Error while HTTP Request.", e);
-		}
+		}, ModelResult.class, projection );
 	}
 
-	private String performSimpleQuery( String queryType, String keyword ) throws MorreClientException, MorreCommunicationException {
-
-		try {
-			// Serialize the feature set
-
-			HashMap<String, String> parameter = new HashMap<String, String>();
-
-			// Put in the Keyword
-			parameter.put(KEY_SINGLE_KEYWORD, keyword);
-			String jsonFeatures = gson.toJson( parameter );
-
-			// generates the request
-			String requestUrl = new URL(queryUrl, queryType).toString();
-			HttpPost request = new HttpPost( requestUrl );
-			// adds the json string as package
-			request.setEntity( new StringEntity(jsonFeatures, ContentType.APPLICATION_JSON) );
-
-			// execute!
-			HttpResponse response = httpClient.execute(request);
-
-			// reads in the result
-			StringBuilder result = new StringBuilder();
-			BufferedReader resultReader = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line = "";
-			while ((line = resultReader.readLine()) != null) {
-				//append              
-				result.append(line);
+	@Override
+	public ResultCursor<PersonResult> openPersonQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		validateFeatures(QueryType.PERSON_QUERY, features);
+		return openCursor( new HttpResultCursor.PageRequest() {
+			@Override
+			public HttpUriRequest build(int offset, int limit) throws MorreClientException {
+				return protocol.buildQueryRequest(QueryType.PERSON_QUERY, features, offset, limit);
 			}
-
-			return result.toString();
-		} catch (MalformedURLException e) {
-			// Wrong formatted URL. We can definitely blame the library user for this.
-			// Exception the awesome library developer uses it by himself, than we have to blame someone else... ;)
-			throw new MorreClientException("Exception while building the request url", e);
-		} catch (IOException e) {
-			// Something went wrong with the communication
-			throw new MorreCommunicationException("Error while HTTP Request.", e);
-		}
-
+		}, PersonResult.class, Projection.FULL );
 	}
-	
-	private String performSimpleAggregatedQuery( String queryType, String keyword, String aggregationType, String rankersWeights ) throws MorreClientException, MorreCommunicationException {
 
-		try {
-			// Serialize the feature set
-
-			HashMap<String, String> parameter = new HashMap<String, String>();
-
-			// Put in the Keyword
-			parameter.put(KEY_SINGLE_KEYWORD, keyword);
-			parameter.put(AGGREGATION_TYPE, aggregationType);
-			parameter.put(RANKERS_WEIGHTS, rankersWeights);
-			String jsonFeatures = gson.toJson( parameter );
-
-			// generates the request
-			String requestUrl = new URL(queryUrl, queryType).toString();
-			HttpPost request = new HttpPost( requestUrl );
-			// adds the json string as package
-			request.setEntity( new StringEntity(jsonFeatures, ContentType.APPLICATION_JSON) );
-
-			// execute!
-			HttpResponse response = httpClient.execute(request);
-
-			// reads in the result
-			StringBuilder result = new StringBuilder();
-			BufferedReader resultReader = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line = "";
-			while ((line = resultReader.readLine()) != null) {
-				//append              
-				result.append(line);
+	@Override
+	public ResultCursor<PublicationResult> openPublicationQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		validateFeatures(QueryType.PUBLICATION_QUERY, features);
+		return openCursor( new HttpResultCursor.PageRequest() {
+			@Override
+			public HttpUriRequest build(int offset, int limit) throws MorreClientException {
+				return protocol.buildQueryRequest(QueryType.PUBLICATION_QUERY, features, offset, limit);
 			}
+		}, PublicationResult.class, Projection.FULL );
+	}
 
-			return result.toString();
-		} catch (MalformedURLException e) {
-			// Wrong formatted URL. We can definitely blame the library user for this.
-			// Exception the awesome library developer uses it by himself, than we have to blame someone else... ;)
-			throw new MorreClientException("Exception while building the request url", e);
-		} catch (IOException e) {
-			// Something went wrong with the communication
-			throw new MorreCommunicationException("Error while HTTP Request.", e);
-		}
+	@Override
+	public ResultCursor<AnnotationResult> openAnnotationQuery(final String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return openCursor( new HttpResultCursor.PageRequest() {
+			@Override
+			public HttpUriRequest build(int offset, int limit) throws MorreClientException {
+				return protocol.buildSimpleQueryRequest(QueryType.ANNOTATION_QUERY, query, offset, limit);
+			}
+		}, AnnotationResult.class, Projection.FULL );
+	}
 
+	private <R> ResultCursor<R> openCursor( HttpResultCursor.PageRequest pageRequest, Class<R> elementType, Projection projection ) throws MorreClientException {
+		if( projection == null )
+			throw new MorreClientException("projection must not be null");
+		return new HttpResultCursor<R>( transport().getHttpClient(), protocol, pageRequest, elementType, projection, this, config.getPageSize(), metricsListener );
 	}
 
 	// ---------------------------------------------------------------------------------------------------------------------
 
 	@Override
 	public List<String> getModelHistory(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
-		Map<String, String> parameter = new HashMap<String, String>();
-		parameter.put(SKEY_FILEID, fileId);
-
-		String result = performServiceQuery(SERVICE_GET_MODEL_HISTORY, parameter);
-		return parseServiceResult(result, singleListType);
+		return executeRequest( protocol.buildModelHistoryRequest(fileId), protocol.modelHistoryDecoder() );
 	}
 
 	@Override
 	public CrawledModel getModelVersion(String fileId, String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
-		Map<String, String> parameter = new HashMap<String, String>();
-		parameter.put(SKEY_FILEID, fileId);
-		parameter.put(SKEY_VERSIONID, versionId);
-
-		String result = performServiceQuery(SERVICE_GET_MODEL_VERSION, parameter);
-		return parseServiceResult(result, crawledModelType);
+		return executeRequest( protocol.buildModelVersionRequest(fileId, versionId), protocol.crawledModelDecoder() );
 	}
 
 	@Override
 	public CrawledModel getLatestModelVersion(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
-		Map<String, String> parameter = new HashMap<String, String>();
-		parameter.put(SKEY_FILEID, fileId);
-
-		String result = performServiceQuery(SERVICE_GET_LATEST_MODEL, parameter);
-		System.out.println(result);
-		return parseServiceResult(result, crawledModelType);
+		CrawledModel result = executeRequest( protocol.buildLatestModelVersionRequest(fileId), protocol.crawledModelDecoder() );
+		if( log.isTraceEnabled() )
+			log.trace(result);
+		return result;
 	}
 
 	@Override
 	public boolean addModel(CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
-
-		String result = performServiceQuery(SERVICE_ADD_MODEL_VERSION, model, crawledModelType);
-		log.trace(result);
-		
-		System.out.println("----");
-		System.out.println(result);
-		System.out.println("----");
-		log.debug(result);
-		
-		Map<String, String> parsedResult = parseServiceResult(result, singleMapType);
-		if( parsedResult != null && parsedResult.get("ok").toLowerCase().equals("true") )
-			return true;
-		else
-			return false;
+		return executeRequest( protocol.buildAddModelRequest(model), protocol.addModelDecoder() );
 	}
 
-	private <R> String performServiceQuery( String queryType, R parameter ) throws MorreClientException, MorreCommunicationException {
-		return performServiceQuery(queryType, parameter, null);
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	private void validateFeatures( String queryType, FeatureSet features ) throws MorreException, MorreClientException, MorreCommunicationException {
+		if( featureRegistry != null )
+			featureRegistry.validate(queryType, features);
 	}
-	
-	private <R> String performServiceQuery( String queryType, R parameter, Type parameterType ) throws MorreClientException, MorreCommunicationException {
 
-		try {
+	private <R> R executeRequest( HttpUriRequest request, ResponseDecoder<R> decoder ) throws MorreCommunicationException, MorreException {
 
-			// serialize the parameter
-			String jsonFeatures = null;
-			if( parameterType != null )
-				jsonFeatures = gson.toJson(parameter, parameterType);
-			else
-				jsonFeatures = gson.toJson( parameter );
-
-			// generates the request
-			String requestUrl = new URL(morreUrl, queryType).toString();
-			HttpPost request = new HttpPost( requestUrl );
-			request.addHeader( "Accept", ContentType.APPLICATION_JSON.toString());
-			// adds the json string as package
-			System.out.println(jsonFeatures);
-			log.trace(jsonFeatures);
-			request.setEntity( new StringEntity(jsonFeatures, ContentType.APPLICATION_JSON) );
-
-			// execute!
-			HttpResponse response = httpClient.execute(request);
-
-			// reads in the result
-			StringBuilder result = new StringBuilder();
-			BufferedReader resultReader = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-			String line = "";
-			while ((line = resultReader.readLine()) != null) {
-				//append              
-				result.append(line);
-			}
+		MorreMetricsListener listener = metricsListener;
+		if( listener == null )
+			return executeRequest(request, decoder, null);
 
-			return result.toString();
-		} catch (MalformedURLException e) {
-			// Wrong formatted URL. We can definitely blame the library user for this.
-			// Except the awesome library developer uses it by himself, than we have to blame someone else... ;)
-			throw new MorreClientException("Exception while building the request url", e);
-		} catch (IOException e) {
-			// Something went wrong with the communication
-			throw new MorreCommunicationException("Error while HTTP Request.", e);
+		// counts the request body while it is sent
+		CountingEntity requestEntity = null;
+		if( request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null ) {
+			requestEntity = new CountingEntity( ((HttpEntityEnclosingRequest) request).getEntity() );
+			((HttpEntityEnclosingRequest) request).setEntity(requestEntity);
 		}
 
+		Measurement measurement = new Measurement();
+		Exception failure = null;
+		try {
+			return executeRequest(request, decoder, measurement);
+		} catch (MorreCommunicationException e) {
+			failure = e;
+			throw e;
+		} catch (MorreException e) {
+			failure = e;
+			throw e;
+		} catch (RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			long end = System.nanoTime();
+			long received = measurement.received != 0 ? measurement.received : end;
+			RequestMetrics metrics = new RequestMetrics( protocol.getEndpoint(request.getURI()), measurement.statusCode,
+					received - measurement.start, end - received,
+					requestEntity != null ? requestEntity.getBytes() : 0,
+					measurement.responseEntity != null ? measurement.responseEntity.getBytes() : 0,
+					failure );
+			try {
+				listener.requestCompleted(metrics);
+			} catch (RuntimeException e) {
+				log.warn("Metrics listener failed", e);
+			}
+		}
 	}
 
-	private <R> R parseServiceResult( String result, Type resultType ) throws MorreCommunicationException, MorreException {
+	private <R> R executeRequest( HttpUriRequest request, ResponseDecoder<R> decoder, Measurement measurement ) throws MorreCommunicationException, MorreException {
 
-		R resultObj = null;
+		CloseableHttpResponse response = null;
 		try {
-			// first of all: try to parse the result correctly
-			resultObj = gson.fromJson(result, resultType);
-			if( resultObj instanceof Map<?, ?> ) {
-				// The returnType is a Map, maybe it is full of exception, lets check that
-				if( ((Map<?, ?>) resultObj).containsKey(SKEY_EXCEPTION) == true )
-					// the map contains an exception element -> lets analyse it!
-					analyseServiceException((Map<?, ?>) resultObj); 
-			}
-		} catch (JsonSyntaxException e) {
-			// not the result we've expected. Maybe its an exception?
-			Map<String, String> resultMap;
-			try {
-				resultMap = gson.fromJson(result, singleMapType);
-				analyseServiceException(resultMap, e);
-			}
-			catch (JsonSyntaxException e2) {
-				throw new MorreCommunicationException("Can not even parse the error message. Check for corrupt JSON! " + result, e);
+			if( measurement != null )
+				measurement.start = System.nanoTime();
+
+			response = transport().getHttpClient().execute(request);
+			HttpEntity entity = response.getEntity();
+			if( measurement != null ) {
+				measurement.received = System.nanoTime();
+				measurement.statusCode = response.getStatusLine().getStatusCode();
+				if( entity != null )
+					entity = measurement.responseEntity = new CountingEntity(entity);
 			}
 
+			return protocol.decode( entity, decoder );
+		} catch (MorreCommunicationException e) {
+			throw e;
+		} catch (IOException e) {
+			// Something went wrong with the communication
+			throw new MorreCommunicationException("Error while HTTP Request.", e);
+		} finally {
+			if( response != null ) {
+				// consumes whatever is left of the entity and hands the connection back to the pool.
+				// If the entity could not be consumed, closing the response discards the connection.
+				EntityUtils.consumeQuietly( response.getEntity() );
+				try {
+					response.close();
+				} catch (IOException e) {
+					log.warn("Can not close the HTTP response", e);
+				}
+			}
 		}
-
-		return resultObj;
 	}
 
-	private void analyseServiceException( Map<?, ?> resultMap ) throws MorreException {
-		analyseServiceException(resultMap, null);
-	}
-
-	private void analyseServiceException( Map<?, ?> resultMap, Throwable e ) throws MorreException {
+	/**
+	 * Points in time and counters of a measured request.
+	 */
+	private static class Measurement {
 
-		if( resultMap.get(SKEY_EXCEPTION) != null && resultMap.get(SKEY_EXCEPTION) instanceof String ) {
-			// result is a map, containing the exception field, which is a String
-			String error = "Server-Side exception while request: " + (String) resultMap.get(SKEY_EXCEPTION);
-			if( e != null )
-				throw new MorreException( error, e );
-			else
-				throw new MorreException(error);
-		}
+		private long start = System.nanoTime();
+		private long received = 0;
+		private int statusCode = -1;
+		private CountingEntity responseEntity = null;
 
 	}
 
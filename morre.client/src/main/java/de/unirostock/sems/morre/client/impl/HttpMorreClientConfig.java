@@ -0,0 +1,333 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.Serializable;
+
+import de.unirostock.sems.morre.client.QueryFeatureRegistry;
+
+/**
+ * Transport configuration for the {@link HttpMorreClient} and the {@link HttpMorreAsyncClient}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The client copies
+ * the configuration on construction, later changes to this object do not affect
+ * already created clients.
+ * </p>
+ * Without pooling mode the client uses the HttpClient defaults (2 connections per route),
+ * with pooling mode enabled the connection limits, the idle connection eviction and the
+ * stale connection check are applied.
+ *
+ */
+public class HttpMorreClientConfig implements Serializable {
+
+	private static final long serialVersionUID = -3162493519651813263L;
+
+	/** default maximum number of pooled connections */
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 64;
+	/** default maximum number of pooled connections per route (MORRE host) */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 32;
+	/** default time in ms after which idle connections are evicted from the pool */
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+	/** default time in ms of inactivity after which a pooled connection is validated before reuse */
+	public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+	/** default minimum size in bytes of a request body to be compressed */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+	/**
+	 * Content codings for request bodies.
+	 */
+	public enum Compression {
+		/** bodies are sent as they are */
+		NONE( null ),
+		/** gzip file format, RFC 1952 */
+		GZIP( "gzip" ),
+		/** zlib format, RFC 1950 */
+		DEFLATE( "deflate" );
+
+		private final String contentEncoding;
+
+		private Compression(String contentEncoding) {
+			this.contentEncoding = contentEncoding;
+		}
+
+		/**
+		 * Returns the value of the Content-Encoding header.
+		 *
+		 * @return the content coding, or null for NONE
+		 */
+		public String getContentEncoding() {
+			return contentEncoding;
+		}
+	}
+
+	private boolean pooling = false;
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+	private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+	private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+	private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+	private int connectTimeout = -1;
+	private int socketTimeout = -1;
+	private boolean featureValidation = false;
+	private Compression requestCompression = Compression.NONE;
+	private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+	private boolean responseDecompression = true;
+	private long featureRefreshInterval = QueryFeatureRegistry.DEFAULT_REFRESH_INTERVAL;
+	private int pageSize = 0;
+	private int internPoolSize = 0;
+
+	public HttpMorreClientConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public HttpMorreClientConfig( HttpMorreClientConfig other ) {
+		this.pooling = other.pooling;
+		this.maxTotalConnections = other.maxTotalConnections;
+		this.maxConnectionsPerRoute = other.maxConnectionsPerRoute;
+		this.idleConnectionTimeout = other.idleConnectionTimeout;
+		this.validateAfterInactivity = other.validateAfterInactivity;
+		this.connectTimeout = other.connectTimeout;
+		this.socketTimeout = other.socketTimeout;
+		this.featureValidation = other.featureValidation;
+		this.featureRefreshInterval = other.featureRefreshInterval;
+		this.requestCompression = other.requestCompression;
+		this.compressionThreshold = other.compressionThreshold;
+		this.responseDecompression = other.responseDecompression;
+		this.pageSize = other.pageSize;
+		this.internPoolSize = other.internPoolSize;
+	}
+
+	public boolean isPooling() {
+		return pooling;
+	}
+
+	/**
+	 * Enables or disables the pooling mode.
+	 *
+	 * @param pooling true to use a configured connection pool
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setPooling( boolean pooling ) {
+		this.pooling = pooling;
+		return this;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public HttpMorreClientConfig setMaxTotalConnections( int maxTotalConnections ) {
+		if( maxTotalConnections <= 0 )
+			throw new IllegalArgumentException("maxTotalConnections has to be positive");
+		this.maxTotalConnections = maxTotalConnections;
+		return this;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public HttpMorreClientConfig setMaxConnectionsPerRoute( int maxConnectionsPerRoute ) {
+		if( maxConnectionsPerRoute <= 0 )
+			throw new IllegalArgumentException("maxConnectionsPerRoute has to be positive");
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	public long getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	/**
+	 * Sets the time in ms after which idle connections are closed by the background evictor.
+	 * A value &lt;= 0 disables the eviction of idle connections, expired connections are evicted anyway.
+	 *
+	 * @param idleConnectionTimeout the idle timeout in ms
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setIdleConnectionTimeout( long idleConnectionTimeout ) {
+		this.idleConnectionTimeout = idleConnectionTimeout;
+		return this;
+	}
+
+	public int getValidateAfterInactivity() {
+		return validateAfterInactivity;
+	}
+
+	/**
+	 * Sets the period of inactivity in ms after which a pooled connection is checked for staleness before it is reused.
+	 * A value &lt;= 0 disables the check.
+	 *
+	 * @param validateAfterInactivity the inactivity period in ms
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setValidateAfterInactivity( int validateAfterInactivity ) {
+		this.validateAfterInactivity = validateAfterInactivity;
+		return this;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Sets the connect timeout in ms. -1 uses the system default, 0 means infinite.
+	 *
+	 * @param connectTimeout the connect timeout in ms
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setConnectTimeout( int connectTimeout ) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * Sets the socket (read) timeout in ms. -1 uses the system default, 0 means infinite.
+	 *
+	 * @param socketTimeout the socket timeout in ms
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setSocketTimeout( int socketTimeout ) {
+		this.socketTimeout = socketTimeout;
+		return this;
+	}
+
+	public boolean isFeatureValidation() {
+		return featureValidation;
+	}
+
+	/**
+	 * Enables or disables the local validation of feature sets. If enabled, the available features of each
+	 * query type are fetched once and kept in a {@link QueryFeatureRegistry}, feature sets with unknown
+	 * features are rejected with a {@link de.unirostock.sems.morre.client.exception.MorreClientException MorreClientException}
+	 * without querying MORRE. Only the blocking {@link HttpMorreClient} validates feature sets.
+	 *
+	 * @param featureValidation true to validate feature sets locally
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setFeatureValidation( boolean featureValidation ) {
+		this.featureValidation = featureValidation;
+		return this;
+	}
+
+	public long getFeatureRefreshInterval() {
+		return featureRefreshInterval;
+	}
+
+	/**
+	 * Sets the time in ms after which the feature list of a query type is fetched again.
+	 * A value &lt;= 0 keeps the lists for the lifetime of the client.
+	 *
+	 * @param featureRefreshInterval the refresh interval in ms
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setFeatureRefreshInterval( long featureRefreshInterval ) {
+		this.featureRefreshInterval = featureRefreshInterval;
+		return this;
+	}
+
+	public Compression getRequestCompression() {
+		return requestCompression;
+	}
+
+	/**
+	 * Sets the compression of request bodies. The MORRE server has to accept the content coding,
+	 * so it is disabled by default.
+	 *
+	 * @param requestCompression the compression
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setRequestCompression( Compression requestCompression ) {
+		if( requestCompression == null )
+			throw new IllegalArgumentException("requestCompression must not be null, use NONE instead");
+		this.requestCompression = requestCompression;
+		return this;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Sets the minimum size in bytes of a request body to be compressed, smaller bodies are sent as they are.
+	 *
+	 * @param compressionThreshold the threshold in bytes
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setCompressionThreshold( int compressionThreshold ) {
+		if( compressionThreshold < 0 )
+			throw new IllegalArgumentException("compressionThreshold must not be negative");
+		this.compressionThreshold = compressionThreshold;
+		return this;
+	}
+
+	public boolean isResponseDecompression() {
+		return responseDecompression;
+	}
+
+	/**
+	 * Enables or disables the negotiation of gzip and deflate compressed responses.
+	 * Compressed responses are decompressed transparently.
+	 *
+	 * @param responseDecompression true to accept compressed responses
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setResponseDecompression( boolean responseDecompression ) {
+		this.responseDecompression = responseDecompression;
+		return this;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Sets the number of results the {@link de.unirostock.sems.morre.client.ResultCursor cursors} request per page.
+	 * Paging sends <code>offset</code> and <code>limit</code> with the query, which requires a MORRE supporting them.
+	 * With 0, the default, a cursor sends a single request and decodes its result while iterating.
+	 *
+	 * @param pageSize the results per page or 0 to disable paging
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setPageSize( int pageSize ) {
+		if( pageSize < 0 )
+			throw new IllegalArgumentException("pageSize must not be negative");
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	public int getInternPoolSize() {
+		return internPoolSize;
+	}
+
+	/**
+	 * Enables the deduplication of decoded results. The URIs of the related models and of annotations, and the
+	 * names, mail addresses and organizations of persons, are replaced by a canonical instance from a pool of the
+	 * client, so repeated values of large results are held in memory only once. Every result still gets persons
+	 * of its own, which can be changed without affecting other results. The pool keeps at most the given number
+	 * of URIs and of person fields, when it is full, the values not seen for the longest time are evicted first.
+	 * With 0, the default, every value is decoded into an instance of its own.
+	 *
+	 * @param internPoolSize the maximum number of pooled URIs and person fields or 0 to disable the deduplication
+	 * @return this config
+	 */
+	public HttpMorreClientConfig setInternPoolSize( int internPoolSize ) {
+		if( internPoolSize < 0 )
+			throw new IllegalArgumentException("internPoolSize must not be negative");
+		this.internPoolSize = internPoolSize;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "HttpMorreClientConfig [pooling=" + pooling + ", maxTotalConnections=" + maxTotalConnections
+				+ ", maxConnectionsPerRoute=" + maxConnectionsPerRoute + ", featureValidation=" + featureValidation + ", requestCompression=" + requestCompression
+				+ ", pageSize=" + pageSize + ", internPoolSize=" + internPoolSize + "]";
+	}
+
+}
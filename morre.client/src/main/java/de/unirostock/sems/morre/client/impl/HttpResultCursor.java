@@ -0,0 +1,290 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.ResultCursor;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.metrics.MorreMetricsListener;
+import de.unirostock.sems.morre.client.metrics.RequestMetrics;
+
+/**
+ * Cursor of the {@link HttpMorreClient}, which decodes the results straight from the response stream.
+ * <p>
+ * With a page size, every page is requested with <code>offset</code> and <code>limit</code>, the next one
+ * once the previous page is used up. A page shorter than the page size is the last one. If MORRE ignores
+ * the paging and sends more results than requested, the cursor reads that response to the end instead.
+ * If the whole result fits exactly into one page, ignored paging shows on the next page only: it starts
+ * with the first result again, and the cursor stops there.
+ * Without a page size the whole result is requested at once. Closing a cursor in the middle of a result
+ * discards the connection instead of reading the rest, every response is measured as a request of its own.
+ * </p>
+ *
+ * @param <R> the type of the results
+ */
+class HttpResultCursor<R> implements ResultCursor<R> {
+
+	/**
+	 * Builds the request of a page.
+	 */
+	interface PageRequest {
+		public HttpUriRequest build( int offset, int limit ) throws MorreClientException;
+	}
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private final CloseableHttpClient httpClient;
+	private final MorreProtocol protocol;
+	private final PageRequest pageRequest;
+	private final Class<R> elementType;
+	private final Projection projection;
+	private final MorreCrawlerInterface xmldocLoader;
+	private final MorreMetricsListener metricsListener;
+	/** 0, if the result is read from a single response */
+	private int pageSize;
+
+	private CloseableHttpResponse response = null;
+	private JsonReader reader = null;
+	private int offset = 0;
+	private int inPage = 0;
+	private int count = 0;
+	private boolean finished = false;
+	/** the first result of the first page, to recognize a page repeating it */
+	private R firstResult = null;
+	/** the first result of a following page, decoded ahead by hasNext() */
+	private R lookahead = null;
+	private boolean hasLookahead = false;
+
+	// measurement of the current response
+	private HttpUriRequest request = null;
+	private CountingEntity requestEntity = null;
+	private CountingEntity responseEntity = null;
+	private long start = 0;
+	private long received = 0;
+	private long decodeNanos = 0;
+
+	HttpResultCursor(CloseableHttpClient httpClient, MorreProtocol protocol, PageRequest pageRequest, Class<R> elementType,
+			Projection projection, MorreCrawlerInterface xmldocLoader, int pageSize, MorreMetricsListener metricsListener) {
+		this.httpClient = httpClient;
+		this.protocol = protocol;
+		this.pageRequest = pageRequest;
+		this.elementType = elementType;
+		this.projection = projection;
+		this.xmldocLoader = xmldocLoader;
+		this.pageSize = pageSize;
+		this.metricsListener = metricsListener;
+	}
+
+	@Override
+	public boolean hasNext() throws MorreException, MorreCommunicationException {
+		while( !finished ) {
+			if( reader == null ) {
+				openPage();
+				continue;
+			}
+
+			if( hasLookahead )
+				return true;
+
+			long decodeStart = System.nanoTime();
+			try {
+				if( reader.hasNext() ) {
+					if( pageSize > 0 && inPage >= pageSize ) {
+						log.debug("MORRE ignores the paging, reading the whole result");
+						pageSize = 0;
+					}
+					if( pageSize == 0 || offset == 0 || inPage > 0 )
+						return true;
+
+					// the first result of a following page tells, if MORRE sent the first page again
+					lookahead = decodeNext();
+					if( !isSame(lookahead, firstResult) ) {
+						hasLookahead = true;
+						return true;
+					}
+
+					log.debug("MORRE ignores the paging, the page repeats the result");
+					lookahead = null;
+					finished = true;
+					closePage(true, null);
+					return false;
+				}
+				reader.endArray();
+			} catch (IOException e) {
+				throw fail( new MorreCommunicationException("Error while HTTP Request.", e) );
+			} finally {
+				decodeNanos += System.nanoTime() - decodeStart;
+			}
+
+			// a full page may be followed by another one
+			boolean nextPage = pageSize > 0 && inPage == pageSize;
+			offset += inPage;
+			closePage(true, null);
+			finished = !nextPage;
+		}
+		return false;
+	}
+
+	@Override
+	public R next() throws MorreException, MorreCommunicationException {
+		if( !hasNext() )
+			throw new NoSuchElementException();
+
+		R element = null;
+		if( hasLookahead ) {
+			element = lookahead;
+			lookahead = null;
+			hasLookahead = false;
+		}
+		else {
+			long decodeStart = System.nanoTime();
+			try {
+				element = decodeNext();
+			} finally {
+				decodeNanos += System.nanoTime() - decodeStart;
+			}
+		}
+
+		if( count == 0 )
+			firstResult = element;
+		count++;
+		return element;
+	}
+
+	private R decodeNext() throws MorreCommunicationException {
+		try {
+			R element = protocol.nextQueryResult(reader, elementType, projection, xmldocLoader);
+			inPage++;
+			return element;
+		} catch (JsonParseException e) {
+			throw fail( new MorreCommunicationException("Can not parse the result. Check for corrupt JSON!", e) );
+		} catch (RuntimeException e) {
+			throw fail( new MorreCommunicationException("Can not decode the result.", e) );
+		}
+	}
+
+	private static boolean isSame( Object element, Object other ) {
+		return element == null ? other == null : element.equals(other);
+	}
+
+	@Override
+	public List<R> next( int maxResults ) throws MorreException, MorreCommunicationException {
+		List<R> result = new ArrayList<R>( Math.min(maxResults, 64) );
+		while( result.size() < maxResults && hasNext() )
+			result.add( next() );
+		return result;
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() {
+		if( finished )
+			return;
+
+		finished = true;
+		// the rest of a page is small, a whole result is not worth reading
+		closePage(pageSize > 0, null);
+	}
+
+	private void openPage() throws MorreException, MorreCommunicationException {
+		request = pageRequest.build(offset, pageSize);
+		inPage = 0;
+		requestEntity = null;
+		responseEntity = null;
+		received = 0;
+		decodeNanos = 0;
+
+		if( metricsListener != null && request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null ) {
+			requestEntity = new CountingEntity( ((HttpEntityEnclosingRequest) request).getEntity() );
+			((HttpEntityEnclosingRequest) request).setEntity(requestEntity);
+		}
+
+		start = System.nanoTime();
+		try {
+			response = httpClient.execute(request);
+			received = System.nanoTime();
+
+			HttpEntity entity = response.getEntity();
+			if( metricsListener != null && entity != null )
+				entity = responseEntity = new CountingEntity(entity);
+
+			reader = protocol.openReader(entity);
+			boolean results = protocol.beginQueryResult(reader);
+			decodeNanos += System.nanoTime() - received;
+			if( !results ) {
+				closePage(true, null);
+				finished = true;
+			}
+		} catch (JsonParseException e) {
+			throw fail( new MorreCommunicationException("Can not parse the result. Check for corrupt JSON!", e) );
+		} catch (IOException e) {
+			throw fail( new MorreCommunicationException("Error while HTTP Request.", e) );
+		} catch (MorreException e) {
+			throw fail(e);
+		} catch (RuntimeException e) {
+			// the response is closed on any failure, else its connection would never return to the pool
+			throw fail( new MorreCommunicationException("Can not decode the result.", e) );
+		}
+	}
+
+	private <E extends Exception> E fail( E failure ) {
+		finished = true;
+		closePage(false, failure);
+		return failure;
+	}
+
+	private void closePage( boolean consume, Exception failure ) {
+		if( response != null ) {
+			// a consumed response hands the connection back to the pool, otherwise it is discarded
+			if( consume )
+				EntityUtils.consumeQuietly( response.getEntity() );
+			try {
+				response.close();
+			} catch (IOException e) {
+				log.warn("Can not close the HTTP response", e);
+			}
+		}
+
+		if( metricsListener != null && request != null ) {
+			long end = received != 0 ? received : System.nanoTime();
+			RequestMetrics metrics = new RequestMetrics( protocol.getEndpoint(request.getURI()),
+					response != null ? response.getStatusLine().getStatusCode() : -1,
+					end - start, decodeNanos,
+					requestEntity != null ? requestEntity.getBytes() : 0,
+					responseEntity != null ? responseEntity.getBytes() : 0,
+					failure );
+			try {
+				metricsListener.requestCompleted(metrics);
+			} catch (RuntimeException e) {
+				log.warn("Metrics listener failed", e);
+			}
+		}
+
+		request = null;
+		response = null;
+		reader = null;
+	}
+
+}
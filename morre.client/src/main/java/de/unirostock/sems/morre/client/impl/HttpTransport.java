@@ -0,0 +1,153 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * The HttpClient of a {@link HttpMorreClient} and its connection pool, built from the client config.
+ * <p>
+ * A client created with a constructor owns its transport. A deserialized client carries only its config,
+ * it uses the transport {@link #shared(HttpMorreClientConfig) shared} by all clients of the JVM with the same
+ * connection settings. Shared transports are kept until {@link #closeShared()}, closing a client leaves them open.
+ * </p>
+ *
+ */
+class HttpTransport implements Closeable {
+
+	private static final ConcurrentMap<String, HttpTransport> shared = new ConcurrentHashMap<String, HttpTransport>();
+
+	private final CloseableHttpClient httpClient;
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final boolean isShared;
+	private volatile boolean closed = false;
+
+	HttpTransport( HttpMorreClientConfig config ) {
+		this(config, false);
+	}
+
+	private HttpTransport( HttpMorreClientConfig config, boolean isShared ) {
+		this.isShared = isShared;
+		connectionManager = config.isPooling() ? buildConnectionManager(config) : null;
+		httpClient = buildHttpClient(config, connectionManager);
+	}
+
+	/**
+	 * Returns the transport of this JVM for the connection settings of the config, it is built on first use.
+	 *
+	 * @param config the client config
+	 * @return the shared transport
+	 */
+	static HttpTransport shared( HttpMorreClientConfig config ) {
+		String key = key(config);
+		HttpTransport transport = shared.get(key);
+		if( transport == null ) {
+			HttpTransport created = new HttpTransport(config, true);
+			transport = shared.putIfAbsent(key, created);
+			if( transport == null )
+				transport = created;
+			else
+				created.forceClose();
+		}
+		return transport;
+	}
+
+	/**
+	 * Closes all shared transports, e.g. when a worker shuts down. Deserialized clients, which are used
+	 * afterwards, build a new one.
+	 */
+	static void closeShared() {
+		for( String key : shared.keySet() ) {
+			HttpTransport transport = shared.remove(key);
+			if( transport != null )
+				transport.forceClose();
+		}
+	}
+
+	private static String key( HttpMorreClientConfig config ) {
+		// only the settings of the connections, the request compression and the paging are per client
+		return config.isPooling() + ";" + config.getMaxTotalConnections() + ";" + config.getMaxConnectionsPerRoute() + ";"
+				+ config.getIdleConnectionTimeout() + ";" + config.getValidateAfterInactivity() + ";"
+				+ config.getConnectTimeout() + ";" + config.getSocketTimeout() + ";" + config.isResponseDecompression();
+	}
+
+	private static PoolingHttpClientConnectionManager buildConnectionManager( HttpMorreClientConfig config ) {
+		PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+		manager.setMaxTotal( config.getMaxTotalConnections() );
+		manager.setDefaultMaxPerRoute( config.getMaxConnectionsPerRoute() );
+		manager.setValidateAfterInactivity( config.getValidateAfterInactivity() );
+		return manager;
+	}
+
+	private static CloseableHttpClient buildHttpClient( HttpMorreClientConfig config, PoolingHttpClientConnectionManager connectionManager ) {
+
+		HttpClientBuilder builder = HttpClientBuilder.create();
+		builder.setDefaultRequestConfig( RequestConfig.custom()
+				.setConnectTimeout( config.getConnectTimeout() )
+				.setSocketTimeout( config.getSocketTimeout() )
+				.build() );
+
+		// the HttpClient negotiates and decompresses gzip and deflate by default
+		if( !config.isResponseDecompression() )
+			builder.disableContentCompression();
+
+		if( connectionManager != null ) {
+			builder.setConnectionManager(connectionManager);
+			// starts the background thread, which closes expired and idle connections
+			builder.evictExpiredConnections();
+			if( config.getIdleConnectionTimeout() > 0 )
+				builder.evictIdleConnections( config.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS );
+		}
+
+		return builder.build();
+	}
+
+	CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	/**
+	 * Returns the connection pool, or null if the pooling mode is disabled.
+	 *
+	 * @return the connection manager
+	 */
+	PoolingHttpClientConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	boolean isShared() {
+		return isShared;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Shuts down the HttpClient, unless the transport is shared.
+	 */
+	@Override
+	public void close() throws IOException {
+		if( !isShared ) {
+			closed = true;
+			httpClient.close();
+		}
+	}
+
+	private void forceClose() {
+		closed = true;
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			// nothing to do, the transport is not used anymore
+		}
+	}
+
+}
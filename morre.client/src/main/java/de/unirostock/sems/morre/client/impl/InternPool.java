@@ -0,0 +1,88 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded pool of canonical instances of equal values, which deduplicates decoded results.
+ * <p>
+ * The pool is split into generations. New values are added to the newest generation, once it is full, the
+ * oldest generation is cleared and becomes the newest one. A value found in an older generation is copied
+ * into the newest one, so values which keep coming back stay pooled, while values seen only once are evicted
+ * a generation at a time. The pool never holds more than its maximum number of values and is safe for
+ * concurrent use.
+ * </p>
+ *
+ * @param <T> the type of the values, with value based equals and hashCode
+ */
+class InternPool<T> {
+
+	private static final int GENERATIONS = 4;
+
+	private final ConcurrentMap<T, T>[] generations;
+	private final int generationSize;
+	/** index of the newest generation */
+	private volatile int newest = 0;
+
+	@SuppressWarnings("unchecked")
+	InternPool( int maxSize ) {
+		if( maxSize <= 0 )
+			throw new IllegalArgumentException("maxSize must be positive");
+
+		generations = new ConcurrentMap[ Math.min(GENERATIONS, maxSize) ];
+		for( int i = 0; i < generations.length; i++ )
+			generations[i] = new ConcurrentHashMap<T, T>();
+		generationSize = maxSize / generations.length;
+	}
+
+	/**
+	 * Returns the canonical instance of the value, the value itself if no equal one is pooled yet.
+	 *
+	 * @param value the value, may be null
+	 * @return the canonical instance
+	 */
+	T intern( T value ) {
+		if( value == null )
+			return null;
+
+		int current = newest;
+		T canonical = generations[current].get(value);
+		if( canonical != null )
+			return canonical;
+
+		// search the older generations, from the newer to the older ones
+		for( int i = 1; i < generations.length && canonical == null; i++ )
+			canonical = generations[ (current - i + generations.length) % generations.length ].get(value);
+		if( canonical == null )
+			canonical = value;
+
+		int target = newest;
+		if( generations[target].size() >= generationSize )
+			target = rotateIfFull();
+		ConcurrentMap<T, T> generation = generations[target];
+		T pooled = generation.putIfAbsent(canonical, canonical);
+		return pooled != null ? pooled : canonical;
+	}
+
+	/**
+	 * Clears the oldest generation and makes it the newest one, if the newest generation is full.
+	 *
+	 * @return the index of the newest generation
+	 */
+	private synchronized int rotateIfFull() {
+		if( generations[newest].size() >= generationSize ) {
+			int next = (newest + 1) % generations.length;
+			generations[next].clear();
+			newest = next;
+		}
+		return newest;
+	}
+
+	int size() {
+		int size = 0;
+		for( ConcurrentMap<T, T> generation : generations )
+			size += generation.size();
+		return size;
+	}
+
+}
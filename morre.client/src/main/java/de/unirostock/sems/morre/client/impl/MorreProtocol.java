@@ -0,0 +1,683 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.Model;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig.Compression;
+
+/**
+ * The JSON over HTTP protocol of the MORRE REST API: builds the requests and decodes the responses.
+ * <p>
+ * The protocol does not execute any request, it is shared by the blocking {@link HttpMorreClient}
+ * and the non-blocking {@link HttpMorreAsyncClient}. Instances are immutable.
+ * </p>
+ *
+ */
+public class MorreProtocol {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private final URL morreUrl;
+	private final URL queryUrl;
+
+	private final Gson gson;
+	/** skips the model documents while decoding */
+	private final Gson metadataGson;
+	/** null, if the results are not deduplicated */
+	private final ResultDeduplicator deduplicator;
+
+	private final Type singleListType;
+	private final Type featureListType;
+	private final Type crawledModelType;
+	private final Type singleMapType;
+
+	private final Compression requestCompression;
+	private final int compressionThreshold;
+
+	public static final String REST_URL_QUERY = "query/";
+	public static final String REST_URL_CRAWLER = "model_crawler_service/";
+	public static final String REST_URL_UPDATE = "model_update_service/";
+
+	private static final String KEY_KEYWORDS = "keywords";
+	private static final String KEY_FEATURES = "features";
+	private static final String KEY_SINGLE_KEYWORD = "keyword";
+	private static final String AGGREGATION_TYPE = "aggregationType";
+	private static final String RANKERS_WEIGHTS = "rankersWeights";
+	private static final String KEY_OFFSET = "offset";
+	private static final String KEY_LIMIT = "limit";
+
+	private static final String ERROR_KEY_RESULTS = "#Results";
+	private static final String ERROR_KEY_EXCEPTION = "Exception";
+
+	private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+	/** maximum number of characters of a request payload written to the trace log */
+	private static final int MAX_LOGGED_PAYLOAD = 1024;
+
+	// ----
+
+	public static final String SERVICE_GET_MODEL_HISTORY = REST_URL_CRAWLER + "get_model_history";
+	public static final String SERVICE_GET_MODEL_VERSION = REST_URL_CRAWLER + "get_model_version";
+	public static final String SERVICE_GET_LATEST_MODEL = REST_URL_CRAWLER + "get_model";
+	public static final String SERVICE_ADD_MODEL = REST_URL_UPDATE + "add_model";
+	public static final String SERVICE_ADD_MODEL_VERSION = REST_URL_UPDATE + "add_model_version";
+	public static final String SERVICE_DELETE_MODEL = REST_URL_UPDATE + "delete_model";
+
+	private static final String SKEY_FILEID = "fileId";
+	private static final String SKEY_VERSIONID = "versionId";
+	private static final String SKEY_EXCEPTION = "Exception";
+	private static final String SKEY_OK = "ok";
+
+	/**
+	 * Decodes a response body directly from the stream, without buffering it as String.
+	 *
+	 * @param <R> the type of the decoded result
+	 */
+	public interface ResponseDecoder<R> {
+		public R decode( JsonReader reader ) throws IOException, MorreException;
+	}
+
+	public MorreProtocol( String morreUrl ) throws MalformedURLException {
+		this(morreUrl, Compression.NONE, 0);
+	}
+
+	/**
+	 * Creates the protocol with compressed request bodies.
+	 *
+	 * @param morreUrl the base url of MORRE
+	 * @param requestCompression the compression of request bodies
+	 * @param compressionThreshold the minimum size in bytes of a body to be compressed
+	 * @throws MalformedURLException if the url is invalid
+	 */
+	public MorreProtocol( String morreUrl, Compression requestCompression, int compressionThreshold ) throws MalformedURLException {
+		this(morreUrl, requestCompression, compressionThreshold, 0);
+	}
+
+	/**
+	 * Creates the protocol with compressed request bodies and deduplicated results.
+	 *
+	 * @param morreUrl the base url of MORRE
+	 * @param requestCompression the compression of request bodies
+	 * @param compressionThreshold the minimum size in bytes of a body to be compressed
+	 * @param internPoolSize the maximum number of pooled URIs and person fields or 0 to decode every value on its own,
+	 * see {@link HttpMorreClientConfig#setInternPoolSize(int)}
+	 * @throws MalformedURLException if the url is invalid
+	 */
+	public MorreProtocol( String morreUrl, Compression requestCompression, int compressionThreshold, int internPoolSize ) throws MalformedURLException {
+		this.requestCompression = requestCompression;
+		this.compressionThreshold = compressionThreshold;
+
+		// define urls
+		this.morreUrl = new URL(morreUrl);
+		this.queryUrl = new URL(this.morreUrl, REST_URL_QUERY);
+
+		gson = new Gson();
+		metadataGson = new GsonBuilder().setExclusionStrategies( new XmldocExclusionStrategy() ).create();
+		deduplicator = internPoolSize > 0 ? new ResultDeduplicator(internPoolSize) : null;
+
+		singleListType = new TypeToken<List<String>>(){}.getType();
+		featureListType = new TypeToken<List<String>>(){}.getType();
+		crawledModelType = new TypeToken<CrawledModel>(){}.getType();
+		singleMapType = new TypeToken<Map<String, String>>(){}.getType();
+	}
+
+	public URL getMorreUrl() {
+		return morreUrl;
+	}
+
+	public Gson getGson() {
+		return gson;
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+	// requests
+
+	public HttpGet buildFeatureRequest( String queryType ) throws MorreClientException {
+		return new HttpGet( buildUrl(queryUrl, queryType) );
+	}
+
+	public HttpPost buildQueryRequest( String queryType, FeatureSet features ) throws MorreClientException {
+		return buildQueryRequest(queryType, features, 0, 0);
+	}
+
+	/**
+	 * Builds a query for one page of the result.
+	 *
+	 * @param queryType the query type
+	 * @param features the features
+	 * @param offset the index of the first result
+	 * @param limit the maximum number of results or 0 for the whole result
+	 * @return the request
+	 * @throws MorreClientException if the url can not be built
+	 */
+	public HttpPost buildQueryRequest( String queryType, FeatureSet features, int offset, int limit ) throws MorreClientException {
+
+		// Serialize the feature set
+		Entry<List<String>, List<String>> separateLists = features.getFeatures();
+		HashMap<String, JsonElement> complete = new HashMap<String, JsonElement>();
+
+		// First parse the feature and value list
+		complete.put( KEY_FEATURES, gson.toJsonTree( separateLists.getKey(), singleListType ) );
+		complete.put( KEY_KEYWORDS, gson.toJsonTree( separateLists.getValue(), singleListType ) );
+		if( limit > 0 ) {
+			complete.put( KEY_OFFSET, new JsonPrimitive(offset) );
+			complete.put( KEY_LIMIT, new JsonPrimitive(limit) );
+		}
+
+		return buildPost( buildUrl(queryUrl, queryType), gson.toJson( complete ) );
+	}
+
+	public HttpPost buildSimpleQueryRequest( String queryType, String keyword ) throws MorreClientException {
+		return buildSimpleQueryRequest(queryType, keyword, 0, 0);
+	}
+
+	/**
+	 * Builds a simple query for one page of the result.
+	 *
+	 * @param queryType the query type
+	 * @param keyword the keyword
+	 * @param offset the index of the first result
+	 * @param limit the maximum number of results or 0 for the whole result
+	 * @return the request
+	 * @throws MorreClientException if the url can not be built
+	 */
+	public HttpPost buildSimpleQueryRequest( String queryType, String keyword, int offset, int limit ) throws MorreClientException {
+
+		HashMap<String, Object> parameter = new HashMap<String, Object>();
+
+		// Put in the Keyword
+		parameter.put(KEY_SINGLE_KEYWORD, keyword);
+		if( limit > 0 ) {
+			parameter.put(KEY_OFFSET, offset);
+			parameter.put(KEY_LIMIT, limit);
+		}
+
+		return buildPost( buildUrl(queryUrl, queryType), gson.toJson( parameter ) );
+	}
+
+	public HttpPost buildSimpleAggregatedQueryRequest( String queryType, String keyword, String aggregationType, String rankersWeights ) throws MorreClientException {
+
+		HashMap<String, String> parameter = new HashMap<String, String>();
+
+		// Put in the Keyword
+		parameter.put(KEY_SINGLE_KEYWORD, keyword);
+		parameter.put(AGGREGATION_TYPE, aggregationType);
+		parameter.put(RANKERS_WEIGHTS, rankersWeights);
+
+		return buildPost( buildUrl(queryUrl, queryType), gson.toJson( parameter ) );
+	}
+
+	public HttpPost buildModelHistoryRequest( String fileId ) throws MorreClientException {
+		Map<String, String> parameter = new HashMap<String, String>();
+		parameter.put(SKEY_FILEID, fileId);
+
+		return buildServiceRequest(SERVICE_GET_MODEL_HISTORY, parameter);
+	}
+
+	public HttpPost buildModelVersionRequest( String fileId, String versionId ) throws MorreClientException {
+		Map<String, String> parameter = new HashMap<String, String>();
+		parameter.put(SKEY_FILEID, fileId);
+		parameter.put(SKEY_VERSIONID, versionId);
+
+		return buildServiceRequest(SERVICE_GET_MODEL_VERSION, parameter);
+	}
+
+	public HttpPost buildLatestModelVersionRequest( String fileId ) throws MorreClientException {
+		Map<String, String> parameter = new HashMap<String, String>();
+		parameter.put(SKEY_FILEID, fileId);
+
+		return buildServiceRequest(SERVICE_GET_LATEST_MODEL, parameter);
+	}
+
+	public HttpPost buildAddModelRequest( CrawledModel model ) throws MorreClientException {
+		// the model document may be several MB, it is streamed instead of building the JSON String
+		Compression compression = requestCompression;
+		if( estimateSize(model) < compressionThreshold )
+			compression = Compression.NONE;
+
+		HttpPost request = new HttpPost( buildUrl(morreUrl, SERVICE_ADD_MODEL_VERSION) );
+		request.setEntity( new GsonEntity(gson, model, crawledModelType, compression) );
+		request.addHeader( "Accept", ContentType.APPLICATION_JSON.toString());
+
+		// the body is never built as a whole, not even for the log
+		if( log.isTraceEnabled() )
+			log.trace( "Request to " + SERVICE_ADD_MODEL_VERSION + ": fileId " + model.getFileId() + ", versionId " + model.getVersionId()
+					+ ", document " + (model.getXmldoc() != null ? model.getXmldoc().length() + " chars" : "missing") );
+
+		return request;
+	}
+
+	private HttpPost buildServiceRequest( String service, Map<String, String> parameter ) throws MorreClientException {
+
+		// serialize the parameter
+		String jsonFeatures = gson.toJson( parameter );
+
+		// generates the request
+		HttpPost request = buildPost( buildUrl(morreUrl, service), jsonFeatures );
+		request.addHeader( "Accept", ContentType.APPLICATION_JSON.toString());
+
+		if( log.isTraceEnabled() )
+			log.trace( "Request to " + service + ": " + truncate(jsonFeatures) );
+
+		return request;
+	}
+
+	private static long estimateSize( CrawledModel model ) {
+		// the document dominates the size, the rest is small
+		return model.getXmldoc() != null ? model.getXmldoc().length() + 512 : 512;
+	}
+
+	private static String truncate( String payload ) {
+		if( payload.length() <= MAX_LOGGED_PAYLOAD )
+			return payload;
+
+		return payload.substring(0, MAX_LOGGED_PAYLOAD) + "... (" + payload.length() + " chars)";
+	}
+
+	private HttpPost buildPost( String url, String json ) throws MorreClientException {
+		HttpPost request = new HttpPost( url );
+		// adds the json string as package
+		request.setEntity( buildEntity(json) );
+		return request;
+	}
+
+	private HttpEntity buildEntity( String json ) throws MorreClientException {
+		byte[] body = json.getBytes(DEFAULT_CHARSET);
+		if( requestCompression == Compression.NONE || body.length < compressionThreshold )
+			return new ByteArrayEntity(body, ContentType.APPLICATION_JSON);
+
+		// compressed into a byte array, so the entity stays repeatable and has a known length
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream( body.length / 4 + 64 );
+		try {
+			OutputStream out = requestCompression == Compression.GZIP ? new GZIPOutputStream(buffer) : new DeflaterOutputStream(buffer);
+			out.write(body);
+			out.close();
+		} catch (IOException e) {
+			throw new MorreClientException("Can not compress the request", e);
+		}
+
+		ByteArrayEntity entity = new ByteArrayEntity(buffer.toByteArray(), ContentType.APPLICATION_JSON);
+		entity.setContentEncoding( requestCompression.getContentEncoding() );
+		return entity;
+	}
+
+	/**
+	 * Returns the endpoint of a request, its path below the MORRE url, e.g. <code>query/model_query</code>.
+	 *
+	 * @param uri the uri of the request
+	 * @return the endpoint
+	 */
+	public String getEndpoint( URI uri ) {
+		String path = uri.getPath();
+		String base = morreUrl.getPath();
+		if( path != null && path.startsWith(base) )
+			return path.substring( base.length() );
+
+		return path;
+	}
+
+	private String buildUrl( URL base, String path ) throws MorreClientException {
+		try {
+			return new URL(base, path).toString();
+		} catch (MalformedURLException e) {
+			// Wrong formatted URL. We can definitely blame the library user for this.
+			// Except the awesome library developer uses it by himself, than we have to blame someone else... ;)
+			throw new MorreClientException("Exception while building the request url", e);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+	// responses
+
+	/**
+	 * Decodes the response entity with the given decoder. Transport and parsing errors are
+	 * thrown as {@link MorreCommunicationException}, errors reported by MORRE as {@link MorreException}.
+	 * The entity is not consumed or released, that is up to the caller.
+	 *
+	 * @param entity the response entity, may be null
+	 * @param decoder the decoder
+	 * @return the decoded result
+	 * @throws MorreCommunicationException the morre communication exception
+	 * @throws MorreException the morre exception
+	 */
+	public <R> R decode( HttpEntity entity, ResponseDecoder<R> decoder ) throws MorreCommunicationException, MorreException {
+
+		try {
+			return decoder.decode( openReader(entity) );
+		} catch (JsonParseException e) {
+			// Now our fates rests in God's hands... (... or we just throw an exception)
+			throw new MorreCommunicationException("Can not parse the result. Check for corrupt JSON!", e);
+		} catch (IOException e) {
+			// Something went wrong with the communication
+			throw new MorreCommunicationException("Error while HTTP Request.", e);
+		}
+	}
+
+	/**
+	 * Opens a JSON reader on the content of the response entity.
+	 *
+	 * @param entity the response entity, may be null
+	 * @return the reader
+	 * @throws IOException if the content can not be read
+	 */
+	JsonReader openReader( HttpEntity entity ) throws IOException {
+		Reader content = null;
+		if( entity != null )
+			content = new InputStreamReader( decompress(entity), getCharset(entity) );
+		else
+			content = new StringReader("");
+
+		// JsonReader buffers by itself, no need for a BufferedReader
+		return new JsonReader(content);
+	}
+
+	/**
+	 * Decompresses the content, if the entity is still encoded. The blocking client
+	 * decompresses by itself, the asynchronous one hands over the raw entity.
+	 */
+	private static InputStream decompress( HttpEntity entity ) throws IOException {
+		InputStream content = entity.getContent();
+		Header encoding = entity.getContentEncoding();
+		if( encoding == null || content == null )
+			return content;
+
+		String coding = encoding.getValue().trim().toLowerCase(Locale.ENGLISH);
+		if( coding.equals("gzip") || coding.equals("x-gzip") )
+			return new GZIPInputStream(content);
+		else if( coding.equals("deflate") )
+			// handles zlib wrapped and raw deflate streams, servers send both
+			return new DeflateInputStream(content);
+		else if( coding.isEmpty() || coding.equals("identity") )
+			return content;
+
+		throw new IOException("Unsupported content encoding " + coding);
+	}
+
+	private static Charset getCharset( HttpEntity entity ) {
+		ContentType contentType = ContentType.get(entity);
+		if( contentType != null && contentType.getCharset() != null )
+			return contentType.getCharset();
+
+		return DEFAULT_CHARSET;
+	}
+
+	public ResponseDecoder<List<String>> featureListDecoder() {
+		return new ResponseDecoder<List<String>>() {
+			@Override
+			public List<String> decode(JsonReader reader) throws IOException, MorreException {
+				try {
+					return gson.fromJson(reader, featureListType);
+				} catch (JsonSyntaxException e) {
+					throw new MorreException("Can not parse the FeatureSet List!", e);
+				}
+			}
+		};
+	}
+
+	public ResponseDecoder<List<ModelResult>> modelResultDecoder( Projection projection, MorreCrawlerInterface xmldocLoader ) {
+		return queryResultDecoder(ModelResult.class, projection, xmldocLoader);
+	}
+
+	public ResponseDecoder<List<PersonResult>> personResultDecoder() {
+		return queryResultDecoder(PersonResult.class, Projection.FULL, null);
+	}
+
+	public ResponseDecoder<List<PublicationResult>> publicationResultDecoder() {
+		return queryResultDecoder(PublicationResult.class, Projection.FULL, null);
+	}
+
+	public ResponseDecoder<List<AnnotationResult>> annotationResultDecoder() {
+		return queryResultDecoder(AnnotationResult.class, Projection.FULL, null);
+	}
+
+	public ResponseDecoder<List<String>> modelHistoryDecoder() {
+		return serviceResultDecoder(singleListType);
+	}
+
+	public ResponseDecoder<CrawledModel> crawledModelDecoder() {
+		return serviceResultDecoder(crawledModelType);
+	}
+
+	public ResponseDecoder<Boolean> addModelDecoder() {
+		final ResponseDecoder<Map<String, String>> mapDecoder = serviceResultDecoder(singleMapType);
+		return new ResponseDecoder<Boolean>() {
+			@Override
+			public Boolean decode(JsonReader reader) throws IOException, MorreException {
+				Map<String, String> parsedResult = mapDecoder.decode(reader);
+				if( log.isDebugEnabled() )
+					log.debug( "Result of " + SERVICE_ADD_MODEL_VERSION + ": " + parsedResult );
+
+				if( parsedResult != null && parsedResult.get(SKEY_OK).toLowerCase().equals("true") )
+					return true;
+				else
+					return false;
+			}
+		};
+	}
+
+	private <R> ResponseDecoder<List<R>> queryResultDecoder( final Class<R> elementType, final Projection projection, final MorreCrawlerInterface xmldocLoader ) {
+		return new ResponseDecoder<List<R>>() {
+			@Override
+			public List<R> decode(JsonReader reader) throws IOException, MorreException {
+				return parseQueryResult(reader, elementType, projection, xmldocLoader);
+			}
+		};
+	}
+
+	private <R> List<R> parseQueryResult( JsonReader reader, Class<R> elementType, Projection projection, MorreCrawlerInterface xmldocLoader ) throws IOException, MorreException {
+
+		if( !beginQueryResult(reader) )
+			return null;
+
+		// decodes the results one after the other, straight from the stream
+		List<R> result = new ArrayList<R>();
+		while( reader.hasNext() )
+			result.add( nextQueryResult(reader, elementType, projection, xmldocLoader) );
+		reader.endArray();
+
+		return result;
+	}
+
+	/**
+	 * Reads the beginning of a query result. If there are results, the reader is left in the result
+	 * array, in front of the first result.
+	 *
+	 * @param reader the reader at the beginning of the response
+	 * @return false, if there is no result at all
+	 * @throws IOException if the response can not be read or is no query result
+	 * @throws MorreException if MORRE reports an error
+	 */
+	boolean beginQueryResult( JsonReader reader ) throws IOException, MorreException {
+
+		// an empty response is no result at all
+		if( isEmptyDocument(reader) )
+			return false;
+
+		// a result list or an error message, either way it has to be an array
+		if( reader.peek() != JsonToken.BEGIN_ARRAY )
+			throw new JsonSyntaxException( "Expected a JSON array but was " + reader.peek() );
+
+		reader.beginArray();
+		if( reader.peek() == JsonToken.STRING ) {
+			// an array of Strings is not a result list -> try to get a error message out of it
+			List<String> errorResult = new ArrayList<String>();
+			while( reader.hasNext() )
+				errorResult.add( nextErrorValue(reader) );
+			reader.endArray();
+
+			// throws the error or reports no result
+			parseQueryError(errorResult);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Decodes the next result of a query result array.
+	 */
+	<R> R nextQueryResult( JsonReader reader, Class<R> elementType, Projection projection, MorreCrawlerInterface xmldocLoader ) {
+		boolean deferXmldoc = projection == Projection.METADATA;
+		R element = (deferXmldoc ? metadataGson : gson).fromJson(reader, elementType);
+		if( deferXmldoc && element instanceof Model )
+			((Model) element).deferXmldoc(xmldocLoader);
+		if( deduplicator != null )
+			deduplicator.deduplicate(element);
+		return element;
+	}
+
+	/**
+	 * Reads a value of an error array as a String, the way Gson reads a <code>List&lt;String&gt;</code>:
+	 * numbers and booleans are taken as text, null stays null. Anything else is no error message.
+	 */
+	private static String nextErrorValue( JsonReader reader ) throws IOException {
+		JsonToken token = reader.peek();
+		switch( token ) {
+			case STRING:
+			case NUMBER:
+				return reader.nextString();
+			case BOOLEAN:
+				return Boolean.toString( reader.nextBoolean() );
+			case NULL:
+				reader.nextNull();
+				return null;
+			default:
+				throw new JsonSyntaxException( "Expected a String in the error message but was " + token );
+		}
+	}
+
+	private void parseQueryError( List<String> errorResult ) throws MorreException {
+
+		if( ERROR_KEY_RESULTS.equals(errorResult.get(0)) ) {
+			// A result return. If the second value is 0, the database could not find an entry.
+			return;
+		}
+		else if( ERROR_KEY_EXCEPTION.equals(errorResult.get(0)) ) {
+			// We've got a database exception! Let's throw it!
+			if( errorResult.size() >= 2 )
+				// there is a second parameter, specifying the exact error
+				throw new MorreException( errorResult.get(1) );
+			else
+				// no explaining parameter, just an error.
+				throw new MorreException();
+		}
+		else {
+			// Something unknown was returned
+			throw new MorreException( MessageFormat.format("Unknown Result was returned by MORRE: {0}", errorResult) );
+		}
+	}
+
+	private static boolean isEmptyDocument( JsonReader reader ) throws IOException {
+		try {
+			reader.peek();
+			return false;
+		} catch (EOFException e) {
+			return true;
+		}
+	}
+
+	private <R> ResponseDecoder<R> serviceResultDecoder( final Type resultType ) {
+		return new ResponseDecoder<R>() {
+			@Override
+			public R decode(JsonReader reader) throws IOException, MorreException {
+				return parseServiceResult(reader, resultType);
+			}
+		};
+	}
+
+	private <R> R parseServiceResult( JsonReader reader, Type resultType ) throws MorreException {
+
+		// service results are small, except for the model document itself. The tree shares
+		// the document String with the resulting object, so it is held in memory only once.
+		JsonElement tree = new JsonParser().parse(reader);
+		if( tree.isJsonObject() ) {
+			// maybe it is full of exception, lets check that
+			JsonObject resultObject = tree.getAsJsonObject();
+			if( resultObject.has(SKEY_EXCEPTION) && resultObject.get(SKEY_EXCEPTION).isJsonPrimitive() )
+				// the object contains an exception element -> lets throw it!
+				analyseServiceException( resultObject.get(SKEY_EXCEPTION).getAsString() );
+		}
+
+		// not the result we've expected? The JsonSyntaxException ends up as communication error
+		return gson.fromJson(tree, resultType);
+	}
+
+	private void analyseServiceException( String exception ) throws MorreException {
+		throw new MorreException( "Server-Side exception while request: " + exception );
+	}
+
+	/**
+	 * Excludes the model document from decoding, its value is skipped by the JsonReader
+	 * without creating a String.
+	 */
+	private static class XmldocExclusionStrategy implements ExclusionStrategy {
+
+		@Override
+		public boolean shouldSkipField(FieldAttributes field) {
+			return field.getDeclaringClass() == Model.class && field.getName().equals("xmldoc");
+		}
+
+		@Override
+		public boolean shouldSkipClass(Class<?> clazz) {
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package de.unirostock.sems.morre.client.impl;
+
+import java.util.List;
+import java.util.ListIterator;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * Replaces repeated Strings of decoded query results by their canonical instance, see
+ * {@link HttpMorreClientConfig#setInternPoolSize(int)}.
+ * <p>
+ * The results are deduplicated in place, right after each of them is decoded: the URIs of related models and
+ * annotations, and the fields of the persons. Only Strings are pooled, every person stays an instance of its own,
+ * as it can be changed by its setters. The deduplicator is safe for concurrent use.
+ * </p>
+ *
+ */
+class ResultDeduplicator {
+
+	private final InternPool<String> uris;
+	private final InternPool<String> names;
+
+	/**
+	 * @param poolSize the maximum number of pooled URIs and of pooled person fields
+	 */
+	ResultDeduplicator( int poolSize ) {
+		this.uris = new InternPool<String>(poolSize);
+		this.names = new InternPool<String>(poolSize);
+	}
+
+	/**
+	 * Deduplicates the Strings of a decoded result.
+	 *
+	 * @param result the result, other objects than person, publication and annotation results are left as they are
+	 */
+	void deduplicate( Object result ) {
+		if( result instanceof PersonResult ) {
+			PersonResult person = (PersonResult) result;
+			deduplicate( person.getPerson() );
+			internUris( person.getRelatedModelsUri() );
+		}
+		else if( result instanceof PublicationResult ) {
+			PublicationResult publication = (PublicationResult) result;
+			deduplicate( publication.getPublication() );
+			internUris( publication.getRelatedModelsUri() );
+		}
+		else if( result instanceof AnnotationResult ) {
+			AnnotationResult annotation = (AnnotationResult) result;
+			annotation.setUri( uris.intern(annotation.getUri()) );
+			internUris( annotation.getRelatedModelsUri() );
+		}
+	}
+
+	private void deduplicate( Publication publication ) {
+		if( publication == null || publication.getAuthors() == null )
+			return;
+
+		for( Person author : publication.getAuthors() )
+			deduplicate(author);
+	}
+
+	private void deduplicate( Person person ) {
+		if( person == null )
+			return;
+
+		person.setFirstName( names.intern(person.getFirstName()) );
+		person.setLastName( names.intern(person.getLastName()) );
+		person.setEmail( names.intern(person.getEmail()) );
+		person.setOrganization( names.intern(person.getOrganization()) );
+	}
+
+	private void internUris( List<String> list ) {
+		if( list == null )
+			return;
+
+		ListIterator<String> iterator = list.listIterator();
+		while( iterator.hasNext() )
+			iterator.set( uris.intern(iterator.next()) );
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.unirostock.sems.morre.client.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the measurements of one endpoint, taken by {@link InMemoryMetrics}.
+ * Times are recorded in microseconds.
+ *
+ */
+public class EndpointStatistics {
+
+	private final String endpoint;
+	private final long requests;
+	private final Map<String, Long> errors;
+	private final long requestBytes;
+	private final long responseBytes;
+	private final Histogram latency;
+	private final Histogram decodeTime;
+
+	EndpointStatistics(String endpoint, long requests, Map<String, Long> errors, long requestBytes, long responseBytes, Histogram latency, Histogram decodeTime) {
+		this.endpoint = endpoint;
+		this.requests = requests;
+		this.errors = Collections.unmodifiableMap(errors);
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+		this.latency = latency;
+		this.decodeTime = decodeTime;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Returns the number of failed requests per simple name of the exception class.
+	 *
+	 * @return Map of exception class names to counts
+	 */
+	public Map<String, Long> getErrors() {
+		return errors;
+	}
+
+	public long getErrorCount() {
+		long count = 0;
+		for( Long errors : this.errors.values() )
+			count += errors;
+		return count;
+	}
+
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * Returns a percentile of the complete request time, including the decoding.
+	 *
+	 * @param percentile the percentile between 0 and 100
+	 * @param unit the unit of the result
+	 * @return the time
+	 */
+	public long getLatency( double percentile, TimeUnit unit ) {
+		return unit.convert( latency.getPercentile(percentile), TimeUnit.MICROSECONDS );
+	}
+
+	/**
+	 * Returns a percentile of the time spent decoding the responses.
+	 *
+	 * @param percentile the percentile between 0 and 100
+	 * @param unit the unit of the result
+	 * @return the time
+	 */
+	public long getDecodeTime( double percentile, TimeUnit unit ) {
+		return unit.convert( decodeTime.getPercentile(percentile), TimeUnit.MICROSECONDS );
+	}
+
+	public Histogram getLatencyHistogram() {
+		return latency.copy();
+	}
+
+	public Histogram getDecodeTimeHistogram() {
+		return decodeTime.copy();
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointStatistics [endpoint=" + endpoint + ", requests=" + requests + ", errors=" + errors
+				+ ", latency p50/p90/p99=" + latency.getPercentile(50) + "/" + latency.getPercentile(90) + "/" + latency.getPercentile(99) + "us"
+				+ ", decode p50/p99=" + decodeTime.getPercentile(50) + "/" + decodeTime.getPercentile(99) + "us"
+				+ ", requestBytes=" + requestBytes + ", responseBytes=" + responseBytes + "]";
+	}
+
+}
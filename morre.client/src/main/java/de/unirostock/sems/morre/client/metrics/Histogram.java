@@ -0,0 +1,105 @@
+package de.unirostock.sems.morre.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of positive values with logarithmic buckets.
+ * <p>
+ * Every power of two is split into 8 buckets, so a percentile is off by at most 12.5%, which is plenty
+ * for latencies. Values below 8 are counted exactly. Recording is a single atomic increment, without
+ * any allocation.
+ * </p>
+ *
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+
+	public Histogram() {
+		counts = new AtomicLongArray(BUCKETS);
+	}
+
+	private Histogram( Histogram other ) {
+		counts = new AtomicLongArray(BUCKETS);
+		for( int i = 0; i < BUCKETS; i++ )
+			counts.set( i, other.counts.get(i) );
+	}
+
+	/**
+	 * Counts a value, negative values are counted as 0.
+	 *
+	 * @param value the value
+	 */
+	public void record( long value ) {
+		counts.incrementAndGet( bucketOf( Math.max(value, 0) ) );
+	}
+
+	public long getCount() {
+		long count = 0;
+		for( int i = 0; i < BUCKETS; i++ )
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded values lies, as the upper bound of its bucket.
+	 *
+	 * @param percentile the percentile between 0 and 100
+	 * @return the value or 0 if nothing was recorded
+	 */
+	public long getPercentile( double percentile ) {
+		if( percentile < 0 || percentile > 100 )
+			throw new IllegalArgumentException("percentile has to be between 0 and 100");
+
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for( int i = 0; i < BUCKETS; i++ ) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if( total == 0 )
+			return 0;
+
+		long rank = Math.max( 1, (long) Math.ceil(percentile / 100 * total) );
+		long seen = 0;
+		for( int i = 0; i < BUCKETS; i++ ) {
+			seen += snapshot[i];
+			if( seen >= rank )
+				return upperBoundOf(i);
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+	/**
+	 * Returns a copy of the current counts.
+	 *
+	 * @return the copy
+	 */
+	public Histogram copy() {
+		return new Histogram(this);
+	}
+
+	static int bucketOf( long value ) {
+		if( value < SUB_BUCKETS )
+			return (int) value;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long upperBoundOf( int bucket ) {
+		if( bucket < SUB_BUCKETS )
+			return bucket;
+
+		int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + sub) << (magnitude - SUB_BUCKET_BITS);
+		return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.unirostock.sems.morre.client.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link MorreMetricsListener}, which keeps counters and histograms per endpoint in memory.
+ * <p>
+ * Recording does not lock and does not allocate once an endpoint and an exception class was seen,
+ * so it is suitable for clients shared by many threads. The statistics are read as snapshots.
+ * </p>
+ *
+ */
+public class InMemoryMetrics implements MorreMetricsListener {
+
+	private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+	@Override
+	public void requestCompleted( RequestMetrics metrics ) {
+		Endpoint endpoint = endpoints.get( metrics.getEndpoint() );
+		if( endpoint == null ) {
+			endpoints.putIfAbsent( metrics.getEndpoint(), new Endpoint() );
+			endpoint = endpoints.get( metrics.getEndpoint() );
+		}
+		endpoint.record(metrics);
+	}
+
+	/**
+	 * Returns the statistics of one endpoint.
+	 *
+	 * @param endpoint the endpoint, e.g. <code>query/model_query</code>
+	 * @return the statistics or null if there was no request to it
+	 */
+	public EndpointStatistics getStatistics( String endpoint ) {
+		Endpoint statistics = endpoints.get(endpoint);
+		return statistics != null ? statistics.snapshot(endpoint) : null;
+	}
+
+	/**
+	 * Returns the statistics of all endpoints.
+	 *
+	 * @return Map of endpoints to statistics, sorted by endpoint
+	 */
+	public Map<String, EndpointStatistics> getStatistics() {
+		Map<String, EndpointStatistics> statistics = new TreeMap<String, EndpointStatistics>();
+		for( Map.Entry<String, Endpoint> entry : endpoints.entrySet() )
+			statistics.put( entry.getKey(), entry.getValue().snapshot(entry.getKey()) );
+		return statistics;
+	}
+
+	public void reset() {
+		endpoints.clear();
+	}
+
+	/**
+	 * Formats the statistics of all endpoints, one line each.
+	 *
+	 * @return the report
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		for( EndpointStatistics statistics : getStatistics().values() ) {
+			report.append( String.format("%-45s requests=%d errors=%d latency[ms] p50=%.1f p90=%.1f p99=%.1f decode[ms] p50=%.1f p99=%.1f bytes out=%d in=%d%n",
+					statistics.getEndpoint(), statistics.getRequests(), statistics.getErrorCount(),
+					millis(statistics, 50, false), millis(statistics, 90, false), millis(statistics, 99, false),
+					millis(statistics, 50, true), millis(statistics, 99, true),
+					statistics.getRequestBytes(), statistics.getResponseBytes()) );
+		}
+		return report.toString();
+	}
+
+	private static double millis( EndpointStatistics statistics, double percentile, boolean decode ) {
+		long micros = decode ? statistics.getDecodeTime(percentile, TimeUnit.MICROSECONDS) : statistics.getLatency(percentile, TimeUnit.MICROSECONDS);
+		return micros / 1000.0;
+	}
+
+	private static class Endpoint {
+
+		private final LongAdder requests = new LongAdder();
+		private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<String, LongAdder>();
+		private final LongAdder requestBytes = new LongAdder();
+		private final LongAdder responseBytes = new LongAdder();
+		private final Histogram latency = new Histogram();
+		private final Histogram decodeTime = new Histogram();
+
+		public void record( RequestMetrics metrics ) {
+			requests.increment();
+			requestBytes.add( metrics.getRequestBytes() );
+			responseBytes.add( metrics.getResponseBytes() );
+			latency.record( TimeUnit.NANOSECONDS.toMicros(metrics.getTotalNanos()) );
+			decodeTime.record( TimeUnit.NANOSECONDS.toMicros(metrics.getDecodeNanos()) );
+
+			if( metrics.getFailure() != null ) {
+				String type = metrics.getFailure().getClass().getSimpleName();
+				LongAdder count = errors.get(type);
+				if( count == null ) {
+					errors.putIfAbsent( type, new LongAdder() );
+					count = errors.get(type);
+				}
+				count.increment();
+			}
+		}
+
+		public EndpointStatistics snapshot( String endpoint ) {
+			Map<String, Long> errorCounts = new HashMap<String, Long>();
+			for( Map.Entry<String, LongAdder> entry : errors.entrySet() )
+				errorCounts.put( entry.getKey(), entry.getValue().sum() );
+
+			return new EndpointStatistics( endpoint, requests.sum(), errorCounts, requestBytes.sum(), responseBytes.sum(), latency.copy(), decodeTime.copy() );
+		}
+
+	}
+
+}
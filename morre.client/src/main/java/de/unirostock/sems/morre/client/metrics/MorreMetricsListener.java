@@ -0,0 +1,22 @@
+package de.unirostock.sems.morre.client.metrics;
+
+/**
+ * Receives the measurements of every request of a client, see
+ * {@link de.unirostock.sems.morre.client.impl.HttpMorreClient#setMetricsListener(MorreMetricsListener) HttpMorreClient}.
+ * <p>
+ * The listener is called on the requesting thread after the response is decoded or the request failed,
+ * so it has to be fast and thread-safe. {@link InMemoryMetrics} is the default implementation, other
+ * implementations may forward the measurements to a monitoring system.
+ * </p>
+ *
+ */
+public interface MorreMetricsListener {
+
+	/**
+	 * Called once for every completed or failed request.
+	 *
+	 * @param metrics the measurements of the request
+	 */
+	public void requestCompleted( RequestMetrics metrics );
+
+}
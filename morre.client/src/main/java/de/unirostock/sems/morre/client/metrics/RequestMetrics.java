@@ -0,0 +1,95 @@
+package de.unirostock.sems.morre.client.metrics;
+
+/**
+ * Measurements of a single request.
+ * <p>
+ * The response time lasts from sending the request until the response headers arrived, so it
+ * covers the network and the processing within MORRE. The decode time covers reading the body
+ * and decoding the JSON. The byte counts are those of the bodies, after decompression.
+ * </p>
+ *
+ */
+public class RequestMetrics {
+
+	private final String endpoint;
+	private final int statusCode;
+	private final long responseNanos;
+	private final long decodeNanos;
+	private final long requestBytes;
+	private final long responseBytes;
+	private final Exception failure;
+
+	public RequestMetrics(String endpoint, int statusCode, long responseNanos, long decodeNanos, long requestBytes, long responseBytes, Exception failure) {
+		this.endpoint = endpoint;
+		this.statusCode = statusCode;
+		this.responseNanos = responseNanos;
+		this.decodeNanos = decodeNanos;
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+		this.failure = failure;
+	}
+
+	/**
+	 * Returns the path of the endpoint below the MORRE url, e.g. <code>query/model_query</code>
+	 * or <code>model_crawler_service/get_model_version</code>.
+	 *
+	 * @return the endpoint
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Returns the HTTP status of the response or -1 if no response was received.
+	 *
+	 * @return the status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public long getResponseNanos() {
+		return responseNanos;
+	}
+
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	/**
+	 * Returns the complete time of the request.
+	 *
+	 * @return the response and decode time in ns
+	 */
+	public long getTotalNanos() {
+		return responseNanos + decodeNanos;
+	}
+
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * Returns the exception thrown by the request, or null if it succeeded.
+	 *
+	 * @return the failure
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestMetrics [endpoint=" + endpoint + ", statusCode=" + statusCode + ", responseNanos=" + responseNanos + ", decodeNanos=" + decodeNanos
+				+ ", requestBytes=" + requestBytes + ", responseBytes=" + responseBytes + ", failure=" + failure + "]";
+	}
+
+}
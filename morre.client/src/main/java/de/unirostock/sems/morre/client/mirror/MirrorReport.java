@@ -0,0 +1,66 @@
+package de.unirostock.sems.morre.client.mirror;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link ModelMirror#refresh(java.util.Collection) refresh}.
+ *
+ */
+public class MirrorReport {
+
+	private final int models;
+	private final long historyCalls;
+	private final long fetchedVersions;
+	private final Map<String, Exception> failures;
+
+	MirrorReport(int models, long historyCalls, long fetchedVersions, Map<String, Exception> failures) {
+		this.models = models;
+		this.historyCalls = historyCalls;
+		this.fetchedVersions = fetchedVersions;
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * Returns the number of models to refresh.
+	 *
+	 * @return the number of models
+	 */
+	public int getModels() {
+		return models;
+	}
+
+	public long getHistoryCalls() {
+		return historyCalls;
+	}
+
+	/**
+	 * Returns the number of new versions fetched and stored.
+	 *
+	 * @return the fetched versions
+	 */
+	public long getFetchedVersions() {
+		return fetchedVersions;
+	}
+
+	/**
+	 * Returns the models, which could not be refreshed completely, with the first exception for each of them.
+	 * Versions fetched before the failure are kept.
+	 *
+	 * @return Map of file ids to exceptions
+	 */
+	public Map<String, Exception> getFailures() {
+		return failures;
+	}
+
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "MirrorReport [models=" + models + ", historyCalls=" + historyCalls + ", fetchedVersions=" + fetchedVersions
+				+ ", failures=" + failures.size() + "]";
+	}
+
+}
@@ -0,0 +1,156 @@
+package de.unirostock.sems.morre.client.mirror;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * Keeps a local mirror of model versions up to date, downloading only the versions it does not know yet.
+ * <p>
+ * For every model the history is requested through {@link MorreCrawlerInterface#getModelHistory(String)},
+ * the versions missing in the {@link VersionIndex} are fetched with
+ * {@link MorreCrawlerInterface#getModelVersion(String, String)} and handed to the {@link ModelVersionSink}.
+ * Versions are immutable, so a known version is never downloaded again. Several models are refreshed in parallel.
+ * </p>
+ * The crawler interface is shared by all threads, an {@link de.unirostock.sems.morre.client.impl.HttpMorreClient HttpMorreClient}
+ * should run in pooling mode with at least as many connections as threads. The mirror has to be {@link #close() closed}
+ * to stop its threads.
+ *
+ */
+public class ModelMirror implements Closeable {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	/** default number of models refreshed in parallel */
+	public static final int DEFAULT_PARALLELISM = 8;
+
+	private final MorreCrawlerInterface crawler;
+	private final VersionIndex index;
+	private final ModelVersionSink sink;
+	private final ExecutorService executor;
+
+	public ModelMirror(MorreCrawlerInterface crawler, VersionIndex index, ModelVersionSink sink) {
+		this(crawler, index, sink, DEFAULT_PARALLELISM);
+	}
+
+	public ModelMirror(MorreCrawlerInterface crawler, VersionIndex index, ModelVersionSink sink, int parallelism) {
+		if( crawler == null || index == null || sink == null )
+			throw new IllegalArgumentException("crawler, index and sink must not be null");
+		if( parallelism <= 0 )
+			throw new IllegalArgumentException("parallelism has to be positive");
+
+		this.crawler = crawler;
+		this.index = index;
+		this.sink = sink;
+
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		executor = Executors.newFixedThreadPool( parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "morre-mirror-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public VersionIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Fetches all versions of the given models, which are not in the index yet. A failing model
+	 * does not abort the refresh, it is reported in the {@link MirrorReport}.
+	 *
+	 * @param fileIds the file ids of the models
+	 * @return the report
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public MirrorReport refresh( Collection<String> fileIds ) throws InterruptedException {
+
+		final AtomicLong historyCalls = new AtomicLong(0);
+		final AtomicLong fetched = new AtomicLong(0);
+		final Map<String, Exception> failures = new ConcurrentHashMap<String, Exception>();
+
+		// every model once
+		Collection<String> models = new LinkedHashSet<String>(fileIds);
+		List<Future<?>> tasks = new ArrayList<Future<?>>( models.size() );
+		for( final String fileId : models ) {
+			tasks.add( executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						fetched.addAndGet( refreshModel(fileId, historyCalls) );
+					} catch (Exception e) {
+						log.warn("Can not refresh the mirror of " + fileId, e);
+						failures.put(fileId, e);
+					}
+				}
+			}) );
+		}
+
+		try {
+			for( Future<?> task : tasks )
+				task.get();
+		} catch (ExecutionException e) {
+			// the tasks catch everything but errors
+			throw new IllegalStateException("Refresh of the mirror failed", e.getCause());
+		} catch (InterruptedException e) {
+			for( Future<?> task : tasks )
+				task.cancel(true);
+			throw e;
+		}
+
+		return new MirrorReport( models.size(), historyCalls.get(), fetched.get(), failures );
+	}
+
+	private int refreshModel( String fileId, AtomicLong historyCalls ) throws Exception {
+		historyCalls.incrementAndGet();
+		List<String> history = crawler.getModelHistory(fileId);
+		if( history == null )
+			return 0;
+
+		int fetched = 0;
+		for( String versionId : history ) {
+			if( index.contains(fileId, versionId) )
+				continue;
+
+			CrawledModel model = crawler.getModelVersion(fileId, versionId);
+			if( model == null )
+				throw new MorreException( "No model version " + versionId + " of " + fileId + " available" );
+
+			sink.store(model);
+			index.add(fileId, versionId);
+			fetched++;
+		}
+
+		return fetched;
+	}
+
+	/**
+	 * Stops the threads of the mirror. The crawler interface is not closed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,25 @@
+package de.unirostock.sems.morre.client.mirror;
+
+import java.io.IOException;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+
+/**
+ * Receives the model versions fetched by the {@link ModelMirror}, e.g. to write them into the local replica.
+ * <p>
+ * The sink is called from several threads at the same time. A version is added to the
+ * {@link VersionIndex} only after the sink accepted it.
+ * </p>
+ *
+ */
+public interface ModelVersionSink {
+
+	/**
+	 * Stores a new model version.
+	 *
+	 * @param model the model version
+	 * @throws IOException if the version can not be stored, it is fetched again on the next refresh
+	 */
+	public void store( CrawledModel model ) throws IOException;
+
+}
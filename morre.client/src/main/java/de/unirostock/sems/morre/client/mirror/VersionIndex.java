@@ -0,0 +1,141 @@
+package de.unirostock.sems.morre.client.mirror;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the model versions known to a local mirror, as pairs of file id and version id.
+ * <p>
+ * The index is safe to use from many threads. It can be stored in a simple text file,
+ * one tab separated <code>fileId versionId</code> pair per line.
+ * </p>
+ *
+ */
+public class VersionIndex {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final char SEPARATOR = '\t';
+
+	private final ConcurrentHashMap<String, Set<String>> versions = new ConcurrentHashMap<String, Set<String>>();
+
+	/**
+	 * Checks if the version of the model is known.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id
+	 * @return true, if the version is in the index
+	 */
+	public boolean contains( String fileId, String versionId ) {
+		Set<String> known = versions.get(fileId);
+		return known != null && known.contains(versionId);
+	}
+
+	/**
+	 * Adds the version of the model.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id
+	 * @return true, if the version was not known before
+	 */
+	public boolean add( String fileId, String versionId ) {
+		Set<String> known = versions.get(fileId);
+		if( known == null ) {
+			Set<String> created = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+			known = versions.putIfAbsent(fileId, created);
+			if( known == null )
+				known = created;
+		}
+
+		return known.add(versionId);
+	}
+
+	/**
+	 * Returns the known versions of the model.
+	 *
+	 * @param fileId the file id
+	 * @return List of the version ids, empty if the model is unknown
+	 */
+	public List<String> getVersions( String fileId ) {
+		Set<String> known = versions.get(fileId);
+		return known != null ? new ArrayList<String>(known) : new ArrayList<String>();
+	}
+
+	/**
+	 * Returns the number of known versions of all models.
+	 *
+	 * @return the number of versions
+	 */
+	public long size() {
+		long size = 0;
+		for( Set<String> known : versions.values() )
+			size += known.size();
+		return size;
+	}
+
+	/**
+	 * Reads an index file written by {@link #save(File)}.
+	 *
+	 * @param file the file
+	 * @return the index, empty if the file does not exist
+	 * @throws IOException if the file can not be read
+	 */
+	public static VersionIndex load( File file ) throws IOException {
+		VersionIndex index = new VersionIndex();
+		if( !file.exists() )
+			return index;
+
+		BufferedReader reader = new BufferedReader( new InputStreamReader(new FileInputStream(file), UTF8) );
+		try {
+			String line;
+			while( (line = reader.readLine()) != null ) {
+				int separator = line.indexOf(SEPARATOR);
+				if( separator > 0 )
+					index.add( line.substring(0, separator), line.substring(separator + 1) );
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		return index;
+	}
+
+	/**
+	 * Writes the index into a file. The file is replaced atomically, a crash does not leave a partial index.
+	 *
+	 * @param file the file
+	 * @throws IOException if the file can not be written
+	 */
+	public void save( File file ) throws IOException {
+		File temp = new File( file.getPath() + ".tmp" );
+		Writer writer = new BufferedWriter( new OutputStreamWriter(new FileOutputStream(temp), UTF8) );
+		try {
+			for( Map.Entry<String, Set<String>> model : versions.entrySet() ) {
+				for( String versionId : model.getValue() )
+					writer.append( model.getKey() ).append(SEPARATOR).append(versionId).append('\n');
+			}
+		}
+		finally {
+			writer.close();
+		}
+
+		Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+	}
+
+}
@@ -0,0 +1,78 @@
+package de.unirostock.sems.morre.client.resilience;
+
+/**
+ * Circuit breaker of a single endpoint.
+ * <p>
+ * The circuit opens after a number of consecutive failures. While it is open, no call is allowed.
+ * Once the open duration has passed, a single call is let through as probe: its success closes the
+ * circuit, its failure opens it again.
+ * </p>
+ *
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openDurationNanos;
+
+	private State state = State.CLOSED;
+	private int failures = 0;
+	private long openedAt = 0;
+	private boolean probing = false;
+
+	public CircuitBreaker(int failureThreshold, long openDuration) {
+		this.failureThreshold = failureThreshold;
+		this.openDurationNanos = openDuration * 1000000L;
+	}
+
+	/**
+	 * Checks whether a call may be made. A true result in the half open state reserves the single probe,
+	 * the caller has to report its outcome.
+	 *
+	 * @return true, if the call may be made
+	 */
+	public synchronized boolean allowRequest() {
+		if( state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos ) {
+			state = State.HALF_OPEN;
+			probing = false;
+		}
+
+		if( state == State.CLOSED )
+			return true;
+		if( state == State.HALF_OPEN && !probing ) {
+			probing = true;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized void recordSuccess() {
+		state = State.CLOSED;
+		failures = 0;
+		probing = false;
+	}
+
+	public synchronized void recordFailure() {
+		failures++;
+		if( state == State.HALF_OPEN || failures >= failureThreshold ) {
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+			probing = false;
+		}
+	}
+
+	/**
+	 * Reports a call, which says nothing about the health of the endpoint, e.g. one rejected by the client itself.
+	 */
+	public synchronized void recordIgnored() {
+		probing = false;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+}
@@ -0,0 +1,24 @@
+package de.unirostock.sems.morre.client.resilience;
+
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+
+/**
+ * Thrown instead of calling an endpoint, whose circuit is open.
+ *
+ */
+public class CircuitOpenException extends MorreCommunicationException {
+
+	private static final long serialVersionUID = -2409561371632279842L;
+
+	private final String endpoint;
+
+	public CircuitOpenException(String endpoint) {
+		super("The circuit of " + endpoint + " is open, MORRE is not called");
+		this.endpoint = endpoint;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+}
@@ -0,0 +1,188 @@
+package de.unirostock.sems.morre.client.resilience;
+
+import java.io.Serializable;
+
+/**
+ * Configuration of the {@link ResilientMorre}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The client copies
+ * the configuration on construction.
+ * </p>
+ *
+ */
+public class ResilienceConfig implements Serializable {
+
+	private static final long serialVersionUID = 4533826384960532216L;
+
+	/** default number of attempts of an idempotent call, including the first one */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	/** default delay before the first retry in ms */
+	public static final long DEFAULT_INITIAL_BACKOFF = 100;
+	/** default upper limit of the delay between two attempts in ms */
+	public static final long DEFAULT_MAX_BACKOFF = 5000;
+	/** default factor the delay grows by with every retry */
+	public static final double DEFAULT_BACKOFF_MULTIPLIER = 2.0;
+	/** default fraction of the delay, which is randomized */
+	public static final double DEFAULT_JITTER = 0.5;
+	/** default number of consecutive failures, which open the circuit of an endpoint */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	/** default time a circuit stays open in ms */
+	public static final long DEFAULT_OPEN_DURATION = 30000;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+	private long maxBackoff = DEFAULT_MAX_BACKOFF;
+	private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+	private double jitter = DEFAULT_JITTER;
+	private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+	private long openDuration = DEFAULT_OPEN_DURATION;
+
+	public ResilienceConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public ResilienceConfig( ResilienceConfig other ) {
+		this.maxAttempts = other.maxAttempts;
+		this.initialBackoff = other.initialBackoff;
+		this.maxBackoff = other.maxBackoff;
+		this.backoffMultiplier = other.backoffMultiplier;
+		this.jitter = other.jitter;
+		this.failureThreshold = other.failureThreshold;
+		this.openDuration = other.openDuration;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Sets the number of attempts of an idempotent call, including the first one. 1 disables the retries.
+	 * Calls changing the database, like adding a model, are never retried.
+	 *
+	 * @param maxAttempts the number of attempts
+	 * @return this config
+	 */
+	public ResilienceConfig setMaxAttempts( int maxAttempts ) {
+		if( maxAttempts <= 0 )
+			throw new IllegalArgumentException("maxAttempts has to be positive");
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	/**
+	 * Sets the delay before the first retry.
+	 *
+	 * @param initialBackoff the delay in ms
+	 * @return this config
+	 */
+	public ResilienceConfig setInitialBackoff( long initialBackoff ) {
+		if( initialBackoff < 0 )
+			throw new IllegalArgumentException("initialBackoff must not be negative");
+		this.initialBackoff = initialBackoff;
+		return this;
+	}
+
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/**
+	 * Sets the upper limit of the delay between two attempts.
+	 *
+	 * @param maxBackoff the delay in ms
+	 * @return this config
+	 */
+	public ResilienceConfig setMaxBackoff( long maxBackoff ) {
+		if( maxBackoff < 0 )
+			throw new IllegalArgumentException("maxBackoff must not be negative");
+		this.maxBackoff = maxBackoff;
+		return this;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	/**
+	 * Sets the factor the delay grows by with every retry.
+	 *
+	 * @param backoffMultiplier the factor, at least 1
+	 * @return this config
+	 */
+	public ResilienceConfig setBackoffMultiplier( double backoffMultiplier ) {
+		if( backoffMultiplier < 1 )
+			throw new IllegalArgumentException("backoffMultiplier has to be at least 1");
+		this.backoffMultiplier = backoffMultiplier;
+		return this;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Sets the fraction of the delay, which is randomized. With a jitter of 0.5 a delay of 200ms becomes
+	 * anything between 100ms and 200ms, so clients failing at the same time do not retry at the same time.
+	 *
+	 * @param jitter the fraction between 0 and 1
+	 * @return this config
+	 */
+	public ResilienceConfig setJitter( double jitter ) {
+		if( jitter < 0 || jitter > 1 )
+			throw new IllegalArgumentException("jitter has to be between 0 and 1");
+		this.jitter = jitter;
+		return this;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Sets the number of consecutive communication failures of an endpoint, which open its circuit.
+	 * While the circuit is open, calls to the endpoint fail immediately.
+	 *
+	 * @param failureThreshold the number of failures
+	 * @return this config
+	 */
+	public ResilienceConfig setFailureThreshold( int failureThreshold ) {
+		if( failureThreshold <= 0 )
+			throw new IllegalArgumentException("failureThreshold has to be positive");
+		this.failureThreshold = failureThreshold;
+		return this;
+	}
+
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	/**
+	 * Sets the time a circuit stays open. Afterwards a single call is let through as probe,
+	 * its success closes the circuit again.
+	 *
+	 * @param openDuration the duration in ms
+	 * @return this config
+	 */
+	public ResilienceConfig setOpenDuration( long openDuration ) {
+		if( openDuration <= 0 )
+			throw new IllegalArgumentException("openDuration has to be positive");
+		this.openDuration = openDuration;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "ResilienceConfig [maxAttempts=" + maxAttempts + ", initialBackoff=" + initialBackoff + ", maxBackoff=" + maxBackoff
+				+ ", backoffMultiplier=" + backoffMultiplier + ", jitter=" + jitter + ", failureThreshold=" + failureThreshold
+				+ ", openDuration=" + openDuration + "]";
+	}
+
+}
@@ -0,0 +1,351 @@
+package de.unirostock.sems.morre.client.resilience;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.FeatureSet;
+import de.unirostock.sems.morre.client.Morre;
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.Projection;
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+
+/**
+ * Decorator of the {@link Morre} and {@link MorreCrawlerInterface}, which retries failed calls and
+ * stops calling an endpoint, which keeps failing.
+ * <p>
+ * Idempotent calls (all queries, the model history and the model versions) are retried on a
+ * {@link MorreCommunicationException} with exponential backoff and jitter, see {@link ResilienceConfig}.
+ * A {@link MorreException} is an answer of MORRE and is never retried, neither is a {@link MorreClientException}.
+ * Adding a model is not idempotent and therefore tried only once.
+ * </p>
+ * <p>
+ * Every endpoint, e.g. <code>query/model_query</code>, has its own {@link CircuitBreaker}. After too many
+ * consecutive communication failures its circuit opens and the calls fail with a {@link CircuitOpenException}
+ * without reaching MORRE, until a probe after the open duration succeeds. Retrying threads block while they
+ * wait for the next attempt. The decorator is safe to use from many threads.
+ * </p>
+ *
+ */
+public class ResilientMorre implements Morre, MorreCrawlerInterface {
+
+	private static final long serialVersionUID = 8841709123722419618L;
+
+	private static final Log log = LogFactory.getLog( ResilientMorre.class );
+
+	private final Morre morre;
+	private final MorreCrawlerInterface crawler;
+	private final ResilienceConfig config;
+	private transient ConcurrentMap<String, CircuitBreaker> breakers;
+
+	/**
+	 * Protects the queries only, the crawler calls are rejected.
+	 *
+	 * @param morre the client to decorate
+	 * @param config the config
+	 */
+	public ResilientMorre(Morre morre, ResilienceConfig config) {
+		this(morre, null, config);
+	}
+
+	/**
+	 * Protects the queries and the crawler calls, which may be made by the same client.
+	 *
+	 * @param morre the client for the queries
+	 * @param crawler the client for the crawler calls, may be null
+	 * @param config the config
+	 */
+	public ResilientMorre(Morre morre, MorreCrawlerInterface crawler, ResilienceConfig config) {
+		if( morre == null )
+			throw new IllegalArgumentException("morre must not be null");
+
+		this.morre = morre;
+		this.crawler = crawler;
+		this.config = new ResilienceConfig(config);
+		this.breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	}
+
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		// a deserialized client starts with closed circuits
+		breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	}
+
+	/**
+	 * Returns the configuration of this decorator.
+	 *
+	 * @return a copy of the config
+	 */
+	public ResilienceConfig getConfig() {
+		return new ResilienceConfig(config);
+	}
+
+	/**
+	 * Returns the state of the circuit of an endpoint.
+	 *
+	 * @param endpoint the endpoint, e.g. <code>query/model_query</code>
+	 * @return the state
+	 */
+	public CircuitBreaker.State getCircuitState( String endpoint ) {
+		CircuitBreaker breaker = breakers.get(endpoint);
+		return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+	}
+
+	/**
+	 * Returns the states of all circuits, which were used so far.
+	 *
+	 * @return Map of endpoints to circuit states
+	 */
+	public Map<String, CircuitBreaker.State> getCircuitStates() {
+		Map<String, CircuitBreaker.State> states = new TreeMap<String, CircuitBreaker.State>();
+		for( Map.Entry<String, CircuitBreaker> entry : breakers.entrySet() )
+			states.put( entry.getKey(), entry.getValue().getState() );
+		return states;
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> modelQuery(String query, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(QueryType.MODEL_QUERY, query, projection);
+	}
+
+	@Override
+	public List<ModelResult> aggregatedModelQuery(String query, String aggregationType, String rankerWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleAggregatedModelQuery(QueryType.AGGREGATED_MODEL_QUERY, query, aggregationType, rankerWeights);
+	}
+
+	@Override
+	public List<String> getQueryFeatures(final String queryType) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(queryType), true, new Call<List<String>>() {
+			@Override
+			public List<String> call() throws MorreException, MorreCommunicationException {
+				return morre.getQueryFeatures(queryType);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(String queryType, FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doModelQuery(queryType, features, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doModelQuery(final String queryType, final FeatureSet features, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(queryType), true, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doModelQuery(queryType, features, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(String queryType, String keyword) throws MorreException, MorreClientException, MorreCommunicationException {
+		return doSimpleModelQuery(queryType, keyword, Projection.FULL);
+	}
+
+	@Override
+	public List<ModelResult> doSimpleModelQuery(final String queryType, final String keyword, final Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(queryType), true, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doSimpleModelQuery(queryType, keyword, projection);
+			}
+		});
+	}
+
+	@Override
+	public List<ModelResult> doSimpleAggregatedModelQuery(final String queryType, final String keyword, final String aggregationType, final String rankersWeights) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(queryType), true, new Call<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doSimpleAggregatedModelQuery(queryType, keyword, aggregationType, rankersWeights);
+			}
+		});
+	}
+
+	@Override
+	public List<PersonResult> doPersonQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(QueryType.PERSON_QUERY), true, new Call<List<PersonResult>>() {
+			@Override
+			public List<PersonResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doPersonQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<PublicationResult> doPublicationQuery(final FeatureSet features) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(QueryType.PUBLICATION_QUERY), true, new Call<List<PublicationResult>>() {
+			@Override
+			public List<PublicationResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doPublicationQuery(features);
+			}
+		});
+	}
+
+	@Override
+	public List<AnnotationResult> doAnnotationQuery(final String query) throws MorreException, MorreClientException, MorreCommunicationException {
+		return call( queryEndpoint(QueryType.ANNOTATION_QUERY), true, new Call<List<AnnotationResult>>() {
+			@Override
+			public List<AnnotationResult> call() throws MorreException, MorreCommunicationException {
+				return morre.doAnnotationQuery(query);
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public List<String> getModelHistory(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return call( MorreProtocol.SERVICE_GET_MODEL_HISTORY, true, new Call<List<String>>() {
+			@Override
+			public List<String> call() throws MorreException, MorreCommunicationException {
+				return crawler.getModelHistory(fileId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getModelVersion(final String fileId, final String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return call( MorreProtocol.SERVICE_GET_MODEL_VERSION, true, new Call<CrawledModel>() {
+			@Override
+			public CrawledModel call() throws MorreException, MorreCommunicationException {
+				return crawler.getModelVersion(fileId, versionId);
+			}
+		});
+	}
+
+	@Override
+	public CrawledModel getLatestModelVersion(final String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return call( MorreProtocol.SERVICE_GET_LATEST_MODEL, true, new Call<CrawledModel>() {
+			@Override
+			public CrawledModel call() throws MorreException, MorreCommunicationException {
+				return crawler.getLatestModelVersion(fileId);
+			}
+		});
+	}
+
+	@Override
+	public boolean addModel(final CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
+		final MorreCrawlerInterface crawler = getCrawler();
+		return call( MorreProtocol.SERVICE_ADD_MODEL_VERSION, false, new Call<Boolean>() {
+			@Override
+			public Boolean call() throws MorreException, MorreCommunicationException {
+				return crawler.addModel(model);
+			}
+		});
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * A single attempt of a call.
+	 */
+	private interface Call<R> {
+		public R call() throws MorreException, MorreCommunicationException;
+	}
+
+	private <R> R call( String endpoint, boolean idempotent, Call<R> call ) throws MorreException, MorreCommunicationException {
+		CircuitBreaker breaker = getBreaker(endpoint);
+		int maxAttempts = idempotent ? config.getMaxAttempts() : 1;
+
+		for( int attempt = 1; ; attempt++ ) {
+			if( !breaker.allowRequest() )
+				throw new CircuitOpenException(endpoint);
+
+			boolean reported = false;
+			try {
+				R result = call.call();
+				breaker.recordSuccess();
+				reported = true;
+				return result;
+			} catch (MorreClientException e) {
+				// our own fault, says nothing about MORRE
+				throw e;
+			} catch (MorreCommunicationException e) {
+				breaker.recordFailure();
+				reported = true;
+				if( attempt >= maxAttempts )
+					throw e;
+
+				long delay = backoff(attempt);
+				log.debug( "Attempt " + attempt + " of " + endpoint + " failed, retrying in " + delay + "ms: " + e.getMessage() );
+				sleep(delay, e);
+			} catch (MorreException e) {
+				// MORRE answered, so it is reachable
+				breaker.recordSuccess();
+				reported = true;
+				throw e;
+			} finally {
+				// our own faults and anything unexpected, including Errors, say nothing about MORRE,
+				// but must not leave a probe of the half open breaker running forever
+				if( !reported )
+					breaker.recordIgnored();
+			}
+		}
+	}
+
+	private long backoff( int attempt ) {
+		double delay = Math.min( config.getMaxBackoff(), config.getInitialBackoff() * Math.pow(config.getBackoffMultiplier(), attempt - 1) );
+		delay -= delay * config.getJitter() * ThreadLocalRandom.current().nextDouble();
+		return Math.round(delay);
+	}
+
+	private static void sleep( long delay, MorreCommunicationException failure ) throws MorreCommunicationException {
+		if( delay <= 0 )
+			return;
+
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// gives up, the last failure is the reason
+			throw failure;
+		}
+	}
+
+	private CircuitBreaker getBreaker( String endpoint ) {
+		CircuitBreaker breaker = breakers.get(endpoint);
+		if( breaker == null ) {
+			breakers.putIfAbsent( endpoint, new CircuitBreaker(config.getFailureThreshold(), config.getOpenDuration()) );
+			breaker = breakers.get(endpoint);
+		}
+		return breaker;
+	}
+
+	private MorreCrawlerInterface getCrawler() throws MorreClientException {
+		if( crawler == null )
+			throw new MorreClientException("No crawler interface to decorate");
+		return crawler;
+	}
+
+	private static String queryEndpoint( String queryType ) {
+		return MorreProtocol.REST_URL_QUERY + queryType;
+	}
+
+}
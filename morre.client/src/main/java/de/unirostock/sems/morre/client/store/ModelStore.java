@@ -0,0 +1,620 @@
+package de.unirostock.sems.morre.client.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+
+/**
+ * Persistent store of immutable model versions, identified by file id and version id.
+ * <p>
+ * The versions are appended as JSON records to segment files in the store directory. Every record carries
+ * a checksum, a record torn by a crash is cut off when the store is opened again. The index of all records
+ * is held in memory and rebuilt from the segments on open. Segments are read through memory mapped buffers,
+ * so a read does not copy the record from the file system cache.
+ * </p>
+ * <p>
+ * Removed versions leave dead records behind, {@link #compact()} rewrites the live records into new segments.
+ * If the disk budget is exceeded, the oldest segments are dropped. The store is safe to use from many threads,
+ * but only one store instance may use a directory at a time.
+ * </p>
+ *
+ */
+public class ModelStore implements Closeable {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** "MORR" */
+	private static final int MAGIC = 0x4D4F5252;
+	/** magic, key length, payload length and checksum */
+	private static final int HEADER_SIZE = 16;
+	private static final int MAX_KEY_LENGTH = 64 * 1024;
+	/** payload length of a record, which removes a version */
+	private static final int TOMBSTONE = -1;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	private final File directory;
+	private final ModelStoreConfig config;
+	private final Gson gson = new Gson();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+	private final Map<String, Location> index = new HashMap<String, Location>();
+	private Segment active = null;
+	private boolean closed = false;
+
+	public ModelStore(File directory) throws IOException {
+		this(directory, new ModelStoreConfig());
+	}
+
+	/**
+	 * Opens the store in the given directory, creating it if necessary.
+	 *
+	 * @param directory the directory of the segment files
+	 * @param config the config
+	 * @throws IOException if the segments can not be read
+	 */
+	public ModelStore(File directory, ModelStoreConfig config) throws IOException {
+		this.directory = directory;
+		this.config = new ModelStoreConfig(config);
+
+		if( !directory.isDirectory() && !directory.mkdirs() )
+			throw new IOException("Can not create the store directory " + directory);
+
+		File[] files = directory.listFiles( new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(SEGMENT_SUFFIX);
+			}
+		});
+
+		// later records override earlier ones, so the segments are replayed in order
+		for( File file : files ) {
+			long number = Long.parseLong( file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length()) );
+			segments.put( number, new Segment(number, file) );
+		}
+		for( Segment segment : segments.values() )
+			replay(segment);
+
+		if( segments.isEmpty() || segments.lastEntry().getValue().size >= this.config.getSegmentSize() )
+			active = createSegment();
+		else
+			active = segments.lastEntry().getValue();
+
+		log.info( "Opened model store " + directory + " with " + index.size() + " versions in " + segments.size() + " segments" );
+	}
+
+	public ModelStoreConfig getConfig() {
+		return new ModelStoreConfig(config);
+	}
+
+	/**
+	 * Reads a model version.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id
+	 * @return the model version or null if it is not stored
+	 * @throws IOException if the record can not be read
+	 */
+	public CrawledModel get( String fileId, String versionId ) throws IOException {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			Location location = index.get( key(fileId, versionId) );
+			if( location == null )
+				return null;
+
+			ByteBuffer payload = location.segment.read( location.payloadOffset(), location.payloadLength );
+			try {
+				return gson.fromJson( new InputStreamReader(new ByteBufferInputStream(payload), UTF8), CrawledModel.class );
+			} catch (JsonParseException e) {
+				throw new IOException("Corrupt record of " + fileId + " in version " + versionId, e);
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean contains( String fileId, String versionId ) {
+		lock.readLock().lock();
+		try {
+			return index.containsKey( key(fileId, versionId) );
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Stores a model version. Versions are immutable, a version which is stored already is not written again.
+	 *
+	 * @param model the model version
+	 * @return true, if the version was written
+	 * @throws IOException if the version can not be written
+	 */
+	public boolean put( CrawledModel model ) throws IOException {
+		if( model.getFileId() == null || model.getVersionId() == null )
+			throw new IllegalArgumentException("fileId and versionId must not be null");
+
+		String key = key( model.getFileId(), model.getVersionId() );
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			if( index.containsKey(key) )
+				return false;
+
+			byte[] payload = gson.toJson(model, CrawledModel.class).getBytes(UTF8);
+			append(key, payload);
+			enforceBudget();
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a model version.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id
+	 * @return true, if the version was stored
+	 * @throws IOException if the removal can not be written
+	 */
+	public boolean remove( String fileId, String versionId ) throws IOException {
+		String key = key(fileId, versionId);
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			if( !index.containsKey(key) )
+				return false;
+
+			append(key, null);
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites all live records into new segments and deletes the old ones. The new segments and the directory
+	 * are forced to disk before the first old segment is deleted, no matter if the writes are synced. A crash
+	 * during compaction leaves duplicates of some records, which are resolved on the next open.
+	 *
+	 * @throws IOException if the segments can not be rewritten
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			List<Segment> old = new ArrayList<Segment>( segments.values() );
+			active = createSegment();
+			long firstNew = active.number;
+
+			// copies the records in file order
+			List<Map.Entry<String, Location>> live = new ArrayList<Map.Entry<String, Location>>( index.entrySet() );
+			Collections.sort(live, new Comparator<Map.Entry<String, Location>>() {
+				@Override
+				public int compare(Map.Entry<String, Location> first, Map.Entry<String, Location> second) {
+					int segment = Long.compare( first.getValue().segment.number, second.getValue().segment.number );
+					return segment != 0 ? segment : Long.compare( first.getValue().offset, second.getValue().offset );
+				}
+			});
+
+			for( Map.Entry<String, Location> entry : live ) {
+				Location location = entry.getValue();
+				ByteBuffer record = location.segment.read( location.offset, location.recordLength() );
+				rollIfFull( location.recordLength() );
+				long offset = active.append(record);
+				active.live += location.recordLength();
+				entry.setValue( new Location(active, offset, location.keyLength, location.payloadLength) );
+			}
+
+			// every new segment is on disk, before the old copies of its records are gone
+			for( Segment segment : segments.tailMap(firstNew).values() )
+				force( segment.file, segment.channel );
+			forceDirectory();
+
+			for( Segment segment : old )
+				deleteSegment(segment);
+
+			log.info( "Compacted model store " + directory + " to " + segments.size() + " segments" );
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of stored versions.
+	 *
+	 * @return the number of versions
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the size of all segment files.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getDiskBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0;
+			for( Segment segment : segments.values() )
+				bytes += segment.size;
+			return bytes;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the size of the records of all stored versions, the rest of the disk bytes is reclaimed by {@link #compact()}.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getLiveBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0;
+			for( Segment segment : segments.values() )
+				bytes += segment.live;
+			return bytes;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if( closed )
+				return;
+
+			closed = true;
+			for( Segment segment : segments.values() )
+				segment.close();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Forces a file to disk. Called after every write with {@link ModelStoreConfig#isSyncWrites() synced writes},
+	 * and by {@link #compact()} for every new segment and the directory.
+	 *
+	 * @param file the segment file or the store directory
+	 * @param channel the open channel of the file
+	 * @throws IOException if the file can not be forced
+	 */
+	protected void force( File file, FileChannel channel ) throws IOException {
+		channel.force(false);
+	}
+
+	// ---------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Forces the directory entries of new segments to disk.
+	 */
+	private void forceDirectory() throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open( directory.toPath(), StandardOpenOption.READ );
+		} catch (IOException e) {
+			// some platforms can not open a directory, their file systems keep the entries on their own
+			log.debug( "Can not open the store directory " + directory + " to force it", e );
+			return;
+		}
+
+		try {
+			force(directory, channel);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	private static String key( String fileId, String versionId ) {
+		return fileId + '\u0000' + versionId;
+	}
+
+	private void checkOpen() throws IOException {
+		if( closed )
+			throw new IOException("The model store is closed");
+	}
+
+	/**
+	 * Appends a record, a null payload removes the version.
+	 */
+	private void append( String key, byte[] payload ) throws IOException {
+		byte[] keyBytes = key.getBytes(UTF8);
+		int payloadLength = payload != null ? payload.length : TOMBSTONE;
+
+		CRC32 crc = new CRC32();
+		crc.update(keyBytes);
+		if( payload != null )
+			crc.update(payload);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(keyBytes.length).putInt(payloadLength).putInt( (int) crc.getValue() );
+		header.flip();
+
+		int recordLength = HEADER_SIZE + keyBytes.length + Math.max(payloadLength, 0);
+		rollIfFull(recordLength);
+		long offset = active.append( header, ByteBuffer.wrap(keyBytes), payload != null ? ByteBuffer.wrap(payload) : ByteBuffer.allocate(0) );
+		if( config.isSyncWrites() )
+			force( active.file, active.channel );
+
+		apply( key, new Location(active, offset, keyBytes.length, payloadLength) );
+	}
+
+	private void rollIfFull( long recordLength ) throws IOException {
+		if( active.size > 0 && active.size + recordLength > config.getSegmentSize() )
+			active = createSegment();
+	}
+
+	/**
+	 * Updates the index with a written or replayed record.
+	 */
+	private void apply( String key, Location location ) {
+		Location previous = null;
+		if( location.payloadLength == TOMBSTONE )
+			previous = index.remove(key);
+		else {
+			previous = index.put(key, location);
+			location.segment.live += location.recordLength();
+		}
+
+		if( previous != null )
+			previous.segment.live -= previous.recordLength();
+	}
+
+	private void enforceBudget() throws IOException {
+		while( getDiskBytesLocked() > config.getMaxBytes() && segments.firstEntry().getValue() != active ) {
+			Segment oldest = segments.firstEntry().getValue();
+			log.info( "Model store " + directory + " exceeds its budget, dropping segment " + oldest.file.getName() );
+			deleteSegment(oldest);
+		}
+	}
+
+	private long getDiskBytesLocked() {
+		long bytes = 0;
+		for( Segment segment : segments.values() )
+			bytes += segment.size;
+		return bytes;
+	}
+
+	private Segment createSegment() throws IOException {
+		long number = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+		Segment segment = new Segment( number, new File(directory, String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX)) );
+		segments.put(number, segment);
+		return segment;
+	}
+
+	private void deleteSegment( Segment segment ) throws IOException {
+		Iterator<Location> iterator = index.values().iterator();
+		while( iterator.hasNext() ) {
+			if( iterator.next().segment == segment )
+				iterator.remove();
+		}
+
+		segments.remove(segment.number);
+		segment.close();
+		if( !segment.file.delete() )
+			log.warn( "Can not delete the segment " + segment.file );
+	}
+
+	/**
+	 * Reads all records of a segment into the index. The segment is cut off at the first broken record.
+	 */
+	private void replay( Segment segment ) throws IOException {
+		if( segment.size == 0 )
+			return;
+
+		ByteBuffer buffer = segment.read(0, segment.size);
+		long valid = 0;
+		while( buffer.remaining() >= HEADER_SIZE ) {
+			int start = buffer.position();
+			int magic = buffer.getInt();
+			int keyLength = buffer.getInt();
+			int payloadLength = buffer.getInt();
+			int checksum = buffer.getInt();
+
+			if( magic != MAGIC || keyLength <= 0 || keyLength > MAX_KEY_LENGTH || payloadLength < TOMBSTONE
+					|| (long) keyLength + Math.max(payloadLength, 0) > buffer.remaining() )
+				break;
+
+			ByteBuffer record = buffer.slice();
+			record.limit( keyLength + Math.max(payloadLength, 0) );
+			CRC32 crc = new CRC32();
+			crc.update( record.duplicate() );
+			if( (int) crc.getValue() != checksum )
+				break;
+
+			byte[] keyBytes = new byte[keyLength];
+			record.get(keyBytes);
+			apply( new String(keyBytes, UTF8), new Location(segment, start, keyLength, payloadLength) );
+
+			buffer.position( start + HEADER_SIZE + keyLength + Math.max(payloadLength, 0) );
+			valid = buffer.position();
+		}
+
+		if( valid < segment.size ) {
+			log.warn( "Cutting off " + (segment.size - valid) + " bytes of broken records from " + segment.file );
+			segment.truncate(valid);
+		}
+	}
+
+	/**
+	 * Position of a record in a segment.
+	 */
+	private static class Location {
+
+		private final Segment segment;
+		private final long offset;
+		private final int keyLength;
+		private final int payloadLength;
+
+		public Location(Segment segment, long offset, int keyLength, int payloadLength) {
+			this.segment = segment;
+			this.offset = offset;
+			this.keyLength = keyLength;
+			this.payloadLength = payloadLength;
+		}
+
+		public long payloadOffset() {
+			return offset + HEADER_SIZE + keyLength;
+		}
+
+		public int recordLength() {
+			return HEADER_SIZE + keyLength + Math.max(payloadLength, 0);
+		}
+
+	}
+
+	/**
+	 * One append-only segment file.
+	 */
+	private static class Segment {
+
+		private final long number;
+		private final File file;
+		private final RandomAccessFile raf;
+		private final FileChannel channel;
+		private long size;
+		/** bytes of the records, which are in the index */
+		private long live = 0;
+
+		private MappedByteBuffer mapped = null;
+
+		public Segment(long number, File file) throws IOException {
+			this.number = number;
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+			this.channel = raf.getChannel();
+			this.size = channel.size();
+		}
+
+		/**
+		 * Appends the buffers at the end of the segment.
+		 *
+		 * @return the offset of the first byte
+		 */
+		public long append( ByteBuffer... buffers ) throws IOException {
+			long offset = size;
+			long position = offset;
+			for( ByteBuffer buffer : buffers ) {
+				while( buffer.hasRemaining() )
+					position += channel.write(buffer, position);
+			}
+			// only complete records count, a failed write is overwritten by the next one
+			size = position;
+			return offset;
+		}
+
+		/**
+		 * Returns a view on a part of the segment, backed by the memory mapped file.
+		 */
+		public synchronized ByteBuffer read( long offset, long length ) throws IOException {
+			if( mapped == null || offset + length > mapped.capacity() )
+				mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+
+			ByteBuffer view = mapped.duplicate();
+			view.position( (int) offset );
+			view.limit( (int) (offset + length) );
+			return view.slice();
+		}
+
+		public synchronized void truncate( long length ) throws IOException {
+			mapped = null;
+			channel.truncate(length);
+			size = length;
+		}
+
+		public void close() throws IOException {
+			mapped = null;
+			raf.close();
+		}
+
+	}
+
+	/**
+	 * Reads a buffer without copying it into an array first.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if( !buffer.hasRemaining() )
+				return -1;
+
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+	}
+
+}
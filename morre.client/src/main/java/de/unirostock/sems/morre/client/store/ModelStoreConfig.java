@@ -0,0 +1,97 @@
+package de.unirostock.sems.morre.client.store;
+
+import java.io.Serializable;
+
+/**
+ * Configuration of the {@link ModelStore}.
+ * <p>
+ * All setters return the config itself, so they can be chained. The store copies
+ * the configuration on construction.
+ * </p>
+ *
+ */
+public class ModelStoreConfig implements Serializable {
+
+	private static final long serialVersionUID = -6948250036021513874L;
+
+	/** default size in bytes after which a new segment file is started */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	/** default disk budget of the store in bytes */
+	public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	private boolean syncWrites = true;
+
+	public ModelStoreConfig() {
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other the config to copy
+	 */
+	public ModelStoreConfig( ModelStoreConfig other ) {
+		this.segmentSize = other.segmentSize;
+		this.maxBytes = other.maxBytes;
+		this.syncWrites = other.syncWrites;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Sets the size in bytes after which a new segment file is started. A single model larger than
+	 * this is written into a segment of its own.
+	 *
+	 * @param segmentSize the segment size in bytes
+	 * @return this config
+	 */
+	public ModelStoreConfig setSegmentSize( int segmentSize ) {
+		if( segmentSize <= 0 )
+			throw new IllegalArgumentException("segmentSize has to be positive");
+		this.segmentSize = segmentSize;
+		return this;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Sets the disk budget of the store. If it is exceeded, the oldest segments are deleted
+	 * together with the model versions in them. The segment being written is never deleted.
+	 *
+	 * @param maxBytes the budget in bytes
+	 * @return this config
+	 */
+	public ModelStoreConfig setMaxBytes( long maxBytes ) {
+		if( maxBytes <= 0 )
+			throw new IllegalArgumentException("maxBytes has to be positive");
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	public boolean isSyncWrites() {
+		return syncWrites;
+	}
+
+	/**
+	 * Enables or disables forcing every write to the disk. Without it a crash of the machine may lose
+	 * the latest versions, but never corrupts the store.
+	 *
+	 * @param syncWrites true to force every write to the disk
+	 * @return this config
+	 */
+	public ModelStoreConfig setSyncWrites( boolean syncWrites ) {
+		this.syncWrites = syncWrites;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "ModelStoreConfig [segmentSize=" + segmentSize + ", maxBytes=" + maxBytes + ", syncWrites=" + syncWrites + "]";
+	}
+
+}
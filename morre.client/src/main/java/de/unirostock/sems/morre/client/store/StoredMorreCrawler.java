@@ -0,0 +1,100 @@
+package de.unirostock.sems.morre.client.store;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.unirostock.sems.morre.client.MorreCrawlerInterface;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+
+/**
+ * {@link MorreCrawlerInterface} serving model versions from a {@link ModelStore}.
+ * <p>
+ * A model version never changes, so {@link #getModelVersion(String, String)} is answered from the store
+ * and only requested from the server if it is missing. {@link #getLatestModelVersion(String)} always asks
+ * the server which version is the latest, but returns the stored copy if that version is known already.
+ * Everything fetched is written to the store. The history and {@link #addModel(CrawledModel)} are passed through.
+ * </p>
+ * A failing store does not fail the request, the version is served from the server instead.
+ *
+ */
+public class StoredMorreCrawler implements MorreCrawlerInterface {
+
+	private final Log log = LogFactory.getLog( getClass() );
+
+	private final MorreCrawlerInterface delegate;
+	private final ModelStore store;
+
+	public StoredMorreCrawler(MorreCrawlerInterface delegate, ModelStore store) {
+		if( delegate == null || store == null )
+			throw new IllegalArgumentException("delegate and store must not be null");
+
+		this.delegate = delegate;
+		this.store = store;
+	}
+
+	public ModelStore getStore() {
+		return store;
+	}
+
+	@Override
+	public List<String> getModelHistory(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		return delegate.getModelHistory(fileId);
+	}
+
+	@Override
+	public CrawledModel getModelVersion(String fileId, String versionId) throws MorreClientException, MorreCommunicationException, MorreException {
+		CrawledModel model = load(fileId, versionId);
+		if( model != null )
+			return model;
+
+		model = delegate.getModelVersion(fileId, versionId);
+		save(model);
+		return model;
+	}
+
+	@Override
+	public CrawledModel getLatestModelVersion(String fileId) throws MorreClientException, MorreCommunicationException, MorreException {
+		CrawledModel latest = delegate.getLatestModelVersion(fileId);
+		if( latest == null || latest.getVersionId() == null )
+			return latest;
+
+		CrawledModel model = load(fileId, latest.getVersionId());
+		if( model != null )
+			return model;
+
+		save(latest);
+		return latest;
+	}
+
+	@Override
+	public boolean addModel(CrawledModel model) throws MorreClientException, MorreCommunicationException, MorreException {
+		return delegate.addModel(model);
+	}
+
+	private CrawledModel load( String fileId, String versionId ) {
+		try {
+			return store.get(fileId, versionId);
+		} catch (IOException e) {
+			log.warn( "Can not read version " + versionId + " of " + fileId + " from the store", e );
+			return null;
+		}
+	}
+
+	private void save( CrawledModel model ) {
+		if( model == null || model.getFileId() == null || model.getVersionId() == null )
+			return;
+
+		try {
+			store.put(model);
+		} catch (IOException e) {
+			log.warn( "Can not write version " + model.getVersionId() + " of " + model.getFileId() + " to the store", e );
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.batch.BulkIngestor;
+import de.unirostock.sems.morre.client.batch.BulkIngestorConfig;
+import de.unirostock.sems.morre.client.batch.IngestionListener;
+import de.unirostock.sems.morre.client.batch.IngestionProgress;
+import de.unirostock.sems.morre.client.batch.IngestionResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreAsyncClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class BulkIngestorTest {
+
+	private static final int MODELS = 300;
+	private static final int MAX_IN_FLIGHT = 4;
+
+	private MorreStandInServer server = null;
+	private HttpMorreAsyncClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testIngestionWithRetriesAndBackpressure() throws Exception {
+		server.setLatency(5);
+		server.setTransientFailures(6);
+
+		CountingCrawler counting = new CountingCrawler(client);
+		final AtomicInteger reported = new AtomicInteger(0);
+		BulkIngestor ingestor = new BulkIngestor( counting, new BulkIngestorConfig().setMaxInFlight(MAX_IN_FLIGHT).setRetryDelay(10), new IngestionListener() {
+			@Override
+			public void completed(IngestionResult result, IngestionProgress progress) {
+				reported.incrementAndGet();
+			}
+		});
+
+		List<CrawledModel> models = new ArrayList<CrawledModel>();
+		for( int i = 0; i < MODELS; i++ )
+			models.add( model(i == 42 ? MorreStandInServer.KEYWORD_EXCEPTION : "file" + i) );
+
+		List<IngestionResult> ledger = null;
+		try {
+			ledger = ingestor.submitAll(models);
+		}
+		finally {
+			ingestor.close();
+		}
+
+		assertEquals( MODELS, ledger.size() );
+		assertEquals( MODELS, reported.get() );
+		assertTrue( "in flight " + counting.peak.get(), counting.peak.get() <= MAX_IN_FLIGHT );
+
+		for( int i = 0; i < MODELS; i++ ) {
+			IngestionResult result = ledger.get(i);
+			assertEquals( i, result.getSequence() );
+			if( i == 42 ) {
+				assertFalse( result.isAdded() );
+				assertTrue( result.getError() instanceof MorreException );
+				assertEquals( 1, result.getAttempts() );
+			}
+			else {
+				assertTrue( result.toString(), result.isAdded() );
+				assertNull( result.getError() );
+			}
+		}
+
+		IngestionProgress progress = ingestor.getProgress();
+		assertEquals( MODELS - 1, progress.getAdded() );
+		assertEquals( 1, progress.getFailed() );
+		assertEquals( 6, progress.getRetries() );
+		assertEquals( 0, progress.getInFlight() );
+		assertEquals( MODELS - 1, new HashSet<String>( server.getAddedModels() ).size() );
+	}
+
+	@Test
+	public void testRetriesExhausted() throws Exception {
+		server.setTransientFailures(100);
+
+		BulkIngestor ingestor = new BulkIngestor( client, new BulkIngestorConfig().setMaxRetries(2).setRetryDelay(1) );
+		try {
+			ingestor.submit( model("file1") );
+			IngestionResult result = ingestor.finish().get(0);
+
+			assertFalse( result.isAdded() );
+			assertEquals( 3, result.getAttempts() );
+			assertTrue( result.getError() instanceof MorreCommunicationException );
+		}
+		finally {
+			ingestor.close();
+		}
+	}
+
+	@Test
+	public void testCloseFailsPendingRetries() throws Exception {
+		server.setTransientFailures(100);
+
+		BulkIngestor ingestor = new BulkIngestor( client, new BulkIngestorConfig().setMaxRetries(3).setRetryDelay(60000) );
+		ingestor.submit( model("file1") );
+		long deadline = System.currentTimeMillis() + 5000;
+		while( ingestor.getProgress().getRetries() == 0 && System.currentTimeMillis() < deadline )
+			Thread.sleep(5);
+		assertEquals( 1, ingestor.getProgress().getRetries() );
+
+		// the retry waits for a minute, closing reports it right away instead of uploading later
+		ingestor.close();
+		IngestionResult result = ingestor.finish().get(0);
+		assertFalse( result.isAdded() );
+		assertEquals( 1, result.getAttempts() );
+		assertTrue( result.getError() instanceof MorreCommunicationException );
+		assertEquals( 1, ingestor.getProgress().getFailed() );
+		assertEquals( 1, server.getRequestCount() );
+	}
+
+	private static CrawledModel model( String fileId ) {
+		return new CrawledModel(fileId, "1", "<sbml id=\"" + fileId + "\"/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML);
+	}
+
+	/**
+	 * Tracks the highest number of concurrent uploads.
+	 */
+	private static class CountingCrawler implements MorreCrawlerAsync {
+
+		private final MorreCrawlerAsync delegate;
+		private final AtomicInteger current = new AtomicInteger(0);
+		private final AtomicInteger peak = new AtomicInteger(0);
+
+		public CountingCrawler(MorreCrawlerAsync delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public CompletableFuture<Boolean> addModel(CrawledModel model) {
+			int now = current.incrementAndGet();
+			int max;
+			while( now > (max = peak.get()) && !peak.compareAndSet(max, now) );
+
+			// the ingestor sees the upload done only after the decrement
+			return delegate.addModel(model).whenComplete( new BiConsumer<Boolean, Throwable>() {
+				@Override
+				public void accept(Boolean result, Throwable error) {
+					current.decrementAndGet();
+				}
+			});
+		}
+
+		@Override
+		public CompletableFuture<List<String>> getModelHistory(String fileId) {
+			return delegate.getModelHistory(fileId);
+		}
+
+		@Override
+		public CompletableFuture<CrawledModel> getModelVersion(String fileId, String versionId) {
+			return delegate.getModelVersion(fileId, versionId);
+		}
+
+		@Override
+		public CompletableFuture<CrawledModel> getLatestModelVersion(String fileId) {
+			return delegate.getLatestModelVersion(fileId);
+		}
+
+	}
+
+}
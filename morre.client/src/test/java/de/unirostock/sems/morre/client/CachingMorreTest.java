@@ -0,0 +1,198 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.cache.CacheStats;
+import de.unirostock.sems.morre.client.cache.CachingMorre;
+import de.unirostock.sems.morre.client.cache.MorreCacheConfig;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class CachingMorreTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testNormalizedKeys() throws Exception {
+		CachingMorre cache = new CachingMorre(client);
+
+		assertEquals( "novak model 0", cache.modelQuery("novak").get(0).getModelName() );
+		cache.modelQuery("  novak ");
+		cache.doSimpleModelQuery(QueryType.MODEL_QUERY, "novak");
+		assertEquals( 1, server.getRequestCount() );
+
+		cache.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", "novak").set("ID", "1"));
+		cache.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("ID", "1").set("NAME", "novak  "));
+		assertEquals( 2, server.getRequestCount() );
+
+		// same features, other query type or projection
+		cache.doModelQuery(QueryType.SIMPLE_SBML_MODEL_QUERY, new FeatureSet().set("NAME", "novak").set("ID", "1"));
+		cache.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", "novak").set("ID", "1"), Projection.METADATA);
+		cache.doPersonQuery(new FeatureSet().set("NAME", "novak").set("ID", "1"));
+		assertEquals( 5, server.getRequestCount() );
+
+		CacheStats stats = cache.getStats();
+		assertEquals( 3, stats.getHits() );
+		assertEquals( 5, stats.getMisses() );
+		assertEquals( 5, stats.getEntries() );
+	}
+
+	@Test
+	public void testEmptyResultsAndErrors() throws Exception {
+		CachingMorre cache = new CachingMorre(client);
+
+		assertNull( cache.modelQuery(MorreStandInServer.KEYWORD_NO_RESULT) );
+		assertNull( cache.modelQuery(MorreStandInServer.KEYWORD_NO_RESULT) );
+		assertEquals( 1, server.getRequestCount() );
+
+		for( int i = 0; i < 2; i++ ) {
+			try {
+				cache.modelQuery(MorreStandInServer.KEYWORD_EXCEPTION);
+				fail("expected a MorreException");
+			}
+			catch (MorreException e) {
+				// failures are not cached
+			}
+		}
+		assertEquals( 3, server.getRequestCount() );
+	}
+
+	@Test
+	public void testReturnsIndependentLists() throws Exception {
+		CachingMorre cache = new CachingMorre(client);
+
+		cache.modelQuery("novak").clear();
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, cache.modelQuery("novak").size() );
+	}
+
+	@Test
+	public void testReturnsCopiedResults() throws Exception {
+		CachingMorre cache = new CachingMorre(client);
+
+		cache.modelQuery("novak").get(0).setModelName("Changed");
+		cache.doPersonQuery(new FeatureSet().set("NAME", "novak")).get(0).getPerson().setLastName("Changed");
+		assertEquals( "novak model 0", cache.modelQuery("novak").get(0).getModelName() );
+		assertFalse( "Changed".equals(cache.doPersonQuery(new FeatureSet().set("NAME", "novak")).get(0).getPerson().getLastName()) );
+		assertNotSame( cache.modelQuery("novak").get(0), cache.modelQuery("novak").get(0) );
+		assertEquals( 2, server.getRequestCount() );
+
+		// shared results are the cached objects themselves
+		CachingMorre shared = new CachingMorre(client, new MorreCacheConfig().setSharedResults(true));
+		assertSame( shared.modelQuery("novak").get(0), shared.modelQuery("novak").get(0) );
+	}
+
+	@Test
+	public void testTimeToLive() throws Exception {
+		CachingMorre cache = new CachingMorre(client, new MorreCacheConfig().setTimeToLive(50));
+
+		cache.modelQuery("novak");
+		cache.modelQuery("novak");
+		assertEquals( 1, server.getRequestCount() );
+
+		Thread.sleep(100);
+		cache.modelQuery("novak");
+		assertEquals( 2, server.getRequestCount() );
+		assertEquals( 1, cache.getStats().getExpirations() );
+	}
+
+	@Test
+	public void testMemoryBudget() throws Exception {
+		// room for a few of the small stand-in results only
+		CachingMorre cache = new CachingMorre(client, new MorreCacheConfig().setMaxBytes(5000));
+
+		for( int i = 0; i < 20; i++ )
+			cache.modelQuery("query" + i);
+
+		CacheStats stats = cache.getStats();
+		assertTrue( stats.toString(), stats.getEstimatedBytes() <= 5000 );
+		assertTrue( stats.toString(), stats.getEvictions() > 0 );
+		assertEquals( 20, stats.getEntries() + stats.getEvictions() );
+
+		// the most recent one is still cached, the first one was evicted
+		long requests = server.getRequestCount();
+		cache.modelQuery("query19");
+		assertEquals( requests, server.getRequestCount() );
+		cache.modelQuery("query0");
+		assertEquals( requests + 1, server.getRequestCount() );
+	}
+
+	@Test
+	public void testDeferredDocumentsStayOutOfTheCache() throws Exception {
+		CachingMorre cache = new CachingMorre(client);
+
+		List<ModelResult> first = cache.modelQuery("novak", Projection.METADATA);
+		long estimated = cache.getStats().getEstimatedBytes();
+		for( ModelResult model : first )
+			assertEquals( "<sbml id=\"" + model.getFileId() + "\"/>", model.getXmldoc() );
+
+		// the next caller gets the results deferred again, the documents were loaded into the copies only
+		List<ModelResult> second = cache.modelQuery("novak", Projection.METADATA);
+		assertEquals( first, second );
+		for( ModelResult model : second )
+			assertFalse( model.isXmldocLoaded() );
+		assertEquals( estimated, cache.getStats().getEstimatedBytes() );
+	}
+
+	@Test
+	public void testConcurrentUse() throws Exception {
+		final CachingMorre cache = new CachingMorre(client, new MorreCacheConfig().setMaxBytes(20000));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for( int t = 0; t < 8; t++ ) {
+			futures.add( executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for( int i = 0; i < 500; i++ ) {
+						String keyword = "query" + (i % 40);
+						assertEquals( keyword + " model 0", cache.modelQuery(keyword).get(0).getModelName() );
+					}
+					return null;
+				}
+			}) );
+		}
+		for( Future<Void> future : futures )
+			future.get();
+		executor.shutdown();
+
+		CacheStats stats = cache.getStats();
+		assertEquals( 4000, stats.getHits() + stats.getMisses() );
+		assertTrue( stats.toString(), stats.getEstimatedBytes() <= 20000 );
+	}
+
+}
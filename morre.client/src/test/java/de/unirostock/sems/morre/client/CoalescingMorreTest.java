@@ -0,0 +1,193 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.cache.CoalescingMorre;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class CoalescingMorreTest {
+
+	private static final int THREADS = 20;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+	private CoalescingMorre morre = null;
+	private ExecutorService executor = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		server.setLatency(300);
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true).setMaxConnectionsPerRoute(THREADS) );
+		morre = new CoalescingMorre(client, client);
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		executor.shutdownNow();
+		client.close();
+		server.stop();
+	}
+
+	private <R> List<R> burst( final Callable<R> call ) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<R>> futures = new ArrayList<Future<R>>();
+		for( int i = 0; i < THREADS; i++ ) {
+			futures.add( executor.submit( new Callable<R>() {
+				@Override
+				public R call() throws Exception {
+					start.await();
+					return call.call();
+				}
+			}));
+		}
+		start.countDown();
+
+		List<R> results = new ArrayList<R>();
+		for( Future<R> future : futures )
+			results.add( future.get() );
+		return results;
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		final String[] keywords = { "sems", " sems ", "sems  " };
+		final int[] next = { 0 };
+		List<List<ModelResult>> results = burst( new Callable<List<ModelResult>>() {
+			@Override
+			public List<ModelResult> call() throws Exception {
+				String keyword;
+				synchronized( next ) {
+					keyword = keywords[ next[0]++ % keywords.length ];
+				}
+				return morre.modelQuery(keyword);
+			}
+		});
+
+		assertEquals( 1, server.getRequestCount() );
+		assertEquals( 1, morre.getRequests() );
+		assertEquals( THREADS - 1, morre.getCoalesced() );
+		assertEquals( 0, morre.getInFlight() );
+
+		// every caller has its own copy
+		List<ModelResult> first = results.get(0);
+		for( List<ModelResult> result : results.subList(1, THREADS) ) {
+			assertNotSame( first, result );
+			assertEquals( first, result );
+			assertNotSame( first.get(0), result.get(0) );
+		}
+		results.get(1).get(0).setScore(-1);
+		results.get(1).clear();
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, results.get(2).size() );
+		assertTrue( results.get(2).get(0).getScore() > 0 );
+
+		// later calls send a new request
+		morre.modelQuery("sems");
+		assertEquals( 2, server.getRequestCount() );
+	}
+
+	@Test
+	public void testCallersModifyTheirResults() throws Exception {
+		// every caller clears its result right away, the waiters must not copy what the first caller cleared
+		List<Integer> sizes = burst( new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				List<ModelResult> result = morre.modelQuery("sems");
+				int size = result.size();
+				result.get(0).setScore(-1);
+				result.clear();
+				return size;
+			}
+		});
+
+		assertEquals( 1, server.getRequestCount() );
+		for( Integer size : sizes )
+			assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, size.intValue() );
+	}
+
+	@Test
+	public void testSingleCallIsNotCopied() throws Exception {
+		final List<List<ModelResult>> decoded = new ArrayList<List<ModelResult>>();
+		HttpMorreClient recording = new HttpMorreClient( server.getUrl() ) {
+			@Override
+			public List<ModelResult> doSimpleModelQuery(String queryType, String keyword, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+				List<ModelResult> result = super.doSimpleModelQuery(queryType, keyword, projection);
+				decoded.add(result);
+				return result;
+			}
+		};
+		server.setLatency(0);
+		try {
+			List<ModelResult> result = new CoalescingMorre(recording).modelQuery("sems");
+			assertSame( decoded.get(0), result );
+			assertSame( decoded.get(0).get(0), result.get(0) );
+		}
+		finally {
+			recording.close();
+		}
+	}
+
+	@Test
+	public void testConcurrentModelVersions() throws Exception {
+		List<CrawledModel> results = burst( new Callable<CrawledModel>() {
+			@Override
+			public CrawledModel call() throws Exception {
+				return morre.getModelVersion("file1", "2");
+			}
+		});
+
+		assertEquals( 1, server.getRequestCount(MorreProtocol.SERVICE_GET_MODEL_VERSION) );
+		for( CrawledModel result : results ) {
+			assertEquals( "2", result.getVersionId() );
+			assertEquals( results.get(0).getXmldoc(), result.getXmldoc() );
+		}
+		assertNotSame( results.get(0), results.get(1) );
+	}
+
+	@Test
+	public void testSharedFailure() throws Exception {
+		List<Exception> failures = burst( new Callable<Exception>() {
+			@Override
+			public Exception call() throws Exception {
+				try {
+					morre.modelQuery( MorreStandInServer.KEYWORD_EXCEPTION );
+					return null;
+				} catch (MorreException e) {
+					return e;
+				}
+			}
+		});
+
+		for( Exception failure : failures )
+			assertTrue( failure instanceof MorreException );
+		assertEquals( 1, server.getRequestCount() );
+		assertEquals( 0, morre.getInFlight() );
+	}
+
+}
@@ -0,0 +1,134 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.impl.HttpMorreAsyncClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig.Compression;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class CompressionTest {
+
+	private MorreStandInServer server = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+	}
+
+	@After
+	public void shutdown() {
+		server.stop();
+	}
+
+	@Test
+	public void testGzipRequest() throws Exception {
+		assertCompressedUpload( Compression.GZIP );
+	}
+
+	@Test
+	public void testDeflateRequest() throws Exception {
+		assertCompressedUpload( Compression.DEFLATE );
+	}
+
+	@Test
+	public void testThreshold() throws Exception {
+		HttpMorreClient client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setRequestCompression(Compression.GZIP) );
+		try {
+			// a tiny query stays below the default threshold
+			client.modelQuery("novak");
+			assertEquals( 0, server.getCompressedRequests() );
+		}
+		finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testCompressedResponses() throws Exception {
+		server.setResponseCompression(true);
+
+		HttpMorreClient client = new HttpMorreClient( server.getUrl() );
+		HttpMorreAsyncClient asyncClient = new HttpMorreAsyncClient( server.getUrl() );
+		try {
+			String document = largeDocument();
+			CrawledModel model = client.getModelVersion(document, "1");
+			assertEquals( document, model.getFileId() );
+			// the document is contained twice in the answer
+			assertTrue( "sent " + server.getSentBytes(), server.getSentBytes() < document.length() / 10 );
+
+			assertEquals( document, asyncClient.getModelVersion(document, "1").get().getFileId() );
+			assertEquals( "novak model 0", asyncClient.modelQuery("novak").get().get(0).getModelName() );
+		}
+		finally {
+			client.close();
+			asyncClient.close();
+		}
+	}
+
+	@Test
+	public void testResponseDecompressionDisabled() throws Exception {
+		server.setResponseCompression(true);
+
+		HttpMorreAsyncClient asyncClient = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig().setResponseDecompression(false) );
+		try {
+			String document = largeDocument();
+			assertEquals( document, asyncClient.getModelVersion(document, "1").get().getFileId() );
+			assertTrue( server.getSentBytes() > document.length() );
+		}
+		finally {
+			asyncClient.close();
+		}
+	}
+
+	@Test
+	public void testAsyncCompressedUpload() throws Exception {
+		HttpMorreAsyncClient asyncClient = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig().setRequestCompression(Compression.GZIP) );
+		try {
+			String document = largeDocument();
+			assertTrue( asyncClient.addModel( new CrawledModel("file1", "1", document, new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML) ).get() );
+
+			assertEquals( 1, server.getCompressedRequests() );
+			assertTrue( "received " + server.getReceivedBytes(), server.getReceivedBytes() < document.length() / 10 );
+			assertEquals( "file1:1", server.getAddedModels().get(0) );
+		}
+		finally {
+			asyncClient.close();
+		}
+	}
+
+	private void assertCompressedUpload( Compression compression ) throws Exception {
+		HttpMorreClient client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setRequestCompression(compression) );
+		try {
+			String document = largeDocument();
+			assertTrue( client.addModel( new CrawledModel("file1", "1", document, new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML) ) );
+
+			assertEquals( 1, server.getCompressedRequests() );
+			assertTrue( "received " + server.getReceivedBytes(), server.getReceivedBytes() < document.length() / 10 );
+			assertEquals( "file1:1", server.getAddedModels().get(0) );
+		}
+		finally {
+			client.close();
+		}
+	}
+
+	private static String largeDocument() {
+		StringBuilder document = new StringBuilder("<sbml><listOfSpecies>");
+		for( int i = 0; i < 2000; i++ )
+			document.append("<species id=\"s").append(i).append("\" compartment=\"cell\" initialConcentration=\"0\"/>");
+		return document.append("</listOfSpecies></sbml>").toString();
+	}
+
+}
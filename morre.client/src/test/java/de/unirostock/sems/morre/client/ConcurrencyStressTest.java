@@ -0,0 +1,211 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
+
+/**
+ * Stress test of one client shared by many threads, checks that every thread gets exactly the results
+ * of its own requests and that the throughput grows with the number of threads.
+ * The load can be changed with the system properties <code>morre.test.stressThreads</code> and
+ * <code>morre.test.stressCalls</code>, the calls per thread.
+ *
+ */
+public class ConcurrencyStressTest {
+
+	private static final int THREADS = Integer.getInteger("morre.test.stressThreads", 64);
+	private static final int CALLS = Integer.getInteger("morre.test.stressCalls", 200);
+	private static final int MODELS = 50;
+	private static final int VERSIONS = 3;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer( StandInDataset.generate(MODELS, VERSIONS, 512) );
+		server.start();
+
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig()
+				.setPooling(true)
+				.setMaxTotalConnections(THREADS)
+				.setMaxConnectionsPerRoute(THREADS) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		if( client != null )
+			client.close();
+		if( server != null )
+			server.stop();
+	}
+
+	@Test
+	public void testResultIntegrity() throws Exception {
+		int done = run( THREADS, CALLS );
+		assertEquals( THREADS * CALLS, done );
+		assertEquals( THREADS * CALLS, server.getRequestCount() );
+	}
+
+	@Test
+	public void testThroughputScaling() throws Exception {
+		// with a fixed server latency the throughput is bound by the number of requests in flight
+		server.setLatency(25);
+		int calls = 20;
+		// warms up the connections and the decoders
+		run( 8, calls );
+
+		long start = System.nanoTime();
+		run( 1, calls );
+		double single = calls / (double) (System.nanoTime() - start);
+
+		start = System.nanoTime();
+		run( 8, calls );
+		double parallel = 8 * calls / (double) (System.nanoTime() - start);
+
+		assertTrue( "throughput grew only by " + parallel / single, parallel > 3 * single );
+	}
+
+	@Test
+	public void testSharedDataholders() throws Exception {
+		// the meta map is parsed on first access
+		final CrawledModel crawled = new CrawledModel( "file3", "1", "<sbml/>", new HashMap<String, List<String>>(), null, CrawledModel.TYPE_SBML );
+		crawled.setMeta("{\"source\":\"BMDB\",\"crawledDate\":\"2014-01-01\"}");
+
+		final ModelResult deferred = new ModelResult("SEMS model 3", "model3", String.valueOf(VERSIONS), null, null, "file3", 1f);
+		deferred.deferXmldoc(client);
+		final String expected = server.getDataset().getModelVersion("file3", String.valueOf(VERSIONS)).getXmldoc();
+
+		final CountDownLatch gate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for( int t = 0; t < THREADS; t++ ) {
+			futures.add( executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					gate.await();
+					Map<String, String> meta = crawled.getMetaMap();
+					assertEquals( CrawledModel.SOURCE_BIOMODELS_DB, meta.get(CrawledModel.META_SOURCE) );
+					assertEquals( expected, deferred.getXmldoc() );
+					return null;
+				}
+			}) );
+		}
+		gate.countDown();
+		try {
+			for( Future<Void> future : futures )
+				future.get();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		// the deferred document is fetched once
+		assertEquals( 1, server.getRequestCount(MorreProtocol.SERVICE_GET_MODEL_VERSION) );
+	}
+
+	/**
+	 * Runs mixed queries and crawler calls on the shared client, all threads start at once.
+	 *
+	 * @return the number of checked calls
+	 */
+	private int run( int threads, final int calls ) throws Exception {
+		final CountDownLatch gate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for( int t = 0; t < threads; t++ ) {
+			final int offset = t * calls;
+			futures.add( executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					gate.await();
+					for( int i = offset; i < offset + calls; i++ )
+						mixedCall(i);
+					return calls;
+				}
+			}) );
+		}
+
+		gate.countDown();
+		int done = 0;
+		try {
+			for( Future<Integer> future : futures )
+				done += future.get();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return done;
+	}
+
+	/**
+	 * Runs one request and checks the result against the dataset of the server.
+	 * Every kind of call asks for a different entry, depending on the call number.
+	 */
+	private void mixedCall( int i ) throws Exception {
+		int n = i % MODELS;
+		String fileId = "file" + n;
+
+		switch( i % 5 ) {
+			case 0:
+				List<ModelResult> models = client.modelQuery( fileId );
+				List<String> expected = new ArrayList<String>();
+				for( Object model : server.getDataset().query(QueryType.MODEL_QUERY, fileId) )
+					expected.add( ((ModelResult) model).getFileId() );
+				List<String> actual = new ArrayList<String>();
+				for( ModelResult model : models ) {
+					actual.add( model.getFileId() );
+					assertTrue( model.getXmldoc().startsWith("<sbml id=\"" + model.getFileId() + "\">") );
+				}
+				assertEquals( expected, actual );
+				break;
+			case 1:
+				List<PersonResult> persons = client.doPersonQuery( new FeatureSet().set("FAMILYNAME", "Family" + n) );
+				// the stand-in matches substrings, Family1 also matches Family10 to Family19
+				for( PersonResult person : persons )
+					assertTrue( person.getPerson().getLastName().startsWith("Family" + n) );
+				assertEquals( "Given" + n, persons.get(0).getPerson().getFirstName() );
+				break;
+			case 2:
+				assertEquals( Arrays.asList("1", "2", "3"), client.getModelHistory(fileId) );
+				break;
+			case 3:
+				String versionId = String.valueOf( 1 + i % VERSIONS );
+				CrawledModel version = client.getModelVersion( fileId, versionId );
+				assertEquals( fileId, version.getFileId() );
+				assertEquals( versionId, version.getVersionId() );
+				assertEquals( server.getDataset().getModelVersion(fileId, versionId).getXmldoc(), version.getXmldoc() );
+				break;
+			default:
+				CrawledModel latest = client.getLatestModelVersion( fileId );
+				assertEquals( fileId, latest.getFileId() );
+				assertEquals( String.valueOf(VERSIONS), latest.getVersionId() );
+				break;
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.DataholderCodec;
+import de.unirostock.sems.morre.client.dataholder.Model;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+
+public class DataholderCodecTest {
+
+	private static final DataholderCodec CODEC = DataholderCodec.DEFAULT;
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Person person = new Person("Given", "Family", "given@example.org", "SEMS");
+		Map<String, List<String>> parents = new HashMap<String, List<String>>();
+		parents.put( "2", Arrays.asList("1") );
+		Map<String, String> meta = new HashMap<String, String>();
+		meta.put( CrawledModel.META_SOURCE, CrawledModel.SOURCE_BIOMODELS_DB );
+		CrawledModel crawled = new CrawledModel("file1", "2", xmldoc(100000), parents, meta, CrawledModel.TYPE_SBML);
+		crawled.setMeta("{\"source\":\"BMDB\"}");
+
+		List<Object> dataholders = Arrays.<Object>asList(
+				new ModelResult("Model 1 äß模型", "model1", "3", "<sbml/>", "urn:model:file1", "file1", 0.75f),
+				new ModelResult(null, null, null, null, null, null, 0f),
+				new Model("Model 2", "model2", "1", xmldoc(8192), "urn:model:file2", "file2"),
+				crawled,
+				new CrawledModel("file2", null, null, null, null, null),
+				person,
+				new Person(null, null, null, null),
+				new PersonResult(0.5f, person, Arrays.asList("urn:model:file1", null)),
+				new PersonResult(0f, null, null),
+				new Publication("Title", "Journal", "Synopsis", "2014", Arrays.asList(person, null)),
+				new PublicationResult(1f, new Publication("Title", null, null, null, null), new ArrayList<String>()),
+				new PublicationResult(1f, null, null),
+				new AnnotationResult(0.25f, "urn:miriam:sems", Arrays.asList("urn:model:file1")) );
+
+		for( Object dataholder : dataholders ) {
+			Object decoded = CODEC.decode( CODEC.encode(dataholder), dataholder.getClass() );
+			assertEquals( dataholder, decoded );
+			assertEquals( dataholder, deserialize(serialize(dataholder)) );
+			// the equality of models leaves the document out
+			if( dataholder instanceof Model ) {
+				assertEquals( ((Model) dataholder).getXmldoc(), ((Model) decoded).getXmldoc() );
+				assertTrue( ((Model) decoded).isXmldocLoaded() );
+			}
+		}
+
+		CrawledModel decoded = CODEC.decode( CODEC.encode(crawled), CrawledModel.class );
+		assertEquals( crawled.getMeta(), decoded.getMeta() );
+		assertEquals( crawled.getModelType(), decoded.getModelType() );
+
+		// the whole result list in one stream
+		assertEquals( dataholders, deserialize(serialize(new ArrayList<Object>(dataholders))) );
+	}
+
+	@Test
+	public void testCompactness() throws Exception {
+		String document = xmldoc(64 * 1024);
+		ModelResult result = new ModelResult("Model 1", "model1", "3", document, "urn:model:file1", "file1", 0.75f);
+
+		byte[] compressed = CODEC.encode(result);
+		byte[] plain = new DataholderCodec(0).encode(result);
+		assertTrue( compressed.length < document.length() / 4 );
+		assertTrue( plain.length > document.length() );
+		assertTrue( plain.length < document.length() + 64 );
+		assertEquals( result, CODEC.decode(plain, ModelResult.class) );
+
+		// a small document is not compressed
+		ModelResult small = new ModelResult("Model 1", "model1", "3", "<sbml/>", "urn:model:file1", "file1", 0.75f);
+		assertEquals( new DataholderCodec(0).encode(small).length, CODEC.encode(small).length );
+		assertTrue( serialize(small).length < 150 );
+	}
+
+	@Test
+	public void testDeferredDocumentIsNotLoaded() throws Exception {
+		ModelResult deferred = new ModelResult("Model 1", "model1", "3", null, "urn:model:file1", "file1", 0.75f);
+		deferred.deferXmldoc( new MorreCrawlerInterface() {
+			@Override
+			public List<String> getModelHistory(String fileId) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public CrawledModel getModelVersion(String fileId, String versionId) {
+				fail("The deferred document is loaded");
+				return null;
+			}
+			@Override
+			public CrawledModel getLatestModelVersion(String fileId) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public boolean addModel(CrawledModel model) {
+				throw new UnsupportedOperationException();
+			}
+		});
+
+		ModelResult decoded = (ModelResult) deserialize( serialize(deferred) );
+		assertEquals( "file1", decoded.getFileId() );
+		assertFalse( deferred.isXmldocLoaded() );
+
+		// the decoded model knows its document is deferred, it can be loaded once a loader is attached again
+		assertFalse( decoded.isXmldocLoaded() );
+		assertNull( decoded.getXmldoc() );
+		try {
+			decoded.loadXmldoc();
+			fail("A document is loaded without loader");
+		} catch (MorreClientException e) {
+			// expected
+		}
+		assertFalse( CODEC.decode(CODEC.encode(decoded), ModelResult.class).isXmldocLoaded() );
+
+		decoded.deferXmldoc( new MorreCrawlerInterface() {
+			@Override
+			public List<String> getModelHistory(String fileId) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public CrawledModel getModelVersion(String fileId, String versionId) {
+				return new CrawledModel(fileId, versionId, "<sbml/>", null, null, null);
+			}
+			@Override
+			public CrawledModel getLatestModelVersion(String fileId) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public boolean addModel(CrawledModel model) {
+				throw new UnsupportedOperationException();
+			}
+		});
+		assertEquals( "<sbml/>", decoded.getXmldoc() );
+		assertTrue( decoded.isXmldocLoaded() );
+	}
+
+	@Test
+	public void testCorruptInput() throws Exception {
+		byte[] encoded = CODEC.encode( new Person("Given", "Family", null, null) );
+
+		byte[] version = encoded.clone();
+		version[0] = 99;
+		try {
+			CODEC.decode(version, Person.class);
+			fail("The unknown version is not reported");
+		} catch (StreamCorruptedException e) {
+			assertTrue( e.getMessage().contains("version") );
+		}
+
+		try {
+			CODEC.decode(encoded, ModelResult.class);
+			fail("The wrong type is not reported");
+		} catch (StreamCorruptedException e) {
+			// expected
+		}
+
+		try {
+			CODEC.encode("no dataholder");
+			fail("A String is encoded");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCorruptLengths() throws Exception {
+		// a String longer than the maximum and one longer than the input
+		assertCorrupt( encoded(new int[] { 1, 4 }, DataholderCodec.MAX_LENGTH + 2), Person.class );
+		assertCorrupt( encoded(new int[] { 1, 4 }, 1000, 'a'), Person.class );
+
+		// a list with more elements than the maximum and than the input
+		int[] annotation = { 1, 8, 0, 0, 0, 0, 0 };
+		assertCorrupt( encoded(annotation, DataholderCodec.MAX_LENGTH + 2), AnnotationResult.class );
+		assertCorrupt( encoded(annotation, DataholderCodec.MAX_LENGTH, 1, 'a'), AnnotationResult.class );
+
+		// a deflated document claiming more than deflate can compress into its bytes, and a truncated one
+		int[] model = { 1, 1, 0, 0, 0, 2 };
+		assertCorrupt( encoded(model, DataholderCodec.MAX_LENGTH, 1, 0), Model.class );
+		byte[] deflated = CODEC.encode( new Model("Model 2", "model2", "1", xmldoc(8192), "urn:model:file2", "file2") );
+		assertCorrupt( Arrays.copyOf(deflated, deflated.length / 2), Model.class );
+	}
+
+	/**
+	 * Builds an encoding of the given header bytes, followed by a varint and further bytes.
+	 */
+	private static byte[] encoded( int[] header, int varint, int... tail ) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for( int b : header )
+			bytes.write(b);
+		while( (varint & ~0x7F) != 0 ) {
+			bytes.write( (varint & 0x7F) | 0x80 );
+			varint >>>= 7;
+		}
+		bytes.write(varint);
+		for( int b : tail )
+			bytes.write(b);
+		return bytes.toByteArray();
+	}
+
+	private static void assertCorrupt( byte[] data, Class<?> type ) throws IOException {
+		try {
+			CODEC.decode(data, type);
+			fail("The corrupt length is not reported");
+		} catch (StreamCorruptedException e) {
+			// expected
+		}
+	}
+
+	private static String xmldoc( int size ) {
+		StringBuilder document = new StringBuilder("<sbml>");
+		while( document.length() < size )
+			document.append("<species id=\"s").append(document.length()).append("\"/>");
+		return document.append("</sbml>").toString();
+	}
+
+	private static byte[] serialize( Object object ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize( byte[] serialized ) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream(serialized) );
+		try {
+			return in.readObject();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreAsyncClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class HttpMorreAsyncClientTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreAsyncClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		List<CompletableFuture<List<ModelResult>>> futures = new ArrayList<CompletableFuture<List<ModelResult>>>();
+		for( int i = 0; i < 200; i++ )
+			futures.add( client.modelQuery("query" + i) );
+
+		for( int i = 0; i < futures.size(); i++ ) {
+			List<ModelResult> result = futures.get(i).get();
+			assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, result.size() );
+			assertEquals( "query" + i + " model 0", result.get(0).getModelName() );
+		}
+
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doPersonQuery(new FeatureSet().set("FAMILYNAME", "Lloyd")).get().size() );
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doAnnotationQuery("Lloyd").get().size() );
+		assertNull( client.modelQuery(MorreStandInServer.KEYWORD_NO_RESULT).get() );
+	}
+
+	@Test
+	public void testCrawlerCalls() throws Exception {
+		assertEquals( 3, client.getModelHistory("file1").get().size() );
+
+		CrawledModel model = client.getModelVersion("file1", "2").get();
+		assertEquals( "file1", model.getFileId() );
+		assertEquals( "2", model.getVersionId() );
+	}
+
+	@Test
+	public void testExceptionalCompletion() throws Exception {
+		assertMorreException( client.modelQuery(MorreStandInServer.KEYWORD_EXCEPTION) );
+		assertMorreException( client.getModelVersion(MorreStandInServer.KEYWORD_EXCEPTION, "1") );
+	}
+
+	@Test
+	public void testDeferredDocument() throws Exception {
+		ModelResult model = client.modelQuery("novak", Projection.METADATA).get().get(0);
+		assertTrue( !model.isXmldocLoaded() );
+		assertEquals( "<sbml id=\"file0\"/>", model.getXmldoc() );
+	}
+
+	@Test
+	public void testDeferredDocumentOnDispatcherThread() throws Exception {
+		// the response arrives after the stage is attached, so the stage runs on the I/O dispatcher
+		server.setLatency(200);
+		CompletableFuture<Object> loaded = client.modelQuery("novak", Projection.METADATA).thenApply( new Function<List<ModelResult>, Object>() {
+			@Override
+			public Object apply(List<ModelResult> result) {
+				try {
+					return result.get(0).loadXmldoc();
+				} catch (MorreClientException e) {
+					return e;
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+			}
+		});
+		assertTrue( "the document is loaded on the dispatcher", loaded.get(5, TimeUnit.SECONDS) instanceof MorreClientException );
+
+		// the non-blocking way
+		server.setLatency(0);
+		ModelResult model = client.modelQuery("novak", Projection.METADATA).get().get(0);
+		long requests = server.getRequestCount();
+		assertEquals( "<sbml id=\"file0\"/>", client.loadXmldoc(model).get() );
+		assertTrue( model.isXmldocLoaded() );
+		assertEquals( "<sbml id=\"file0\"/>", model.getXmldoc() );
+		assertEquals( "<sbml id=\"file0\"/>", client.loadXmldoc(model).get() );
+		assertEquals( requests + 1, server.getRequestCount() );
+	}
+
+	private static void assertMorreException( CompletableFuture<?> future ) throws InterruptedException {
+		try {
+			future.get();
+			fail("expected an exceptional completion");
+		}
+		catch (ExecutionException e) {
+			assertTrue( "unexpected exception " + e.getCause(), e.getCause() instanceof MorreException );
+		}
+	}
+
+}
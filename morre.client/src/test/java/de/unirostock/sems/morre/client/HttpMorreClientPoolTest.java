@@ -0,0 +1,140 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+/**
+ * Load test of the pooling mode, checks that no connection is leaked, neither on successful
+ * nor on failing requests.
+ * The number of queries can be changed with the system property <code>morre.test.poolQueries</code>.
+ *
+ */
+public class HttpMorreClientPoolTest {
+
+	private static final int QUERIES = Integer.getInteger("morre.test.poolQueries", 100000);
+	private static final int THREADS = 16;
+	private static final int MAX_CONNECTIONS = 8;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig()
+				.setPooling(true)
+				.setMaxTotalConnections(MAX_CONNECTIONS)
+				.setMaxConnectionsPerRoute(MAX_CONNECTIONS) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		if( client != null )
+			client.close();
+		if( server != null )
+			server.stop();
+	}
+
+	@Test
+	public void testNoConnectionLeak() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for( int t = 0; t < THREADS; t++ ) {
+			final int offset = t;
+			futures.add( executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					int done = 0;
+					for( int i = offset; i < QUERIES; i += THREADS ) {
+						mixedQuery(i);
+						done++;
+					}
+					return done;
+				}
+			}) );
+		}
+
+		int done = 0;
+		for( Future<Integer> future : futures )
+			done += future.get();
+		executor.shutdown();
+
+		assertEquals( QUERIES, done );
+
+		PoolStats stats = client.getConnectionPoolStats();
+		assertNotNull( stats );
+		assertEquals( "leased connections after load test", 0, stats.getLeased() );
+		assertEquals( "pending connection requests after load test", 0, stats.getPending() );
+		assertTrue( "more connections than allowed", stats.getAvailable() <= MAX_CONNECTIONS );
+	}
+
+	@Test
+	public void testDefaultModeHasNoPoolStats() throws IOException {
+		HttpMorreClient plain = new HttpMorreClient( server.getUrl() );
+		try {
+			assertNull( plain.getConnectionPoolStats() );
+		}
+		finally {
+			plain.close();
+		}
+	}
+
+	private void mixedQuery( int i ) throws Exception {
+		switch( i % 8 ) {
+			case 0:
+				assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.modelQuery("novak").size() );
+				break;
+			case 1:
+				assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", "novak")).size() );
+				break;
+			case 2:
+				assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doPersonQuery(new FeatureSet().set("FAMILYNAME", "Lloyd")).size() );
+				break;
+			case 3:
+				assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doAnnotationQuery("Lloyd").size() );
+				break;
+			case 4:
+				assertNotNull( client.getQueryFeatures(QueryType.MODEL_QUERY) );
+				break;
+			case 5:
+				assertEquals( "2", client.getModelVersion("file" + i, "2").getVersionId() );
+				break;
+			case 6:
+				assertNull( client.modelQuery(MorreStandInServer.KEYWORD_NO_RESULT) );
+				break;
+			default:
+				try {
+					client.modelQuery(MorreStandInServer.KEYWORD_EXCEPTION);
+					fail("expected a MorreException");
+				}
+				catch (MorreException e) {
+					// expected, the connection has to be released anyway
+				}
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.balancer.LoadBalancingConfig;
+import de.unirostock.sems.morre.client.balancer.LoadBalancingMorre;
+import de.unirostock.sems.morre.client.balancer.NodeStatus;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
+
+public class LoadBalancingMorreTest {
+
+	private MorreStandInServer primary = null;
+	private MorreStandInServer replica1 = null;
+	private MorreStandInServer replica2 = null;
+	private LoadBalancingMorre morre = null;
+
+	@Before
+	public void prepare() throws IOException {
+		StandInDataset dataset = StandInDataset.generate(10, 2, 128);
+		primary = new MorreStandInServer(dataset);
+		replica1 = new MorreStandInServer(dataset);
+		replica2 = new MorreStandInServer(dataset);
+		primary.start();
+		replica1.start();
+		replica2.start();
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		if( morre != null )
+			morre.close();
+		primary.stop();
+		replica1.stop();
+		replica2.stop();
+	}
+
+	private LoadBalancingMorre connect( LoadBalancingConfig config ) throws IOException {
+		morre = new LoadBalancingMorre( primary.getUrl(), Arrays.asList(replica1.getUrl(), replica2.getUrl()), new HttpMorreClientConfig(), config );
+		return morre;
+	}
+
+	@Test
+	public void testReadsSpreadOverReplicas() throws Exception {
+		connect( new LoadBalancingConfig() );
+		for( int i = 0; i < 40; i++ )
+			assertEquals( 10, morre.modelQuery("sems").size() );
+
+		assertEquals( 0, primary.getRequestCount() );
+		assertTrue( replica1.getRequestCount() > 5 );
+		assertTrue( replica2.getRequestCount() > 5 );
+		assertEquals( 40, replica1.getRequestCount() + replica2.getRequestCount() );
+	}
+
+	@Test
+	public void testWritesPinnedToPrimary() throws Exception {
+		connect( new LoadBalancingConfig() );
+		CrawledModel model = new CrawledModel( "file3", "3", "<sbml/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML );
+		assertTrue( morre.addModel(model) );
+
+		assertEquals( Arrays.asList("file3:3"), primary.getAddedModels() );
+		assertTrue( replica1.getAddedModels().isEmpty() );
+		assertTrue( replica2.getAddedModels().isEmpty() );
+
+		// the primary is down, the write fails instead of going to a replica
+		primary.stop();
+		try {
+			morre.addModel(model);
+			fail("The write does not fail without the primary");
+		} catch (MorreCommunicationException e) {
+			// expected
+		}
+		assertEquals( 0, replica1.getRequestCount() + replica2.getRequestCount() );
+	}
+
+	@Test
+	public void testFailoverAndEjection() throws Exception {
+		connect( new LoadBalancingConfig().setFailureThreshold(1).setProbeInterval(60000) );
+		replica1.stop();
+
+		// the caller does not notice the failed replica
+		for( int i = 0; i < 20; i++ )
+			assertEquals( Arrays.asList("1", "2"), morre.getModelHistory("file1") );
+		assertEquals( 20, replica2.getRequestCount() );
+
+		List<NodeStatus> status = morre.getNodeStatus();
+		assertTrue( status.get(0).isPrimary() );
+		assertFalse( status.get(1).isHealthy() );
+		assertTrue( status.get(2).isHealthy() );
+
+		// without replicas the primary answers
+		replica2.stop();
+		assertEquals( "2", morre.getModelVersion("file2", "2").getVersionId() );
+		assertEquals( 1, primary.getRequestCount() );
+
+		// answers of MORRE are passed on, not treated as failures
+		try {
+			morre.modelQuery( MorreStandInServer.KEYWORD_EXCEPTION );
+			fail("The server side exception is not thrown");
+		} catch (MorreException e) {
+			// expected
+		}
+		assertTrue( morre.getNodeStatus().get(0).isHealthy() );
+	}
+
+	@Test
+	public void testProbing() throws Exception {
+		connect( new LoadBalancingConfig().setFailureThreshold(2).setProbeInterval(50) );
+		replica1.setTransientFailures(2);
+		for( int i = 0; i < 10; i++ )
+			morre.doAnnotationQuery("sems");
+
+		// the probe answers as soon as the failures are used up
+		long deadline = System.currentTimeMillis() + 5000;
+		while( !morre.getNodeStatus().get(1).isHealthy() && System.currentTimeMillis() < deadline )
+			Thread.sleep(20);
+		assertTrue( morre.getNodeStatus().get(1).isHealthy() );
+
+		replica1.resetCounters();
+		replica2.resetCounters();
+		for( int i = 0; i < 40; i++ )
+			morre.doAnnotationQuery("sems");
+		assertTrue( replica1.getRequestCount() > 5 );
+	}
+
+	@Test
+	public void testLatencyStrategy() throws Exception {
+		connect( new LoadBalancingConfig().setStrategy(LoadBalancingConfig.Strategy.EWMA_LATENCY) );
+		replica1.setLatency(50);
+		for( int i = 0; i < 40; i++ )
+			morre.modelQuery("sems");
+
+		assertTrue( replica2.getRequestCount() > 3 * replica1.getRequestCount() );
+		assertTrue( morre.getNodeStatus().get(1).getAverageLatency() >= 50000 );
+	}
+
+}
@@ -0,0 +1,105 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.metrics.EndpointStatistics;
+import de.unirostock.sems.morre.client.metrics.Histogram;
+import de.unirostock.sems.morre.client.metrics.InMemoryMetrics;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class MetricsTest {
+
+	private static final String MODEL_QUERY = MorreProtocol.REST_URL_QUERY + QueryType.MODEL_QUERY;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+	private InMemoryMetrics metrics = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl() );
+		metrics = new InMemoryMetrics();
+		client.setMetricsListener(metrics);
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testEndpointStatistics() throws Exception {
+		server.setLatency(20);
+		for( int i = 0; i < 5; i++ )
+			client.modelQuery("sems");
+		try {
+			client.modelQuery( MorreStandInServer.KEYWORD_EXCEPTION );
+			fail("The server side exception is not thrown");
+		} catch (MorreException e) {
+			// expected
+		}
+		client.addModel( new CrawledModel("file1", "1", "<sbml/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML) );
+
+		EndpointStatistics query = metrics.getStatistics(MODEL_QUERY);
+		assertEquals( 6, query.getRequests() );
+		assertEquals( 1, query.getErrorCount() );
+		assertEquals( Long.valueOf(1), query.getErrors().get("MorreException") );
+		assertTrue( query.getRequestBytes() > 6 * "{\"keyword\":\"sems\"}".length() - 10 );
+		assertEquals( server.getSentBytes() - addModelResponseBytes(), query.getResponseBytes() );
+		assertTrue( query.getLatency(50, TimeUnit.MILLISECONDS) >= 20 );
+		assertTrue( query.getDecodeTime(99, TimeUnit.MILLISECONDS) < query.getLatency(99, TimeUnit.MILLISECONDS) );
+
+		EndpointStatistics addModel = metrics.getStatistics(MorreProtocol.SERVICE_ADD_MODEL_VERSION);
+		assertEquals( 1, addModel.getRequests() );
+		assertEquals( server.getReceivedBytes() - query.getRequestBytes(), addModel.getRequestBytes() );
+
+		assertEquals( 2, metrics.getStatistics().size() );
+		assertTrue( metrics.report().contains(MODEL_QUERY) );
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		client.setMetricsListener(null);
+		client.modelQuery("sems");
+		assertNull( metrics.getStatistics(MODEL_QUERY) );
+	}
+
+	@Test
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		assertEquals( 0, histogram.getPercentile(99) );
+
+		for( long value = 1; value <= 10000; value++ )
+			histogram.record(value);
+
+		assertEquals( 10000, histogram.getCount() );
+		assertEquals( 5000, histogram.getPercentile(50), 5000 / 8 );
+		assertEquals( 9900, histogram.getPercentile(99), 9900 / 8 );
+		assertEquals( 1, histogram.getPercentile(0) );
+		assertTrue( histogram.getPercentile(100) >= 10000 );
+	}
+
+	private long addModelResponseBytes() {
+		return "{\"ok\":\"true\"}".length();
+	}
+
+}
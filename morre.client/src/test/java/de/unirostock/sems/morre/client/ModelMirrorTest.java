@@ -0,0 +1,126 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.mirror.MirrorReport;
+import de.unirostock.sems.morre.client.mirror.ModelMirror;
+import de.unirostock.sems.morre.client.mirror.ModelVersionSink;
+import de.unirostock.sems.morre.client.mirror.VersionIndex;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class ModelMirrorTest {
+
+	private static final int MODELS = 200;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	private final List<String> stored = Collections.synchronizedList( new ArrayList<String>() );
+	private final ModelVersionSink sink = new ModelVersionSink() {
+		@Override
+		public void store(CrawledModel model) throws IOException {
+			stored.add( model.getFileId() + ":" + model.getVersionId() );
+		}
+	};
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testFetchesOnlyNewVersions() throws Exception {
+		// the stand-in knows the versions 1 to 3 of every model
+		VersionIndex index = new VersionIndex();
+		List<String> fileIds = new ArrayList<String>();
+		for( int i = 0; i < MODELS; i++ ) {
+			fileIds.add("file" + i);
+			index.add("file" + i, "1");
+			index.add("file" + i, "2");
+			if( i % 50 != 0 )
+				index.add("file" + i, "3");
+		}
+
+		ModelMirror mirror = new ModelMirror(client, index, sink, 4);
+		try {
+			MirrorReport report = mirror.refresh(fileIds);
+
+			assertTrue( report.toString(), report.isSuccessful() );
+			assertEquals( MODELS, report.getHistoryCalls() );
+			assertEquals( MODELS / 50, report.getFetchedVersions() );
+			assertEquals( MODELS + MODELS / 50, server.getRequestCount() );
+			assertTrue( stored.contains("file50:3") );
+			assertEquals( MODELS * 3, index.size() );
+
+			// nothing new on the second run
+			report = mirror.refresh(fileIds);
+			assertEquals( 0, report.getFetchedVersions() );
+			assertEquals( MODELS / 50, stored.size() );
+		}
+		finally {
+			mirror.close();
+		}
+	}
+
+	@Test
+	public void testFailingModel() throws Exception {
+		ModelMirror mirror = new ModelMirror(client, new VersionIndex(), sink);
+		try {
+			MirrorReport report = mirror.refresh( Arrays.asList("file1", MorreStandInServer.KEYWORD_EXCEPTION) );
+
+			assertEquals( 3, report.getFetchedVersions() );
+			assertEquals( 1, report.getFailures().size() );
+			assertTrue( report.getFailures().get(MorreStandInServer.KEYWORD_EXCEPTION) instanceof MorreException );
+		}
+		finally {
+			mirror.close();
+		}
+	}
+
+	@Test
+	public void testIndexFile() throws Exception {
+		File file = new File( folder.getRoot(), "mirror.index" );
+		assertEquals( 0, VersionIndex.load(file).size() );
+
+		VersionIndex index = new VersionIndex();
+		index.add("file1", "1");
+		index.add("file1", "2");
+		index.add("file2", "2014-03-04");
+		index.save(file);
+
+		VersionIndex loaded = VersionIndex.load(file);
+		assertEquals( 3, loaded.size() );
+		assertTrue( loaded.contains("file1", "2") );
+		assertTrue( loaded.contains("file2", "2014-03-04") );
+	}
+
+}
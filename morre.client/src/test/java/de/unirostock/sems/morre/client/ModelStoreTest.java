@@ -0,0 +1,191 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.store.ModelStore;
+import de.unirostock.sems.morre.client.store.ModelStoreConfig;
+import de.unirostock.sems.morre.client.store.StoredMorreCrawler;
+
+public class ModelStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl() );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testServesVersionsFromDisk() throws Exception {
+		File directory = folder.newFolder("store");
+
+		ModelStore store = new ModelStore(directory);
+		StoredMorreCrawler crawler = new StoredMorreCrawler(client, store);
+		CrawledModel fetched = crawler.getModelVersion("file1", "2");
+		assertEquals( 1, server.getRequestCount() );
+		crawler.getModelVersion("file1", "2");
+		assertEquals( 1, server.getRequestCount() );
+		store.close();
+
+		// a restart does not download the version again
+		store = new ModelStore(directory);
+		crawler = new StoredMorreCrawler(client, store);
+		CrawledModel stored = crawler.getModelVersion("file1", "2");
+		assertEquals( 1, server.getRequestCount() );
+		assertEquals( fetched.getXmldoc(), stored.getXmldoc() );
+		assertEquals( fetched.getModelType(), stored.getModelType() );
+
+		// the latest version is requested, but the known version is kept
+		assertTrue( store.put(model("file2", "3", "<stored/>")) );
+		assertEquals( "<stored/>", crawler.getLatestModelVersion("file2").getXmldoc() );
+		assertEquals( 2, server.getRequestCount() );
+		store.close();
+	}
+
+	@Test
+	public void testTornWrite() throws Exception {
+		File directory = folder.newFolder("store");
+
+		ModelStore store = new ModelStore(directory);
+		store.put( model("file1", "1", "<sbml/>") );
+		store.put( model("file1", "2", "<sbml/>") );
+		store.close();
+
+		// cut the last record in half, as a crash during the write would
+		File segment = directory.listFiles()[0];
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		file.setLength( file.length() - 10 );
+		file.close();
+
+		store = new ModelStore(directory);
+		assertEquals( 1, store.size() );
+		assertNotNull( store.get("file1", "1") );
+		assertNull( store.get("file1", "2") );
+
+		// the broken tail is overwritten
+		store.put( model("file1", "2", "<sbml/>") );
+		store.close();
+		store = new ModelStore(directory);
+		assertEquals( 2, store.size() );
+		store.close();
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		File directory = folder.newFolder("store");
+		ModelStore store = new ModelStore( directory, new ModelStoreConfig().setSegmentSize(1024) );
+
+		for( int i = 0; i < 50; i++ )
+			store.put( model("file" + i, "1", "<sbml id=\"file" + i + "\"/>") );
+		for( int i = 0; i < 50; i += 2 )
+			assertTrue( store.remove("file" + i, "1") );
+		assertFalse( store.remove("file0", "1") );
+
+		long before = store.getDiskBytes();
+		assertTrue( directory.listFiles().length > 1 );
+		store.compact();
+		assertTrue( store.getDiskBytes() < before );
+		assertEquals( store.getLiveBytes(), store.getDiskBytes() );
+		assertEquals( 25, store.size() );
+		assertEquals( "<sbml id=\"file7\"/>", store.get("file7", "1").getXmldoc() );
+		store.close();
+
+		store = new ModelStore(directory);
+		assertEquals( 25, store.size() );
+		assertNull( store.get("file8", "1") );
+		assertNotNull( store.get("file9", "1") );
+		store.close();
+	}
+
+	@Test
+	public void testCompactionForcesBeforeDeleting() throws Exception {
+		File directory = folder.newFolder("store");
+		final List<String> forced = new ArrayList<String>();
+		final List<File> old = new ArrayList<File>();
+		ModelStore store = new ModelStore( directory, new ModelStoreConfig().setSegmentSize(1024).setSyncWrites(false) ) {
+			@Override
+			protected void force(File file, FileChannel channel) throws IOException {
+				// the old segments have to be there, as long as a new one is not on disk
+				for( File segment : old )
+					assertTrue( "Deleted before forcing " + file.getName(), segment.exists() );
+				forced.add( file.getName() );
+				super.force(file, channel);
+			}
+		};
+
+		for( int i = 0; i < 50; i++ )
+			store.put( model("file" + i, "1", "<sbml id=\"file" + i + "\"/>") );
+		for( int i = 0; i < 50; i += 4 )
+			store.remove("file" + i, "1");
+		old.addAll( Arrays.asList(directory.listFiles()) );
+		assertTrue( forced.isEmpty() );
+
+		store.compact();
+		List<String> written = new ArrayList<String>();
+		for( File file : directory.listFiles() )
+			written.add( file.getName() );
+		assertTrue( written.size() > 1 );
+		assertTrue( forced.containsAll(written) );
+		assertTrue( forced.contains(directory.getName()) );
+		for( File segment : old )
+			assertFalse( segment.exists() );
+		store.close();
+	}
+
+	@Test
+	public void testDiskBudget() throws Exception {
+		File directory = folder.newFolder("store");
+		ModelStore store = new ModelStore( directory, new ModelStoreConfig().setSegmentSize(1024).setMaxBytes(4096) );
+
+		for( int i = 0; i < 200; i++ )
+			store.put( model("file" + i, "1", "<sbml id=\"file" + i + "\"/>") );
+
+		assertTrue( store.getDiskBytes() <= 4096 + 1024 );
+		assertTrue( store.size() < 200 );
+		assertNull( store.get("file0", "1") );
+		assertNotNull( store.get("file199", "1") );
+		store.close();
+	}
+
+	private static CrawledModel model( String fileId, String versionId, String xmldoc ) {
+		Map<String, String> meta = new HashMap<String, String>();
+		meta.put( CrawledModel.META_SOURCE, CrawledModel.SOURCE_BIOMODELS_DB );
+		return new CrawledModel( fileId, versionId, xmldoc, new HashMap<String, List<String>>(), meta, CrawledModel.TYPE_SBML );
+	}
+
+}
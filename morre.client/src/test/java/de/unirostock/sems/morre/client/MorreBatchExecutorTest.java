@@ -0,0 +1,129 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.batch.BatchListener;
+import de.unirostock.sems.morre.client.batch.BatchQuery;
+import de.unirostock.sems.morre.client.batch.BatchResult;
+import de.unirostock.sems.morre.client.batch.MorreBatchExecutor;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreAsyncClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+/**
+ * Checks order, failure isolation and the concurrency of the batch executor against a stand-in with injected latency.
+ * The size of the scaling batch can be changed with the system property <code>morre.test.batchQueries</code>.
+ *
+ */
+public class MorreBatchExecutorTest {
+
+	private static final int QUERIES = Integer.getInteger("morre.test.batchQueries", 200);
+	private static final long LATENCY = 20;
+	private static final int CONCURRENCY = 16;
+
+	private MorreStandInServer server = null;
+	private HttpMorreAsyncClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig()
+				.setPooling(true)
+				.setMaxConnectionsPerRoute(CONCURRENCY) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testOrderAndFailures() throws Exception {
+		List<BatchQuery> queries = new ArrayList<BatchQuery>();
+		for( int i = 0; i < 50; i++ ) {
+			if( i % 10 == 3 )
+				queries.add( BatchQuery.keyword(QueryType.MODEL_QUERY, MorreStandInServer.KEYWORD_EXCEPTION) );
+			else if( i % 10 == 7 )
+				queries.add( BatchQuery.features(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", MorreStandInServer.KEYWORD_NO_RESULT)) );
+			else
+				queries.add( BatchQuery.keyword(QueryType.MODEL_QUERY, "query" + i) );
+		}
+
+		final List<BatchResult> completed = Collections.synchronizedList( new ArrayList<BatchResult>() );
+		List<BatchResult> results = new MorreBatchExecutor(client, 4).execute(queries, new BatchListener() {
+			@Override
+			public void completed(BatchResult result) {
+				completed.add(result);
+			}
+		}).get();
+
+		assertEquals( queries.size(), results.size() );
+		assertEquals( queries.size(), completed.size() );
+		for( int i = 0; i < results.size(); i++ ) {
+			BatchResult result = results.get(i);
+			assertEquals( i, result.getIndex() );
+			assertTrue( queries.get(i) == result.getQuery() );
+
+			if( i % 10 == 3 ) {
+				assertFalse( result.isSuccessful() );
+				assertTrue( result.getError() instanceof MorreException );
+			}
+			else if( i % 10 == 7 ) {
+				assertTrue( result.isSuccessful() );
+				assertNull( result.getResult() );
+			}
+			else {
+				assertTrue( result.isSuccessful() );
+				assertEquals( "query" + i + " model 0", result.getResult().get(0).getModelName() );
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyBatch() throws Exception {
+		assertTrue( new MorreBatchExecutor(client).execute( new ArrayList<BatchQuery>() ).get().isEmpty() );
+	}
+
+	@Test
+	public void testConcurrencyScaling() throws Exception {
+		server.setLatency(LATENCY);
+
+		List<BatchQuery> queries = new ArrayList<BatchQuery>();
+		for( int i = 0; i < QUERIES; i++ )
+			queries.add( BatchQuery.features(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", "gene" + i)) );
+
+		// counted at the stand-in instead of timed, so a loaded machine does not fail the test
+		assertEquals( 1, runBatch(queries, 1) );
+
+		// with the latency, the executor has time to fill its window, but never exceeds it
+		int parallel = runBatch(queries, CONCURRENCY);
+		assertTrue( "at most " + parallel + " queries in flight", parallel > CONCURRENCY / 2 );
+		assertTrue( "at most " + parallel + " queries in flight", parallel <= CONCURRENCY );
+	}
+
+	private int runBatch( List<BatchQuery> queries, int concurrency ) throws Exception {
+		server.resetCounters();
+		List<BatchResult> results = new MorreBatchExecutor(client, concurrency).execute(queries).get();
+
+		for( BatchResult result : results )
+			assertTrue( result.toString(), result.isSuccessful() );
+
+		return server.getMaxConcurrentRequests();
+	}
+
+}
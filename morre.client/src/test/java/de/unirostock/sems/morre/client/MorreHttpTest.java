@@ -1,132 +1,164 @@
 package de.unirostock.sems.morre.client;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.junit.runners.JUnit4;
 
 import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
 import de.unirostock.sems.morre.client.dataholder.ModelResult;
 import de.unirostock.sems.morre.client.dataholder.PersonResult;
 import de.unirostock.sems.morre.client.dataholder.PublicationResult;
-import de.unirostock.sems.morre.client.exception.MorreClientException;
-import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
 import de.unirostock.sems.morre.client.exception.MorreException;
 import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
 
-//@RunWith(JUnit4.class)
 public class MorreHttpTest {
-	
-	private Morre morre = null;
-	
-	//@Before
-	public void prepare() throws MalformedURLException {
-		// TODO the web interface is not running here anymore!
-		morre = new HttpMorreClient( "http://morre.sems.uni-rostock.de:7474/morre/" );
-	}
-	
-	//@Test
-	public void testGettingFeatures() throws MorreException, MalformedURLException, IllegalStateException, IOException {
-		
-		String[] queries = { QueryType.ANNOTATION_MODEL_QUERY, QueryType.ANNOTATION_QUERY, QueryType.CELLML_MODEL_QUERY, QueryType.MODEL_QUERY, QueryType.PERSON_MODEL_QUERY,
-				QueryType.PERSON_QUERY, QueryType.PUBLICATION_MODEL_QUERY, QueryType.PUBLICATION_QUERY, QueryType.SIMPLE_CELLML_MODEL_QUERY };
-		
-		for( int i = 0; i < queries.length; i++ ) {
-			System.out.println( queries[i] + ":" );
-			System.out.println( morre.getQueryFeatures(queries[i]) );
-		}
-		
-	}
-	
-	//@Test
-	public void testSimpleModelQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		List<ModelResult> result = morre.modelQuery("novak");
-		System.out.println( MessageFormat.format("Found {0} models", result.size()) );
-		System.out.println( result );
-		
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient morre = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer( StandInDataset.generate(20, 3, 256) );
+		server.start();
+		morre = new HttpMorreClient( server.getUrl() );
 	}
-	
-	//@Test
-	public void testPersonModelQuery() throws MorreCommunicationException, MorreException {
-		
-		FeatureSet features = new FeatureSet();
-		features.set("FAMILYNAME", "Lloyd");
-		
-		List<ModelResult> result = morre.doModelQuery(QueryType.PERSON_MODEL_QUERY, features);
-		System.out.println( MessageFormat.format("PersonModelQuery: Found {0} models", result.size()) );
-		System.out.println( result );
+
+	@After
+	public void shutdown() throws IOException {
+		morre.close();
+		server.stop();
 	}
-	
-	//@Test
-	public void testCellMlModelQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		FeatureSet features = new FeatureSet();
-		features.set("NAME", "novak");
-		
-		List<ModelResult> result = morre.doModelQuery(QueryType.CELLML_MODEL_QUERY, features);
-		System.out.println( MessageFormat.format("CellMlModelQuery: Found {0} models", result.size()) );
-		System.out.println( result );
-		
+
+	@Test
+	public void testGettingFeatures() throws Exception {
+		server.getDataset().setFeatures( QueryType.PERSON_QUERY, Arrays.asList("FAMILYNAME", "GIVENNAME") );
+
+		String[] queries = { QueryType.ANNOTATION_MODEL_QUERY, QueryType.ANNOTATION_QUERY, QueryType.CELLML_MODEL_QUERY, QueryType.MODEL_QUERY, QueryType.PERSON_MODEL_QUERY,
+				QueryType.PUBLICATION_MODEL_QUERY, QueryType.PUBLICATION_QUERY, QueryType.SIMPLE_CELLML_MODEL_QUERY };
+		for( String query : queries )
+			assertEquals( StandInDataset.DEFAULT_FEATURES, morre.getQueryFeatures(query) );
+
+		assertEquals( Arrays.asList("FAMILYNAME", "GIVENNAME"), morre.getQueryFeatures(QueryType.PERSON_QUERY) );
 	}
-	
-	//@Test
-	public void testAnnotationModelQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		List<ModelResult> result = morre.doSimpleModelQuery(QueryType.ANNOTATION_MODEL_QUERY, "This study investigates the reverse mode of the Na/glucose cotransporter SGLT1. In giant excised inside-out membrane patches from Xenopus laevis oocytes expressing rabbit SGLT1, application of alpha-methyl D");
-		System.out.println( MessageFormat.format("AnnotationModelQuery: Found {0} models", result.size()) );
-//		System.out.println( result );
-		
+
+	@Test
+	public void testModelQueries() throws Exception {
+		// "model 1" and "model 10" to "model 19"
+		List<ModelResult> result = morre.modelQuery("model 1");
+		assertEquals( 11, result.size() );
+		assertTrue( result.get(0).getXmldoc().startsWith("<sbml id=\"file1\">") );
+
+		result = morre.doModelQuery( QueryType.PERSON_MODEL_QUERY, new FeatureSet().set("NAME", "file7") );
+		assertEquals( 1, result.size() );
+		assertEquals( "file7", result.get(0).getFileId() );
+
+		assertNull( morre.doSimpleModelQuery(QueryType.ANNOTATION_MODEL_QUERY, "no such model") );
 	}
-	
-	//@Test
-	public void testPublicationModelQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		FeatureSet features = new FeatureSet();
-		features.set("TITLE", "Mathematical modeling of mechanically modulated rhythm disturbances in homogeneous and heterogeneous myocardium with attenuated activity of na+ -k+ pump");
-		
-		List<ModelResult> result = morre.doModelQuery(QueryType.PUBLICATION_MODEL_QUERY, features);
-		System.out.println( MessageFormat.format("PublicationModelQuery: Found {0} models", result.size()) );
-		System.out.println( result );
-		
+
+	@Test
+	public void testRecordQueries() throws Exception {
+		List<PersonResult> persons = morre.doPersonQuery( new FeatureSet().set("FAMILYNAME", "Family3") );
+		assertEquals( 1, persons.size() );
+		assertEquals( "Given3", persons.get(0).getPerson().getFirstName() );
+
+		List<PublicationResult> publications = morre.doPublicationQuery( new FeatureSet().set("TITLE", "Publication 12 ") );
+		assertEquals( 1, publications.size() );
+		assertEquals( "Family12", publications.get(0).getPublication().getAuthors().get(0).getLastName() );
+
+		List<AnnotationResult> annotations = morre.doAnnotationQuery("urn:miriam:sems");
+		assertEquals( 20, annotations.size() );
 	}
-	
-	//@Test
-	public void testPersonQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		FeatureSet features = new FeatureSet();
-		features.set("FAMILYNAME", "Lloyd");
-		
-		List<PersonResult> result = morre.doPersonQuery(features);
-		System.out.println( MessageFormat.format("PersonQuery: Found {0} annotations", result.size()) );
-		System.out.println( result );
-		
+
+	@Test
+	public void testErrors() throws Exception {
+		try {
+			morre.modelQuery( MorreStandInServer.KEYWORD_EXCEPTION );
+			fail("The server side exception is not thrown");
+		} catch (MorreException e) {
+			assertTrue( e.getMessage().contains("Stand-in exception") );
+		}
+
+		try {
+			morre.getModelHistory("unknown");
+			fail("The unknown model is not reported");
+		} catch (MorreException e) {
+			assertTrue( e.getMessage().contains("Unknown model") );
+		}
+
+		server.setErrorRate(1);
+		try {
+			morre.doAnnotationQuery("sems");
+			fail("The injected error is not thrown");
+		} catch (MorreException e) {
+			assertTrue( e.getMessage().contains("Injected") );
+		}
+		assertEquals( 1, server.getInjectedErrors() );
 	}
-	
-	//@Test
-	public void testPublicationQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		FeatureSet features = new FeatureSet();
-		features.set("TITLE", "Mathematical modeling of mechanically modulated rhythm disturbances in homogeneous and heterogeneous myocardium with attenuated activity of na+ -k+ pump");
-		
-		List<PublicationResult> result = morre.doPublicationQuery(features);
-		System.out.println( MessageFormat.format("PersonQuery: Found {0} annotations", result.size()) );
-		System.out.println( result );
+
+	@Test
+	public void testCrawlerServices() throws Exception {
+		assertEquals( Arrays.asList("1", "2", "3"), morre.getModelHistory("file4") );
+		assertEquals( "2", morre.getModelVersion("file4", "2").getVersionId() );
+
+		CrawledModel model = new CrawledModel( "file4", "4", "<sbml id=\"new\"/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML );
+		assertTrue( morre.addModel(model) );
+		assertEquals( Arrays.asList("1", "2", "3", "4"), morre.getModelHistory("file4") );
+		assertEquals( "<sbml id=\"new\"/>", morre.getLatestModelVersion("file4").getXmldoc() );
+
+		// the client has no delete call yet
+		CloseableHttpClient http = HttpClients.createDefault();
+		try {
+			HttpPost delete = new HttpPost( server.getUrl() + MorreProtocol.SERVICE_DELETE_MODEL );
+			delete.setEntity( new StringEntity("{\"fileId\":\"file4\",\"versionId\":\"4\"}", ContentType.APPLICATION_JSON) );
+			CloseableHttpResponse response = http.execute(delete);
+			assertTrue( EntityUtils.toString(response.getEntity()).contains("ok") );
+			response.close();
+		}
+		finally {
+			http.close();
+		}
+		assertEquals( "3", morre.getLatestModelVersion("file4").getVersionId() );
 	}
-	
-	//@Test
-	public void testAnnotationQuery() throws MorreClientException, MorreCommunicationException, MorreException {
-		
-		List<AnnotationResult> result = morre.doAnnotationQuery("Lloyd");
-		System.out.println( MessageFormat.format("AnnotationQuery: Found {0} annotations", result.size()) );
-		System.out.println( result );
+
+	@Test
+	public void testCountersAndLatency() throws Exception {
+		server.setLatency(20);
+		server.setJitter(10);
+
+		long start = System.currentTimeMillis();
+		for( int i = 0; i < 3; i++ )
+			morre.modelQuery("sems");
+		morre.getModelHistory("file1");
+		assertTrue( System.currentTimeMillis() - start >= 4 * 20 );
+
+		assertEquals( 4, server.getRequestCount() );
+		assertEquals( 3, server.getRequestCount(MorreProtocol.REST_URL_QUERY + QueryType.MODEL_QUERY) );
+		assertEquals( 1, server.getRequestCount(MorreProtocol.SERVICE_GET_MODEL_HISTORY) );
+
+		server.resetCounters();
+		assertEquals( 0, server.getRequestCount() );
+		assertTrue( server.getRequestCounts().isEmpty() );
 	}
-	
-	
 
 }
@@ -0,0 +1,196 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig.Compression;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
+
+public class MorreProtocolTest {
+
+	private static final String URL = "http://localhost:7474/morre/";
+
+	@Test
+	public void testStreamingAddModelEntity() throws Exception {
+		MorreProtocol protocol = new MorreProtocol(URL);
+		CrawledModel model = model(100000);
+		HttpEntity entity = protocol.buildAddModelRequest(model).getEntity();
+
+		assertTrue( entity.isRepeatable() );
+		assertEquals( -1, entity.getContentLength() );
+		assertNull( entity.getContentEncoding() );
+
+		// every write serializes the model again
+		byte[] first = write(entity);
+		byte[] second = write(entity);
+		assertArrayEquals( first, second );
+		assertArrayEquals( first, EntityUtils.toByteArray(entity) );
+
+		CrawledModel decoded = protocol.getGson().fromJson( new String(first, "UTF-8"), CrawledModel.class );
+		assertEquals( model.getXmldoc(), decoded.getXmldoc() );
+		assertEquals( "file1", decoded.getFileId() );
+	}
+
+	@Test
+	public void testCompressedAddModelEntity() throws Exception {
+		MorreProtocol protocol = new MorreProtocol(URL, Compression.GZIP, 1024);
+
+		HttpEntity small = protocol.buildAddModelRequest( model(10) ).getEntity();
+		assertNull( small.getContentEncoding() );
+
+		CrawledModel model = model(100000);
+		HttpEntity large = protocol.buildAddModelRequest(model).getEntity();
+		assertEquals( "gzip", large.getContentEncoding().getValue() );
+
+		byte[] compressed = write(large);
+		assertTrue( compressed.length < model.getXmldoc().length() / 4 );
+		CrawledModel decoded = protocol.getGson().fromJson( new InputStreamReader(new GZIPInputStream(large.getContent()), "UTF-8"), CrawledModel.class );
+		assertEquals( model.getXmldoc(), decoded.getXmldoc() );
+	}
+
+	@Test
+	public void testQueryErrors() throws Exception {
+		MorreProtocol protocol = new MorreProtocol(URL);
+
+		// no result at all
+		assertNull( protocol.decode(entity(""), protocol.modelResultDecoder(Projection.FULL, null)) );
+		assertNull( protocol.decode(entity("[\"#Results\",\"0\"]"), protocol.modelResultDecoder(Projection.FULL, null)) );
+		assertNull( protocol.decode(entity("[\"#Results\",0]"), protocol.personResultDecoder()) );
+
+		// errors reported by MORRE, with and without description
+		assertEquals( "Index 'modelIndex' does not exist", queryError(protocol, "[\"Exception\",\"Index 'modelIndex' does not exist\"]").getMessage() );
+		assertNull( queryError(protocol, "[\"Exception\"]").getMessage() );
+		assertNull( queryError(protocol, "[\"Exception\",null]").getMessage() );
+		assertTrue( queryError(protocol, "[\"Unknown\",true,1]").getMessage().contains("[Unknown, true, 1]") );
+
+		// no error message and no result list
+		for( String corrupt : new String[] { "[\"#Results\",{\"a\":1}]", "[\"Exception\",[]]", "{\"Exception\":\"x\"}", "[\"Exception\"", "[{\"modelName\":1}" } ) {
+			try {
+				protocol.decode( entity(corrupt), protocol.modelResultDecoder(Projection.FULL, null) );
+				fail( "No communication error for " + corrupt );
+			} catch (MorreCommunicationException e) {
+				// expected
+			}
+		}
+	}
+
+	private static MorreException queryError( MorreProtocol protocol, String json ) throws Exception {
+		try {
+			protocol.decode( entity(json), protocol.modelResultDecoder(Projection.FULL, null) );
+		} catch (MorreException e) {
+			return e;
+		}
+		fail( "No error for " + json );
+		return null;
+	}
+
+	@Test
+	public void testDeduplication() throws Exception {
+		Gson reflective = new Gson();
+		Person author = new Person("Given", "Family", "author@example.org", "SEMS");
+		List<PublicationResult> results = new ArrayList<PublicationResult>();
+		for( int i = 0; i < 20; i++ ) {
+			Publication publication = new Publication("Publication " + i, "Journal", "Synopsis", "2014", Arrays.asList(author, new Person("Given" + i, "Family" + i, null, null)));
+			results.add( new PublicationResult(1f / (i + 1), publication, Arrays.asList("urn:model:file1", "urn:model:file" + i)) );
+		}
+		String json = reflective.toJson(results);
+		Type publicationList = new TypeToken<List<PublicationResult>>(){}.getType();
+
+		MorreProtocol protocol = new MorreProtocol(URL, Compression.NONE, 0, 1000);
+		List<PublicationResult> first = protocol.decode( entity(json), protocol.publicationResultDecoder() );
+		List<PublicationResult> second = protocol.decode( entity(json), protocol.publicationResultDecoder() );
+		assertEquals( reflective.fromJson(json, publicationList), first );
+
+		// the same author fields and URI instances in all results of all responses
+		Person canonical = first.get(0).getPublication().getAuthors().get(0);
+		String uri = first.get(0).getRelatedModelsUri().get(0);
+		for( List<PublicationResult> decoded : Arrays.asList(first, second) ) {
+			for( PublicationResult result : decoded ) {
+				Person decodedAuthor = result.getPublication().getAuthors().get(0);
+				assertSame( canonical.getLastName(), decodedAuthor.getLastName() );
+				assertSame( canonical.getOrganization(), decodedAuthor.getOrganization() );
+				assertSame( uri, result.getRelatedModelsUri().get(0) );
+			}
+		}
+		assertSame( first.get(3).getPublication().getAuthors().get(1).getFirstName(), second.get(3).getPublication().getAuthors().get(1).getFirstName() );
+
+		// but every result has persons of its own
+		assertNotSame( canonical, first.get(1).getPublication().getAuthors().get(0) );
+		canonical.setLastName("Changed");
+		assertEquals( "Family", first.get(1).getPublication().getAuthors().get(0).getLastName() );
+		assertEquals( "Family", second.get(0).getPublication().getAuthors().get(0).getLastName() );
+		assertEquals( author, protocol.decode(entity(json), protocol.publicationResultDecoder()).get(0).getPublication().getAuthors().get(0) );
+
+		// a tiny pool starts over, but decodes the same values
+		MorreProtocol bounded = new MorreProtocol(URL, Compression.NONE, 0, 2);
+		assertEquals( second, bounded.decode(entity(json), bounded.publicationResultDecoder()) );
+
+		// a full pool evicts the values seen once and keeps the recurring ones
+		MorreProtocol evicting = new MorreProtocol(URL, Compression.NONE, 0, 8);
+		String recurring = null;
+		for( int i = 0; i < 50; i++ ) {
+			String annotations = reflective.toJson( Arrays.asList(new AnnotationResult(1f, "urn:annotation:" + i, Arrays.asList("urn:model:recurring", "urn:model:" + i))) );
+			String decoded = evicting.decode( entity(annotations), evicting.annotationResultDecoder() ).get(0).getRelatedModelsUri().get(0);
+			if( recurring == null )
+				recurring = decoded;
+			assertSame( recurring, decoded );
+		}
+
+		// without pool every value is an instance of its own
+		MorreProtocol plain = new MorreProtocol(URL);
+		List<PublicationResult> separate = plain.decode( entity(json), plain.publicationResultDecoder() );
+		assertNotSame( separate.get(0).getPublication().getAuthors().get(0), separate.get(1).getPublication().getAuthors().get(0) );
+	}
+
+	private static HttpEntity entity( String json ) {
+		return new StringEntity( json, ContentType.APPLICATION_JSON );
+	}
+
+	private static byte[] write( HttpEntity entity ) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		return out.toByteArray();
+	}
+
+	private static CrawledModel model( int documentSize ) {
+		StringBuilder document = new StringBuilder("<sbml>");
+		while( document.length() < documentSize )
+			document.append("<species id=\"s").append(document.length()).append("\"/>");
+		document.append("</sbml>");
+
+		return new CrawledModel("file1", "1", document.toString(), new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML);
+	}
+
+}
@@ -0,0 +1,84 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class ProjectionTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl() );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testFullProjection() throws Exception {
+		List<ModelResult> result = client.modelQuery("novak", Projection.FULL);
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, result.size() );
+		for( ModelResult model : result ) {
+			assertTrue( model.isXmldocLoaded() );
+			assertEquals( "<sbml/>", model.getXmldoc() );
+		}
+	}
+
+	@Test
+	public void testMetadataProjectionLoadsDocumentLazily() throws Exception {
+		List<ModelResult> result = client.doSimpleModelQuery(QueryType.MODEL_QUERY, "novak", Projection.METADATA);
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, result.size() );
+
+		ModelResult model = result.get(0);
+		assertFalse( model.isXmldocLoaded() );
+		assertEquals( "model0", model.getModelID() );
+		assertEquals( "novak model 0", model.getModelName() );
+
+		long requests = server.getRequestCount();
+		// the stand-in serves the crawled model with a document specific to the file id
+		assertEquals( "<sbml id=\"file0\"/>", model.getXmldoc() );
+		assertTrue( model.isXmldocLoaded() );
+		assertEquals( requests + 1, server.getRequestCount() );
+
+		// loaded only once
+		model.getXmldoc();
+		assertEquals( requests + 1, server.getRequestCount() );
+	}
+
+	@Test
+	public void testLoadingTheDocumentKeepsTheIdentity() throws Exception {
+		ModelResult model = client.doSimpleModelQuery(QueryType.MODEL_QUERY, "novak", Projection.METADATA).get(0);
+		ModelResult full = client.doSimpleModelQuery(QueryType.MODEL_QUERY, "novak", Projection.FULL).get(0);
+		Set<ModelResult> models = new HashSet<ModelResult>();
+		models.add(model);
+		int hash = model.hashCode();
+
+		assertEquals( full, model );
+		model.getXmldoc();
+		assertEquals( hash, model.hashCode() );
+		assertTrue( models.contains(model) );
+		assertTrue( models.contains(full) );
+	}
+
+}
@@ -0,0 +1,96 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class QueryFeatureRegistryTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setFeatureValidation(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testFeaturesFetchedOnce() throws Exception {
+		assertEquals( 4, client.getQueryFeatures(QueryType.CELLML_MODEL_QUERY).size() );
+		client.getQueryFeatures(QueryType.CELLML_MODEL_QUERY);
+		client.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("NAME", "novak"));
+		client.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("ID", "1"));
+
+		// one feature request, two queries
+		assertEquals( 3, server.getRequestCount() );
+	}
+
+	@Test
+	public void testUnknownFeatureFailsLocally() throws Exception {
+		client.getQueryFeatures(QueryType.PERSON_QUERY);
+		long requests = server.getRequestCount();
+
+		try {
+			client.doPersonQuery(new FeatureSet().set("FAMILYNAME", "Lloyd").set("FAMILYNAM", "Lloyd"));
+			fail("expected a MorreClientException");
+		}
+		catch (MorreClientException e) {
+			assertTrue( e.getMessage(), e.getMessage().contains("FAMILYNAM]") );
+		}
+		assertEquals( requests, server.getRequestCount() );
+
+		assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, client.doPersonQuery(new FeatureSet().set("FAMILYNAME", "Lloyd")).size() );
+		assertEquals( requests + 1, server.getRequestCount() );
+	}
+
+	@Test
+	public void testRefreshInterval() throws Exception {
+		HttpMorreClient plain = new HttpMorreClient( server.getUrl() );
+		try {
+			QueryFeatureRegistry registry = new QueryFeatureRegistry(plain, 50);
+			registry.validate(QueryType.PUBLICATION_QUERY, new FeatureSet().set("TITLE", "Novak"));
+			registry.getFeatures(QueryType.PUBLICATION_QUERY);
+			assertEquals( 1, server.getRequestCount() );
+
+			Thread.sleep(100);
+			registry.getFeatures(QueryType.PUBLICATION_QUERY);
+			assertEquals( 2, server.getRequestCount() );
+		}
+		finally {
+			plain.close();
+		}
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		HttpMorreClient plain = new HttpMorreClient( server.getUrl() );
+		try {
+			assertNull( plain.getFeatureRegistry() );
+			assertEquals( MorreStandInServer.DEFAULT_RESULT_SIZE, plain.doModelQuery(QueryType.CELLML_MODEL_QUERY, new FeatureSet().set("UNKNOWN", "novak")).size() );
+		}
+		finally {
+			plain.close();
+		}
+	}
+
+}
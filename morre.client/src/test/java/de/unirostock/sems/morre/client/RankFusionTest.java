@@ -0,0 +1,156 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.batch.BatchQuery;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.fusion.FusionConfig;
+import de.unirostock.sems.morre.client.fusion.FusionMethod;
+import de.unirostock.sems.morre.client.fusion.RankFusion;
+import de.unirostock.sems.morre.client.fusion.WeightedQuery;
+import de.unirostock.sems.morre.client.impl.HttpMorreAsyncClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
+
+public class RankFusionTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreAsyncClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer( StandInDataset.generate(20, 1, 64) );
+		server.start();
+		client = new HttpMorreAsyncClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testParallelSubQueries() throws Exception {
+		server.setLatency(200);
+		RankFusion fusion = new RankFusion( client, new FusionConfig().setTopK(5) );
+
+		long start = System.currentTimeMillis();
+		List<ModelResult> fused = fusion.fuse( Arrays.asList(
+				new WeightedQuery( BatchQuery.keyword(QueryType.MODEL_QUERY, "model 1") ),
+				new WeightedQuery( BatchQuery.keyword(QueryType.ANNOTATION_MODEL_QUERY, "file1"), 0.5 ),
+				new WeightedQuery( BatchQuery.keyword(QueryType.PERSON_MODEL_QUERY, "sems") ),
+				new WeightedQuery( BatchQuery.features(QueryType.PUBLICATION_MODEL_QUERY, new FeatureSet().set("TITLE", MorreStandInServer.KEYWORD_NO_RESULT)) )
+			)).get();
+
+		assertTrue( System.currentTimeMillis() - start < 3 * 200 );
+		assertEquals( 4, server.getRequestCount() );
+		assertEquals( 5, fused.size() );
+		// the only model ranked high by all three
+		assertEquals( "file1", fused.get(0).getFileId() );
+		for( int i = 1; i < fused.size(); i++ )
+			assertTrue( fused.get(i - 1).getScore() >= fused.get(i).getScore() );
+	}
+
+	@Test
+	public void testFailedSubQuery() throws Exception {
+		List<WeightedQuery> queries = Arrays.asList(
+				new WeightedQuery( BatchQuery.keyword(QueryType.MODEL_QUERY, "sems") ),
+				new WeightedQuery( BatchQuery.keyword(QueryType.MODEL_QUERY, MorreStandInServer.KEYWORD_EXCEPTION) ) );
+
+		try {
+			new RankFusion(client).fuse(queries).get();
+			fail("The failed sub-query is not reported");
+		} catch (ExecutionException e) {
+			assertTrue( e.getCause() instanceof MorreException );
+		}
+
+		List<ModelResult> fused = new RankFusion( client, new FusionConfig().setIgnoreFailures(true) ).fuse(queries).get();
+		assertEquals( FusionConfig.DEFAULT_TOP_K, fused.size() );
+		assertEquals( "file0", fused.get(0).getFileId() );
+	}
+
+	@Test
+	public void testFusionMethods() {
+		// a: 1st and 3rd, b: 2nd only, but with a huge score, c: 3rd and 1st
+		List<List<ModelResult>> rankings = new ArrayList<List<ModelResult>>();
+		rankings.add( Arrays.asList(result("a", 10), result("b", 9.9f), result("c", 1), result("a", 0.5f)) );
+		rankings.add( Arrays.asList(result("c", 3), result("d", 2), result("a", 1)) );
+		List<Double> weights = Arrays.asList(1.0, 1.0);
+
+		List<ModelResult> rrf = new RankFusion( client, new FusionConfig().setMethod(FusionMethod.RECIPROCAL_RANK).setRankConstant(0) ).fuse(copy(rankings), weights);
+		// ties keep the order of appearance
+		assertEquals( Arrays.asList("a", "c", "b", "d"), ids(rrf) );
+		assertEquals( 1f + 1f / 3, rrf.get(0).getScore(), 1e-6 );
+
+		// normalized: a = 1 + 0, b = 0.989, c = 0.053 + 1, d = 0.5
+		List<ModelResult> sum = new RankFusion( client, new FusionConfig().setMethod(FusionMethod.WEIGHTED_SUM) ).fuse(copy(rankings), weights);
+		assertEquals( Arrays.asList("c", "a", "b", "d"), ids(sum) );
+
+		// appearing in both rankings doubles the score: a = 2 * (1 + 0), c = 2 * (0.053 + 0.5), b = 0.989
+		List<ModelResult> mnz = new RankFusion( client, new FusionConfig().setMethod(FusionMethod.COMB_MNZ).setTopK(2) ).fuse(copy(rankings), Arrays.asList(1.0, 0.5));
+		assertEquals( Arrays.asList("a", "c"), ids(mnz) );
+		assertEquals( 2.0, mnz.get(0).getScore(), 1e-6 );
+		assertEquals( 2 * (0.5 / 9.5 + 0.5), mnz.get(1).getScore(), 1e-6 );
+	}
+
+	@Test
+	public void testRankingsAreNotChanged() {
+		List<List<ModelResult>> rankings = new ArrayList<List<ModelResult>>();
+		rankings.add( Arrays.asList(result("a", 10), result("b", 5)) );
+		rankings.add( Arrays.asList(result("b", 3), result("c", 2)) );
+		List<List<ModelResult>> before = copy(rankings);
+
+		List<ModelResult> fused = new RankFusion( client, new FusionConfig().setMethod(FusionMethod.WEIGHTED_SUM) ).fuse(rankings, Arrays.asList(1.0, 1.0));
+		// a = 1 + 0, b = 0 + 1, c = 0
+		assertEquals( Arrays.asList("a", "b", "c"), ids(fused) );
+		assertEquals( 1f, fused.get(0).getScore(), 1e-6 );
+
+		// the same results with their own scores
+		for( int i = 0; i < rankings.size(); i++ ) {
+			for( int j = 0; j < rankings.get(i).size(); j++ ) {
+				assertEquals( before.get(i).get(j), rankings.get(i).get(j) );
+				assertEquals( before.get(i).get(j).getScore(), rankings.get(i).get(j).getScore(), 0 );
+			}
+		}
+		assertNotSame( rankings.get(0).get(0), fused.get(0) );
+	}
+
+	private static ModelResult result( String fileId, float score ) {
+		return new ModelResult("Model " + fileId, fileId, "1", "<sbml/>", "http://example.org/" + fileId, fileId, score);
+	}
+
+	private static List<List<ModelResult>> copy( List<List<ModelResult>> rankings ) {
+		List<List<ModelResult>> copy = new ArrayList<List<ModelResult>>();
+		for( List<ModelResult> ranking : rankings ) {
+			List<ModelResult> list = new ArrayList<ModelResult>();
+			for( ModelResult result : ranking )
+				list.add( result(result.getFileId(), result.getScore()) );
+			copy.add(list);
+		}
+		return copy;
+	}
+
+	private static List<String> ids( List<ModelResult> results ) {
+		List<String> ids = new ArrayList<String>();
+		for( ModelResult result : results )
+			ids.add( result.getFileId() );
+		return ids;
+	}
+
+}
@@ -0,0 +1,176 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.exception.MorreClientException;
+import de.unirostock.sems.morre.client.exception.MorreCommunicationException;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.resilience.CircuitBreaker;
+import de.unirostock.sems.morre.client.resilience.CircuitOpenException;
+import de.unirostock.sems.morre.client.resilience.ResilienceConfig;
+import de.unirostock.sems.morre.client.resilience.ResilientMorre;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class ResilientMorreTest {
+
+	private static final String MODEL_QUERY = MorreProtocol.REST_URL_QUERY + QueryType.MODEL_QUERY;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl() );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		server.stop();
+	}
+
+	@Test
+	public void testRetries() throws Exception {
+		ResilientMorre morre = new ResilientMorre( client, client, new ResilienceConfig().setInitialBackoff(10) );
+
+		server.setTransientFailures(2);
+		assertNotNull( morre.modelQuery("sems") );
+		assertEquals( 3, server.getRequestCount() );
+
+		// an answer of MORRE is final
+		try {
+			morre.modelQuery( MorreStandInServer.KEYWORD_EXCEPTION );
+			fail("The server side exception is not thrown");
+		} catch (MorreException e) {
+			// expected
+		}
+		assertEquals( 4, server.getRequestCount() );
+
+		// adding is not idempotent
+		server.setTransientFailures(1);
+		try {
+			morre.addModel( new CrawledModel("file1", "1", "<sbml/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML) );
+			fail("The failed upload is retried");
+		} catch (MorreCommunicationException e) {
+			// expected
+		}
+		assertEquals( 5, server.getRequestCount() );
+
+		// all attempts fail
+		server.setTransientFailures(3);
+		try {
+			morre.getModelHistory("file1");
+			fail("The failure is not thrown after the last attempt");
+		} catch (MorreCommunicationException e) {
+			assertFalse( e instanceof CircuitOpenException );
+		}
+		assertEquals( 8, server.getRequestCount() );
+	}
+
+	@Test
+	public void testCircuitBreaker() throws Exception {
+		ResilientMorre morre = new ResilientMorre( client, client, new ResilienceConfig().setMaxAttempts(1).setFailureThreshold(3).setOpenDuration(200) );
+
+		server.setTransientFailures(3);
+		for( int i = 0; i < 3; i++ ) {
+			try {
+				morre.modelQuery("sems");
+				fail("The transient failure is not thrown");
+			} catch (MorreCommunicationException e) {
+				assertFalse( e instanceof CircuitOpenException );
+			}
+		}
+		assertEquals( CircuitBreaker.State.OPEN, morre.getCircuitState(MODEL_QUERY) );
+
+		// fails fast
+		try {
+			morre.modelQuery("sems");
+			fail("The open circuit does not fail fast");
+		} catch (CircuitOpenException e) {
+			assertEquals( MODEL_QUERY, e.getEndpoint() );
+		}
+		assertEquals( 3, server.getRequestCount() );
+
+		// other endpoints are not affected
+		assertNotNull( morre.getModelHistory("file1") );
+		assertEquals( CircuitBreaker.State.CLOSED, morre.getCircuitState(MorreProtocol.SERVICE_GET_MODEL_HISTORY) );
+
+		// the probe closes the circuit again
+		Thread.sleep(250);
+		assertNotNull( morre.modelQuery("sems") );
+		assertEquals( CircuitBreaker.State.CLOSED, morre.getCircuitState(MODEL_QUERY) );
+	}
+
+	@Test
+	public void testProbeEndsOnError() throws Exception {
+		HttpMorreClient failing = new HttpMorreClient( server.getUrl() ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public List<ModelResult> doSimpleModelQuery(String queryType, String keyword, Projection projection) throws MorreException, MorreClientException, MorreCommunicationException {
+				if( keyword.equals("error") )
+					throw new Error("Unexpected failure of the probe");
+				return super.doSimpleModelQuery(queryType, keyword, projection);
+			}
+		};
+		try {
+			ResilientMorre morre = new ResilientMorre( failing, failing, new ResilienceConfig().setMaxAttempts(1).setFailureThreshold(1).setOpenDuration(100) );
+
+			server.setTransientFailures(1);
+			try {
+				morre.modelQuery("sems");
+				fail("The transient failure is not thrown");
+			} catch (MorreCommunicationException e) {
+				assertFalse( e instanceof CircuitOpenException );
+			}
+			assertEquals( CircuitBreaker.State.OPEN, morre.getCircuitState(MODEL_QUERY) );
+
+			// the probe dies with an Error, it says nothing about MORRE
+			Thread.sleep(150);
+			try {
+				morre.modelQuery("error");
+				fail("The error is not thrown");
+			} catch (Error e) {
+				// expected
+			}
+
+			// but the next call may probe again
+			assertNotNull( morre.modelQuery("sems") );
+			assertEquals( CircuitBreaker.State.CLOSED, morre.getCircuitState(MODEL_QUERY) );
+		}
+		finally {
+			failing.close();
+		}
+	}
+
+	@Test
+	public void testQueriesOnly() throws Exception {
+		ResilientMorre morre = new ResilientMorre( client, new ResilienceConfig() );
+		assertNotNull( morre.doAnnotationQuery("sems") );
+		try {
+			morre.getModelHistory("file1");
+			fail("The missing crawler is not reported");
+		} catch (MorreCommunicationException e) {
+			// expected
+		}
+		assertEquals( 1, server.getRequestCount() );
+	}
+
+}
@@ -0,0 +1,157 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.exception.MorreException;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.impl.MorreProtocol;
+import de.unirostock.sems.morre.client.metrics.InMemoryMetrics;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+import de.unirostock.sems.morre.client.standin.StandInDataset;
+
+public class ResultCursorTest {
+
+	private static final String MODEL_QUERY = MorreProtocol.REST_URL_QUERY + QueryType.MODEL_QUERY;
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer( StandInDataset.generate(60, 1, 4096) );
+		server.start();
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		if( client != null )
+			client.close();
+		server.stop();
+	}
+
+	private HttpMorreClient connect( int pageSize ) throws IOException {
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig().setPooling(true).setPageSize(pageSize) );
+		return client;
+	}
+
+	@Test
+	public void testStopEarly() throws Exception {
+		connect(0);
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		client.setMetricsListener(metrics);
+
+		ResultCursor<ModelResult> cursor = client.openModelQuery(QueryType.MODEL_QUERY, "sems", Projection.FULL);
+		List<ModelResult> top = cursor.next(5);
+		cursor.close();
+		assertEquals( 5, top.size() );
+		assertEquals( "file0", top.get(0).getFileId() );
+		assertEquals( 5, cursor.getCount() );
+		assertFalse( cursor.hasNext() );
+
+		// the rest of the 60 documents is not read
+		assertEquals( 1, server.getRequestCount() );
+		assertTrue( metrics.getStatistics(MODEL_QUERY).getResponseBytes() < server.getSentBytes() / 4 );
+
+		// the discarded connection does not harm the next request
+		assertEquals( 60, client.modelQuery("sems").size() );
+	}
+
+	@Test
+	public void testPages() throws Exception {
+		connect(25);
+		List<ModelResult> expected = client.modelQuery("sems");
+		server.resetCounters();
+
+		List<ModelResult> read = new ArrayList<ModelResult>();
+		ResultCursor<ModelResult> cursor = client.openModelQuery(QueryType.MODEL_QUERY, "sems", Projection.FULL);
+		while( cursor.hasNext() )
+			read.add( cursor.next() );
+		cursor.close();
+
+		assertEquals( 3, server.getRequestCount() );
+		assertEquals( expected.size(), read.size() );
+		for( int i = 0; i < expected.size(); i++ )
+			assertEquals( expected.get(i).getFileId(), read.get(i).getFileId() );
+
+		try {
+			cursor.next();
+			fail("The end of the result is not reported");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+
+		// a result filling the last page needs one more request to find its end
+		server.resetCounters();
+		cursor = client.openModelQuery(QueryType.MODEL_QUERY, "SEMS model", Projection.FULL);
+		assertEquals( 60, cursor.next(100).size() );
+		assertEquals( 3, server.getRequestCount() );
+
+		// the top of a large result costs a single page
+		server.resetCounters();
+		ResultCursor<PersonResult> persons = client.openPersonQuery( new FeatureSet().set("FAMILYNAME", "Family") );
+		assertEquals( 10, persons.next(10).size() );
+		persons.close();
+		assertEquals( 1, server.getRequestCount() );
+	}
+
+	@Test
+	public void testServerWithoutPaging() throws Exception {
+		connect(25);
+		server.setPaging(false);
+
+		ResultCursor<AnnotationResult> cursor = client.openAnnotationQuery("sems");
+		List<AnnotationResult> read = cursor.next(100);
+		assertEquals( 60, read.size() );
+		assertEquals( "urn:miriam:sems:59", read.get(59).getUri() );
+		assertEquals( 1, server.getRequestCount() );
+	}
+
+	@Test
+	public void testServerWithoutPagingFillingOnePage() throws Exception {
+		connect(60);
+		server.setPaging(false);
+
+		// the full first page asks for a second one, which repeats the first page
+		ResultCursor<ModelResult> cursor = client.openModelQuery(QueryType.MODEL_QUERY, "SEMS model", Projection.FULL);
+		List<ModelResult> read = cursor.next(1000);
+		assertEquals( 60, read.size() );
+		assertEquals( "file59", read.get(59).getFileId() );
+		assertEquals( 60, cursor.getCount() );
+		assertFalse( cursor.hasNext() );
+		assertEquals( 2, server.getRequestCount() );
+	}
+
+	@Test
+	public void testNoResultAndErrors() throws Exception {
+		connect(10);
+		ResultCursor<ModelResult> cursor = client.openModelQuery(QueryType.MODEL_QUERY, MorreStandInServer.KEYWORD_NO_RESULT, Projection.METADATA);
+		assertFalse( cursor.hasNext() );
+		assertTrue( cursor.next(10).isEmpty() );
+
+		cursor = client.openModelQuery(QueryType.MODEL_QUERY, MorreStandInServer.KEYWORD_EXCEPTION, Projection.FULL);
+		try {
+			cursor.hasNext();
+			fail("The server side exception is not thrown");
+		} catch (MorreException e) {
+			assertTrue( e.getMessage().contains("Stand-in exception") );
+		}
+		assertFalse( cursor.hasNext() );
+	}
+
+}
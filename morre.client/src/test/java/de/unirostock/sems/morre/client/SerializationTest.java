@@ -0,0 +1,124 @@
+package de.unirostock.sems.morre.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.unirostock.sems.morre.client.balancer.LoadBalancingConfig;
+import de.unirostock.sems.morre.client.balancer.LoadBalancingMorre;
+import de.unirostock.sems.morre.client.impl.HttpMorreClient;
+import de.unirostock.sems.morre.client.impl.HttpMorreClientConfig;
+import de.unirostock.sems.morre.client.resilience.ResilienceConfig;
+import de.unirostock.sems.morre.client.resilience.ResilientMorre;
+import de.unirostock.sems.morre.client.standin.MorreStandInServer;
+
+public class SerializationTest {
+
+	private MorreStandInServer server = null;
+	private HttpMorreClient client = null;
+
+	@Before
+	public void prepare() throws IOException {
+		server = new MorreStandInServer();
+		server.start();
+		client = new HttpMorreClient( server.getUrl(), new HttpMorreClientConfig()
+				.setPooling(true)
+				.setSocketTimeout(5000) );
+	}
+
+	@After
+	public void shutdown() throws IOException {
+		client.close();
+		HttpMorreClient.closeSharedTransports();
+		server.stop();
+	}
+
+	@Test
+	public void testClientCarriesConfigOnly() throws Exception {
+		byte[] serialized = serialize(client);
+		assertTrue( "serialized form has " + serialized.length + " bytes", serialized.length < 2048 );
+
+		HttpMorreClient first = deserialize(serialized);
+		HttpMorreClient second = deserialize(serialized);
+		assertEquals( client.getConfig().getSocketTimeout(), first.getConfig().getSocketTimeout() );
+		assertEquals( client.modelQuery("sems").size(), first.modelQuery("sems").size() );
+
+		// both copies use the same pool, the connection of the first one is available to the second
+		assertEquals( 1, second.getConnectionPoolStats().getAvailable() );
+		second.getModelHistory("file1");
+		assertEquals( 1, first.getConnectionPoolStats().getAvailable() );
+
+		// closing a copy or the original leaves the shared pool open
+		first.close();
+		client.close();
+		assertEquals( Arrays.asList("1", "2", "3"), second.getModelHistory("file1") );
+		assertEquals( Arrays.asList("1", "2", "3"), first.getModelHistory("file1") );
+
+		HttpMorreClient.closeSharedTransports();
+		assertEquals( Arrays.asList("1", "2", "3"), second.getModelHistory("file1") );
+	}
+
+	@Test
+	public void testDecorator() throws Exception {
+		Morre morre = new ResilientMorre( client, new ResilienceConfig() );
+		Morre copy = deserialize( serialize(morre) );
+		assertEquals( morre.modelQuery("sems").size(), copy.modelQuery("sems").size() );
+	}
+
+	@Test
+	public void testLoadBalancerCarriesConfigOnly() throws Exception {
+		MorreStandInServer replica = new MorreStandInServer();
+		replica.start();
+		LoadBalancingMorre balancer = new LoadBalancingMorre( server.getUrl(), Arrays.asList(replica.getUrl()),
+				new HttpMorreClientConfig().setSocketTimeout(5000), new LoadBalancingConfig().setFailureThreshold(7) );
+		try {
+			LoadBalancingMorre copy = deserialize( serialize(balancer) );
+			try {
+				assertEquals( 7, copy.getConfig().getFailureThreshold() );
+				assertEquals( 2, copy.getNodeStatus().size() );
+				assertEquals( replica.getUrl(), copy.getNodeStatus().get(1).getUrl() );
+
+				// reads go to the replica
+				assertEquals( balancer.modelQuery("sems").size(), copy.modelQuery("sems").size() );
+				assertEquals( 2, replica.getRequestCount() );
+			}
+			finally {
+				copy.close();
+			}
+		}
+		finally {
+			balancer.close();
+			replica.stop();
+		}
+	}
+
+	private static byte[] serialize( Object object ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T deserialize( byte[] serialized ) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream(serialized) );
+		try {
+			return (T) in.readObject();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,566 @@
+package de.unirostock.sems.morre.client.standin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * In-process stand-in for the MORRE REST API, to test the client without a running MORRE instance.
+ * <p>
+ * Keywords (or feature values) equal to {@link #KEYWORD_NO_RESULT} produce the
+ * <code>["#Results","0"]</code> answer, {@link #KEYWORD_EXCEPTION} produces a server side exception.
+ * The same applies to the file id of the crawler and update services.
+ * </p>
+ * <p>
+ * Without a {@link StandInDataset} the answers are generated from the request: every query returns
+ * {@link #DEFAULT_RESULT_SIZE} results containing the keyword and every model has the versions 1 to 3.
+ * With a dataset the queries search it and the update service changes it. Latency, jitter and random
+ * errors can be injected, requests are counted per path. Queries with <code>offset</code> and <code>limit</code>
+ * return only that page of the result, unless paging is disabled to act like a MORRE without paging.
+ * </p>
+ * The stand-in is part of the test jar of the client, to test applications using the client as well.
+ *
+ */
+public class MorreStandInServer {
+
+	public static final String CONTEXT = "/morre/";
+
+	public static final String KEYWORD_NO_RESULT = "nothing";
+	public static final String KEYWORD_EXCEPTION = "exception";
+
+	public static final int DEFAULT_RESULT_SIZE = 5;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static {
+		// the JDK server writes headers and body separately, without TCP_NODELAY every
+		// keep-alive request would wait for the delayed ACK of the client
+		if( System.getProperty("sun.net.httpserver.nodelay") == null )
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	public static final String PATH_DELETE_MODEL = "model_update_service/delete_model";
+
+	private final Gson gson = new Gson();
+	private final Type stringMapType = new TypeToken<Map<String, Object>>(){}.getType();
+
+	private HttpServer server = null;
+	private ExecutorService executor = null;
+
+	private final AtomicLong requestCount = new AtomicLong(0);
+	private final Map<String, AtomicLong> pathCounts = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong injectedErrors = new AtomicLong(0);
+	private final AtomicInteger activeRequests = new AtomicInteger(0);
+	private final AtomicInteger maxActiveRequests = new AtomicInteger(0);
+	private volatile long latency = 0;
+	private volatile long jitter = 0;
+	private volatile double errorRate = 0;
+	private volatile StandInDataset dataset = null;
+	private final AtomicLong receivedBytes = new AtomicLong(0);
+	private final AtomicLong sentBytes = new AtomicLong(0);
+	private final AtomicLong compressedRequests = new AtomicLong(0);
+	private volatile boolean responseCompression = false;
+	private final AtomicInteger transientFailures = new AtomicInteger(0);
+	private volatile boolean paging = true;
+	private final List<String> addedModels = Collections.synchronizedList( new ArrayList<String>() );
+
+	public MorreStandInServer() {
+	}
+
+	public MorreStandInServer( StandInDataset dataset ) {
+		this.dataset = dataset;
+	}
+
+	/**
+	 * Starts the server on a free port of the loopback interface.
+	 *
+	 * @throws IOException if the server socket can not be bound
+	 */
+	public void start() throws IOException {
+		server = HttpServer.create( new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512 );
+		server.createContext( CONTEXT, new Handler() );
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	public void stop() {
+		if( server != null )
+			server.stop(0);
+		if( executor != null )
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the base url to pass to the client.
+	 *
+	 * @return the base url
+	 */
+	public String getUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + CONTEXT;
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of requests to a path below the context, e.g. <code>query/model_query</code>.
+	 *
+	 * @param path the path
+	 * @return the number of requests
+	 */
+	public long getRequestCount( String path ) {
+		AtomicLong count = pathCounts.get(path);
+		return count != null ? count.get() : 0;
+	}
+
+	/**
+	 * Returns the number of requests to every path.
+	 *
+	 * @return Map of paths to request counts
+	 */
+	public Map<String, Long> getRequestCounts() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for( Map.Entry<String, AtomicLong> entry : pathCounts.entrySet() )
+			counts.put( entry.getKey(), entry.getValue().get() );
+		return counts;
+	}
+
+	public long getInjectedErrors() {
+		return injectedErrors.get();
+	}
+
+	/**
+	 * Returns the maximum number of requests waiting for their answer at the same time since the last reset.
+	 *
+	 * @return the maximum number of concurrent requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxActiveRequests.get();
+	}
+
+	/**
+	 * Resets all counters.
+	 */
+	public void resetCounters() {
+		requestCount.set(0);
+		pathCounts.clear();
+		injectedErrors.set(0);
+		maxActiveRequests.set(0);
+		receivedBytes.set(0);
+		sentBytes.set(0);
+		compressedRequests.set(0);
+	}
+
+	public StandInDataset getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Sets the dataset to answer from, null generates the answers.
+	 *
+	 * @param dataset the dataset
+	 */
+	public void setDataset( StandInDataset dataset ) {
+		this.dataset = dataset;
+	}
+
+	/**
+	 * Delays every answer by the given time, to simulate a remote MORRE instance.
+	 *
+	 * @param latency the delay in ms
+	 */
+	public void setLatency( long latency ) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Adds a random delay between 0 and the given time to the latency of every answer.
+	 *
+	 * @param jitter the maximum additional delay in ms
+	 */
+	public void setJitter( long jitter ) {
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Lets the given fraction of the requests fail with a MORRE exception, in the format of the requested endpoint.
+	 *
+	 * @param errorRate the fraction between 0 and 1
+	 */
+	public void setErrorRate( double errorRate ) {
+		if( errorRate < 0 || errorRate > 1 )
+			throw new IllegalArgumentException("errorRate has to be between 0 and 1");
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Enables gzip compressed answers for clients accepting them.
+	 *
+	 * @param responseCompression true to compress the answers
+	 */
+	public void setResponseCompression( boolean responseCompression ) {
+		this.responseCompression = responseCompression;
+	}
+
+	/**
+	 * Returns the bytes of all request bodies as they were transferred.
+	 *
+	 * @return the received bytes
+	 */
+	public long getReceivedBytes() {
+		return receivedBytes.get();
+	}
+
+	/**
+	 * Returns the bytes of all answer bodies as they were transferred.
+	 *
+	 * @return the sent bytes
+	 */
+	public long getSentBytes() {
+		return sentBytes.get();
+	}
+
+	public long getCompressedRequests() {
+		return compressedRequests.get();
+	}
+
+	/**
+	 * Lets the next requests fail with a 503 answer.
+	 *
+	 * @param failures the number of requests to fail
+	 */
+	public void setTransientFailures( int failures ) {
+		transientFailures.set(failures);
+	}
+
+	/**
+	 * Enables or disables the support of <code>offset</code> and <code>limit</code> in queries.
+	 * Without it, queries return the whole result, as MORRE versions without paging do.
+	 *
+	 * @param paging true to return only the requested page
+	 */
+	public void setPaging( boolean paging ) {
+		this.paging = paging;
+	}
+
+	/**
+	 * Returns the models added through the update service, as <code>fileId:versionId</code>.
+	 *
+	 * @return the added models in order of arrival
+	 */
+	public List<String> getAddedModels() {
+		synchronized( addedModels ) {
+			return new ArrayList<String>(addedModels);
+		}
+	}
+
+	// ----
+
+	private class Handler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			requestCount.incrementAndGet();
+			try {
+				String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+				count(path);
+				String body = readBody(exchange);
+
+				// counted while the answer is delayed, the client has sent the whole request and waits for the answer
+				int active = activeRequests.incrementAndGet();
+				int max;
+				while( (max = maxActiveRequests.get()) < active && !maxActiveRequests.compareAndSet(max, active) );
+				try {
+					delay();
+				} finally {
+					activeRequests.decrementAndGet();
+				}
+
+				if( takeTransientFailure() ) {
+					send(exchange, 503, "Service Unavailable");
+					return;
+				}
+
+				Object answer = null;
+				if( errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate ) {
+					injectedErrors.incrementAndGet();
+					answer = error(path, "Injected stand-in error");
+				}
+				else
+					answer = answer(exchange.getRequestMethod(), path, body);
+
+				if( answer == null )
+					send(exchange, 404, "Not Found");
+				else
+					send(exchange, 200, gson.toJson(answer));
+			}
+			finally {
+				exchange.close();
+			}
+		}
+
+	}
+
+	private boolean takeTransientFailure() {
+		int failures;
+		do {
+			failures = transientFailures.get();
+			if( failures <= 0 )
+				return false;
+		} while( !transientFailures.compareAndSet(failures, failures - 1) );
+
+		return true;
+	}
+
+	private void count( String path ) {
+		AtomicLong count = pathCounts.get(path);
+		if( count == null ) {
+			pathCounts.putIfAbsent( path, new AtomicLong(0) );
+			count = pathCounts.get(path);
+		}
+		count.incrementAndGet();
+	}
+
+	private void delay() {
+		long delay = latency;
+		if( jitter > 0 )
+			delay += ThreadLocalRandom.current().nextLong(jitter + 1);
+		if( delay <= 0 )
+			return;
+
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private String readBody( HttpExchange exchange ) throws IOException {
+		// the whole body, to keep the connection alive
+		ByteArrayOutputStream raw = new ByteArrayOutputStream();
+		InputStream body = exchange.getRequestBody();
+		byte[] buffer = new byte[8192];
+		int read;
+		while( (read = body.read(buffer)) >= 0 )
+			raw.write(buffer, 0, read);
+		receivedBytes.addAndGet( raw.size() );
+
+		InputStream content = new ByteArrayInputStream( raw.toByteArray() );
+		String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+		if( "gzip".equalsIgnoreCase(encoding) ) {
+			compressedRequests.incrementAndGet();
+			content = new GZIPInputStream(content);
+		}
+		else if( "deflate".equalsIgnoreCase(encoding) ) {
+			compressedRequests.incrementAndGet();
+			content = new InflaterInputStream(content);
+		}
+
+		StringBuilder text = new StringBuilder();
+		InputStreamReader reader = new InputStreamReader(content, UTF8);
+		char[] chars = new char[8192];
+		while( (read = reader.read(chars)) >= 0 )
+			text.append(chars, 0, read);
+		return text.toString();
+	}
+
+	private Map<String, Object> parameterOf( String body ) {
+		Map<String, Object> parameter = gson.fromJson( body, stringMapType );
+		return parameter != null ? parameter : new HashMap<String, Object>();
+	}
+
+	private void send( HttpExchange exchange, int status, String body ) throws IOException {
+		byte[] bytes = body.getBytes(UTF8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+
+		String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if( responseCompression && accepted != null && accepted.contains("gzip") ) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+			gzip.write(bytes);
+			gzip.close();
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+
+		sentBytes.addAndGet( bytes.length );
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	/**
+	 * Builds the answer to a request.
+	 *
+	 * @param method the HTTP method
+	 * @param path the path below the context
+	 * @param body the decoded request body
+	 * @return the answer to serialize or null for an unknown path
+	 */
+	protected Object answer( String method, String path, String body ) {
+
+		Map<String, Object> parameter = parameterOf(body);
+		StandInDataset dataset = this.dataset;
+
+		if( path.startsWith("query/") ) {
+			String queryType = path.substring("query/".length());
+			if( "GET".equals(method) )
+				return dataset != null ? dataset.getFeatures(queryType) : StandInDataset.DEFAULT_FEATURES;
+
+			String keyword = keywordOf(parameter);
+			if( KEYWORD_NO_RESULT.equals(keyword) )
+				return noResult();
+			else if( KEYWORD_EXCEPTION.equals(keyword) )
+				return error(path, "Stand-in exception for " + queryType);
+
+			List<?> result = dataset != null ? dataset.query(queryType, keyword) : queryResult(queryType, keyword);
+			if( paging && parameter.get("limit") instanceof Number )
+				result = page( result, parameter.get("offset"), ((Number) parameter.get("limit")).intValue() );
+			return result.isEmpty() ? noResult() : result;
+		}
+		else if( path.startsWith("model_crawler_service/") ) {
+			String fileId = (String) parameter.get("fileId");
+			if( KEYWORD_EXCEPTION.equals(fileId) || (dataset != null && dataset.getHistory(fileId) == null) )
+				return error(path, "Unknown model " + fileId);
+
+			if( path.endsWith("get_model_history") )
+				return dataset != null ? dataset.getHistory(fileId) : Arrays.asList("1", "2", "3");
+			else if( path.endsWith("get_model_version") ) {
+				String versionId = (String) parameter.get("versionId");
+				if( dataset == null )
+					return crawledModel(fileId, versionId);
+
+				CrawledModel model = dataset.getModelVersion(fileId, versionId);
+				return model != null ? model : error(path, "Unknown version " + versionId + " of " + fileId);
+			}
+			else if( path.endsWith("get_model") )
+				return dataset != null ? dataset.getLatestModelVersion(fileId) : crawledModel(fileId, "3");
+		}
+		else if( path.equals(PATH_DELETE_MODEL) ) {
+			String fileId = (String) parameter.get("fileId");
+			if( KEYWORD_EXCEPTION.equals(fileId) || (dataset != null && !dataset.deleteModel(fileId, (String) parameter.get("versionId"))) )
+				return error(path, "Can not delete model " + fileId);
+
+			return singletonMap("ok", "true");
+		}
+		else if( path.startsWith("model_update_service/add_model") ) {
+			String fileId = (String) parameter.get("fileId");
+			if( KEYWORD_EXCEPTION.equals(fileId) )
+				return error(path, "Can not add model " + fileId);
+
+			addedModels.add( fileId + ":" + parameter.get("versionId") );
+			if( dataset != null )
+				dataset.addModelVersion( gson.fromJson(body, CrawledModel.class) );
+			return singletonMap("ok", "true");
+		}
+
+		return null;
+	}
+
+	private static Object noResult() {
+		return Arrays.asList("#Results", "0");
+	}
+
+	/**
+	 * Builds a MORRE exception, queries answer with a list, the services with an object.
+	 */
+	private static Object error( String path, String message ) {
+		if( path.startsWith("query/") )
+			return Arrays.asList("Exception", message);
+		else
+			return singletonMap("Exception", message);
+	}
+
+	private static List<?> page( List<?> result, Object offset, int limit ) {
+		int from = Math.min( offset instanceof Number ? ((Number) offset).intValue() : 0, result.size() );
+		return result.subList( from, Math.min(from + limit, result.size()) );
+	}
+
+	private List<?> queryResult( String queryType, String keyword ) {
+
+		if( QueryType.PERSON_QUERY.equals(queryType) ) {
+			List<PersonResult> result = new ArrayList<PersonResult>();
+			for( int i = 0; i < DEFAULT_RESULT_SIZE; i++ )
+				result.add( new PersonResult(1f / (i + 1), new Person(keyword, "Person" + i, "p" + i + "@example.org", "SEMS"), Arrays.asList("urn:model:" + i)) );
+			return result;
+		}
+		else if( QueryType.ANNOTATION_QUERY.equals(queryType) ) {
+			List<AnnotationResult> result = new ArrayList<AnnotationResult>();
+			for( int i = 0; i < DEFAULT_RESULT_SIZE; i++ )
+				result.add( new AnnotationResult(1f / (i + 1), "urn:miriam:" + keyword + ":" + i, Arrays.asList("urn:model:" + i)) );
+			return result;
+		}
+		else if( QueryType.PUBLICATION_QUERY.equals(queryType) ) {
+			List<PublicationResult> result = new ArrayList<PublicationResult>();
+			for( int i = 0; i < DEFAULT_RESULT_SIZE; i++ ) {
+				Person author = new Person("Given" + i, "Person" + i, "p" + i + "@example.org", "SEMS");
+				result.add( new PublicationResult(1f / (i + 1), new Publication(keyword + " publication " + i, "Journal", "", "2014", Arrays.asList(author)), Arrays.asList("urn:model:" + i)) );
+			}
+			return result;
+		}
+
+		List<ModelResult> result = new ArrayList<ModelResult>();
+		for( int i = 0; i < DEFAULT_RESULT_SIZE; i++ )
+			result.add( new ModelResult(keyword + " model " + i, "model" + i, "1", "<sbml/>", "http://example.org/model" + i + ".xml", "file" + i, 1f / (i + 1)) );
+		return result;
+	}
+
+	private CrawledModel crawledModel( String fileId, String versionId ) {
+		return new CrawledModel(fileId, versionId, "<sbml id=\"" + fileId + "\"/>", new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML);
+	}
+
+	private static String keywordOf( Map<String, Object> parameter ) {
+		Object keyword = parameter.get("keyword");
+		if( keyword == null && parameter.get("keywords") instanceof List<?> && !((List<?>) parameter.get("keywords")).isEmpty() )
+			keyword = ((List<?>) parameter.get("keywords")).get(0);
+
+		return keyword != null ? keyword.toString() : "";
+	}
+
+	private static Map<String, String> singletonMap( String key, String value ) {
+		Map<String, String> map = new HashMap<String, String>();
+		map.put(key, value);
+		return map;
+	}
+
+}
@@ -0,0 +1,247 @@
+package de.unirostock.sems.morre.client.standin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.unirostock.sems.morre.client.QueryType;
+import de.unirostock.sems.morre.client.dataholder.AnnotationResult;
+import de.unirostock.sems.morre.client.dataholder.CrawledModel;
+import de.unirostock.sems.morre.client.dataholder.ModelResult;
+import de.unirostock.sems.morre.client.dataholder.Person;
+import de.unirostock.sems.morre.client.dataholder.PersonResult;
+import de.unirostock.sems.morre.client.dataholder.Publication;
+import de.unirostock.sems.morre.client.dataholder.PublicationResult;
+
+/**
+ * Content of a {@link MorreStandInServer}.
+ * <p>
+ * A query returns all entries of its result type, which contain the keyword in one of their text fields,
+ * ignoring the case. All model query types search the models. The model versions of the crawler service
+ * are kept per file id in the order they were added, models added or deleted through the update service
+ * change the dataset. All methods are safe to use while the server is running.
+ * </p>
+ *
+ */
+public class StandInDataset {
+
+	/** features of every query type, unless set otherwise */
+	public static final List<String> DEFAULT_FEATURES = Collections.unmodifiableList( Arrays.asList("NAME", "ID", "FAMILYNAME", "TITLE") );
+
+	private final Map<String, List<String>> features = new ConcurrentHashMap<String, List<String>>();
+	private final List<ModelResult> models = new CopyOnWriteArrayList<ModelResult>();
+	private final List<PersonResult> persons = new CopyOnWriteArrayList<PersonResult>();
+	private final List<PublicationResult> publications = new CopyOnWriteArrayList<PublicationResult>();
+	private final List<AnnotationResult> annotations = new CopyOnWriteArrayList<AnnotationResult>();
+	private final Map<String, Map<String, CrawledModel>> versions = new HashMap<String, Map<String, CrawledModel>>();
+
+	/**
+	 * Generates a dataset with the given number of entries of every kind. Model <code>i</code> has the file id
+	 * <code>file&lt;i&gt;</code>, the versions <code>1</code> to <code>versions</code> and the name
+	 * <code>model &lt;i&gt;</code>. Every entry contains the keyword <code>sems</code>.
+	 *
+	 * @param size the number of entries of every kind
+	 * @param versions the number of versions of every model
+	 * @param xmldocSize the length of the model documents
+	 * @return the dataset
+	 */
+	public static StandInDataset generate( int size, int versions, int xmldocSize ) {
+		StandInDataset dataset = new StandInDataset();
+		for( int i = 0; i < size; i++ ) {
+			String fileId = "file" + i;
+			String xmldoc = xmldoc(fileId, xmldocSize);
+			Person person = new Person("Given" + i, "Family" + i, "person" + i + "@example.org", "SEMS");
+			List<String> related = Arrays.asList( "urn:model:" + fileId );
+
+			dataset.addModel( new ModelResult("SEMS model " + i, "model" + i, String.valueOf(versions), xmldoc, "http://example.org/" + fileId + ".xml", fileId, 1f / (i + 1)) );
+			dataset.addPerson( new PersonResult(1f / (i + 1), person, related) );
+			dataset.addPublication( new PublicationResult(1f / (i + 1), new Publication("Publication " + i + " of SEMS", "Journal of SEMS", "Synopsis " + i, String.valueOf(2000 + i % 20), Arrays.asList(person)), related) );
+			dataset.addAnnotation( new AnnotationResult(1f / (i + 1), "urn:miriam:sems:" + i, related) );
+			for( int version = 1; version <= versions; version++ )
+				dataset.addModelVersion( new CrawledModel(fileId, String.valueOf(version), xmldoc, new HashMap<String, List<String>>(), new HashMap<String, String>(), CrawledModel.TYPE_SBML) );
+		}
+		return dataset;
+	}
+
+	public StandInDataset setFeatures( String queryType, List<String> features ) {
+		this.features.put( queryType, new ArrayList<String>(features) );
+		return this;
+	}
+
+	public StandInDataset addModel( ModelResult model ) {
+		models.add(model);
+		return this;
+	}
+
+	public StandInDataset addPerson( PersonResult person ) {
+		persons.add(person);
+		return this;
+	}
+
+	public StandInDataset addPublication( PublicationResult publication ) {
+		publications.add(publication);
+		return this;
+	}
+
+	public StandInDataset addAnnotation( AnnotationResult annotation ) {
+		annotations.add(annotation);
+		return this;
+	}
+
+	/**
+	 * Adds a model version, as the update service does. An existing version is replaced.
+	 *
+	 * @param model the model version
+	 * @return this dataset
+	 */
+	public StandInDataset addModelVersion( CrawledModel model ) {
+		synchronized( versions ) {
+			Map<String, CrawledModel> history = versions.get( model.getFileId() );
+			if( history == null ) {
+				history = new LinkedHashMap<String, CrawledModel>();
+				versions.put( model.getFileId(), history );
+			}
+			history.put( model.getVersionId(), model );
+		}
+		return this;
+	}
+
+	/**
+	 * Deletes one version of a model or the whole model.
+	 *
+	 * @param fileId the file id
+	 * @param versionId the version id or null for all versions
+	 * @return true, if something was deleted
+	 */
+	public boolean deleteModel( String fileId, String versionId ) {
+		synchronized( versions ) {
+			Map<String, CrawledModel> history = versions.get(fileId);
+			if( history == null )
+				return false;
+			if( versionId == null ) {
+				versions.remove(fileId);
+				return true;
+			}
+
+			boolean deleted = history.remove(versionId) != null;
+			if( history.isEmpty() )
+				versions.remove(fileId);
+			return deleted;
+		}
+	}
+
+	public List<String> getFeatures( String queryType ) {
+		List<String> result = features.get(queryType);
+		return result != null ? result : DEFAULT_FEATURES;
+	}
+
+	/**
+	 * Searches the entries of the result type of the query.
+	 *
+	 * @param queryType the query type
+	 * @param keyword the keyword, an empty keyword matches everything
+	 * @return the matching entries
+	 */
+	public List<?> query( String queryType, String keyword ) {
+		String needle = keyword.toLowerCase(Locale.ENGLISH);
+
+		if( QueryType.PERSON_QUERY.equals(queryType) ) {
+			List<PersonResult> result = new ArrayList<PersonResult>();
+			for( PersonResult person : persons ) {
+				if( matches(needle, person.getPerson().getFirstName(), person.getPerson().getLastName(), person.getPerson().getEmail(), person.getPerson().getOrganization()) )
+					result.add(person);
+			}
+			return result;
+		}
+		else if( QueryType.PUBLICATION_QUERY.equals(queryType) ) {
+			List<PublicationResult> result = new ArrayList<PublicationResult>();
+			for( PublicationResult publication : publications ) {
+				Publication entry = publication.getPublication();
+				if( matches(needle, entry.getTitle(), entry.getJournal(), entry.getSynopsis(), entry.getYear()) )
+					result.add(publication);
+			}
+			return result;
+		}
+		else if( QueryType.ANNOTATION_QUERY.equals(queryType) ) {
+			List<AnnotationResult> result = new ArrayList<AnnotationResult>();
+			for( AnnotationResult annotation : annotations ) {
+				if( matches(needle, annotation.getUri()) )
+					result.add(annotation);
+			}
+			return result;
+		}
+
+		List<ModelResult> result = new ArrayList<ModelResult>();
+		for( ModelResult model : models ) {
+			if( matches(needle, model.getModelName(), model.getModelID(), model.getFileId(), model.getDocumentURI()) )
+				result.add(model);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the versions of a model in the order they were added.
+	 *
+	 * @param fileId the file id
+	 * @return the version ids or null for an unknown model
+	 */
+	public List<String> getHistory( String fileId ) {
+		synchronized( versions ) {
+			Map<String, CrawledModel> history = versions.get(fileId);
+			return history != null ? new ArrayList<String>( history.keySet() ) : null;
+		}
+	}
+
+	public CrawledModel getModelVersion( String fileId, String versionId ) {
+		synchronized( versions ) {
+			Map<String, CrawledModel> history = versions.get(fileId);
+			return history != null ? history.get(versionId) : null;
+		}
+	}
+
+	/**
+	 * Returns the version added last.
+	 *
+	 * @param fileId the file id
+	 * @return the model version or null for an unknown model
+	 */
+	public CrawledModel getLatestModelVersion( String fileId ) {
+		synchronized( versions ) {
+			Map<String, CrawledModel> history = versions.get(fileId);
+			CrawledModel latest = null;
+			if( history != null ) {
+				for( CrawledModel model : history.values() )
+					latest = model;
+			}
+			return latest;
+		}
+	}
+
+	private static boolean matches( String needle, String... fields ) {
+		if( needle.isEmpty() )
+			return true;
+
+		for( String field : fields ) {
+			if( field != null && field.toLowerCase(Locale.ENGLISH).contains(needle) )
+				return true;
+		}
+		return false;
+	}
+
+	private static String xmldoc( String fileId, int size ) {
+		StringBuilder doc = new StringBuilder( size + 32 );
+		doc.append("<sbml id=\"").append(fileId).append("\">");
+		int species = 0;
+		while( doc.length() + 7 < size )
+			doc.append("<species id=\"s").append(species++).append("\"/>");
+		return doc.append("</sbml>").toString();
+	}
+
+}